@@ -21,9 +21,12 @@ package org.wildfly.discovery;
 import org.wildfly.discovery.spi.DiscoveryProvider;
 import org.wildfly.discovery.spi.DiscoveryRequest;
 import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterOperation;
 import org.wildfly.discovery.spi.RegistryProvider;
 
 import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 final class ConfiguredProvider implements DiscoveryProvider, RegistryProvider {
 
@@ -47,9 +50,21 @@ final class ConfiguredProvider implements DiscoveryProvider, RegistryProvider {
         return delegateDiscoveryProvider.discover(serviceType, filterSpec, result);
     }
 
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+        return delegateDiscoveryProvider.discover(serviceType, filterSpec, result, options);
+    }
+
+    public Set<FilterOperation> getSupportedFilterOperations() {
+        return delegateDiscoveryProvider.getSupportedFilterOperations();
+    }
+
     public void processMissingTarget(URI location, Exception cause) {
         delegateDiscoveryProvider.processMissingTarget(location, cause);
     }
 
+    public void processSuccessfulTarget(final URI location, final long latency, final TimeUnit unit) {
+        delegateDiscoveryProvider.processSuccessfulTarget(location, latency, unit);
+    }
+
     static final ConfiguredProvider INSTANCE = DiscoveryXmlParser.getConfiguredProvider();
 }
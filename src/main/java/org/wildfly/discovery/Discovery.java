@@ -19,10 +19,10 @@
 package org.wildfly.discovery;
 
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -35,6 +35,7 @@ import org.wildfly.discovery.impl.AggregateDiscoveryProvider;
 import org.wildfly.discovery.spi.DiscoveryProvider;
 import org.wildfly.discovery.spi.DiscoveryRequest;
 import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterSplit;
 
 /**
  * The service discovery API.  Each discovery instance is associated with discovery providers which are able to
@@ -45,7 +46,6 @@ import org.wildfly.discovery.spi.DiscoveryResult;
 public final class Discovery implements Contextual<Discovery> {
 
     private static final Logger log = Logger.getLogger("org.wildfly.discovery");
-    private static final ServiceURL END_MARK = new ServiceURL.Builder().setUri(URI.create("DUMMY:DUMMY")).create();
 
     private static final ContextManager<Discovery> CONTEXT_MANAGER;
 
@@ -55,9 +55,15 @@ public final class Discovery implements Contextual<Discovery> {
     }
 
     private final DiscoveryProvider provider;
+    private final LocationRanking ranking;
 
     Discovery(final DiscoveryProvider provider) {
+        this(provider, null);
+    }
+
+    Discovery(final DiscoveryProvider provider, final LocationRanking ranking) {
         this.provider = provider;
+        this.ranking = ranking;
     }
 
     /**
@@ -109,17 +115,80 @@ public final class Discovery implements Contextual<Discovery> {
      * @return the services queue
      */
     public ServicesQueue discover(ServiceType serviceType, FilterSpec filterSpec, long timeout, TimeUnit timeUnit) {
+        return discover(serviceType, filterSpec, Integer.MAX_VALUE, timeout, timeUnit);
+    }
+
+    /**
+     * Perform a service discovery for at most the given number of answers.  Once that many answers are available, the
+     * discovery is complete and the providers are asked to stop searching.  If the discovery object has a ranking, it
+     * orders the answers which were found, rather than choosing the best answers among all possible ones.
+     *
+     * @param serviceType the abstract or concrete type of service to search for
+     * @param filterSpec the service filter specification
+     * @param limit the maximum number of answers (must be positive)
+     * @return the services queue
+     */
+    public ServicesQueue discover(ServiceType serviceType, FilterSpec filterSpec, int limit) {
+        return discover(serviceType, filterSpec, limit, Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * Perform a service discovery for at most the given number of answers, with a timeout.
+     *
+     * @param serviceType the abstract or concrete type of service to search for
+     * @param filterSpec the service filter specification
+     * @param limit the maximum number of answers (must be positive)
+     * @param timeout the timeout duration
+     * @param timeUnit the unit of time for the timeout
+     * @return the services queue
+     * @see #discover(ServiceType, FilterSpec, int)
+     */
+    public ServicesQueue discover(ServiceType serviceType, FilterSpec filterSpec, int limit, long timeout, TimeUnit timeUnit) {
+        Assert.checkMinimumParameter("limit", 1, limit);
         Assert.checkMinimumParameter("timeout", 1, timeout);
         Assert.assertNotNull(timeUnit);
+        return discover(serviceType, filterSpec, new DiscoveryRequestOptions.Builder().setLimit(limit).setTimeout(timeout, timeUnit).create());
+    }
 
+    /**
+     * Perform a service discovery with the given request options.  The options are passed to the providers, so that
+     * they can bound their own work.  Once the deadline has passed, the returned services queue returns the answers
+     * which are already available and then reports that it is finished.
+     *
+     * @param serviceType the abstract or concrete type of service to search for (must not be {@code null})
+     * @param filterSpec the service filter specification
+     * @param options the request options (must not be {@code null})
+     * @return the services queue
+     */
+    public ServicesQueue discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryRequestOptions options) {
         Assert.checkNotNullParam("serviceType", serviceType);
-        final LinkedBlockingQueue<ServiceURL> queue = new LinkedBlockingQueue<>();
+        Assert.checkNotNullParam("options", options);
+        final int limit = options.getLimit();
+        final ResultBuffer buffer = new ResultBuffer(ranking == null ? new ArrayDeque<>() : ranking.createQueue(), limit, options.getBufferCapacity(), options.getOverflowPolicy(), options.getOverflowTimeout(TimeUnit.NANOSECONDS));
         final CopyOnWriteArrayList<Throwable> problems = new CopyOnWriteArrayList<>();
-        final DiscoveryResult result = new BlockingQueueDiscoveryResult(queue, problems);
+        final DiscoveryEvent event;
+        if (JfrSupport.AVAILABLE && DiscoveryEvent.isTypeEnabled()) {
+            event = new DiscoveryEvent();
+            event.serviceType = serviceType.toString();
+            event.filter = String.valueOf(filterSpec);
+            event.provider = provider.getClass().getName();
+            event.begin();
+        } else {
+            event = null;
+        }
+        final BufferDiscoveryResult result = new BufferDiscoveryResult(buffer, problems, event, options);
 
-        log.tracef("Calling discover(%s, %s) with result instance %s and timeout of %s %s\n", serviceType, filterSpec, result, timeout, timeUnit);
+        log.tracef("Calling discover(%s, %s) with result instance %s and %s\n", serviceType, filterSpec, result, options);
 
-        return new BlockingQueueServicesQueue(queue, problems, provider.discover(serviceType, filterSpec, result), timeout, timeUnit);
+        final DiscoveryRequest request;
+        buffer.setCaller(Thread.currentThread());
+        try {
+            request = FilterSplit.of(filterSpec, provider.getSupportedFilterOperations()).discover(provider, serviceType, result, options);
+        } finally {
+            buffer.setCaller(null);
+        }
+        result.setRequest(request);
+        return new BufferServicesQueue(buffer, problems, request, options);
     }
 
     /**
@@ -137,8 +206,66 @@ public final class Discovery implements Contextual<Discovery> {
         return discover(description.getServiceType(), description.getFilterSpec());
     }
 
+    /**
+     * Report that an invocation using a discovered location failed.  The report is passed to the discovery providers,
+     * and is recorded in the location ranking if there is one.
+     *
+     * @param location the location on which the invocation failed
+     * @param cause the cause of the failure
+     */
     public void processMissingTarget(URI location, Exception cause){
-        provider.processMissingTarget(location, cause);
+        if (ranking != null && location != null) {
+            ranking.recordFailure(location);
+        }
+        if (JfrSupport.AVAILABLE && MissingTargetEvent.isTypeEnabled()) {
+            final MissingTargetEvent event = new MissingTargetEvent();
+            event.begin();
+            try {
+                provider.processMissingTarget(location, cause);
+            } finally {
+                event.end(location, cause);
+            }
+        } else {
+            provider.processMissingTarget(location, cause);
+        }
+    }
+
+    /**
+     * Report that an invocation using a discovered location succeeded.  The report is passed to the discovery
+     * providers, and is recorded in the location ranking if there is one.
+     *
+     * @param location the location on which the invocation succeeded (must not be {@code null})
+     * @param latency the time taken to connect to the location
+     * @param unit the unit of the latency (must not be {@code null})
+     */
+    public void processSuccessfulTarget(URI location, long latency, TimeUnit unit) {
+        Assert.checkNotNullParam("location", location);
+        Assert.checkNotNullParam("unit", unit);
+        if (ranking != null) {
+            ranking.recordSuccess(location, latency, unit);
+        }
+        provider.processSuccessfulTarget(location, latency, unit);
+    }
+
+    /**
+     * Get a discovery object with the same providers which orders the answers of each discovery by the given ranking,
+     * best first.  Answers which are available when the services queue is read are ordered among themselves; an answer
+     * which arrives later is not returned before answers which were already read.
+     *
+     * @param ranking the location ranking, or {@code null} to return answers in arrival order
+     * @return the discovery object (not {@code null})
+     */
+    public Discovery withRanking(LocationRanking ranking) {
+        return ranking == this.ranking ? this : new Discovery(provider, ranking);
+    }
+
+    /**
+     * Get the location ranking of this discovery object.
+     *
+     * @return the location ranking, or {@code null} if answers are returned in arrival order
+     */
+    public LocationRanking getRanking() {
+        return ranking;
     }
 
     /**
@@ -177,19 +304,27 @@ public final class Discovery implements Contextual<Discovery> {
 
     // Internal classes
 
-    static final class BlockingQueueDiscoveryResult implements DiscoveryResult {
+    static final class BufferDiscoveryResult implements DiscoveryResult {
         private final AtomicBoolean done = new AtomicBoolean(false);
-        private final BlockingQueue<ServiceURL> queue;
+        private final ResultBuffer buffer;
         private final CopyOnWriteArrayList<Throwable> problems;
+        private final DiscoveryEvent event;
+        private final DiscoveryRequestOptions options;
+        private volatile boolean stopped;
+        private volatile DiscoveryRequest request;
 
-        BlockingQueueDiscoveryResult(final BlockingQueue<ServiceURL> queue, final CopyOnWriteArrayList<Throwable> problems) {
-            this.queue = queue;
+        BufferDiscoveryResult(final ResultBuffer buffer, final CopyOnWriteArrayList<Throwable> problems, final DiscoveryEvent event, final DiscoveryRequestOptions options) {
+            this.buffer = buffer;
             this.problems = problems;
+            this.event = event;
+            this.options = options;
         }
 
         public void complete() {
             if (done.compareAndSet(false, true)) {
-                queue.add(END_MARK);
+                // commit the event before waking the consumer, who may be waiting to read it
+                if (event != null) event.end(buffer.getAddedCount(), problems.size());
+                buffer.complete();
 
                 log.tracef("Discovery complete on %s\n", this);
             }
@@ -204,61 +339,98 @@ public final class Discovery implements Contextual<Discovery> {
         public void addMatch(final ServiceURL serviceURL) {
             if (serviceURL != null && ! done.get()) {
                 log.tracef("Adding service URL match \"%s\" to %s", serviceURL, this);
-                // if the queue is full, drop
-                queue.offer(serviceURL);
+                buffer.add(serviceURL);
+                checkBuffer();
             } else {
                 log.tracef("Ignoring service URL match \"%s\" to %s", serviceURL, this);
             }
         }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            if (! done.get()) {
+                log.tracef("Adding %d service URL matches to %s", serviceURLs.size(), this);
+                buffer.addAll(serviceURLs);
+                checkBuffer();
+            } else {
+                log.tracef("Ignoring %d service URL matches to %s", serviceURLs.size(), this);
+            }
+        }
+
+        public int getRemainingLimit() {
+            return done.get() ? 0 : buffer.getRemaining();
+        }
+
+        void setRequest(final DiscoveryRequest request) {
+            this.request = request;
+            if (stopped && request != null) {
+                request.cancel();
+            }
+        }
+
+        private void checkBuffer() {
+            if (options.getBufferCapacity() != Integer.MAX_VALUE && buffer.checkOverflow()) {
+                reportProblem(new IllegalStateException("Discovery results exceeded the buffer capacity of " + options.getBufferCapacity() + " (overflow policy " + options.getOverflowPolicy() + ")"));
+            }
+            // the buffer stops accepting matches once the limit is reached or it overflowed with the cancel policy
+            if (buffer.getRemaining() == 0 && ! stopped) {
+                log.tracef("Buffer of %s is no longer accepting matches", this);
+                stopped = true;
+                complete();
+                final DiscoveryRequest request = this.request;
+                if (request != null) {
+                    request.cancel();
+                }
+            }
+        }
     }
 
-    static final class BlockingQueueServicesQueue implements ServicesQueue {
-        private final LinkedBlockingQueue<ServiceURL> queue;
+    static final class BufferServicesQueue implements ServicesQueue {
+        private final ResultBuffer buffer;
         private final CopyOnWriteArrayList<Throwable> problems;
         private final DiscoveryRequest request;
-        private final long timeout;
-        private final TimeUnit timeUnit;
+        private final DiscoveryRequestOptions options;
         private ServiceURL next;
         private boolean done;
 
-        BlockingQueueServicesQueue(final LinkedBlockingQueue<ServiceURL> queue, final CopyOnWriteArrayList<Throwable> problems, final DiscoveryRequest request) {
-            this(queue, problems, request, Long.MAX_VALUE, TimeUnit.DAYS);
+        BufferServicesQueue(final ResultBuffer buffer, final CopyOnWriteArrayList<Throwable> problems, final DiscoveryRequest request) {
+            this(buffer, problems, request, DiscoveryRequestOptions.DEFAULT);
         }
 
-        BlockingQueueServicesQueue(final LinkedBlockingQueue<ServiceURL> queue, final CopyOnWriteArrayList<Throwable> problems, final DiscoveryRequest request, final long time, final TimeUnit timeUnit) {
-            this.queue = queue;
+        BufferServicesQueue(final ResultBuffer buffer, final CopyOnWriteArrayList<Throwable> problems, final DiscoveryRequest request, final DiscoveryRequestOptions options) {
+            this.buffer = buffer;
             this.problems = problems;
             this.request = request;
-            this.timeout = time;
-            this.timeUnit = timeUnit;
+            this.options = options;
         }
 
         public void await() throws InterruptedException {
             if (done) return;
-            while (next == null) {
-                next = queue.take();
-                if (next == END_MARK) {
+            if (next == null) {
+                if (options.hasDeadline()) {
+                    await(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                next = buffer.take();
+                if (next == ResultBuffer.END) {
                     next = null;
                     // sentinel value to indicate the provider completed
                     done = true;
-                    return;
                 }
             }
         }
 
         public void await(final long time, final TimeUnit unit) throws InterruptedException {
-            long remaining = unit.toNanos(time);
-            long mark = System.nanoTime();
-            long now;
-            while (next == null && ! done && remaining > 0L) {
-                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
-                now = System.nanoTime();
-                remaining -= Math.max(1L, now - mark);
-                if (next == END_MARK) {
+            if (next == null && ! done) {
+                final long remaining = options.getRemainingTime(TimeUnit.NANOSECONDS);
+                final long nanos = unit.toNanos(time);
+                next = buffer.poll(Math.min(nanos, remaining));
+                if (next == ResultBuffer.END) {
                     next = null;
                     // sentinel value to indicate the provider completed
                     done = true;
-                    return;
+                } else if (next == null && options.hasDeadline() && remaining <= nanos) {
+                    // the caller's deadline has passed
+                    cancel();
                 }
             }
         }
@@ -287,11 +459,44 @@ public final class Discovery implements Contextual<Discovery> {
             return pollService();
         }
 
+        public int drainTo(final Collection<? super ServiceURL> collection, final int max) {
+            Assert.checkNotNullParam("collection", collection);
+            int cnt = 0;
+            if (next != null && max > 0) {
+                collection.add(next);
+                next = null;
+                cnt ++;
+            }
+            if (! done && cnt < max) {
+                final int drained = buffer.drainTo(collection, max - cnt);
+                if (buffer.isFinished()) {
+                    done = true;
+                } else if (drained < max - cnt && options.isExpired()) {
+                    // once the deadline has passed, the queue is finished when the buffer is empty
+                    cancel();
+                }
+                cnt += drained;
+            }
+            return cnt;
+        }
+
         public boolean isFinished() {
             return next == null && done;
         }
 
         public void close() {
+            next = null;
+            cancel();
+        }
+
+        private void cancel() {
+            done = true;
+            if (buffer.discard()) {
+                log.tracef("Cancelling discovery request of %s", this);
+                if (request != null) {
+                    request.cancel();
+                }
+            }
         }
 
         @NotNull
@@ -0,0 +1,589 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wildfly.common.Assert;
+
+/**
+ * A compact binary codec for service URLs and filter specifications.
+ * <p>
+ * All lengths and counts are written as variable-length integers, and attribute values carry a one-byte type tag.
+ * Type names, authorities and attribute names are written as <em>symbols</em>: the first occurrence of a symbol is
+ * written out in full and every later occurrence refers back to it by index.  The symbol dictionary of an
+ * {@link Encoder} spans every object written with it until it is {@linkplain Encoder#reset() reset}, so a series of
+ * objects must be read back in the same order by a single {@link Decoder} which is reset at the same points.
+ * <p>
+ * Decoders are safe to use on untrusted input: no count may exceed the number of bytes which remain in the buffer,
+ * and filter specifications may be nested at most {@value #MAX_FILTER_DEPTH} deep.
+ * <p>
+ * Encoders and decoders are not thread-safe.
+ */
+public final class DiscoveryCodec {
+
+    // attribute value tags; the kinds of attribute values are used as their tags
+    private static final int V_NONE = 5;
+
+    // filter spec tags
+    private static final int F_TRUE = 0;
+    private static final int F_FALSE = 1;
+    private static final int F_ALL = 2;
+    private static final int F_ANY = 3;
+    private static final int F_NOT = 4;
+    private static final int F_EQUAL = 5;
+    private static final int F_GREATER_EQUAL = 6;
+    private static final int F_LESS_EQUAL = 7;
+    private static final int F_HAS = 8;
+    private static final int F_SUBSTRING = 9;
+
+    /**
+     * The maximum nesting depth of a filter specification which can be read.
+     */
+    public static final int MAX_FILTER_DEPTH = 64;
+
+    // service URL flags
+    private static final int U_ABSTRACT_TYPE = 1 << 0;
+    private static final int U_ABSTRACT_TYPE_AUTHORITY = 1 << 1;
+    private static final int U_URI_SCHEME_AUTHORITY = 1 << 2;
+
+    private DiscoveryCodec() {
+    }
+
+    /**
+     * Create a new encoder.
+     *
+     * @return the new encoder (not {@code null})
+     */
+    public static Encoder createEncoder() {
+        return new Encoder();
+    }
+
+    /**
+     * Create a new decoder.
+     *
+     * @return the new decoder (not {@code null})
+     */
+    public static Decoder createDecoder() {
+        return new Decoder();
+    }
+
+    /**
+     * An encoder which writes service URLs and filter specifications to byte buffers.
+     */
+    public static final class Encoder {
+        private final HashMap<String, Integer> symbols = new HashMap<>();
+        private final ArrayList<String> symbolList = new ArrayList<>();
+        private final FilterWriter filterWriter = new FilterWriter();
+
+        Encoder() {
+        }
+
+        /**
+         * Write a service URL to the given buffer.  If the buffer overflows, its position and the state of this
+         * encoder are restored, and the exception is rethrown.
+         *
+         * @param buffer the buffer to write to (must not be {@code null})
+         * @param serviceURL the service URL to write (must not be {@code null})
+         * @throws java.nio.BufferOverflowException if the buffer does not have enough space for the service URL
+         */
+        public void writeServiceURL(ByteBuffer buffer, ServiceURL serviceURL) {
+            Assert.checkNotNullParam("buffer", buffer);
+            Assert.checkNotNullParam("serviceURL", serviceURL);
+            final int position = buffer.position();
+            final int mark = symbolList.size();
+            try {
+                final String abstractType = serviceURL.getAbstractType();
+                final String abstractTypeAuthority = serviceURL.getAbstractTypeAuthority();
+                final String uriSchemeAuthority = serviceURL.getUriSchemeAuthority();
+                int flags = 0;
+                if (abstractType != null) flags |= U_ABSTRACT_TYPE;
+                if (abstractTypeAuthority != null) flags |= U_ABSTRACT_TYPE_AUTHORITY;
+                if (uriSchemeAuthority != null) flags |= U_URI_SCHEME_AUTHORITY;
+                buffer.put((byte) flags);
+                if (abstractType != null) writeSymbol(buffer, abstractType);
+                if (abstractTypeAuthority != null) writeSymbol(buffer, abstractTypeAuthority);
+                writeString(buffer, serviceURL.getLocationURI().toString());
+                if (uriSchemeAuthority != null) writeSymbol(buffer, uriSchemeAuthority);
+                final Map<String, List<AttributeValue>> attributes = serviceURL.getAttributes();
+                writeVarInt(buffer, attributes.size());
+                for (Map.Entry<String, List<AttributeValue>> entry : attributes.entrySet()) {
+                    writeSymbol(buffer, entry.getKey());
+                    final List<AttributeValue> values = entry.getValue();
+                    final int size = values.size();
+                    writeVarInt(buffer, size);
+                    for (int i = 0; i < size; i ++) {
+                        writeAttributeValue(buffer, values.get(i));
+                    }
+                }
+            } catch (RuntimeException e) {
+                rollback(buffer, position, mark);
+                throw e;
+            }
+        }
+
+        /**
+         * Write a filter specification to the given buffer.  If the buffer overflows, its position and the state of
+         * this encoder are restored, and the exception is rethrown.
+         *
+         * @param buffer the buffer to write to (must not be {@code null})
+         * @param filterSpec the filter specification to write (must not be {@code null})
+         * @throws java.nio.BufferOverflowException if the buffer does not have enough space for the filter
+         */
+        public void writeFilterSpec(ByteBuffer buffer, FilterSpec filterSpec) {
+            Assert.checkNotNullParam("buffer", buffer);
+            Assert.checkNotNullParam("filterSpec", filterSpec);
+            final int position = buffer.position();
+            final int mark = symbolList.size();
+            try {
+                filterSpec.accept(filterWriter, buffer);
+            } catch (RuntimeException e) {
+                rollback(buffer, position, mark);
+                throw e;
+            }
+        }
+
+        /**
+         * Reset the symbol dictionary of this encoder.
+         */
+        public void reset() {
+            symbols.clear();
+            symbolList.clear();
+        }
+
+        private void rollback(final ByteBuffer buffer, final int position, final int mark) {
+            buffer.position(position);
+            for (int i = symbolList.size() - 1; i >= mark; i --) {
+                symbols.remove(symbolList.remove(i));
+            }
+        }
+
+        void writeSymbol(ByteBuffer buffer, String symbol) {
+            final Integer idx = symbols.get(symbol);
+            if (idx != null) {
+                writeVarInt(buffer, idx.intValue() + 1);
+            } else {
+                buffer.put((byte) 0);
+                writeString(buffer, symbol);
+                symbols.put(symbol, Integer.valueOf(symbolList.size()));
+                symbolList.add(symbol);
+            }
+        }
+
+        void writeAttributeValue(ByteBuffer buffer, AttributeValue value) {
+            if (value == null) {
+                buffer.put((byte) V_NONE);
+                return;
+            }
+            final int kind = value.getKind();
+            buffer.put((byte) kind);
+            switch (kind) {
+                case AttributeValue.K_OPAQUE: {
+                    final byte[] content = ((OpaqueAttributeValue) value).getContent();
+                    writeVarInt(buffer, content.length);
+                    buffer.put(content);
+                    break;
+                }
+                case AttributeValue.K_NUMERIC: {
+                    final int intValue = value.asInt();
+                    // zig-zag encoding
+                    writeVarInt(buffer, intValue << 1 ^ intValue >> 31);
+                    break;
+                }
+                case AttributeValue.K_STRING: {
+                    writeString(buffer, value.toString());
+                    break;
+                }
+                default: {
+                    // boolean values have no content
+                    break;
+                }
+            }
+        }
+
+        final class FilterWriter implements FilterSpec.Visitor<ByteBuffer, Void, RuntimeException> {
+            public Void handle(final FilterSpec filterSpec, final ByteBuffer buffer) {
+                throw new IllegalArgumentException("Unsupported filter specification " + filterSpec);
+            }
+
+            public Void handle(final EqualsFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_EQUAL);
+                writeSymbol(buffer, filterSpec.getAttribute());
+                writeAttributeValue(buffer, filterSpec.getValue());
+                return null;
+            }
+
+            public Void handle(final GreaterEqualFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_GREATER_EQUAL);
+                writeSymbol(buffer, filterSpec.getAttribute());
+                writeAttributeValue(buffer, filterSpec.getValue());
+                return null;
+            }
+
+            public Void handle(final HasFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_HAS);
+                writeSymbol(buffer, filterSpec.getAttribute());
+                return null;
+            }
+
+            public Void handle(final LessEqualFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_LESS_EQUAL);
+                writeSymbol(buffer, filterSpec.getAttribute());
+                writeAttributeValue(buffer, filterSpec.getValue());
+                return null;
+            }
+
+            public Void handle(final AnyFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_ANY);
+                writeChildren(filterSpec, buffer);
+                return null;
+            }
+
+            public Void handle(final AllFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_ALL);
+                writeChildren(filterSpec, buffer);
+                return null;
+            }
+
+            public Void handle(final NotFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_NOT);
+                filterSpec.getChild().accept(this, buffer);
+                return null;
+            }
+
+            public Void handle(final SubstringFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) F_SUBSTRING);
+                writeSymbol(buffer, filterSpec.getAttribute());
+                writeString(buffer, filterSpec.getInitialPart());
+                writeString(buffer, filterSpec.getFinalPart());
+                return null;
+            }
+
+            public Void handle(final BooleanFilterSpec filterSpec, final ByteBuffer buffer) {
+                buffer.put((byte) (filterSpec.getValue() ? F_TRUE : F_FALSE));
+                return null;
+            }
+
+            private void writeChildren(final Iterable<FilterSpec> filterSpec, final ByteBuffer buffer) {
+                int count = 0;
+                for (FilterSpec ignored : filterSpec) {
+                    count ++;
+                }
+                writeVarInt(buffer, count);
+                for (FilterSpec child : filterSpec) {
+                    child.accept(this, buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * A decoder which reads service URLs and filter specifications from byte buffers.
+     */
+    public static final class Decoder {
+        private final ArrayList<String> symbolList = new ArrayList<>();
+        private char[] chars = new char[64];
+
+        Decoder() {
+        }
+
+        /**
+         * Read a service URL from the given buffer.
+         *
+         * @param buffer the buffer to read from (must not be {@code null})
+         * @return the service URL (not {@code null})
+         * @throws java.nio.BufferUnderflowException if the buffer does not contain a complete service URL
+         * @throws IllegalArgumentException if the buffer does not contain a valid service URL
+         */
+        public ServiceURL readServiceURL(ByteBuffer buffer) {
+            Assert.checkNotNullParam("buffer", buffer);
+            final int mark = symbolList.size();
+            try {
+                final int flags = buffer.get();
+                final String abstractType = (flags & U_ABSTRACT_TYPE) != 0 ? readSymbol(buffer) : null;
+                final String abstractTypeAuthority = (flags & U_ABSTRACT_TYPE_AUTHORITY) != 0 ? readSymbol(buffer) : null;
+                final URI uri;
+                try {
+                    uri = new URI(readString(buffer));
+                } catch (URISyntaxException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                final String uriSchemeAuthority = (flags & U_URI_SCHEME_AUTHORITY) != 0 ? readSymbol(buffer) : null;
+                final int attributeCount = readCount(buffer);
+                final Map<String, List<AttributeValue>> attributes;
+                if (attributeCount == 0) {
+                    attributes = Collections.emptyMap();
+                } else {
+                    attributes = new HashMap<>(attributeCount * 4 / 3 + 1);
+                    for (int i = 0; i < attributeCount; i ++) {
+                        final String name = readSymbol(buffer);
+                        final int valueCount = readCount(buffer);
+                        final List<AttributeValue> list;
+                        if (valueCount == 0) {
+                            list = Collections.emptyList();
+                        } else if (valueCount == 1) {
+                            list = Collections.singletonList(readAttributeValue(buffer));
+                        } else {
+                            final AttributeValue[] values = new AttributeValue[valueCount];
+                            for (int j = 0; j < valueCount; j ++) {
+                                values[j] = readAttributeValue(buffer);
+                            }
+                            list = Collections.unmodifiableList(Arrays.asList(values));
+                        }
+                        attributes.put(name, list);
+                    }
+                }
+                return new ServiceURL(abstractType, abstractTypeAuthority, uri, uriSchemeAuthority, attributes);
+            } catch (RuntimeException e) {
+                rollback(mark);
+                throw e;
+            }
+        }
+
+        /**
+         * Read a filter specification from the given buffer.
+         *
+         * @param buffer the buffer to read from (must not be {@code null})
+         * @return the filter specification (not {@code null})
+         * @throws java.nio.BufferUnderflowException if the buffer does not contain a complete filter specification
+         * @throws IllegalArgumentException if the buffer does not contain a valid filter specification
+         */
+        public FilterSpec readFilterSpec(ByteBuffer buffer) {
+            Assert.checkNotNullParam("buffer", buffer);
+            final int mark = symbolList.size();
+            try {
+                return readFilter(buffer, 0);
+            } catch (RuntimeException e) {
+                rollback(mark);
+                throw e;
+            }
+        }
+
+        /**
+         * Reset the symbol dictionary of this decoder.
+         */
+        public void reset() {
+            symbolList.clear();
+        }
+
+        private void rollback(final int mark) {
+            for (int i = symbolList.size() - 1; i >= mark; i --) {
+                symbolList.remove(i);
+            }
+        }
+
+        private FilterSpec readFilter(final ByteBuffer buffer, final int depth) {
+            if (depth >= MAX_FILTER_DEPTH) {
+                throw new IllegalArgumentException("Filter specification nested too deeply");
+            }
+            final int tag = buffer.get();
+            switch (tag) {
+                case F_TRUE: return FilterSpec.all();
+                case F_FALSE: return FilterSpec.none();
+                case F_ALL: {
+                    final FilterSpec[] children = readChildren(buffer, depth);
+                    return children.length == 0 ? FilterSpec.all() : new AllFilterSpec(children);
+                }
+                case F_ANY: {
+                    final FilterSpec[] children = readChildren(buffer, depth);
+                    return children.length == 0 ? FilterSpec.none() : new AnyFilterSpec(children);
+                }
+                case F_NOT: return new NotFilterSpec(readFilter(buffer, depth + 1));
+                case F_EQUAL: return new EqualsFilterSpec(readSymbol(buffer), readNonNullAttributeValue(buffer));
+                case F_GREATER_EQUAL: return new GreaterEqualFilterSpec(readSymbol(buffer), readNonNullAttributeValue(buffer));
+                case F_LESS_EQUAL: return new LessEqualFilterSpec(readSymbol(buffer), readNonNullAttributeValue(buffer));
+                case F_HAS: return new HasFilterSpec(readSymbol(buffer));
+                case F_SUBSTRING: {
+                    final String attribute = readSymbol(buffer);
+                    final String initialPart = readString(buffer);
+                    return new SubstringFilterSpec(attribute, initialPart, readString(buffer));
+                }
+                default: throw new IllegalArgumentException("Invalid filter tag " + tag);
+            }
+        }
+
+        private FilterSpec[] readChildren(final ByteBuffer buffer, final int depth) {
+            final FilterSpec[] children = new FilterSpec[readCount(buffer)];
+            for (int i = 0; i < children.length; i ++) {
+                children[i] = readFilter(buffer, depth + 1);
+            }
+            return children;
+        }
+
+        String readSymbol(ByteBuffer buffer) {
+            final int ref = readVarInt(buffer);
+            if (ref == 0) {
+                final String symbol = readString(buffer);
+                symbolList.add(symbol);
+                return symbol;
+            }
+            if (ref < 0 || ref > symbolList.size()) {
+                throw new IllegalArgumentException("Invalid symbol reference " + ref);
+            }
+            return symbolList.get(ref - 1);
+        }
+
+        private AttributeValue readNonNullAttributeValue(final ByteBuffer buffer) {
+            final AttributeValue value = readAttributeValue(buffer);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing attribute value");
+            }
+            return value;
+        }
+
+        AttributeValue readAttributeValue(ByteBuffer buffer) {
+            final int tag = buffer.get();
+            switch (tag) {
+                case AttributeValue.K_OPAQUE: {
+                    final byte[] content = new byte[readCount(buffer)];
+                    buffer.get(content);
+                    return new OpaqueAttributeValue(content, false);
+                }
+                case AttributeValue.K_NUMERIC: {
+                    final int zigZag = readVarInt(buffer);
+                    return new NumericAttributeValue(zigZag >>> 1 ^ - (zigZag & 1));
+                }
+                case AttributeValue.K_STRING: return new StringAttributeValue(readString(buffer));
+                case AttributeValue.K_BOOLEAN_TRUE: return AttributeValue.TRUE;
+                case AttributeValue.K_BOOLEAN_FALSE: return AttributeValue.FALSE;
+                case V_NONE: return null;
+                default: throw new IllegalArgumentException("Invalid attribute value tag " + tag);
+            }
+        }
+
+        String readString(ByteBuffer buffer) {
+            final int length = readCount(buffer);
+            char[] chars = this.chars;
+            if (chars.length < length) {
+                chars = this.chars = new char[Math.max(length, chars.length << 1)];
+            }
+            final int end = buffer.position() + length;
+            int pos = buffer.position();
+            int cnt = 0;
+            int a, b, c, d, cp;
+            while (pos < end) {
+                a = buffer.get(pos++) & 0xff;
+                if (a < 0x80) {
+                    chars[cnt++] = (char) a;
+                } else if (a < 0xe0) {
+                    if (a < 0xc0 || pos >= end) throw invalidString();
+                    b = buffer.get(pos++);
+                    chars[cnt++] = (char) ((a & 0x1f) << 6 | b & 0x3f);
+                } else if (a < 0xf0) {
+                    if (pos + 1 >= end) throw invalidString();
+                    b = buffer.get(pos++);
+                    c = buffer.get(pos++);
+                    chars[cnt++] = (char) ((a & 0x0f) << 12 | (b & 0x3f) << 6 | c & 0x3f);
+                } else {
+                    if (pos + 2 >= end) throw invalidString();
+                    b = buffer.get(pos++);
+                    c = buffer.get(pos++);
+                    d = buffer.get(pos++);
+                    cp = (a & 0x07) << 18 | (b & 0x3f) << 12 | (c & 0x3f) << 6 | d & 0x3f;
+                    chars[cnt++] = Character.highSurrogate(cp);
+                    chars[cnt++] = Character.lowSurrogate(cp);
+                }
+            }
+            buffer.position(end);
+            return new String(chars, 0, cnt);
+        }
+
+        private static int readCount(final ByteBuffer buffer) {
+            final int count = readVarInt(buffer);
+            // every counted element takes at least one byte, so a larger count cannot be valid
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        private static IllegalArgumentException invalidString() {
+            return new IllegalArgumentException("Invalid UTF-8 string content");
+        }
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) (value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int b;
+        for (int shift = 0; shift < 32; shift += 7) {
+            b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid variable-length integer");
+    }
+
+    static void writeString(ByteBuffer buffer, String string) {
+        final int length = string.length();
+        int byteLength = 0;
+        char ch;
+        for (int i = 0; i < length; i ++) {
+            ch = string.charAt(i);
+            if (ch < 0x80) {
+                byteLength ++;
+            } else if (ch < 0x800) {
+                byteLength += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                byteLength += 4;
+                i ++;
+            } else {
+                byteLength += 3;
+            }
+        }
+        writeVarInt(buffer, byteLength);
+        int cp;
+        for (int i = 0; i < length; i ++) {
+            ch = string.charAt(i);
+            if (ch < 0x80) {
+                buffer.put((byte) ch);
+            } else if (ch < 0x800) {
+                buffer.put((byte) (0xc0 | ch >> 6));
+                buffer.put((byte) (0x80 | ch & 0x3f));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                cp = Character.toCodePoint(ch, string.charAt(++ i));
+                buffer.put((byte) (0xf0 | cp >> 18));
+                buffer.put((byte) (0x80 | cp >> 12 & 0x3f));
+                buffer.put((byte) (0x80 | cp >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | cp & 0x3f));
+            } else {
+                buffer.put((byte) (0xe0 | ch >> 12));
+                buffer.put((byte) (0x80 | ch >> 6 & 0x3f));
+                buffer.put((byte) (0x80 | ch & 0x3f));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event covering a discovery from the call to {@link Discovery#discover} until the discovery
+ * result is complete.
+ */
+@Name("org.wildfly.discovery.Discover")
+@Label("Discovery")
+@Category({ "WildFly", "Discovery" })
+@Description("A service discovery, from the start of the query until all providers have completed")
+@Enabled(false)
+@StackTrace(false)
+final class DiscoveryEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(DiscoveryEvent.class);
+
+    @Label("Service Type")
+    String serviceType;
+
+    @Label("Filter")
+    String filter;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Match Count")
+    int matchCount;
+
+    @Label("Problem Count")
+    int problemCount;
+
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    void end(final int matchCount, final int problemCount) {
+        end();
+        if (shouldCommit()) {
+            this.matchCount = matchCount;
+            this.problemCount = problemCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import java.util.concurrent.TimeUnit;
+
+import org.wildfly.common.Assert;
+
+/**
+ * The options of a discovery request: the deadline after which the caller no longer waits for answers, the maximum
+ * number of answers, the priority of the request, and how answers are buffered until they are read.  Providers may use
+ * these to bound their own work.
+ * <p>
+ * The deadline is absolute, in terms of {@link System#nanoTime()}, so that it can be passed on without being
+ * recomputed.
+ */
+public final class DiscoveryRequestOptions {
+
+    /**
+     * The default options: no deadline, no limit, normal priority, and an unbounded buffer.
+     */
+    public static final DiscoveryRequestOptions DEFAULT = new Builder().create();
+
+    /**
+     * The priority of ordinary requests.
+     */
+    public static final int NORMAL_PRIORITY = 0;
+
+    // timeouts longer than this are treated as no deadline, since the deadline would overflow
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE >> 1;
+
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final int limit;
+    private final int priority;
+    private final int bufferCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long overflowTimeoutNanos;
+
+    DiscoveryRequestOptions(final Builder builder) {
+        this.hasDeadline = builder.hasDeadline;
+        this.deadline = builder.deadline;
+        this.limit = builder.limit;
+        this.priority = builder.priority;
+        this.bufferCapacity = builder.bufferCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.overflowTimeoutNanos = builder.overflowTimeoutNanos;
+    }
+
+    /**
+     * Determine whether the request has a deadline.
+     *
+     * @return {@code true} if the request has a deadline, {@code false} otherwise
+     */
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * Get the deadline of the request, in terms of {@link System#nanoTime()}.  The value is only meaningful if
+     * {@link #hasDeadline()} returns {@code true}.
+     *
+     * @return the deadline
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the time remaining until the deadline.
+     *
+     * @param unit the time unit to return (must not be {@code null})
+     * @return the remaining time, zero if the deadline has passed, or {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemainingTime(TimeUnit unit) {
+        Assert.checkNotNullParam("unit", unit);
+        if (! hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Determine whether the deadline of the request has passed.
+     *
+     * @return {@code true} if the deadline has passed, {@code false} if it has not or if there is no deadline
+     */
+    public boolean isExpired() {
+        return hasDeadline && deadline - System.nanoTime() <= 0L;
+    }
+
+    /**
+     * Get the maximum number of answers.
+     *
+     * @return the maximum number of answers, or {@link Integer#MAX_VALUE} if there is no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the priority of the request.  Requests with higher values are more urgent.
+     *
+     * @return the priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Get options which are the same as these, but with the given limit.  This is useful for passing the remaining
+     * budget of a request on to another provider.
+     *
+     * @param limit the maximum number of answers (must be positive)
+     * @return the options (not {@code null})
+     */
+    public DiscoveryRequestOptions withLimit(int limit) {
+        Assert.checkMinimumParameter("limit", 1, limit);
+        return limit == this.limit ? this : new Builder(this).setLimit(limit).create();
+    }
+
+    /**
+     * Get the maximum number of answers which are buffered until they are read.
+     *
+     * @return the buffer capacity, or {@link Integer#MAX_VALUE} if the buffer is unbounded
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * Get the action taken when an answer arrives while the buffer is full.
+     *
+     * @return the overflow policy (not {@code null})
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Get the maximum time to block a provider for when the buffer is full, if the overflow policy is
+     * {@link OverflowPolicy#BLOCK}.
+     *
+     * @param unit the time unit to return (must not be {@code null})
+     * @return the overflow timeout
+     */
+    public long getOverflowTimeout(TimeUnit unit) {
+        Assert.checkNotNullParam("unit", unit);
+        return unit.convert(overflowTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public String toString() {
+        final StringBuilder b = new StringBuilder("options(");
+        if (hasDeadline) {
+            b.append("remaining=").append(getRemainingTime(TimeUnit.MILLISECONDS)).append("ms,");
+        }
+        if (limit != Integer.MAX_VALUE) {
+            b.append("limit=").append(limit).append(',');
+        }
+        b.append("priority=").append(priority);
+        if (bufferCapacity != Integer.MAX_VALUE) {
+            b.append(",capacity=").append(bufferCapacity).append(',').append(overflowPolicy);
+        }
+        return b.append(')').toString();
+    }
+
+    /**
+     * A builder for request options.
+     */
+    public static final class Builder {
+        private boolean hasDeadline;
+        private long deadline;
+        private int limit = Integer.MAX_VALUE;
+        private int priority = NORMAL_PRIORITY;
+        private int bufferCapacity = Integer.MAX_VALUE;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        private long overflowTimeoutNanos;
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Construct a new instance from an original template.
+         *
+         * @param original the original options (must not be {@code null})
+         */
+        public Builder(DiscoveryRequestOptions original) {
+            Assert.checkNotNullParam("original", original);
+            hasDeadline = original.hasDeadline;
+            deadline = original.deadline;
+            limit = original.limit;
+            priority = original.priority;
+            bufferCapacity = original.bufferCapacity;
+            overflowPolicy = original.overflowPolicy;
+            overflowTimeoutNanos = original.overflowTimeoutNanos;
+        }
+
+        /**
+         * Set the deadline to the given time from now.  Very long timeouts are treated as no deadline.
+         *
+         * @param timeout the timeout (must be positive)
+         * @param unit the unit of the timeout (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setTimeout(long timeout, TimeUnit unit) {
+            Assert.checkMinimumParameter("timeout", 1, timeout);
+            Assert.checkNotNullParam("unit", unit);
+            final long nanos = unit.toNanos(timeout);
+            if (nanos > MAX_TIMEOUT_NANOS) {
+                hasDeadline = false;
+            } else {
+                hasDeadline = true;
+                deadline = System.nanoTime() + nanos;
+            }
+            return this;
+        }
+
+        /**
+         * Set the absolute deadline, in terms of {@link System#nanoTime()}.
+         *
+         * @param deadline the deadline
+         * @return this builder
+         */
+        public Builder setDeadline(long deadline) {
+            hasDeadline = true;
+            this.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * Remove the deadline.
+         *
+         * @return this builder
+         */
+        public Builder clearDeadline() {
+            hasDeadline = false;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of answers.
+         *
+         * @param limit the maximum number of answers (must be positive), or {@link Integer#MAX_VALUE} for no limit
+         * @return this builder
+         */
+        public Builder setLimit(int limit) {
+            Assert.checkMinimumParameter("limit", 1, limit);
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Set the priority.  Requests with higher values are more urgent.
+         *
+         * @param priority the priority
+         * @return this builder
+         */
+        public Builder setPriority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of answers which are buffered until they are read.  When an answer arrives while the
+         * buffer is full, the {@linkplain #setOverflowPolicy(OverflowPolicy) overflow policy} applies.
+         *
+         * @param bufferCapacity the buffer capacity (must be positive), or {@link Integer#MAX_VALUE} for an unbounded
+         *      buffer
+         * @return this builder
+         */
+        public Builder setBufferCapacity(int bufferCapacity) {
+            Assert.checkMinimumParameter("bufferCapacity", 1, bufferCapacity);
+            this.bufferCapacity = bufferCapacity;
+            return this;
+        }
+
+        /**
+         * Set the action taken when an answer arrives while the buffer is full.  The default is
+         * {@link OverflowPolicy#DROP_NEWEST}.
+         *
+         * @param overflowPolicy the overflow policy (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = Assert.checkNotNullParam("overflowPolicy", overflowPolicy);
+            return this;
+        }
+
+        /**
+         * Set the maximum time to block a provider for when the buffer is full, if the overflow policy is
+         * {@link OverflowPolicy#BLOCK}.  The default is zero.
+         *
+         * @param timeout the overflow timeout (must not be negative)
+         * @param unit the unit of the timeout (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setOverflowTimeout(long timeout, TimeUnit unit) {
+            Assert.checkMinimumParameter("timeout", 0, timeout);
+            Assert.checkNotNullParam("unit", unit);
+            this.overflowTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Create the options.
+         *
+         * @return the options (not {@code null})
+         */
+        public DiscoveryRequestOptions create() {
+            return new DiscoveryRequestOptions(this);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The visitor behind {@link FilterSpec#simplify(Collection)}.  The parameter is {@code true} if the visited filter is
+ * to be negated, which is how negations are pushed down to the leaves.
+ */
+final class FilterSimplifier implements FilterSpec.Visitor<Boolean, FilterSpec, RuntimeException> {
+
+    private final Collection<String> singleValued;
+
+    FilterSimplifier(final Collection<String> singleValued) {
+        this.singleValued = singleValued;
+    }
+
+    public FilterSpec handle(final FilterSpec filterSpec, final Boolean negate) {
+        // leaves, and filter types which are not known here, are kept as they are
+        return negate.booleanValue() ? new NotFilterSpec(filterSpec) : filterSpec;
+    }
+
+    public FilterSpec handle(final BooleanFilterSpec filterSpec, final Boolean negate) {
+        return filterSpec.getValue() != negate.booleanValue() ? FilterSpec.all() : FilterSpec.none();
+    }
+
+    public FilterSpec handle(final NotFilterSpec filterSpec, final Boolean negate) {
+        return filterSpec.getChild().accept(this, Boolean.valueOf(! negate.booleanValue()));
+    }
+
+    public FilterSpec handle(final AllFilterSpec filterSpec, final Boolean negate) {
+        // by De Morgan's laws, a negated conjunction is a disjunction of the negated children
+        return junction(! negate.booleanValue(), filterSpec, negate);
+    }
+
+    public FilterSpec handle(final AnyFilterSpec filterSpec, final Boolean negate) {
+        return junction(negate.booleanValue(), filterSpec, negate);
+    }
+
+    private FilterSpec junction(final boolean and, final Iterable<FilterSpec> children, final Boolean negate) {
+        final FilterSpec identity = and ? FilterSpec.all() : FilterSpec.none();
+        final FilterSpec annihilator = and ? FilterSpec.none() : FilterSpec.all();
+        final LinkedHashSet<FilterSpec> set = new LinkedHashSet<>();
+        for (FilterSpec child : children) {
+            final FilterSpec simplified = child.accept(this, negate);
+            if (simplified.equals(annihilator)) {
+                return annihilator;
+            }
+            if (isJunction(simplified, and)) {
+                // flatten nested junctions of the same kind
+                for (FilterSpec grandchild : childrenOf(simplified)) {
+                    set.add(grandchild);
+                }
+            } else if (! simplified.equals(identity)) {
+                set.add(simplified);
+            }
+        }
+        // a clause and its complement
+        for (FilterSpec member : set) {
+            if (member instanceof NotFilterSpec && set.contains(((NotFilterSpec) member).getChild())) {
+                return annihilator;
+            }
+        }
+        // absorption: a & (a | b) is a, and a | (a & b) is a
+        final Iterator<FilterSpec> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            final FilterSpec member = iterator.next();
+            if (isJunction(member, ! and)) {
+                for (FilterSpec grandchild : childrenOf(member)) {
+                    if (set.contains(grandchild)) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+        if (and && ! reduceConjunction(set)) {
+            return annihilator;
+        }
+        switch (set.size()) {
+            case 0: return identity;
+            case 1: return set.iterator().next();
+            default: {
+                final FilterSpec[] array = set.toArray(new FilterSpec[set.size()]);
+                return and ? new AllFilterSpec(array) : new AnyFilterSpec(array);
+            }
+        }
+    }
+
+    private static boolean isJunction(final FilterSpec filterSpec, final boolean and) {
+        return and ? filterSpec instanceof AllFilterSpec : filterSpec instanceof AnyFilterSpec;
+    }
+
+    private static Iterable<FilterSpec> childrenOf(final FilterSpec junction) {
+        if (junction instanceof AllFilterSpec) {
+            return (AllFilterSpec) junction;
+        } else {
+            return (AnyFilterSpec) junction;
+        }
+    }
+
+    /**
+     * Remove the clauses of a conjunction which are implied by other clauses, and detect contradictions.
+     *
+     * @param set the clauses
+     * @return {@code false} if the clauses contradict each other, {@code true} otherwise
+     */
+    private boolean reduceConjunction(final LinkedHashSet<FilterSpec> set) {
+        final Map<String, AttributeValue> equalities = new HashMap<>();
+        for (FilterSpec member : set) {
+            if (member instanceof EqualsFilterSpec && singleValued.contains(((EqualsFilterSpec) member).getAttribute())) {
+                final String attribute = ((EqualsFilterSpec) member).getAttribute();
+                final AttributeValue value = ((EqualsFilterSpec) member).getValue();
+                final AttributeValue existing = equalities.putIfAbsent(attribute, value);
+                if (existing != null && ! existing.equals(value)) {
+                    // a single-valued attribute cannot equal two different values
+                    return false;
+                }
+            }
+        }
+        final Iterator<FilterSpec> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            final FilterSpec member = iterator.next();
+            if (member instanceof HasFilterSpec) {
+                // implied by any other test of the attribute which requires a value
+                final String attribute = ((HasFilterSpec) member).getAttribute();
+                if (hasOtherTest(set, member, attribute)) {
+                    iterator.remove();
+                    continue;
+                }
+            }
+            final String attribute = leafAttribute(member);
+            if (attribute == null || member instanceof EqualsFilterSpec) {
+                continue;
+            }
+            final AttributeValue value = equalities.get(attribute);
+            if (value != null) {
+                // the single value of the attribute is known, so the clause is either implied or contradicted
+                final Map<String, List<AttributeValue>> attributes = Collections.singletonMap(attribute, Collections.singletonList(value));
+                if (! member.matchesMulti(attributes)) {
+                    return false;
+                }
+                iterator.remove();
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasOtherTest(final Collection<FilterSpec> set, final FilterSpec has, final String attribute) {
+        for (FilterSpec member : set) {
+            if (member != has && attribute.equals(positiveAttribute(member)) && ! (member instanceof HasFilterSpec)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the attribute of a leaf which can only match if the attribute has a value.
+     */
+    private static String positiveAttribute(final FilterSpec filterSpec) {
+        if (filterSpec instanceof EqualsFilterSpec) {
+            return ((EqualsFilterSpec) filterSpec).getAttribute();
+        } else if (filterSpec instanceof GreaterEqualFilterSpec) {
+            return ((GreaterEqualFilterSpec) filterSpec).getAttribute();
+        } else if (filterSpec instanceof LessEqualFilterSpec) {
+            return ((LessEqualFilterSpec) filterSpec).getAttribute();
+        } else if (filterSpec instanceof SubstringFilterSpec) {
+            return ((SubstringFilterSpec) filterSpec).getAttribute();
+        } else if (filterSpec instanceof HasFilterSpec) {
+            return ((HasFilterSpec) filterSpec).getAttribute();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Get the attribute of a leaf or a negated leaf.
+     */
+    private static String leafAttribute(final FilterSpec filterSpec) {
+        return filterSpec instanceof NotFilterSpec ? positiveAttribute(((NotFilterSpec) filterSpec).getChild()) : positiveAttribute(filterSpec);
+    }
+}
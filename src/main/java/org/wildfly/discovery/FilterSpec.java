@@ -22,6 +22,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import org.wildfly.common.Assert;
@@ -91,6 +92,31 @@ public abstract class FilterSpec implements Serializable {
         return ! mayMatch(attributeNames);
     }
 
+    /**
+     * Get a simplified filter spec which is equivalent to this one.  Nested conjunctions and disjunctions are flattened,
+     * constant clauses are folded, duplicate and absorbed clauses are removed, and negations are pushed down to the
+     * individual attribute tests.
+     *
+     * @return the simplified filter spec (not {@code null})
+     */
+    public final FilterSpec simplify() {
+        return simplify(Collections.emptySet());
+    }
+
+    /**
+     * Get a simplified filter spec which is equivalent to this one for attribute maps in which the given attributes have
+     * at most one value.  In addition to the simplifications of {@link #simplify()}, conjunctions which require two
+     * different values of such an attribute are folded to {@link #none()}, and clauses which are implied by an equality
+     * test of such an attribute are removed.
+     *
+     * @param singleValuedAttributes the names of the attributes which have at most one value (must not be {@code null})
+     * @return the simplified filter spec (not {@code null})
+     */
+    public final FilterSpec simplify(Collection<String> singleValuedAttributes) {
+        Assert.checkNotNullParam("singleValuedAttributes", singleValuedAttributes);
+        return accept(new FilterSimplifier(singleValuedAttributes), Boolean.FALSE);
+    }
+
     public abstract <P, R, E extends Exception> R accept(Visitor<P, R, E> visitor, P parameter) throws E;
 
     public final <R, E extends Exception> R accept(Visitor<?, R, E> visitor) throws E {
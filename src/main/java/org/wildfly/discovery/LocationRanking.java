@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import java.net.URI;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wildfly.common.Assert;
+
+/**
+ * A ranking of locations by their observed connection latency and error rate.  Both are tracked per location URI as
+ * exponentially weighted moving averages, fed by {@link Discovery#processSuccessfulTarget(URI, long, TimeUnit)} and
+ * {@link Discovery#processMissingTarget(URI, Exception)}.
+ * <p>
+ * The score of a location is its expected cost of use: its average latency, plus a penalty for each expected failed
+ * attempt.  Locations which have never been reported have a score of zero, so that they are tried and measured.
+ * <p>
+ * At most a configured number of locations are tracked.  When a new location would exceed that number, the locations
+ * which were least recently reported are forgotten.
+ *
+ * @see Discovery#withRanking(LocationRanking)
+ */
+public final class LocationRanking {
+    private static final float MAX_ERROR_RATE = 0.99f;
+    private static final int DEFAULT_MAX_LOCATIONS = 4096;
+
+    private final float smoothing;
+    private final double failurePenaltyNanos;
+    private final int maxLocations;
+    private final ConcurrentHashMap<URI, Entry> table = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance with a smoothing factor of 0.2, a failure penalty of one second, and at most 4096
+     * tracked locations.
+     */
+    public LocationRanking() {
+        this(0.2f, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Construct a new instance which tracks at most 4096 locations.
+     *
+     * @param smoothing the weight of each new observation, between 0 (exclusive) and 1 (inclusive)
+     * @param failurePenalty the cost of a failed attempt
+     * @param unit the unit of the failure penalty (must not be {@code null})
+     */
+    public LocationRanking(final float smoothing, final long failurePenalty, final TimeUnit unit) {
+        this(smoothing, failurePenalty, unit, DEFAULT_MAX_LOCATIONS);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param smoothing the weight of each new observation, between 0 (exclusive) and 1 (inclusive)
+     * @param failurePenalty the cost of a failed attempt
+     * @param unit the unit of the failure penalty (must not be {@code null})
+     * @param maxLocations the maximum number of locations to track (must be at least 1)
+     */
+    public LocationRanking(final float smoothing, final long failurePenalty, final TimeUnit unit, final int maxLocations) {
+        if (! (smoothing > 0f && smoothing <= 1f)) {
+            throw new IllegalArgumentException("Invalid smoothing factor " + smoothing);
+        }
+        Assert.checkMinimumParameter("failurePenalty", 0, failurePenalty);
+        Assert.checkNotNullParam("unit", unit);
+        Assert.checkMinimumParameter("maxLocations", 1, maxLocations);
+        this.smoothing = smoothing;
+        this.failurePenaltyNanos = unit.toNanos(failurePenalty);
+        this.maxLocations = maxLocations;
+    }
+
+    /**
+     * Record a successful connection to a location.
+     *
+     * @param location the location (must not be {@code null})
+     * @param latency the time taken to connect
+     * @param unit the unit of the latency (must not be {@code null})
+     */
+    public void recordSuccess(URI location, long latency, TimeUnit unit) {
+        Assert.checkNotNullParam("location", location);
+        Assert.checkNotNullParam("unit", unit);
+        final float sample = Math.max(0L, unit.toNanos(latency));
+        final float a = smoothing;
+        final Entry entry = entryFor(location);
+        long oldVal, newVal;
+        do {
+            oldVal = entry.get();
+            final float latencyAvg = latencyOf(oldVal);
+            final float newLatency = Float.isNaN(latencyAvg) ? sample : latencyAvg + a * (sample - latencyAvg);
+            newVal = pack(newLatency, errorRateOf(oldVal) * (1f - a));
+        } while (! entry.compareAndSet(oldVal, newVal));
+    }
+
+    /**
+     * Record a failed connection to a location.
+     *
+     * @param location the location (must not be {@code null})
+     */
+    public void recordFailure(URI location) {
+        Assert.checkNotNullParam("location", location);
+        final float a = smoothing;
+        final Entry entry = entryFor(location);
+        long oldVal, newVal;
+        do {
+            oldVal = entry.get();
+            final float errorRate = errorRateOf(oldVal);
+            newVal = pack(latencyOf(oldVal), Math.min(MAX_ERROR_RATE, errorRate + a * (1f - errorRate)));
+        } while (! entry.compareAndSet(oldVal, newVal));
+    }
+
+    /**
+     * Get the score of a location.  Lower scores are better.
+     *
+     * @param location the location (must not be {@code null})
+     * @return the expected cost of using the location, in nanoseconds
+     */
+    public double getScore(URI location) {
+        Assert.checkNotNullParam("location", location);
+        final Entry entry = table.get(location);
+        if (entry == null) {
+            return 0.0;
+        }
+        final long val = entry.get();
+        final float latency = latencyOf(val);
+        final float errorRate = errorRateOf(val);
+        // the expected number of failed attempts before a success
+        final double failures = errorRate / (1.0 - errorRate);
+        return (Float.isNaN(latency) ? 0.0 : latency) + failures * failurePenaltyNanos;
+    }
+
+    /**
+     * Forget everything recorded about a location.
+     *
+     * @param location the location (must not be {@code null})
+     */
+    public void forget(URI location) {
+        Assert.checkNotNullParam("location", location);
+        table.remove(location);
+    }
+
+    /**
+     * Create a queue which orders service URLs by the score of their location at the time they were added.  Service
+     * URLs with equal scores are kept in the order they were added.
+     *
+     * @return the queue (not {@code null})
+     */
+    Queue<ServiceURL> createQueue() {
+        return new RankedQueue();
+    }
+
+    private Entry entryFor(final URI location) {
+        Entry entry = table.get(location);
+        if (entry == null) {
+            entry = table.computeIfAbsent(location, ignored -> new Entry());
+            if (table.size() > maxLocations) {
+                prune();
+            }
+        }
+        entry.touched = System.nanoTime();
+        return entry;
+    }
+
+    private synchronized void prune() {
+        if (table.size() <= maxLocations) {
+            return;
+        }
+        // prune down to three quarters, so that the sort is paid for once per many new locations
+        final long now = System.nanoTime();
+        final long[] ages = new long[table.size()];
+        int size = 0;
+        for (Entry entry : table.values()) {
+            if (size == ages.length) break;
+            ages[size ++] = now - entry.touched;
+        }
+        final int count = size - (maxLocations - (maxLocations >> 2));
+        if (count <= 0) {
+            return;
+        }
+        Arrays.sort(ages, 0, size);
+        final long threshold = ages[size - count];
+        // an update racing with the removal of its entry is lost, which only costs a measurement
+        table.values().removeIf(entry -> now - entry.touched >= threshold);
+    }
+
+    private static long pack(float latency, float errorRate) {
+        return (long) Float.floatToRawIntBits(latency) << 32 | Float.floatToRawIntBits(errorRate) & 0xffffffffL;
+    }
+
+    private static float latencyOf(long val) {
+        return Float.intBitsToFloat((int) (val >>> 32));
+    }
+
+    private static float errorRateOf(long val) {
+        return Float.intBitsToFloat((int) val);
+    }
+
+    // packs the latency average (high word) and the error rate average (low word) as floats
+    @SuppressWarnings("serial")
+    static final class Entry extends AtomicLong {
+        // the time of the last report, by which the least recently reported locations are pruned
+        volatile long touched = System.nanoTime();
+
+        Entry() {
+            super(pack(Float.NaN, 0f));
+        }
+    }
+
+    static final class Ranked implements Comparable<Ranked> {
+        final ServiceURL serviceURL;
+        final double score;
+        final long seq;
+
+        Ranked(final ServiceURL serviceURL, final double score, final long seq) {
+            this.serviceURL = serviceURL;
+            this.score = score;
+            this.seq = seq;
+        }
+
+        public int compareTo(final Ranked o) {
+            final int res = Double.compare(score, o.score);
+            return res != 0 ? res : Long.compare(seq, o.seq);
+        }
+    }
+
+    final class RankedQueue extends AbstractQueue<ServiceURL> {
+        // scores are captured on insertion so that the order stays consistent while the table changes; the sequence
+        // number makes every element distinct, and the sorted set gives both the best and the worst in log time
+        private final TreeSet<Ranked> ranked = new TreeSet<>();
+        private long seq;
+
+        public boolean offer(final ServiceURL serviceURL) {
+            Assert.checkNotNullParam("serviceURL", serviceURL);
+            return ranked.add(new Ranked(serviceURL, getScore(serviceURL.getLocationURI()), seq++));
+        }
+
+        /**
+         * Remove the worst ranked service URL, if it ranks worse than the given one.
+         *
+         * @param serviceURL the service URL which is to be added
+         * @return {@code true} if a service URL was removed, {@code false} if the given one ranks no better than any
+         */
+        boolean removeWorseThan(final ServiceURL serviceURL) {
+            if (ranked.isEmpty() || getScore(serviceURL.getLocationURI()) >= ranked.last().score) {
+                return false;
+            }
+            ranked.pollLast();
+            return true;
+        }
+
+        public ServiceURL poll() {
+            final Ranked first = ranked.pollFirst();
+            return first == null ? null : first.serviceURL;
+        }
+
+        public ServiceURL peek() {
+            return ranked.isEmpty() ? null : ranked.first().serviceURL;
+        }
+
+        public Iterator<ServiceURL> iterator() {
+            final Iterator<Ranked> iterator = ranked.iterator();
+            return new Iterator<ServiceURL>() {
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                public ServiceURL next() {
+                    return iterator.next().serviceURL;
+                }
+
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        public int size() {
+            return ranked.size();
+        }
+    }
+}
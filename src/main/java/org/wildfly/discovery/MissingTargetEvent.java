@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event covering a call to {@link Discovery#processMissingTarget}.
+ */
+@Name("org.wildfly.discovery.MissingTarget")
+@Label("Missing Discovery Target")
+@Category({ "WildFly", "Discovery" })
+@Description("A discovered location which could not be used was reported to the discovery providers")
+@Enabled(false)
+@StackTrace(false)
+final class MissingTargetEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(MissingTargetEvent.class);
+
+    @Label("Location")
+    String location;
+
+    @Label("Cause")
+    String cause;
+
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    void end(final Object location, final Object cause) {
+        end();
+        if (shouldCommit()) {
+            this.location = String.valueOf(location);
+            this.cause = String.valueOf(cause);
+            commit();
+        }
+    }
+}
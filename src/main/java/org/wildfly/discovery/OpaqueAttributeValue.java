@@ -45,6 +45,10 @@ final class OpaqueAttributeValue extends AttributeValue {
         return true;
     }
 
+    byte[] getContent() {
+        return content;
+    }
+
     public int compareTo(final AttributeValue other) {
         if (other instanceof OpaqueAttributeValue) {
             return compareArrays(content, ((OpaqueAttributeValue) other).content);
@@ -0,0 +1,50 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+/**
+ * The action taken when a match arrives while the result buffer of a discovery is full.  The first overflow of a
+ * discovery is reported as a problem of its services queue.
+ *
+ * @see DiscoveryRequestOptions.Builder#setBufferCapacity(int)
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the arriving match.
+     */
+    DROP_NEWEST,
+    /**
+     * Discard the buffered match which would have been read next, to make room for the arriving match.  If the
+     * discovery {@linkplain Discovery#withRanking(LocationRanking) ranks} its matches, the worst ranked match is
+     * discarded instead, which is the arriving match if none of the buffered matches ranks worse.
+     */
+    DROP_OLDEST,
+    /**
+     * Block the provider until there is room, for up to the overflow timeout; then discard the arriving match.  A
+     * match which arrives on the thread that called {@code discover}, as it does from a provider that answers
+     * synchronously, is discarded without blocking, because that thread cannot read any matches until the provider
+     * returns.
+     */
+    BLOCK,
+    /**
+     * Discard the arriving match and stop the discovery, cancelling the providers.  The matches which are already
+     * buffered can still be read.
+     */
+    CANCEL,
+}
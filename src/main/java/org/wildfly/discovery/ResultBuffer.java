@@ -0,0 +1,398 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The buffer between a discovery result and its services queue.  Matches may be added singly or in batches; either
+ * way, the buffer is locked once and waiting consumers are woken at most once per call.  Matches are delivered in
+ * arrival order unless the buffer is given a queue with a different ordering.  The buffer may be bounded, in which case
+ * its overflow policy decides what happens to matches which arrive while it is full.
+ */
+final class ResultBuffer {
+    /**
+     * The value returned by the blocking methods once the buffer is complete and empty.
+     */
+    static final ServiceURL END = new ServiceURL.Builder().setUri(URI.create("DUMMY:DUMMY")).create();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final int limit;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long blockNanos;
+    // the thread inside the discover() call, which cannot also be consuming; only ever compared to the current thread
+    private volatile Thread caller;
+
+    // all of these are protected by lock
+    private final Queue<ServiceURL> items;
+    private boolean complete;
+    private int addedCount;
+    private int droppedCount;
+    private boolean overflowReported;
+
+    ResultBuffer() {
+        this(new ArrayDeque<>(), Integer.MAX_VALUE, Integer.MAX_VALUE, OverflowPolicy.DROP_NEWEST, 0L);
+    }
+
+    /**
+     * Construct a new instance which delivers matches in the order of the given queue.  The buffer completes itself once
+     * the given number of matches were added.
+     *
+     * @param items the empty queue to hold the buffered matches (must not be {@code null})
+     * @param limit the maximum number of matches to accept
+     * @param capacity the maximum number of matches to hold at once
+     * @param policy the action to take when a match arrives while the buffer is full (must not be {@code null})
+     * @param blockNanos the maximum time to block a producer for, if the policy is {@link OverflowPolicy#BLOCK}
+     */
+    ResultBuffer(final Queue<ServiceURL> items, final int limit, final int capacity, final OverflowPolicy policy, final long blockNanos) {
+        this.items = items;
+        this.limit = limit;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockNanos = blockNanos;
+    }
+
+    /**
+     * Add a match to the buffer.
+     *
+     * @param serviceURL the match (must not be {@code null})
+     * @return {@code true} if the match was added, {@code false} if the buffer is already complete or the match was
+     *      dropped
+     */
+    boolean add(ServiceURL serviceURL) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (complete) {
+                return false;
+            }
+            final boolean added = offer(serviceURL);
+            if (complete) {
+                notEmpty.signalAll();
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add a batch of matches to the buffer.  {@code null} elements are skipped, as are matches beyond the limit.
+     *
+     * @param serviceURLs the matches (must not be {@code null})
+     * @return the number of matches added
+     */
+    int addAll(Collection<ServiceURL> serviceURLs) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int cnt = 0;
+            for (ServiceURL serviceURL : serviceURLs) {
+                if (complete) {
+                    break;
+                }
+                if (serviceURL != null && offer(serviceURL)) {
+                    cnt ++;
+                }
+            }
+            if (complete) {
+                notEmpty.signalAll();
+            }
+            return cnt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // lock must be held and the buffer must not be complete
+    private boolean offer(ServiceURL serviceURL) {
+        if (items.size() >= capacity && ! makeRoom(serviceURL)) {
+            droppedCount ++;
+            return false;
+        }
+        final boolean wasEmpty = items.isEmpty();
+        items.add(serviceURL);
+        if (++ addedCount == limit) {
+            complete = true;
+        }
+        if (wasEmpty) {
+            notEmpty.signalAll();
+        }
+        return true;
+    }
+
+    // lock must be held
+    private boolean makeRoom(ServiceURL serviceURL) {
+        switch (policy) {
+            case DROP_OLDEST: {
+                if (items instanceof LocationRanking.RankedQueue) {
+                    // the match which would be read next is the best one, so drop the worst, which may be the arriving one
+                    if (! ((LocationRanking.RankedQueue) items).removeWorseThan(serviceURL)) {
+                        return false;
+                    }
+                } else {
+                    items.poll();
+                }
+                droppedCount ++;
+                return true;
+            }
+            case BLOCK: {
+                if (Thread.currentThread() == caller) {
+                    // a synchronous provider; nobody can drain the buffer until it returns, so blocking would only
+                    // wait out the timeout
+                    return false;
+                }
+                // the consumers may be waiting for the matches added so far
+                notEmpty.signalAll();
+                long nanos = blockNanos;
+                try {
+                    while (items.size() >= capacity) {
+                        if (complete || nanos <= 0L) {
+                            return false;
+                        }
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return ! complete;
+            }
+            case CANCEL: {
+                complete = true;
+                return false;
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Set the thread which is calling the provider to start the discovery, or {@code null} once the provider returned.
+     * Matches added by that thread are never blocked on.
+     *
+     * @param caller the calling thread, or {@code null}
+     */
+    void setCaller(Thread caller) {
+        this.caller = caller;
+    }
+
+    /**
+     * Determine whether matches were dropped because the buffer was full, for the first time since the buffer was
+     * created.  This method returns {@code true} at most once.
+     *
+     * @return {@code true} if the first overflow has not yet been reported, {@code false} otherwise
+     */
+    boolean checkOverflow() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (droppedCount == 0 || overflowReported) {
+                return false;
+            }
+            overflowReported = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark the buffer complete.  Matches which are already buffered can still be read.
+     *
+     * @return {@code true} if the buffer was completed by this call, {@code false} if it was already complete
+     */
+    boolean complete() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (complete) {
+                return false;
+            }
+            complete = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard the buffered matches and mark the buffer complete.
+     *
+     * @return {@code true} if the buffer was completed by this call, {@code false} if it was already complete
+     */
+    boolean discard() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            items.clear();
+            if (complete) {
+                return false;
+            }
+            complete = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the next match, waiting for one if necessary.
+     *
+     * @return the next match, or {@link #END} if the buffer is complete and empty
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    ServiceURL take() throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ServiceURL next;
+            while ((next = items.poll()) == null) {
+                if (complete) {
+                    return END;
+                }
+                notEmpty.await();
+            }
+            removed();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the next match, waiting up to the given time for one if necessary.
+     *
+     * @param nanos the maximum time to wait, in nanoseconds
+     * @return the next match, {@link #END} if the buffer is complete and empty, or {@code null} if the time elapsed
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    ServiceURL poll(long nanos) throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ServiceURL next;
+            while ((next = items.poll()) == null) {
+                if (complete) {
+                    return END;
+                }
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            removed();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // lock must be held
+    private void removed() {
+        if (policy == OverflowPolicy.BLOCK && capacity != Integer.MAX_VALUE) {
+            notFull.signalAll();
+        }
+    }
+
+    /**
+     * Move the buffered matches to the given collection without waiting.
+     *
+     * @param collection the collection to add to (must not be {@code null})
+     * @param max the maximum number of matches to move
+     * @return the number of matches moved
+     */
+    int drainTo(Collection<? super ServiceURL> collection, int max) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int cnt = 0;
+            ServiceURL next;
+            while (cnt < max && (next = items.poll()) != null) {
+                collection.add(next);
+                cnt ++;
+            }
+            if (cnt > 0) {
+                removed();
+            }
+            return cnt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the total number of matches which were added to the buffer.
+     *
+     * @return the number of matches added
+     */
+    int getAddedCount() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return addedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of matches which the buffer still accepts.
+     *
+     * @return the number of matches, or zero if the buffer is complete
+     */
+    int getRemaining() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return complete ? 0 : limit - addedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Determine whether the buffer is complete and empty.
+     *
+     * @return {@code true} if no more matches will become available, {@code false} otherwise
+     */
+    boolean isFinished() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return complete && items.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -18,7 +18,11 @@
 
 package org.wildfly.discovery;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.wildfly.common.Assert;
 
@@ -36,6 +40,15 @@ public final class ServiceType extends ServiceDesignation {
     private final String uriScheme;
     private final String uriSchemeAuthority;
 
+    // weakly held, so that types which are no longer used (such as those learned from peers) can be collected
+    private static final ConcurrentHashMap<Ref, Ref> canonical = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<ServiceType> collected = new ReferenceQueue<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private transient int id;
+    // keeps the canonical instance, and with it the identifier, alive for as long as this instance is
+    private transient ServiceType canonicalType;
+    private transient int hashCode;
     private transient String toString;
 
     ServiceType(final String abstractType, final String abstractTypeAuthority, final String uriScheme, final String uriSchemeAuthority) {
@@ -80,20 +93,7 @@ public final class ServiceType extends ServiceDesignation {
      * @return {@code true} if the service URL is implied by this type, {@code false} otherwise
      */
     public boolean implies(final ServiceURL serviceURL) {
-        if (uriScheme == null) {
-            if (serviceURL.getAbstractType() == null) {
-                return Objects.equals(abstractType, serviceURL.getUriScheme())
-                    && Objects.equals(abstractTypeAuthority, serviceURL.getUriSchemeAuthority());
-            } else {
-                return Objects.equals(abstractType, serviceURL.getAbstractType())
-                    && Objects.equals(abstractTypeAuthority, serviceURL.getAbstractTypeAuthority());
-            }
-        } else {
-            return Objects.equals(abstractType, serviceURL.getAbstractType())
-                && Objects.equals(abstractTypeAuthority, serviceURL.getAbstractTypeAuthority())
-                && Objects.equals(uriScheme, serviceURL.getUriScheme())
-                && Objects.equals(uriSchemeAuthority, serviceURL.getUriSchemeAuthority());
-        }
+        return getId() == (uriScheme == null ? serviceURL.getAbstractServiceTypeId() : serviceURL.getServiceTypeId());
     }
 
     /**
@@ -103,7 +103,8 @@ public final class ServiceType extends ServiceDesignation {
      * @return {@code true} if the service types are equal, {@code false} otherwise
      */
     public boolean equals(final ServiceType other) {
-        return other != null
+        return other == this || other != null
+            && hashCode() == other.hashCode()
             && Objects.equals(abstractType, other.abstractType)
             && Objects.equals(abstractTypeAuthority, other.abstractTypeAuthority)
             && Objects.equals(uriScheme, other.uriScheme)
@@ -136,7 +137,13 @@ public final class ServiceType extends ServiceDesignation {
      * @return the hash code for this service type
      */
     public int hashCode() {
-        return getClass().hashCode() + 17 * (abstractType.hashCode() + 17 * abstractTypeAuthority.hashCode());
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = ((Objects.hashCode(abstractType) * 17 + Objects.hashCode(abstractTypeAuthority)) * 17 + Objects.hashCode(uriScheme)) * 17 + Objects.hashCode(uriSchemeAuthority);
+            if (hashCode == 0) hashCode = 1 << 30;
+            return this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     /**
@@ -205,7 +212,63 @@ public final class ServiceType extends ServiceDesignation {
     }
 
     /**
-     * Get a service type with the given abstract type and optional abstract type authority.
+     * Get the canonical instance of the given service type.  Canonical instances are only weakly retained, so a type
+     * which is no longer referenced anywhere is forgotten, and is given a new identifier if it is used again.
+     *
+     * @param serviceType the service type
+     * @return the canonical equivalent service type
+     */
+    static ServiceType canonicalize(final ServiceType serviceType) {
+        final Ref lookup = new Ref(serviceType, null);
+        Ref ref = canonical.get(lookup);
+        ServiceType existing = ref == null ? null : ref.get();
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (canonical) {
+            // forget the types which were collected
+            while ((ref = (Ref) collected.poll()) != null) {
+                canonical.remove(ref);
+            }
+            ref = canonical.get(lookup);
+            existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            // the identifier is assigned before the type is published
+            serviceType.id = nextId.incrementAndGet();
+            serviceType.canonicalType = serviceType;
+            ref = new Ref(serviceType, collected);
+            canonical.put(ref, ref);
+            return serviceType;
+        }
+    }
+
+    /**
+     * Get the numeric identifier of this service type.  Identifiers are small positive integers which are assigned
+     * on first use; equal service types have the same identifier for as long as any of them is in use, so the
+     * identifier may be used to index service types or to bucket service URLs by
+     * {@linkplain ServiceURL#getServiceTypeId() type}.
+     *
+     * @return the service type identifier
+     */
+    public int getId() {
+        int id = this.id;
+        if (id == 0) {
+            final ServiceType canonicalType = canonicalize(this);
+            this.canonicalType = canonicalType;
+            id = this.id = canonicalType.id;
+        }
+        return id;
+    }
+
+    Object readResolve() {
+        return canonicalize(this);
+    }
+
+    /**
+     * Get a service type with the given abstract type and optional abstract type authority.  Equal service types
+     * returned by this method are the same instance.
      *
      * @param abstractType the abstract service type (must not be {@code null})
      * @param abstractTypeAuthority the abstract type authority (may be {@code null})
@@ -213,11 +276,12 @@ public final class ServiceType extends ServiceDesignation {
      */
     public static ServiceType of(final String abstractType, final String abstractTypeAuthority) {
         Assert.checkNotNullParam("abstractType", abstractType);
-        return new ServiceType(abstractType, abstractTypeAuthority, null, null);
+        return canonicalize(new ServiceType(abstractType, abstractTypeAuthority, null, null));
     }
 
     /**
      * Get a service type with the given abstract and concrete type and optional abstract and/or concrete type authority.
+     * Equal service types returned by this method are the same instance.
      *
      * @param abstractType the abstract service type (must not be {@code null})
      * @param abstractTypeAuthority the abstract type authority (may be {@code null})
@@ -228,6 +292,34 @@ public final class ServiceType extends ServiceDesignation {
     public static ServiceType of(final String abstractType, final String abstractTypeAuthority, final String concreteType, final String concreteTypeAuthority) {
         Assert.checkNotNullParam("abstractType", abstractType);
         Assert.checkNotNullParam("concreteType", concreteType);
-        return new ServiceType(abstractType, abstractTypeAuthority, concreteType, concreteTypeAuthority);
+        return canonicalize(new ServiceType(abstractType, abstractTypeAuthority, concreteType, concreteTypeAuthority));
+    }
+
+    /**
+     * A weak reference to a canonical service type, which is equal to the references to equal service types.  A
+     * reference which was cleared is only equal to itself.
+     */
+    static final class Ref extends WeakReference<ServiceType> {
+        private final int hashCode;
+
+        Ref(final ServiceType serviceType, final ReferenceQueue<ServiceType> queue) {
+            super(serviceType, queue);
+            hashCode = serviceType.hashCode();
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (! (obj instanceof Ref)) {
+                return false;
+            }
+            final ServiceType serviceType = get();
+            return serviceType != null && serviceType.equals(((Ref) obj).get());
+        }
     }
 }
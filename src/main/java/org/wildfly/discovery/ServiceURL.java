@@ -18,6 +18,8 @@
 
 package org.wildfly.discovery;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -51,17 +53,40 @@ public final class ServiceURL extends ServiceDesignation {
 
     private final Map<String, List<AttributeValue>> attributes;
 
+    private transient ServiceType serviceType;
+    private transient ServiceType abstractServiceType;
     private transient Set<String> attributeNames;
     private transient int hashCode;
     private transient String toString;
     private transient URI toServiceURI;
 
     ServiceURL(Builder builder, Map<String, List<AttributeValue>> attributes) {
-        this.abstractType = builder.abstractType;
-        this.abstractTypeAuthority = builder.abstractType == null ? null : builder.abstractTypeAuthority;
-        this.uri = Assert.checkNotNullParam("uri", builder.uri);
-        this.uriSchemeAuthority = builder.uriSchemeAuthority;
+        this(builder.abstractType, builder.abstractTypeAuthority, builder.uri, builder.uriSchemeAuthority, attributes);
+    }
+
+    ServiceURL(String abstractType, String abstractTypeAuthority, URI uri, String uriSchemeAuthority, Map<String, List<AttributeValue>> attributes) {
+        this.abstractType = abstractType;
+        this.abstractTypeAuthority = abstractType == null ? null : abstractTypeAuthority;
+        this.uri = Assert.checkNotNullParam("uri", uri);
+        this.uriSchemeAuthority = uriSchemeAuthority;
         this.attributes = attributes;
+        initServiceType();
+    }
+
+    private void initServiceType() {
+        final String uriScheme = uri.getScheme();
+        if (abstractType != null) {
+            serviceType = ServiceType.canonicalize(new ServiceType(abstractType, abstractTypeAuthority, uriScheme, uriSchemeAuthority));
+            abstractServiceType = ServiceType.canonicalize(new ServiceType(abstractType, abstractTypeAuthority, null, null));
+        } else {
+            serviceType = ServiceType.canonicalize(new ServiceType(uriScheme, uriSchemeAuthority, null, null));
+            abstractServiceType = serviceType;
+        }
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        initServiceType();
     }
 
     /**
@@ -466,7 +491,29 @@ public final class ServiceURL extends ServiceDesignation {
      * @return the service type (not {@code null})
      */
     public ServiceType getServiceType() {
-        return abstractType != null ? new ServiceType(abstractType, abstractTypeAuthority, uri.getScheme(), uriSchemeAuthority) : new ServiceType(uri.getScheme(), uriSchemeAuthority, null, null);
+        return serviceType;
+    }
+
+    /**
+     * Get the numeric identifier of the service type of this URL.  This is equal to {@link ServiceType#getId()} of
+     * the {@linkplain #getServiceType() service type}.
+     *
+     * @return the service type identifier
+     */
+    public int getServiceTypeId() {
+        return serviceType.getId();
+    }
+
+    /**
+     * Get the numeric identifier of the abstract service type of this URL, that is, the service type consisting only of
+     * the abstract type and abstract type authority.  For URLs without an abstract type, this is the same as the
+     * {@linkplain #getServiceTypeId() service type identifier}.  Every service type without a URI scheme implies
+     * exactly those service URLs whose abstract service type identifier is equal to its own identifier.
+     *
+     * @return the abstract service type identifier
+     */
+    public int getAbstractServiceTypeId() {
+        return abstractServiceType.getId();
     }
 
     /**
@@ -19,6 +19,8 @@
 package org.wildfly.discovery;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -106,6 +108,80 @@ public interface ServicesQueue extends AutoCloseable {
      */
     ServiceURL takeService(long timeout, TimeUnit timeUnit) throws InterruptedException;
 
+    /**
+     * Move all of the entries which are available to the given collection without blocking.
+     *
+     * @param collection the collection to add the entries to (must not be {@code null})
+     * @return the number of entries added to the collection
+     */
+    default int drainTo(Collection<? super ServiceURL> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Move up to {@code max} of the entries which are available to the given collection without blocking.  The
+     * default implementation polls for entries one at a time.
+     *
+     * @param collection the collection to add the entries to (must not be {@code null})
+     * @param max the maximum number of entries to move
+     * @return the number of entries added to the collection
+     */
+    default int drainTo(Collection<? super ServiceURL> collection, int max) {
+        Assert.checkNotNullParam("collection", collection);
+        int cnt = 0;
+        ServiceURL serviceURL;
+        while (cnt < max) {
+            try {
+                await(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return cnt;
+            }
+            serviceURL = pollService();
+            if (serviceURL == null) {
+                return cnt;
+            }
+            collection.add(serviceURL);
+            cnt ++;
+        }
+        return cnt;
+    }
+
+    /**
+     * Collect all of the entries of this queue, waiting until the queue is finished or until the given time has
+     * elapsed.  Entries are moved in bulk as they become available.
+     *
+     * @param time the maximum amount of time to wait
+     * @param unit the unit of time (must not be {@code null})
+     * @return the list of entries collected (not {@code null})
+     * @throws InterruptedException if the calling thread was interrupted while waiting for entries
+     */
+    default List<ServiceURL> collectAll(long time, TimeUnit unit) throws InterruptedException {
+        Assert.checkNotNullParam("unit", unit);
+        final ArrayList<ServiceURL> list = new ArrayList<>();
+        final long start = System.nanoTime();
+        final long timeoutNanos = unit.toNanos(time);
+        long remaining = timeoutNanos;
+        ServiceURL serviceURL;
+        for (;;) {
+            drainTo(list);
+            if (remaining <= 0L) {
+                return list;
+            }
+            await(remaining, TimeUnit.NANOSECONDS);
+            serviceURL = pollService();
+            if (serviceURL == null) {
+                // finished or timed out
+                if (isReady()) {
+                    return list;
+                }
+            } else {
+                list.add(serviceURL);
+            }
+            remaining = timeoutNanos - (System.nanoTime() - start);
+        }
+    }
+
     /**
      * Query whether this queue is finished (all services have been read).
      *
@@ -114,7 +190,8 @@ public interface ServicesQueue extends AutoCloseable {
     boolean isFinished();
 
     /**
-     * Cancel any in-progress discovery for this queue.  This method is idempotent.
+     * Cancel any in-progress discovery for this queue, and discard the answers which were not yet read.  This method
+     * is idempotent.
      */
     void close();
 
@@ -142,7 +219,7 @@ public interface ServicesQueue extends AutoCloseable {
             public void await() throws InterruptedException {
                 long elapsed = System.nanoTime() - start;
                 if (elapsed < timeoutNanos) {
-                    ServicesQueue.this.await(elapsed, TimeUnit.NANOSECONDS);
+                    ServicesQueue.this.await(timeoutNanos - elapsed, TimeUnit.NANOSECONDS);
                 }
             }
 
@@ -180,8 +257,12 @@ public interface ServicesQueue extends AutoCloseable {
                 return pollService();
             }
 
+            public int drainTo(final Collection<? super ServiceURL> collection, final int max) {
+                return ServicesQueue.this.drainTo(collection, max);
+            }
+
             public boolean isFinished() {
-                return ServicesQueue.this.isFinished() || ! isReady() && timeoutNanos > System.nanoTime() - start;
+                return ServicesQueue.this.isFinished() || ! isReady() && timeoutNanos <= System.nanoTime() - start;
             }
 
             public void close() {
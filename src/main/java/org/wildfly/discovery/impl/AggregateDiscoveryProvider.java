@@ -19,20 +19,28 @@
 package org.wildfly.discovery.impl;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryRequestOptions;
 import org.wildfly.discovery.FilterSpec;
 import org.wildfly.discovery.ServiceType;
 import org.wildfly.discovery.ServiceURL;
 import org.wildfly.discovery.spi.DiscoveryProvider;
 import org.wildfly.discovery.spi.DiscoveryRequest;
 import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterSplit;
 
 /**
  * A discovery provider which aggregates multiple other providers together.  The aggregate request is complete when
- * all of the delegate provider requests are complete.
+ * all of the delegate provider requests are complete.  If the result has a {@linkplain DiscoveryResult#getRemainingLimit()
+ * limit}, the remaining delegates are not asked and the outstanding delegate requests are cancelled once it is reached.
+ * Delegates are passed the request options with the limit which remains when they are asked, and are not asked at all
+ * once the deadline has passed.
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
@@ -50,17 +58,37 @@ public final class AggregateDiscoveryProvider implements DiscoveryProvider {
     }
 
     public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
         final AtomicInteger count = new AtomicInteger(delegates.length);
-        final DiscoveryRequest[] delegateRequests = new DiscoveryRequest[delegates.length];
+        final AggregatingDiscoveryRequest request = new AggregatingDiscoveryRequest(delegates.length);
+        final boolean recordEvents = JfrSupport.AVAILABLE && DelegateDiscoveryEvent.isTypeEnabled();
+        // only watch the limit if there is one
+        final AggregatingDiscoveryRequest limited = result.getRemainingLimit() == Integer.MAX_VALUE ? null : request;
         for (int i = 0, delegatesLength = delegates.length; i < delegatesLength; i++) {
             final DiscoveryProvider delegate = delegates[i];
-            if (delegate != null) {
-                delegateRequests[i] = delegate.discover(serviceType, filterSpec, new AggregatingDiscoveryResult(result, count));
+            if (delegate != null && ! request.isCancelled() && ! options.isExpired()) {
+                final DelegateDiscoveryEvent event;
+                if (recordEvents) {
+                    event = new DelegateDiscoveryEvent();
+                    event.serviceType = serviceType.toString();
+                    event.provider = delegate.getClass().getName();
+                    event.index = i;
+                    event.begin();
+                } else {
+                    event = null;
+                }
+                // pass on the remaining budget
+                final DiscoveryRequestOptions delegateOptions = limited == null ? options : options.withLimit(Math.max(1, result.getRemainingLimit()));
+                final FilterSplit split = FilterSplit.of(filterSpec, delegate.getSupportedFilterOperations());
+                request.set(i, split.discover(delegate, serviceType, new AggregatingDiscoveryResult(result, count, event, limited), delegateOptions));
             } else {
                 handleComplete(count, result);
             }
         }
-        return new AggregatingDiscoveryRequest(delegateRequests);
+        return request;
     }
 
     void handleComplete(AtomicInteger count, DiscoveryResult delegate) {
@@ -77,15 +105,38 @@ public final class AggregateDiscoveryProvider implements DiscoveryProvider {
         }
     }
 
+    public void processSuccessfulTarget(final URI location, final long latency, final TimeUnit unit) {
+        for (DiscoveryProvider delegate : delegates) {
+            if (delegate != null) {
+                delegate.processSuccessfulTarget(location, latency, unit);
+            }
+        }
+    }
+
     static class AggregatingDiscoveryRequest implements DiscoveryRequest {
-        private final DiscoveryRequest[] delegateRequests;
+        private final AtomicReferenceArray<DiscoveryRequest> delegateRequests;
+        private volatile boolean cancelled;
+
+        AggregatingDiscoveryRequest(final int length) {
+            delegateRequests = new AtomicReferenceArray<>(length);
+        }
+
+        void set(int index, DiscoveryRequest request) {
+            delegateRequests.set(index, request);
+            if (cancelled) {
+                // cancelled while the delegate was starting
+                request.cancel();
+            }
+        }
 
-        AggregatingDiscoveryRequest(final DiscoveryRequest[] delegateRequests) {
-            this.delegateRequests = delegateRequests;
+        boolean isCancelled() {
+            return cancelled;
         }
 
         public void cancel() {
-            for (DiscoveryRequest request : delegateRequests) {
+            cancelled = true;
+            for (int i = 0; i < delegateRequests.length(); i++) {
+                final DiscoveryRequest request = delegateRequests.get(i);
                 if (request != null) request.cancel();
             }
         }
@@ -95,28 +146,69 @@ public final class AggregateDiscoveryProvider implements DiscoveryProvider {
     final class AggregatingDiscoveryResult extends AtomicBoolean implements DiscoveryResult {
         private final DiscoveryResult delegate;
         private final AtomicInteger count;
-
-        AggregatingDiscoveryResult(final DiscoveryResult delegate, final AtomicInteger count) {
+        // only tracked while recording
+        private final DelegateDiscoveryEvent event;
+        private final AtomicInteger matchCount;
+        private final AtomicInteger problemCount;
+        // only present if the result has a limit
+        private final AggregatingDiscoveryRequest limited;
+
+        AggregatingDiscoveryResult(final DiscoveryResult delegate, final AtomicInteger count, final DelegateDiscoveryEvent event, final AggregatingDiscoveryRequest limited) {
             this.delegate = delegate;
             this.count = count;
+            this.event = event;
+            this.limited = limited;
+            matchCount = event == null ? null : new AtomicInteger();
+            problemCount = event == null ? null : new AtomicInteger();
         }
 
         public void complete() {
             if (compareAndSet(false, true)) {
+                if (event != null) event.end(matchCount.get(), problemCount.get());
                 handleComplete(count, delegate);
             }
         }
 
         public void reportProblem(final Throwable description) {
-            if (! get()) delegate.reportProblem(description);
+            if (! get()) {
+                if (event != null) problemCount.incrementAndGet();
+                delegate.reportProblem(description);
+            }
         }
 
         public void addMatch(final URI uri) {
-            if (! get()) delegate.addMatch(uri);
+            if (! get()) {
+                if (event != null) matchCount.incrementAndGet();
+                delegate.addMatch(uri);
+                checkLimit();
+            }
         }
 
         public void addMatch(final ServiceURL serviceURL) {
-            if (! get()) delegate.addMatch(serviceURL);
+            if (! get()) {
+                if (event != null) matchCount.incrementAndGet();
+                delegate.addMatch(serviceURL);
+                checkLimit();
+            }
+        }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            if (! get()) {
+                if (event != null) matchCount.addAndGet(serviceURLs.size());
+                delegate.addMatches(serviceURLs);
+                checkLimit();
+            }
+        }
+
+        public int getRemainingLimit() {
+            return get() ? 0 : delegate.getRemainingLimit();
+        }
+
+        private void checkLimit() {
+            final AggregatingDiscoveryRequest limited = this.limited;
+            if (limited != null && ! limited.isCancelled() && delegate.getRemainingLimit() == 0) {
+                limited.cancel();
+            }
         }
     }
 }
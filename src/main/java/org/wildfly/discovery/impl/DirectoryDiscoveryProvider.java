@@ -0,0 +1,520 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.AttributeValue;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * A discovery provider which discovers the services described by the files in a directory, one service per file.
+ * <p>
+ * Files whose names end with {@code .properties} are read as properties, with the same names as the attributes of the
+ * {@code service} element of the discovery configuration:
+ * <pre>
+ * uri=remote+http://node1:8080
+ * abstract-type=ejb
+ * abstract-type-authority=jboss
+ * attribute.cluster=c1
+ * attribute.weight=5,10
+ * attribute.ssl=
+ * </pre>
+ * Attribute values are separated by commas, and an attribute with an empty value has no value at all.  Any other file
+ * holds an SLP style service URL, such as {@code service:ejb.jboss:remote+http://node1:8080;cluster=c1;weight=5,10;ssl},
+ * where an attribute without {@code =} has no value; blank lines and lines starting with {@code #} are ignored.  Files whose names start with {@code .} or end with {@code ~} or {@code .tmp} are
+ * ignored, so that a service file can be written under a temporary name and then moved into place.  Files which cannot
+ * be read are logged and ignored.
+ * <p>
+ * The services are kept in an in-memory index, so discovery never touches the disk.  The index is loaded when the
+ * provider is created, in parallel for large directories, and then kept up to date by watching the directory.
+ * Changes are debounced: they are applied once the directory has been quiet for a short delay (or a longer one has
+ * passed), and several changes to the same file are applied as one.
+ */
+public final class DirectoryDiscoveryProvider implements DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final int PARALLEL_LOAD_THRESHOLD = 64;
+    private static final int MAX_DELAY_FACTOR = 10;
+    private static final Pattern SCHEME_PREFIX = Pattern.compile("[A-Za-z][A-Za-z0-9+.-]*:");
+    private static final String ATTRIBUTE_PREFIX = "attribute.";
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Path directory;
+    private final long debounceNanos;
+    private final int loadParallelism;
+    private final RegistryIndex<Entry> index = new RegistryIndex<>();
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // only accessed by the watch thread once the provider is created
+    private final Map<Path, Entry> entries = new HashMap<>();
+
+    DirectoryDiscoveryProvider(final Builder builder) throws IOException {
+        directory = builder.directory;
+        debounceNanos = builder.debounceNanos;
+        loadParallelism = builder.loadParallelism;
+        watchService = directory.getFileSystem().newWatchService();
+        try {
+            // watch before loading, so that no change made during the load is missed
+            directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            load();
+        } catch (Throwable t) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        thread = new Thread(this::run, "discovery-directory-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        final ArrayList<Entry> found = new ArrayList<>();
+        index.find(serviceType, filterSpec, entry -> true, found, result.getRemainingLimit());
+        if (! found.isEmpty()) {
+            final ArrayList<ServiceURL> matches = new ArrayList<>(found.size());
+            for (Entry entry : found) {
+                matches.add(entry.serviceURL);
+            }
+            result.addMatches(matches);
+        }
+        result.complete();
+        return DiscoveryRequest.NULL;
+    }
+
+    /**
+     * Describe how a discovery request for the given service type and filter would be answered.
+     *
+     * @param serviceType the service type (must not be {@code null})
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan (not {@code null})
+     * @see LocalRegistryAndDiscoveryProvider#explain(ServiceType, FilterSpec)
+     */
+    public String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        return index.explain(serviceType, filterSpec);
+    }
+
+    /**
+     * Stop watching the directory.  The services which are known are kept.
+     */
+    public void close() {
+        if (! closed) {
+            closed = true;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.tracef(e, "Failed to close the watch service of %s", directory);
+            }
+        }
+    }
+
+    // loading
+
+    private void load() throws IOException {
+        final List<Path> names = list();
+        final ServiceURL[] serviceURLs = new ServiceURL[names.size()];
+        if (names.size() >= PARALLEL_LOAD_THRESHOLD && loadParallelism > 1) {
+            final ForkJoinPool pool = new ForkJoinPool(loadParallelism);
+            try {
+                pool.submit(() -> IntStream.range(0, serviceURLs.length).parallel().forEach(i -> serviceURLs[i] = read(names.get(i)))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading " + directory);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (int i = 0; i < serviceURLs.length; i ++) {
+                serviceURLs[i] = read(names.get(i));
+            }
+        }
+        final ArrayList<ServiceURL> loaded = new ArrayList<>(serviceURLs.length);
+        final ArrayList<Entry> loadedEntries = new ArrayList<>(serviceURLs.length);
+        for (int i = 0; i < serviceURLs.length; i ++) {
+            if (serviceURLs[i] != null) {
+                loaded.add(serviceURLs[i]);
+                loadedEntries.add(new Entry(names.get(i), serviceURLs[i]));
+            }
+        }
+        final Entry[] array = loadedEntries.toArray(new Entry[loadedEntries.size()]);
+        final int[] slots = new int[array.length];
+        index.addAll(loaded.toArray(new ServiceURL[loaded.size()]), array, slots);
+        for (int i = 0; i < array.length; i ++) {
+            array[i].slot = slots[i];
+            entries.put(array[i].name, array[i]);
+        }
+    }
+
+    private List<Path> list() throws IOException {
+        final ArrayList<Path> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                final Path name = path.getFileName();
+                if (isServiceFile(name) && Files.isRegularFile(path)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private ServiceURL read(final Path name) {
+        final Path path = directory.resolve(name);
+        final String content;
+        try {
+            content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warnf(e, "Failed to read service file %s", path);
+            return null;
+        }
+        try {
+            return name.toString().endsWith(".properties") ? parseProperties(content) : parseServiceURL(content);
+        } catch (IllegalArgumentException e) {
+            log.warnf("Ignoring invalid service file %s: %s", path, e.getMessage());
+            return null;
+        }
+    }
+
+    static boolean isServiceFile(final Path name) {
+        final String string = name.toString();
+        return ! string.startsWith(".") && ! string.endsWith("~") && ! string.endsWith(".tmp");
+    }
+
+    // watching
+
+    void run() {
+        final Set<Path> pending = new LinkedHashSet<>();
+        // set while a full rescan is owed, which survives a rescan that fails
+        boolean overflow = false;
+        try {
+            while (! closed) {
+                // while a rescan is owed, retry it after the debounce delay even if nothing else changes
+                WatchKey key = overflow ? watchService.poll(debounceNanos, TimeUnit.NANOSECONDS) : watchService.take();
+                final long start = System.nanoTime();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            pending.add((Path) event.context());
+                        }
+                    }
+                    if (! key.reset()) {
+                        log.warnf("Directory %s can no longer be watched", directory);
+                        closed = true;
+                        break;
+                    }
+                    // wait for the directory to be quiet, but not forever
+                    final long wait = Math.min(debounceNanos, start + debounceNanos * MAX_DELAY_FACTOR - System.nanoTime());
+                    key = wait <= 0 ? null : watchService.poll(wait, TimeUnit.NANOSECONDS);
+                }
+                if (overflow) {
+                    // events were lost, so compare everything
+                    try {
+                        final List<Path> names = list();
+                        pending.addAll(entries.keySet());
+                        pending.addAll(names);
+                        overflow = false;
+                    } catch (IOException | DirectoryIteratorException e) {
+                        log.warnf(e, "Failed to rescan directory %s; retrying", directory);
+                    }
+                }
+                for (Path name : pending) {
+                    update(name);
+                }
+                pending.clear();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // done
+        } catch (Throwable t) {
+            log.errorf(t, "Failed to watch directory %s", directory);
+        }
+    }
+
+    private void update(final Path name) {
+        final ServiceURL serviceURL = isServiceFile(name) && Files.isRegularFile(directory.resolve(name)) ? read(name) : null;
+        final Entry old = entries.get(name);
+        if (old != null && serviceURL != null && old.serviceURL.equals(serviceURL)) {
+            return;
+        }
+        // add the new service before removing the old one, so that a changed service is never missing
+        if (serviceURL != null) {
+            final Entry entry = new Entry(name, serviceURL);
+            entry.slot = index.add(serviceURL, entry);
+            entries.put(name, entry);
+        } else {
+            entries.remove(name);
+        }
+        if (old != null) {
+            index.remove(old.slot, old);
+        }
+    }
+
+    // parsing
+
+    static ServiceURL parseProperties(final String content) {
+        final Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        boolean hasUri = false;
+        for (String key : properties.stringPropertyNames()) {
+            final String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "uri": {
+                    try {
+                        builder.setUri(new URI(value));
+                    } catch (URISyntaxException e) {
+                        throw new IllegalArgumentException(e.getMessage());
+                    }
+                    hasUri = true;
+                    break;
+                }
+                case "uri-scheme-authority": {
+                    builder.setUriSchemeAuthority(value);
+                    break;
+                }
+                case "abstract-type": {
+                    builder.setAbstractType(value);
+                    break;
+                }
+                case "abstract-type-authority": {
+                    builder.setAbstractTypeAuthority(value);
+                    break;
+                }
+                default: {
+                    if (! key.startsWith(ATTRIBUTE_PREFIX) || key.length() == ATTRIBUTE_PREFIX.length()) {
+                        throw new IllegalArgumentException("Unknown key " + key);
+                    }
+                    addAttribute(builder, key.substring(ATTRIBUTE_PREFIX.length()), value);
+                    break;
+                }
+            }
+        }
+        if (! hasUri) {
+            throw new IllegalArgumentException("No uri was given");
+        }
+        return builder.create();
+    }
+
+    static ServiceURL parseServiceURL(final String content) {
+        String string = null;
+        for (String line : content.split("\r?\n")) {
+            line = line.trim();
+            if (! line.isEmpty() && ! line.startsWith("#")) {
+                if (string != null) {
+                    throw new IllegalArgumentException("More than one service URL");
+                }
+                string = line;
+            }
+        }
+        if (string == null || ! string.startsWith("service:")) {
+            throw new IllegalArgumentException("No service URL");
+        }
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        String rest = string.substring("service:".length());
+        final int semi = rest.indexOf(';');
+        final String attributes = semi == -1 ? "" : rest.substring(semi + 1);
+        if (semi != -1) {
+            rest = rest.substring(0, semi);
+        }
+        int colon = rest.indexOf(':');
+        if (colon == -1) {
+            throw new IllegalArgumentException("No URI scheme");
+        }
+        String type = rest.substring(0, colon);
+        rest = rest.substring(colon + 1);
+        if (SCHEME_PREFIX.matcher(rest).lookingAt()) {
+            // the first part is the abstract type
+            final int dot = type.indexOf('.');
+            builder.setAbstractType(dot == -1 ? type : type.substring(0, dot));
+            if (dot != -1) {
+                builder.setAbstractTypeAuthority(type.substring(dot + 1));
+            }
+            colon = rest.indexOf(':');
+            type = rest.substring(0, colon);
+            rest = rest.substring(colon + 1);
+        }
+        final int dot = type.indexOf('.');
+        try {
+            // the scheme-specific part is raw, as in the string representation
+            builder.setUri(new URI((dot == -1 ? type : type.substring(0, dot)) + ":" + rest));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        if (dot != -1) {
+            builder.setUriSchemeAuthority(type.substring(dot + 1));
+        }
+        if (! attributes.isEmpty()) {
+            for (String attribute : attributes.split(";")) {
+                final int eq = attribute.indexOf('=');
+                addAttribute(builder, eq == -1 ? attribute : attribute.substring(0, eq), eq == -1 ? "" : attribute.substring(eq + 1));
+            }
+        }
+        return builder.create();
+    }
+
+    private static void addAttribute(final ServiceURL.Builder builder, final String name, final String values) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty attribute name");
+        }
+        if (values.isEmpty()) {
+            builder.addAttribute(name);
+        } else {
+            final Set<String> seen = new HashSet<>();
+            for (String value : values.split(",")) {
+                if (seen.add(value)) {
+                    builder.addAttribute(name, AttributeValue.fromString(value));
+                }
+            }
+        }
+    }
+
+    static final class Entry {
+        final Path name;
+        final ServiceURL serviceURL;
+        int slot;
+
+        Entry(final Path name, final ServiceURL serviceURL) {
+            this.name = name;
+            this.serviceURL = serviceURL;
+        }
+    }
+
+    /**
+     * A builder for directory discovery providers.
+     */
+    public static final class Builder {
+        private Path directory;
+        private long debounceNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private int loadParallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the directory to discover services in.
+         *
+         * @param directory the directory (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setDirectory(Path directory) {
+            this.directory = Assert.checkNotNullParam("directory", directory);
+            return this;
+        }
+
+        /**
+         * Set how long the directory must be quiet before changes are applied.  Changes are applied after ten times
+         * this delay at the latest.  The default is 100 milliseconds.
+         *
+         * @param delay the debounce delay (must be positive)
+         * @param unit the unit of the delay (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setDebounceDelay(long delay, TimeUnit unit) {
+            Assert.checkMinimumParameter("delay", 1, delay);
+            Assert.checkNotNullParam("unit", unit);
+            this.debounceNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Set the number of threads which read the files of a large directory when the provider is created.  The
+         * default is the number of processors.
+         *
+         * @param loadParallelism the number of threads (must be positive)
+         * @return this builder
+         */
+        public Builder setLoadParallelism(int loadParallelism) {
+            Assert.checkMinimumParameter("loadParallelism", 1, loadParallelism);
+            this.loadParallelism = loadParallelism;
+            return this;
+        }
+
+        /**
+         * Create the provider, loading the directory and starting to watch it.
+         *
+         * @return the provider (not {@code null})
+         * @throws IOException if the directory could not be read or watched
+         */
+        public DirectoryDiscoveryProvider create() throws IOException {
+            if (directory == null) {
+                throw new IllegalStateException("No directory was given");
+            }
+            return new DirectoryDiscoveryProvider(this);
+        }
+    }
+}
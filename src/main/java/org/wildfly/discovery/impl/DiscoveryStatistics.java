@@ -0,0 +1,303 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.spi.DiscoveryMetrics;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * An in-memory implementation of {@link DiscoveryMetrics} which keeps counters and histograms for each provider.
+ * Counters are striped, and histograms use log-linear buckets with a relative error of at most 1/16, so recording
+ * never allocates or contends on a single memory location.
+ */
+public final class DiscoveryStatistics implements DiscoveryMetrics {
+    private final ConcurrentHashMap<DiscoveryProvider, ProviderStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance.
+     */
+    public DiscoveryStatistics() {
+    }
+
+    public ProviderStatistics recorderFor(final DiscoveryProvider provider) {
+        Assert.checkNotNullParam("provider", provider);
+        return statistics.computeIfAbsent(provider, ProviderStatistics::new);
+    }
+
+    /**
+     * Get the statistics of the given provider.
+     *
+     * @param provider the provider (must not be {@code null})
+     * @return the statistics, or {@code null} if the provider was never metered
+     */
+    public ProviderStatistics getStatistics(DiscoveryProvider provider) {
+        Assert.checkNotNullParam("provider", provider);
+        return statistics.get(provider);
+    }
+
+    /**
+     * Get the statistics of all metered providers.
+     *
+     * @return the statistics, keyed by provider (not {@code null})
+     */
+    public Map<DiscoveryProvider, ProviderStatistics> getAllStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * The statistics of one discovery provider.
+     */
+    public static final class ProviderStatistics implements Recorder {
+        private final DiscoveryProvider provider;
+        private final LongAdder started = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder problems = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final Histogram matchesPerDiscovery = new Histogram();
+        private final Histogram timeToFirstMatch = new Histogram();
+        private final Histogram timeToComplete = new Histogram();
+
+        ProviderStatistics(final DiscoveryProvider provider) {
+            this.provider = provider;
+        }
+
+        public void discoveryStarted() {
+            started.increment();
+        }
+
+        public void firstMatch(final long nanos) {
+            timeToFirstMatch.record(nanos);
+        }
+
+        public void problemReported() {
+            problems.increment();
+        }
+
+        public void discoveryCancelled() {
+            cancelled.increment();
+        }
+
+        public void discoveryCompleted(final long nanos, final int matches) {
+            completed.increment();
+            this.matches.add(matches);
+            matchesPerDiscovery.record(matches);
+            timeToComplete.record(nanos);
+        }
+
+        /**
+         * Get the provider of these statistics.
+         *
+         * @return the provider (not {@code null})
+         */
+        public DiscoveryProvider getProvider() {
+            return provider;
+        }
+
+        /**
+         * Get the number of discoveries started.
+         *
+         * @return the number of discoveries started
+         */
+        public long getDiscoveriesStarted() {
+            return started.sum();
+        }
+
+        /**
+         * Get the number of discoveries completed.
+         *
+         * @return the number of discoveries completed
+         */
+        public long getDiscoveriesCompleted() {
+            return completed.sum();
+        }
+
+        /**
+         * Get the number of problems reported.
+         *
+         * @return the number of problems reported
+         */
+        public long getProblemsReported() {
+            return problems.sum();
+        }
+
+        /**
+         * Get the number of discoveries cancelled before they completed.
+         *
+         * @return the number of discoveries cancelled
+         */
+        public long getDiscoveriesCancelled() {
+            return cancelled.sum();
+        }
+
+        /**
+         * Get the total number of matches of completed discoveries.
+         *
+         * @return the total number of matches
+         */
+        public long getMatches() {
+            return matches.sum();
+        }
+
+        /**
+         * Get the histogram of the number of matches per completed discovery.
+         *
+         * @return the histogram (not {@code null})
+         */
+        public Histogram getMatchesPerDiscovery() {
+            return matchesPerDiscovery;
+        }
+
+        /**
+         * Get the histogram of the time until the first match of each discovery, in nanoseconds.
+         *
+         * @return the histogram (not {@code null})
+         */
+        public Histogram getTimeToFirstMatch() {
+            return timeToFirstMatch;
+        }
+
+        /**
+         * Get the histogram of the time until the completion of each discovery, in nanoseconds.
+         *
+         * @return the histogram (not {@code null})
+         */
+        public Histogram getTimeToComplete() {
+            return timeToComplete;
+        }
+
+        public String toString() {
+            return String.format("%s: started=%d completed=%d cancelled=%d problems=%d matches=%d", provider, Long.valueOf(getDiscoveriesStarted()), Long.valueOf(getDiscoveriesCompleted()), Long.valueOf(getDiscoveriesCancelled()), Long.valueOf(getProblemsReported()), Long.valueOf(getMatches()));
+        }
+    }
+
+    /**
+     * A histogram of non-negative values.  Values below 16 are counted exactly; larger values are counted in buckets
+     * of 16 sub-buckets per power of two.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        Histogram() {
+        }
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(indexOf(value));
+            count.increment();
+            sum.add(value);
+        }
+
+        static int indexOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            final int exp = 63 - Long.numberOfLeadingZeros(value);
+            final int shift = exp - SUB_BITS;
+            return (shift + 1 << SUB_BITS) + (int) (value >>> shift & SUB_COUNT - 1);
+        }
+
+        static long highestValueOf(int index) {
+            if (index < SUB_COUNT) {
+                return index;
+            }
+            final int shift = (index >>> SUB_BITS) - 1;
+            final long low = (long) (SUB_COUNT | index & SUB_COUNT - 1) << shift;
+            return low + (1L << shift) - 1;
+        }
+
+        /**
+         * Get the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Get the mean of the recorded values.
+         *
+         * @return the mean, or 0 if no values were recorded
+         */
+        public double getMean() {
+            final long count = this.count.sum();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        /**
+         * Get an upper bound of the value at the given percentile.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the highest value of the bucket which contains the percentile, or 0 if no values were recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            Assert.checkMinimumParameter("percentile", 0.0, percentile);
+            Assert.checkMaximumParameter("percentile", 100.0, percentile);
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i ++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            int last = 0;
+            for (int i = 0; i < BUCKETS; i ++) {
+                final long c = counts.get(i);
+                if (c != 0) {
+                    seen += c;
+                    last = i;
+                    if (seen >= target) {
+                        return highestValueOf(i);
+                    }
+                }
+            }
+            return highestValueOf(last);
+        }
+
+        /**
+         * Get an upper bound of the largest recorded value.
+         *
+         * @return the highest value of the highest non-empty bucket, or 0 if no values were recorded
+         */
+        public long getMax() {
+            for (int i = BUCKETS - 1; i >= 0; i --) {
+                if (counts.get(i) != 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
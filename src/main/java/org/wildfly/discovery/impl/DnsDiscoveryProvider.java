@@ -0,0 +1,702 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.AttributeValue;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * A discovery provider which looks services up in DNS.
+ * <p>
+ * A service type is looked up as the SRV records of {@code _<abstract type>._tcp.<domain>}, each of which gives a
+ * host and port of the service, and the TXT records of the same name, which give the attributes of all of its
+ * instances as {@code key=value} strings (a key without {@code =} is an attribute without a value, and a key which
+ * appears more than once has several values).  The {@code scheme} key gives the URI scheme of the services, which
+ * otherwise is the one of the service type being discovered, or the default scheme.  Services are returned in the
+ * order of their SRV priority; services of the same priority are ordered by a weighted random choice, as in RFC 2782,
+ * so that each is first in proportion to its weight.
+ * <p>
+ * Lookups are made by a single thread with a non-blocking socket, so any number of them can be outstanding at a time
+ * and their responses are matched by query ID.  Records are cached for as long as their TTL says, or for the TTL of
+ * the negative answer if there are none.  Once they expire, they are still used for a while, during which a
+ * discovery is answered from the cache right away and the records are looked up again in the background.  They are
+ * also used for as long as a lookup fails.  Concurrent lookups of the same records are made only once.
+ */
+public final class DnsDiscoveryProvider implements DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final String SCHEME_KEY = "scheme";
+    private static final long MAX_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private static final Comparator<DnsMessage.Srv> SRV_ORDER = Comparator.comparingInt(srv -> srv.priority);
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final String domain;
+    private final List<InetSocketAddress> nameServers;
+    private final String defaultUriScheme;
+    private final long timeoutNanos;
+    private final int attempts;
+    private final long staleNanos;
+    private final long negativeTtlSeconds;
+    private final ConcurrentHashMap<Key, Cached> cache = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Object> submitted = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+    private final DatagramChannel channel;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // all of these are only accessed by the resolver thread
+    private final Map<Key, Lookup> lookups = new HashMap<>();
+    private final Map<Integer, Lookup> lookupsById = new HashMap<>();
+    private final Set<Pending> waiting = new HashSet<>();
+    private final ByteBuffer inBuffer = ByteBuffer.allocate(65535);
+    private final ByteBuffer outBuffer = ByteBuffer.allocate(512);
+
+    DnsDiscoveryProvider(final Builder builder) throws IOException {
+        domain = builder.domain;
+        nameServers = builder.nameServers.isEmpty() ? systemNameServers() : new ArrayList<>(builder.nameServers);
+        if (nameServers.isEmpty()) {
+            throw new IOException("No name servers were given or configured for the system");
+        }
+        defaultUriScheme = builder.defaultUriScheme;
+        timeoutNanos = builder.timeoutNanos;
+        attempts = builder.attempts;
+        staleNanos = builder.staleNanos;
+        negativeTtlSeconds = builder.negativeTtlSeconds;
+        selector = Selector.open();
+        DatagramChannel channel = null;
+        try {
+            channel = DatagramChannel.open();
+            channel.bind(null);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (Throwable t) {
+            if (channel != null) {
+                channel.close();
+            }
+            selector.close();
+            throw t;
+        }
+        this.channel = channel;
+        thread = new Thread(this::run, "discovery-dns-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static List<InetSocketAddress> systemNameServers() throws IOException {
+        final Path path = Paths.get("/etc/resolv.conf");
+        final ArrayList<InetSocketAddress> list = new ArrayList<>();
+        if (Files.isReadable(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                final String[] fields = line.trim().split("\\s+");
+                if (fields.length >= 2 && fields[0].equals("nameserver")) {
+                    // always a literal address, so there is no lookup
+                    list.add(new InetSocketAddress(InetAddress.getByName(fields[1]), 53));
+                }
+            }
+        }
+        return list;
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        if (closed || result.getRemainingLimit() == 0) {
+            result.complete();
+            return DiscoveryRequest.NULL;
+        }
+        final String name = "_" + serviceType.getAbstractType().toLowerCase(Locale.ROOT) + "._tcp." + domain;
+        final Key srvKey = new Key(name, DnsMessage.TYPE_SRV);
+        final Key txtKey = new Key(name, DnsMessage.TYPE_TXT);
+        final long now = System.nanoTime();
+        final Cached srv = cache.get(srvKey);
+        final Cached txt = cache.get(txtKey);
+        if (srv != null && srv.isUsable(now) && txt != null && txt.isUsable(now)) {
+            // answer right away, and look up again in the background if need be
+            if (srv.isExpired(now)) {
+                submitted.add(srvKey);
+            }
+            if (txt.isExpired(now)) {
+                submitted.add(txtKey);
+            }
+            if (srv.isExpired(now) || txt.isExpired(now)) {
+                selector.wakeup();
+            }
+            answer(serviceType, filterSpec, result, srv, txt);
+            result.complete();
+            return DiscoveryRequest.NULL;
+        }
+        final Pending request = new Pending(serviceType, filterSpec, result, srvKey, txtKey);
+        submitted.add(request);
+        selector.wakeup();
+        return request;
+    }
+
+    /**
+     * Close this provider.  Discoveries which are in progress complete immediately.
+     */
+    public void close() {
+        if (! closed) {
+            closed = true;
+            selector.wakeup();
+        }
+    }
+
+    private void answer(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final Cached srv, final Cached txt) {
+        final Map<String, List<AttributeValue>> attributes = new HashMap<>();
+        String scheme = serviceType.getUriScheme() == null ? defaultUriScheme : serviceType.getUriScheme();
+        if (txt != null) {
+            for (DnsMessage.Record record : txt.records) {
+                for (String string : ((DnsMessage.Txt) record).strings) {
+                    final int eq = string.indexOf('=');
+                    final String key = eq == -1 ? string : string.substring(0, eq);
+                    if (key.isEmpty()) {
+                        continue;
+                    }
+                    if (key.equals(SCHEME_KEY) && eq != -1) {
+                        scheme = string.substring(eq + 1);
+                    } else {
+                        attributes.computeIfAbsent(key, k -> new ArrayList<>()).add(eq == -1 ? null : AttributeValue.fromString(string.substring(eq + 1)));
+                    }
+                }
+            }
+        }
+        final ArrayList<DnsMessage.Srv> records = new ArrayList<>(srv.records.size());
+        for (DnsMessage.Record record : srv.records) {
+            records.add((DnsMessage.Srv) record);
+        }
+        order(records);
+        final int limit = result.getRemainingLimit();
+        final ArrayList<ServiceURL> matches = new ArrayList<>();
+        for (DnsMessage.Srv record : records) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            if (record.target.isEmpty()) {
+                // "." means that the service is decidedly not available
+                continue;
+            }
+            final ServiceURL.Builder builder = new ServiceURL.Builder();
+            builder.setAbstractType(serviceType.getAbstractType());
+            builder.setAbstractTypeAuthority(serviceType.getAbstractTypeAuthority());
+            try {
+                builder.setUri(new URI(scheme, null, record.target, record.port, null, null, null));
+            } catch (URISyntaxException e) {
+                log.debugf(e, "Skipping invalid SRV record %s:%d", record.target, Integer.valueOf(record.port));
+                continue;
+            }
+            if (scheme.equals(serviceType.getUriScheme())) {
+                builder.setUriSchemeAuthority(serviceType.getUriSchemeAuthority());
+            }
+            for (Map.Entry<String, List<AttributeValue>> entry : attributes.entrySet()) {
+                for (AttributeValue value : entry.getValue()) {
+                    if (value == null) {
+                        builder.addAttribute(entry.getKey());
+                    } else {
+                        builder.addAttribute(entry.getKey(), value);
+                    }
+                }
+            }
+            final ServiceURL serviceURL = builder.create();
+            if (serviceType.implies(serviceURL) && serviceURL.satisfies(filterSpec)) {
+                matches.add(serviceURL);
+            }
+        }
+        if (! matches.isEmpty()) {
+            result.addMatches(matches);
+        }
+    }
+
+    /**
+     * Order SRV records by priority, and the records of the same priority by repeated weighted random choice, where a
+     * record of weight zero is only chosen once no other is left (RFC 2782).
+     */
+    private static void order(final List<DnsMessage.Srv> records) {
+        records.sort(SRV_ORDER);
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = 0;
+        while (from < records.size()) {
+            final int priority = records.get(from).priority;
+            long total = 0;
+            int to = from;
+            while (to < records.size() && records.get(to).priority == priority) {
+                total += records.get(to ++).weight;
+            }
+            for (int i = from; i < to - 1; i ++) {
+                int chosen;
+                if (total == 0) {
+                    chosen = i + random.nextInt(to - i);
+                } else {
+                    final long r = random.nextLong(total);
+                    long sum = 0;
+                    chosen = i;
+                    while ((sum += records.get(chosen).weight) <= r) {
+                        chosen ++;
+                    }
+                    total -= records.get(chosen).weight;
+                }
+                Collections.swap(records, i, chosen);
+            }
+            from = to;
+        }
+    }
+
+    // resolver thread
+
+    void run() {
+        try {
+            while (! closed) {
+                Object item;
+                while ((item = submitted.poll()) != null) {
+                    if (item instanceof Pending) {
+                        start((Pending) item);
+                    } else {
+                        lookup((Key) item);
+                    }
+                }
+                final long now = System.nanoTime();
+                final Iterator<Pending> pendingIterator = waiting.iterator();
+                while (pendingIterator.hasNext()) {
+                    final Pending request = pendingIterator.next();
+                    if (request.cancelled) {
+                        pendingIterator.remove();
+                        request.result.complete();
+                    }
+                }
+                long wait = Long.MAX_VALUE;
+                for (Lookup lookup : new ArrayList<>(lookups.values())) {
+                    if (lookup.nextSend - now <= 0) {
+                        if (lookup.sends == attempts) {
+                            fail(lookup, new IOException("No response to the lookup of " + lookup.key));
+                            continue;
+                        }
+                        send(lookup);
+                        lookup.nextSend = now + timeoutNanos;
+                    }
+                    wait = Math.min(wait, lookup.nextSend - now);
+                }
+                if (wait == Long.MAX_VALUE) {
+                    selector.select();
+                } else {
+                    // round up, since zero means forever
+                    selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(wait + 999_999L)));
+                }
+                if (! selector.selectedKeys().isEmpty()) {
+                    selector.selectedKeys().clear();
+                    receive();
+                }
+            }
+        } catch (Throwable t) {
+            log.errorf(t, "DNS discovery for %s failed", domain);
+        } finally {
+            closed = true;
+            Object item;
+            while ((item = submitted.poll()) != null) {
+                if (item instanceof Pending) {
+                    ((Pending) item).result.complete();
+                }
+            }
+            for (Pending request : waiting) {
+                request.result.complete();
+            }
+            waiting.clear();
+            try {
+                channel.close();
+                selector.close();
+            } catch (IOException e) {
+                log.tracef(e, "Failed to close %s", channel);
+            }
+        }
+    }
+
+    private void start(final Pending request) {
+        final long now = System.nanoTime();
+        for (Key key : request.keys) {
+            final Cached cached = cache.get(key);
+            if (cached == null || ! cached.isUsable(now)) {
+                lookup(key).waiters.add(request);
+                request.outstanding ++;
+            }
+        }
+        waiting.add(request);
+        if (request.outstanding == 0) {
+            finish(request);
+        }
+    }
+
+    private Lookup lookup(final Key key) {
+        Lookup lookup = lookups.get(key);
+        if (lookup == null) {
+            int id;
+            do {
+                // random IDs make forged responses harder to get accepted
+                id = ThreadLocalRandom.current().nextInt(0x10000);
+            } while (lookupsById.containsKey(Integer.valueOf(id)));
+            lookup = new Lookup(key, id);
+            lookup.nextSend = System.nanoTime();
+            lookups.put(key, lookup);
+            lookupsById.put(Integer.valueOf(id), lookup);
+        }
+        return lookup;
+    }
+
+    private void send(final Lookup lookup) {
+        final ByteBuffer buffer = outBuffer;
+        buffer.clear();
+        try {
+            DnsMessage.writeQuery(buffer, lookup.id, lookup.key.name, lookup.key.type);
+        } catch (IllegalArgumentException | BufferOverflowException e) {
+            fail(lookup, new IOException("Cannot look up " + lookup.key, e));
+            return;
+        }
+        buffer.flip();
+        // try the name servers in turn
+        final InetSocketAddress server = nameServers.get(lookup.sends ++ % nameServers.size());
+        try {
+            channel.send(buffer, server);
+        } catch (IOException e) {
+            log.debugf(e, "Failed to send DNS query to %s", server);
+        }
+    }
+
+    private void receive() throws IOException {
+        final ByteBuffer buffer = inBuffer;
+        for (;;) {
+            buffer.clear();
+            final SocketAddress source = channel.receive(buffer);
+            if (source == null) {
+                return;
+            }
+            buffer.flip();
+            final DnsMessage message;
+            try {
+                message = DnsMessage.parse(buffer);
+            } catch (IllegalArgumentException | BufferUnderflowException | IndexOutOfBoundsException e) {
+                log.tracef(e, "Dropping invalid DNS response from %s", source);
+                continue;
+            }
+            final Lookup lookup = lookupsById.get(Integer.valueOf(message.id));
+            if (lookup == null || ! nameServers.contains(source) || message.questionType != lookup.key.type || ! message.questionName.equalsIgnoreCase(lookup.key.name)) {
+                continue;
+            }
+            final int rcode = message.getRcode();
+            if (rcode != DnsMessage.RCODE_NOERROR && rcode != DnsMessage.RCODE_NXDOMAIN) {
+                // try the next server, if there are attempts left
+                log.debugf("DNS lookup of %s failed with code %d", lookup.key, Integer.valueOf(rcode));
+                lookup.nextSend = System.nanoTime();
+                continue;
+            }
+            if ((message.flags & DnsMessage.FLAG_TC) != 0) {
+                log.debugf("DNS response for %s was truncated; using the records which fit", lookup.key);
+            }
+            final ArrayList<DnsMessage.Record> records = new ArrayList<>();
+            long ttl = MAX_TTL_SECONDS;
+            for (DnsMessage.Record record : message.answers) {
+                if (lookup.key.type == DnsMessage.TYPE_SRV ? record instanceof DnsMessage.Srv : record instanceof DnsMessage.Txt) {
+                    records.add(record);
+                    ttl = Math.min(ttl, record.ttl);
+                }
+            }
+            if (records.isEmpty()) {
+                ttl = message.negativeTtl == -1 ? negativeTtlSeconds : Math.min(MAX_TTL_SECONDS, message.negativeTtl);
+            }
+            cache.put(lookup.key, new Cached(records, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttl)));
+            remove(lookup);
+            for (Pending request : lookup.waiters) {
+                if (-- request.outstanding == 0) {
+                    finish(request);
+                }
+            }
+        }
+    }
+
+    private void fail(final Lookup lookup, final IOException problem) {
+        remove(lookup);
+        log.debugf(problem, "DNS lookup failed");
+        for (Pending request : lookup.waiters) {
+            request.problem = problem;
+            if (-- request.outstanding == 0) {
+                finish(request);
+            }
+        }
+    }
+
+    private void remove(final Lookup lookup) {
+        lookups.remove(lookup.key);
+        lookupsById.remove(Integer.valueOf(lookup.id));
+    }
+
+    private void finish(final Pending request) {
+        if (! waiting.remove(request)) {
+            // cancelled, and already completed
+            return;
+        }
+        if (request.cancelled) {
+            request.result.complete();
+            return;
+        }
+        // whatever is cached is better than nothing, however old it is
+        final Cached srv = cache.get(request.keys[0]);
+        final Cached txt = cache.get(request.keys[1]);
+        if (srv != null) {
+            answer(request.serviceType, request.filterSpec, request.result, srv, txt);
+        } else if (request.problem != null) {
+            request.result.reportProblem(request.problem);
+        }
+        request.result.complete();
+    }
+
+    static final class Key {
+        final String name;
+        final int type;
+
+        Key(final String name, final int type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && ((Key) obj).type == type && ((Key) obj).name.equals(name);
+        }
+
+        public int hashCode() {
+            return name.hashCode() * 31 + type;
+        }
+
+        public String toString() {
+            return name + (type == DnsMessage.TYPE_SRV ? " SRV" : " TXT");
+        }
+    }
+
+    final class Cached {
+        final List<DnsMessage.Record> records;
+        final long expiresAt;
+
+        Cached(final List<DnsMessage.Record> records, final long expiresAt) {
+            this.records = Collections.unmodifiableList(records);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(final long now) {
+            return now - expiresAt >= 0;
+        }
+
+        boolean isUsable(final long now) {
+            return now - expiresAt - staleNanos < 0;
+        }
+    }
+
+    static final class Lookup {
+        final Key key;
+        final int id;
+        final List<Pending> waiters = new ArrayList<>();
+        long nextSend;
+        int sends;
+
+        Lookup(final Key key, final int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    final class Pending implements DiscoveryRequest {
+        final ServiceType serviceType;
+        final FilterSpec filterSpec;
+        final DiscoveryResult result;
+        final Key[] keys;
+        // these are only accessed by the resolver thread
+        int outstanding;
+        IOException problem;
+        volatile boolean cancelled;
+
+        Pending(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final Key srvKey, final Key txtKey) {
+            this.serviceType = serviceType;
+            this.filterSpec = filterSpec;
+            this.result = result;
+            keys = new Key[] { srvKey, txtKey };
+        }
+
+        public void cancel() {
+            cancelled = true;
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * A builder for DNS discovery providers.
+     */
+    public static final class Builder {
+        private String domain;
+        private final List<InetSocketAddress> nameServers = new ArrayList<>();
+        private String defaultUriScheme = "remote+http";
+        private long timeoutNanos = TimeUnit.SECONDS.toNanos(2);
+        private int attempts = 3;
+        private long staleNanos = TimeUnit.MINUTES.toNanos(1);
+        private long negativeTtlSeconds = 10;
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the domain to look services up in.
+         *
+         * @param domain the domain, such as {@code example.com} (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setDomain(String domain) {
+            Assert.checkNotNullParam("domain", domain);
+            this.domain = domain.endsWith(".") ? domain.substring(0, domain.length() - 1) : domain;
+            return this;
+        }
+
+        /**
+         * Add a name server to query.  Name servers are tried in turn.  If none are given, the ones of
+         * {@code /etc/resolv.conf} are used.
+         *
+         * @param nameServer the address of the name server (must not be {@code null})
+         * @return this builder
+         */
+        public Builder addNameServer(InetSocketAddress nameServer) {
+            nameServers.add(Assert.checkNotNullParam("nameServer", nameServer));
+            return this;
+        }
+
+        /**
+         * Set the URI scheme of services whose TXT records give none, when discovering an abstract service type.  The
+         * default is {@code remote+http}.
+         *
+         * @param defaultUriScheme the URI scheme (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setDefaultUriScheme(String defaultUriScheme) {
+            this.defaultUriScheme = Assert.checkNotNullParam("defaultUriScheme", defaultUriScheme);
+            return this;
+        }
+
+        /**
+         * Set the time to wait for a response before a query is sent again.  The default is two seconds.
+         *
+         * @param timeout the query timeout (must be positive)
+         * @param unit the unit of the timeout (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setQueryTimeout(long timeout, TimeUnit unit) {
+            Assert.checkMinimumParameter("timeout", 1, timeout);
+            Assert.checkNotNullParam("unit", unit);
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Set the number of times a query is sent before the lookup fails.  The default is three.
+         *
+         * @param attempts the number of attempts (must be positive)
+         * @return this builder
+         */
+        public Builder setAttempts(int attempts) {
+            Assert.checkMinimumParameter("attempts", 1, attempts);
+            this.attempts = attempts;
+            return this;
+        }
+
+        /**
+         * Set how long expired records are still used while they are looked up again.  The default is one minute.
+         *
+         * @param time the time (must not be negative)
+         * @param unit the unit of the time (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setStaleWhileRevalidate(long time, TimeUnit unit) {
+            Assert.checkMinimumParameter("time", 0, time);
+            Assert.checkNotNullParam("unit", unit);
+            this.staleNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Set how long the absence of records is cached when the name server does not say.  The default is ten
+         * seconds.
+         *
+         * @param ttl the time (must not be negative)
+         * @param unit the unit of the time (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setNegativeTtl(long ttl, TimeUnit unit) {
+            Assert.checkMinimumParameter("ttl", 0, ttl);
+            Assert.checkNotNullParam("unit", unit);
+            this.negativeTtlSeconds = unit.toSeconds(ttl);
+            return this;
+        }
+
+        /**
+         * Create the provider.
+         *
+         * @return the provider (not {@code null})
+         * @throws IOException if the socket could not be opened, or no name servers are known
+         */
+        public DnsDiscoveryProvider create() throws IOException {
+            if (domain == null) {
+                throw new IllegalStateException("No domain was given");
+            }
+            return new DnsDiscoveryProvider(this);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of the DNS message format (RFC 1035) which are needed to look up SRV (RFC 2782) and TXT records.
+ */
+final class DnsMessage {
+    static final int TYPE_SOA = 6;
+    static final int TYPE_TXT = 16;
+    static final int TYPE_SRV = 33;
+    static final int CLASS_IN = 1;
+
+    static final int FLAG_QR = 0x8000;
+    static final int FLAG_TC = 0x0200;
+    static final int FLAG_RD = 0x0100;
+
+    static final int RCODE_NOERROR = 0;
+    static final int RCODE_NXDOMAIN = 3;
+
+    private static final int MAX_POINTERS = 64;
+
+    final int id;
+    final int flags;
+    final String questionName;
+    final int questionType;
+    final List<Record> answers;
+    // the negative caching time from the SOA record of the authority section (RFC 2308), or -1 if there is none
+    final long negativeTtl;
+
+    private DnsMessage(final int id, final int flags, final String questionName, final int questionType, final List<Record> answers, final long negativeTtl) {
+        this.id = id;
+        this.flags = flags;
+        this.questionName = questionName;
+        this.questionType = questionType;
+        this.answers = answers;
+        this.negativeTtl = negativeTtl;
+    }
+
+    int getRcode() {
+        return flags & 0xf;
+    }
+
+    /**
+     * Write a recursive query for one name and type.
+     *
+     * @param buffer the buffer to write to
+     * @param id the query ID
+     * @param name the name, without the trailing dot
+     * @param type the record type
+     */
+    static void writeQuery(final ByteBuffer buffer, final int id, final String name, final int type) {
+        buffer.putShort((short) id);
+        buffer.putShort((short) FLAG_RD);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        writeName(buffer, name);
+        buffer.putShort((short) type);
+        buffer.putShort((short) CLASS_IN);
+    }
+
+    static void writeName(final ByteBuffer buffer, final String name) {
+        if (name.length() > 253) {
+            throw new IllegalArgumentException("Name too long: " + name);
+        }
+        for (String label : name.split("\\.")) {
+            final byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0 || bytes.length > 63) {
+                throw new IllegalArgumentException("Invalid label in " + name);
+            }
+            buffer.put((byte) bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.put((byte) 0);
+    }
+
+    /**
+     * Parse a response.  Answers of types other than SRV and TXT are skipped.
+     *
+     * @param buffer the buffer holding the whole message
+     * @return the message
+     * @throws IllegalArgumentException if the message is malformed
+     * @throws java.nio.BufferUnderflowException if the message is truncated
+     */
+    static DnsMessage parse(final ByteBuffer buffer) {
+        final int id = buffer.getShort() & 0xffff;
+        final int flags = buffer.getShort() & 0xffff;
+        final int questions = buffer.getShort() & 0xffff;
+        final int answerCount = buffer.getShort() & 0xffff;
+        final int authorityCount = buffer.getShort() & 0xffff;
+        buffer.getShort();
+        if ((flags & FLAG_QR) == 0 || questions != 1) {
+            throw new IllegalArgumentException("Not a response to a single question");
+        }
+        final String questionName = readName(buffer);
+        final int questionType = buffer.getShort() & 0xffff;
+        buffer.getShort();
+        final List<Record> answers = answerCount == 0 ? Collections.emptyList() : new ArrayList<>(answerCount);
+        for (int i = 0; i < answerCount; i ++) {
+            readName(buffer);
+            final int type = buffer.getShort() & 0xffff;
+            buffer.getShort();
+            final long ttl = buffer.getInt() & 0xffffffffL;
+            final int length = buffer.getShort() & 0xffff;
+            final int end = buffer.position() + length;
+            if (type == TYPE_SRV) {
+                final int priority = buffer.getShort() & 0xffff;
+                final int weight = buffer.getShort() & 0xffff;
+                final int port = buffer.getShort() & 0xffff;
+                answers.add(new Srv(ttl, priority, weight, port, readName(buffer)));
+            } else if (type == TYPE_TXT) {
+                final ArrayList<String> strings = new ArrayList<>();
+                while (buffer.position() < end) {
+                    final byte[] bytes = new byte[buffer.get() & 0xff];
+                    buffer.get(bytes);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                answers.add(new Txt(ttl, strings));
+            }
+            buffer.position(end);
+        }
+        long negativeTtl = -1;
+        for (int i = 0; i < authorityCount; i ++) {
+            readName(buffer);
+            final int type = buffer.getShort() & 0xffff;
+            buffer.getShort();
+            final long ttl = buffer.getInt() & 0xffffffffL;
+            final int length = buffer.getShort() & 0xffff;
+            final int end = buffer.position() + length;
+            if (type == TYPE_SOA) {
+                readName(buffer);
+                readName(buffer);
+                buffer.position(buffer.position() + 16);
+                final long minimum = buffer.getInt() & 0xffffffffL;
+                negativeTtl = Math.min(ttl, minimum);
+            }
+            buffer.position(end);
+        }
+        return new DnsMessage(id, flags, questionName, questionType, answers, negativeTtl);
+    }
+
+    static String readName(final ByteBuffer buffer) {
+        final StringBuilder b = new StringBuilder();
+        int position = buffer.position();
+        int resume = -1;
+        int pointers = 0;
+        for (;;) {
+            final int length = buffer.get(position) & 0xff;
+            if ((length & 0xc0) == 0xc0) {
+                // a compression pointer
+                if (++ pointers > MAX_POINTERS) {
+                    throw new IllegalArgumentException("Compression loop");
+                }
+                if (resume == -1) {
+                    resume = position + 2;
+                }
+                position = (length & 0x3f) << 8 | buffer.get(position + 1) & 0xff;
+                continue;
+            }
+            if (length == 0) {
+                position ++;
+                break;
+            }
+            if (length > 63) {
+                throw new IllegalArgumentException("Invalid label length " + length);
+            }
+            if (b.length() > 0) {
+                b.append('.');
+            }
+            for (int i = 1; i <= length; i ++) {
+                b.append((char) (buffer.get(position + i) & 0xff));
+            }
+            position += length + 1;
+        }
+        buffer.position(resume == -1 ? position : resume);
+        return b.toString();
+    }
+
+    abstract static class Record {
+        final long ttl;
+
+        Record(final long ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    static final class Srv extends Record {
+        final int priority;
+        final int weight;
+        final int port;
+        final String target;
+
+        Srv(final long ttl, final int priority, final int weight, final int port, final String target) {
+            super(ttl);
+            this.priority = priority;
+            this.weight = weight;
+            this.port = port;
+            this.target = target;
+        }
+    }
+
+    static final class Txt extends Record {
+        final List<String> strings;
+
+        Txt(final long ttl, final List<String> strings) {
+            super(ttl);
+            this.strings = strings;
+        }
+    }
+}
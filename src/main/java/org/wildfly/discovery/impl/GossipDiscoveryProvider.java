@@ -0,0 +1,1219 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceRegistration;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.RegistryProvider;
+
+/**
+ * A registry and discovery provider which replicates registrations among a group of peers by gossip, so that every
+ * peer can answer discoveries for the whole group locally.
+ * <p>
+ * Each peer is the owner of its own registrations, and numbers every change to them with a version which increases by
+ * one with each change.  Changes are spread as deltas piggybacked on the messages of the failure detector, and a
+ * periodic anti-entropy exchange repairs whatever was missed: a peer sends a digest of the highest version it has of
+ * every peer, and the other side answers with the changes which are newer.  Removed registrations are kept as
+ * tombstones for a while so that their removal replicates; a peer which is further behind than that is sent the full
+ * state instead.  Since that answer may be far larger than the digest, a digest is only answered if its sender was
+ * already known at the address it came from, and only a few digests are answered per protocol period.
+ * <p>
+ * Failures are detected in the manner of SWIM: every protocol period, a peer pings another one, asks a few others to
+ * ping it on its behalf if there is no answer, and suspects it if there is still none.  Suspected peers which do not
+ * refute the suspicion in time are declared dead, and their registrations are dropped.  Membership changes are spread
+ * the same way as registration changes.  A peer which is closed announces that it is leaving.
+ * <p>
+ * All network I/O is done by a single thread per provider.
+ */
+public final class GossipDiscoveryProvider implements RegistryProvider, DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    /**
+     * The default port.
+     */
+    public static final int DEFAULT_PORT = 4271;
+
+    static final int MAGIC = 0x57464447;
+    static final int VERSION = 1;
+
+    static final int MSG_PING = 1;
+    static final int MSG_ACK = 2;
+    static final int MSG_PING_REQ = 3;
+    static final int MSG_DIGEST = 4;
+    static final int MSG_SYNC = 5;
+    static final int MSG_LEAVE = 6;
+
+    static final byte ALIVE = 0;
+    static final byte SUSPECT = 1;
+    static final byte DEAD = 2;
+
+    static final int RECORD_REMOVED = 1 << 0;
+    static final int RECORD_INACTIVE = 1 << 1;
+
+    static final int BLOCK_RESET = 1 << 0;
+
+    // header layout: magic (int), version (byte), type (byte), sender (long), sender incarnation (long)
+    static final int HEADER_SIZE = 22;
+
+    private static final int INDIRECT_PROBES = 3;
+    private static final int DISSEMINATION_FACTOR = 3;
+    // a sync answer is much larger than the digest which asks for it, so only a few are sent per period
+    private static final int MAX_SYNCS_PER_PERIOD = 4;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final long id = ThreadLocalRandom.current().nextLong();
+    private final long periodNanos;
+    private final long suspicionNanos;
+    private final int syncPeriods;
+    private final long tombstoneNanos;
+    private final List<InetSocketAddress> seeds;
+    private final RegistryIndex<Record> index = new RegistryIndex<>();
+    private final AtomicLong nextRegistrationId = new AtomicLong(1);
+    private final Selector selector;
+    private final DatagramChannel channel;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // all of these are protected by this
+    private final Map<Long, Member> members = new HashMap<>();
+    private final Member self;
+    private final LinkedHashMap<Long, Update> memberUpdates = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, Update> recordUpdates = new LinkedHashMap<>();
+
+    // all of these are only accessed by the gossip thread, with this held
+    private final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+    private final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+    private final ByteBuffer inBuffer;
+    private final ByteBuffer outBuffer;
+    private final Map<Integer, Relay> relays = new HashMap<>();
+    private final ArrayList<Member> probeOrder = new ArrayList<>();
+    private int probeIndex;
+    private Member probeTarget;
+    private int probeSeq;
+    private boolean probeAcked;
+    private long indirectAt;
+    private boolean indirectSent;
+    private int nextSeq;
+    private long periods;
+    private int syncs;
+
+    GossipDiscoveryProvider(final Builder builder) throws IOException {
+        periodNanos = builder.periodNanos;
+        suspicionNanos = builder.suspicionNanos;
+        syncPeriods = (int) Math.max(1L, builder.syncNanos / builder.periodNanos);
+        tombstoneNanos = builder.tombstoneNanos;
+        seeds = new ArrayList<>(builder.seeds);
+        inBuffer = ByteBuffer.allocate(builder.maxDatagramSize);
+        outBuffer = ByteBuffer.allocate(builder.maxDatagramSize);
+        self = new Member(id);
+        members.put(Long.valueOf(id), self);
+        selector = Selector.open();
+        DatagramChannel channel = null;
+        try {
+            channel = DatagramChannel.open();
+            channel.bind(builder.bindAddress);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (Throwable t) {
+            closeQuietly(channel);
+            closeQuietly(selector);
+            throw t;
+        }
+        this.channel = channel;
+        thread = new Thread(this::run, "discovery-gossip-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public ServiceRegistration registerService(final ServiceURL serviceURL) {
+        Assert.checkNotNullParam("serviceURL", serviceURL);
+        final Handle handle = new Handle(nextRegistrationId.getAndIncrement(), serviceURL);
+        publish(handle.id, serviceURL, true);
+        return handle;
+    }
+
+    public ServiceRegistration registerServices(final ServiceURL... serviceURLs) {
+        Assert.checkNotNullParam("serviceURLs", serviceURLs);
+        final ServiceRegistration[] registrations = new ServiceRegistration[serviceURLs.length];
+        for (int i = 0; i < serviceURLs.length; i ++) {
+            registrations[i] = registerService(Assert.checkNotNullArrayParam("serviceURLs", i, serviceURLs[i]));
+        }
+        return ServiceRegistration.aggregate(registrations);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        try {
+            final ArrayList<Record> records = new ArrayList<>();
+            // only visible records are indexed
+            index.find(serviceType, filterSpec, record -> true, records, result.getRemainingLimit());
+            if (! records.isEmpty()) {
+                final ArrayList<ServiceURL> matches = new ArrayList<>(records.size());
+                for (Record record : records) {
+                    matches.add(record.serviceURL);
+                }
+                result.addMatches(matches);
+            }
+            return DiscoveryRequest.NULL;
+        } finally {
+            result.complete();
+        }
+    }
+
+    /**
+     * Get the address which this provider receives messages on.  This is the address to give to other peers as a
+     * seed.
+     *
+     * @return the local address (not {@code null})
+     * @throws IOException if the address could not be determined
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * Get the number of peers which are currently considered alive, not counting this one.
+     *
+     * @return the number of live peers
+     */
+    public synchronized int getLivePeerCount() {
+        int count = 0;
+        for (Member member : members.values()) {
+            if (member != self && member.status != DEAD && member.address != null) {
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Close this provider.  The other peers are told that this peer is leaving, so that they drop its registrations.
+     */
+    public void close() {
+        if (! closed) {
+            closed = true;
+            selector.wakeup();
+        }
+    }
+
+    // registrations
+
+    synchronized void publish(final long registrationId, final ServiceURL serviceURL, final boolean active) {
+        if (closed) {
+            return;
+        }
+        final Record record = new Record(id, registrationId, ++ self.watermark, serviceURL, active, System.nanoTime());
+        replace(self, self.records.get(Long.valueOf(registrationId)), record);
+        disseminate(record);
+    }
+
+    // gossip thread
+
+    void run() {
+        long nextPeriod = System.nanoTime();
+        try {
+            while (! closed) {
+                long now = System.nanoTime();
+                long wake;
+                synchronized (this) {
+                    if (now - nextPeriod >= 0) {
+                        period(now);
+                        nextPeriod = now + periodNanos;
+                    }
+                    if (probeTarget != null && ! probeAcked && ! indirectSent && now - indirectAt >= 0) {
+                        sendIndirectProbes();
+                    }
+                    wake = probeTarget != null && ! probeAcked && ! indirectSent && indirectAt - nextPeriod < 0 ? indirectAt : nextPeriod;
+                }
+                selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(wake - now + 999_999L)));
+                if (! selector.selectedKeys().isEmpty()) {
+                    selector.selectedKeys().clear();
+                    receive();
+                }
+            }
+            synchronized (this) {
+                for (Member member : members.values()) {
+                    if (member != self && member.status != DEAD && member.address != null) {
+                        startMessage(MSG_LEAVE);
+                        finishMessage(member.address);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            log.errorf(t, "Gossip discovery on %s failed", channel);
+        } finally {
+            closed = true;
+            closeQuietly(channel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void period(final long now) {
+        // the probe of the last period
+        final Member target = probeTarget;
+        if (target != null && ! probeAcked && target.status == ALIVE) {
+            log.debugf("Suspecting gossip peer %s at %s", Long.valueOf(target.id), target.address);
+            target.status = SUSPECT;
+            target.suspectedAt = now;
+            disseminate(target);
+        }
+        probeTarget = null;
+        relays.clear();
+        syncs = 0;
+        // a peer which was only heard of is expected to show up within a round of probes
+        final long placeholderNanos = suspicionNanos + periodNanos * members.size();
+        final Iterator<Member> iterator = members.values().iterator();
+        while (iterator.hasNext()) {
+            final Member member = iterator.next();
+            if (member.status == DEAD && now - member.diedAt - tombstoneNanos > 0) {
+                // the tombstone has kept stale gossip from bringing the peer back for long enough
+                iterator.remove();
+                forget(member);
+                continue;
+            }
+            if (member != self && member.address == null && member.status != DEAD && now - member.createdAt - placeholderNanos > 0) {
+                log.debugf("Forgetting gossip peer %s which was never heard from", Long.valueOf(member.id));
+                setStatus(member, DEAD);
+                iterator.remove();
+                forget(member);
+                continue;
+            }
+            if (member.status == SUSPECT && now - member.suspectedAt - suspicionNanos > 0) {
+                log.debugf("Gossip peer %s at %s is dead", Long.valueOf(member.id), member.address);
+                setStatus(member, DEAD);
+                disseminate(member);
+            }
+            collectTombstones(member, now);
+        }
+        // the probe of this period
+        final Member next = nextProbeTarget();
+        if (next != null) {
+            probeTarget = next;
+            probeSeq = nextSeq ++;
+            probeAcked = false;
+            indirectSent = false;
+            indirectAt = now + periodNanos / 3;
+            final ByteBuffer buffer = startMessage(MSG_PING);
+            buffer.putInt(probeSeq);
+            buffer.putLong(next.id);
+            finishMessage(next.address);
+        }
+        // anti-entropy
+        if (periods ++ % syncPeriods == 0) {
+            final Member peer = randomPeer(null);
+            if (peer != null) {
+                sendDigest(peer.address);
+            } else for (InetSocketAddress seed : seeds) {
+                sendDigest(seed);
+            }
+        }
+    }
+
+    private Member nextProbeTarget() {
+        for (int attempts = 0; attempts < 2; attempts ++) {
+            while (probeIndex < probeOrder.size()) {
+                final Member member = probeOrder.get(probeIndex ++);
+                if (member.status != DEAD && member.address != null && members.get(Long.valueOf(member.id)) == member) {
+                    return member;
+                }
+            }
+            // start a new round in a new random order
+            probeOrder.clear();
+            for (Member member : members.values()) {
+                if (member != self && member.status != DEAD && member.address != null) {
+                    probeOrder.add(member);
+                }
+            }
+            Collections.shuffle(probeOrder, ThreadLocalRandom.current());
+            probeIndex = 0;
+        }
+        return null;
+    }
+
+    private Member randomPeer(final Member exclude) {
+        final ArrayList<Member> candidates = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (member != self && member != exclude && member.status != DEAD && member.address != null) {
+                candidates.add(member);
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private void sendIndirectProbes() {
+        indirectSent = true;
+        final Member target = probeTarget;
+        final ArrayList<Member> candidates = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (member != self && member != target && member.status == ALIVE && member.address != null) {
+                candidates.add(member);
+            }
+        }
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        for (int i = 0; i < Math.min(INDIRECT_PROBES, candidates.size()); i ++) {
+            final ByteBuffer buffer = startMessage(MSG_PING_REQ);
+            buffer.putInt(probeSeq);
+            buffer.putLong(target.id);
+            writeAddress(buffer, target.address);
+            finishMessage(candidates.get(i).address);
+        }
+    }
+
+    private void forget(final Member member) {
+        memberUpdates.remove(Long.valueOf(member.id));
+        recordUpdates.keySet().removeIf(key -> key.node == member.id);
+    }
+
+    private void collectTombstones(final Member member, final long now) {
+        final Iterator<Record> iterator = member.records.values().iterator();
+        while (iterator.hasNext()) {
+            final Record record = iterator.next();
+            if (record.serviceURL == null && now - record.appliedAt - tombstoneNanos > 0) {
+                iterator.remove();
+                member.gcVersion = Math.max(member.gcVersion, record.version);
+            }
+        }
+    }
+
+    private void receive() throws IOException {
+        final ByteBuffer buffer = inBuffer;
+        for (;;) {
+            buffer.clear();
+            final SocketAddress source = channel.receive(buffer);
+            if (source == null) {
+                return;
+            }
+            buffer.flip();
+            try {
+                if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                    continue;
+                }
+                final int type = buffer.get();
+                final long sender = buffer.getLong();
+                final long incarnation = buffer.getLong();
+                if (sender == id) {
+                    continue;
+                }
+                decoder.reset();
+                synchronized (this) {
+                    handle(type, sender, incarnation, (InetSocketAddress) source, buffer);
+                }
+            } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                // whatever a malformed message does to the decoder, anyone who can reach the port could send it, so it
+                // must never stop this thread
+                log.tracef(e, "Dropping invalid gossip message from %s", source);
+            }
+        }
+    }
+
+    private void handle(final int type, final long sender, final long incarnation, final InetSocketAddress source, final ByteBuffer buffer) {
+        if (type == MSG_LEAVE) {
+            applyMember(sender, incarnation, DEAD, source);
+            return;
+        }
+        final Member known = members.get(Long.valueOf(sender));
+        // the sender is only trusted with a sync if it was known to be at this address before this message
+        final boolean trusted = known != null && known.status != DEAD && source.equals(known.address);
+        observe(sender, incarnation, source);
+        switch (type) {
+            case MSG_PING: {
+                final int seq = buffer.getInt();
+                if (buffer.getLong() == id) {
+                    final ByteBuffer out = startMessage(MSG_ACK);
+                    out.putInt(seq);
+                    out.putLong(id);
+                    finishMessage(source);
+                }
+                break;
+            }
+            case MSG_ACK: {
+                final int seq = buffer.getInt();
+                final long node = buffer.getLong();
+                final Member target = probeTarget;
+                if (target != null && seq == probeSeq && node == target.id) {
+                    probeAcked = true;
+                } else {
+                    final Relay relay = relays.remove(Integer.valueOf(seq));
+                    if (relay != null && relay.target == node) {
+                        final ByteBuffer out = startMessage(MSG_ACK);
+                        out.putInt(relay.seq);
+                        out.putLong(node);
+                        finishMessage(relay.requester);
+                    }
+                }
+                break;
+            }
+            case MSG_PING_REQ: {
+                final int seq = buffer.getInt();
+                final long target = buffer.getLong();
+                final InetSocketAddress address = readAddress(buffer);
+                if (address != null) {
+                    final int relaySeq = nextSeq ++;
+                    relays.put(Integer.valueOf(relaySeq), new Relay(source, seq, target));
+                    final ByteBuffer out = startMessage(MSG_PING);
+                    out.putInt(relaySeq);
+                    out.putLong(target);
+                    finishMessage(address);
+                }
+                break;
+            }
+            case MSG_DIGEST: {
+                handleDigest(source, buffer, trusted);
+                break;
+            }
+            case MSG_SYNC: {
+                handleSync(buffer);
+                break;
+            }
+            default: {
+                return;
+            }
+        }
+        readPiggyback(buffer);
+    }
+
+    // membership
+
+    private void observe(final long sender, final long incarnation, final InetSocketAddress source) {
+        Member member = members.get(Long.valueOf(sender));
+        if (member == null) {
+            member = new Member(sender);
+            member.incarnation = incarnation;
+            member.address = source;
+            members.put(Long.valueOf(sender), member);
+            log.debugf("New gossip peer %s at %s", Long.valueOf(sender), source);
+            disseminate(member);
+            return;
+        }
+        if (! source.equals(member.address)) {
+            member.address = source;
+        }
+        if (incarnation > member.incarnation) {
+            member.incarnation = incarnation;
+            setStatus(member, ALIVE);
+            disseminate(member);
+        }
+    }
+
+    private void applyMember(final long node, final long incarnation, final byte status, final InetSocketAddress address) {
+        if (node == id) {
+            if (status != ALIVE && incarnation >= self.incarnation) {
+                // refute the suspicion
+                self.incarnation = incarnation + 1;
+                disseminate(self);
+            }
+            return;
+        }
+        Member member = members.get(Long.valueOf(node));
+        if (member == null) {
+            member = new Member(node);
+            members.put(Long.valueOf(node), member);
+            if (status == DEAD) {
+                // keep a tombstone, so that gossip which is still going around cannot bring the peer back
+                member.incarnation = incarnation;
+                member.address = address;
+                setStatus(member, DEAD);
+                return;
+            }
+        } else {
+            final boolean newer;
+            switch (status) {
+                case ALIVE: newer = incarnation > member.incarnation; break;
+                case SUSPECT: newer = member.status == ALIVE ? incarnation >= member.incarnation : incarnation > member.incarnation; break;
+                default: newer = member.status != DEAD && incarnation >= member.incarnation; break;
+            }
+            if (! newer || incarnation == member.incarnation && status == member.status) {
+                return;
+            }
+        }
+        member.incarnation = incarnation;
+        if (address != null) {
+            member.address = address;
+        }
+        setStatus(member, status);
+        disseminate(member);
+    }
+
+    private void setStatus(final Member member, final byte status) {
+        if (status == SUSPECT && member.status != SUSPECT) {
+            member.suspectedAt = System.nanoTime();
+        }
+        if (status == DEAD && member.status != DEAD) {
+            member.diedAt = System.nanoTime();
+            // drop the registrations of the peer; they are fetched again if it comes back
+            for (Record record : member.records.values()) {
+                if (record.slot >= 0) {
+                    index.remove(record.slot, record);
+                }
+            }
+            member.records.clear();
+            member.watermark = 0;
+            member.gcVersion = 0;
+        }
+        member.status = status;
+    }
+
+    // registration state
+
+    private void replace(final Member member, final Record old, final Record record) {
+        if (old != null && old.slot >= 0) {
+            index.remove(old.slot, old);
+        }
+        member.records.put(Long.valueOf(record.id), record);
+        if (record.serviceURL != null && record.active) {
+            record.slot = index.add(record.serviceURL, record);
+        }
+    }
+
+    private boolean applyRecord(final Member member, final long registrationId, final long version, final int flags, final ServiceURL serviceURL) {
+        final Record old = member.records.get(Long.valueOf(registrationId));
+        if (old != null && old.version >= version) {
+            return false;
+        }
+        replace(member, old, new Record(member.id, registrationId, version, (flags & RECORD_REMOVED) != 0 ? null : serviceURL, (flags & RECORD_INACTIVE) == 0, System.nanoTime()));
+        return true;
+    }
+
+    // dissemination
+
+    private void disseminate(final Member member) {
+        memberUpdates.remove(Long.valueOf(member.id));
+        memberUpdates.put(Long.valueOf(member.id), new Update(member, transmissions()));
+    }
+
+    private void disseminate(final Record record) {
+        final Key key = new Key(record.node, record.id);
+        recordUpdates.remove(key);
+        recordUpdates.put(key, new Update(record, transmissions()));
+    }
+
+    private int transmissions() {
+        // a small multiple of the logarithm of the group size
+        int count = 0;
+        for (Member member : members.values()) {
+            if (member.status != DEAD) {
+                count ++;
+            }
+        }
+        return DISSEMINATION_FACTOR * (32 - Integer.numberOfLeadingZeros(count));
+    }
+
+    private void writePiggyback(final ByteBuffer buffer) {
+        int countPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int count = 0;
+        Iterator<Update> iterator = memberUpdates.values().iterator();
+        while (iterator.hasNext()) {
+            final Update update = iterator.next();
+            final Member member = (Member) update.item;
+            final int position = buffer.position();
+            try {
+                writeMember(buffer, member);
+            } catch (BufferOverflowException e) {
+                buffer.position(position);
+                break;
+            }
+            count ++;
+            if (-- update.remaining == 0) {
+                iterator.remove();
+            }
+        }
+        buffer.putShort(countPosition, (short) count);
+        if (buffer.remaining() < 2) {
+            return;
+        }
+        countPosition = buffer.position();
+        buffer.putShort((short) 0);
+        count = 0;
+        iterator = recordUpdates.values().iterator();
+        while (iterator.hasNext()) {
+            final Update update = iterator.next();
+            final Record record = (Record) update.item;
+            final int position = buffer.position();
+            try {
+                buffer.putLong(record.node);
+                writeRecord(buffer, record);
+            } catch (BufferOverflowException e) {
+                buffer.position(position);
+                break;
+            }
+            count ++;
+            if (-- update.remaining == 0) {
+                iterator.remove();
+            }
+        }
+        buffer.putShort(countPosition, (short) count);
+    }
+
+    private void readPiggyback(final ByteBuffer buffer) {
+        if (! buffer.hasRemaining()) {
+            return;
+        }
+        int count = buffer.getShort() & 0xffff;
+        for (int i = 0; i < count; i ++) {
+            final long node = buffer.getLong();
+            final long incarnation = buffer.getLong();
+            final byte status = buffer.get();
+            applyMember(node, incarnation, status, readAddress(buffer));
+        }
+        if (! buffer.hasRemaining()) {
+            return;
+        }
+        count = buffer.getShort() & 0xffff;
+        for (int i = 0; i < count; i ++) {
+            final long node = buffer.getLong();
+            final long registrationId = buffer.getLong();
+            final long version = buffer.getLong();
+            final int flags = buffer.get();
+            final ServiceURL serviceURL = (flags & RECORD_REMOVED) != 0 ? null : decoder.readServiceURL(buffer);
+            if (node == id) {
+                continue;
+            }
+            final Member member = members.get(Long.valueOf(node));
+            if (member == null) {
+                // the owner is not known yet; anti-entropy fetches its registrations once it is
+                continue;
+            }
+            if (member.status != DEAD && applyRecord(member, registrationId, version, flags, serviceURL)) {
+                if (version == member.watermark + 1) {
+                    member.watermark = version;
+                }
+                // keep spreading it, as in an epidemic
+                disseminate(member.records.get(Long.valueOf(registrationId)));
+            }
+        }
+    }
+
+    // anti-entropy
+
+    private void sendDigest(final InetSocketAddress target) {
+        final ByteBuffer buffer = startMessage(MSG_DIGEST);
+        final int countPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int count = 0;
+        for (Member member : members.values()) {
+            if (member.status == DEAD || buffer.remaining() < 16) {
+                continue;
+            }
+            buffer.putLong(member.id);
+            buffer.putLong(member.watermark);
+            count ++;
+        }
+        buffer.putShort(countPosition, (short) count);
+        finishMessage(target);
+    }
+
+    private void handleDigest(final InetSocketAddress source, final ByteBuffer buffer, final boolean trusted) {
+        final int count = buffer.getShort() & 0xffff;
+        final Map<Long, Long> digest = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i ++) {
+            digest.put(Long.valueOf(buffer.getLong()), Long.valueOf(buffer.getLong()));
+        }
+        // the answer could be sent to a forged source address, so a stranger is not answered, and nobody very often
+        if (! trusted || syncs == MAX_SYNCS_PER_PERIOD) {
+            log.tracef("Not answering gossip digest from %s", source);
+            return;
+        }
+        syncs ++;
+        // push what the peer is missing
+        sendSync(source, digest);
+        // and pull what this peer is missing
+        for (Map.Entry<Long, Long> entry : digest.entrySet()) {
+            final Member member = members.get(entry.getKey());
+            if (member == self || member != null && member.status == DEAD) {
+                continue;
+            }
+            if (entry.getValue().longValue() > (member == null ? 0 : member.watermark)) {
+                sendDigest(source);
+                break;
+            }
+        }
+    }
+
+    private void sendSync(final InetSocketAddress target, final Map<Long, Long> digest) {
+        ByteBuffer buffer = null;
+        int blockCountPosition = 0;
+        int blocks = 0;
+        for (Member member : members.values()) {
+            final Long peerValue = digest.get(Long.valueOf(member.id));
+            final long peerWatermark = peerValue == null ? 0 : peerValue.longValue();
+            if (member.status == DEAD || member.watermark <= peerWatermark && peerValue != null) {
+                continue;
+            }
+            final boolean reset = peerWatermark < member.gcVersion;
+            final ArrayList<Record> records = new ArrayList<>();
+            for (Record record : member.records.values()) {
+                if (reset || record.version > peerWatermark) {
+                    records.add(record);
+                }
+            }
+            records.sort(Comparator.comparingLong(record -> record.version));
+            int next = 0;
+            boolean first = true;
+            for (;;) {
+                if (buffer == null) {
+                    buffer = startMessage(MSG_SYNC);
+                    blockCountPosition = buffer.position();
+                    buffer.putShort((short) 0);
+                    blocks = 0;
+                }
+                final int blockPosition = buffer.position();
+                int recordCountPosition = -1;
+                int written = 0;
+                try {
+                    writeMember(buffer, member);
+                    buffer.put((byte) (reset && first ? BLOCK_RESET : 0));
+                    buffer.putLong(0L);
+                    recordCountPosition = buffer.position();
+                    buffer.putShort((short) 0);
+                } catch (BufferOverflowException e) {
+                    if (blocks == 0) {
+                        throw e;
+                    }
+                }
+                while (recordCountPosition != -1 && next < records.size() && written < 0xffff) {
+                    final int position = buffer.position();
+                    try {
+                        writeRecord(buffer, records.get(next));
+                    } catch (BufferOverflowException e) {
+                        buffer.position(position);
+                        break;
+                    }
+                    written ++;
+                    next ++;
+                }
+                if (recordCountPosition == -1 || written == 0 && next < records.size() && blocks > 0) {
+                    // this block does not fit after the others; move it to a new message
+                    buffer.position(blockPosition);
+                    buffer.putShort(blockCountPosition, (short) blocks);
+                    finishMessage(target);
+                    buffer = null;
+                    continue;
+                }
+                if (written == 0 && next < records.size()) {
+                    log.warnf("Skipping a registration of gossip peer %s which does not fit in a datagram", Long.valueOf(member.id));
+                    next ++;
+                }
+                // the versions up to the last record sent are covered, or all of them once every record is sent
+                final long covered = next == records.size() ? member.watermark : records.get(next - 1).version;
+                buffer.putLong(recordCountPosition - 8, covered);
+                buffer.putShort(recordCountPosition, (short) written);
+                blocks ++;
+                first = false;
+                if (next == records.size()) {
+                    break;
+                }
+                buffer.putShort(blockCountPosition, (short) blocks);
+                finishMessage(target);
+                buffer = null;
+            }
+        }
+        if (buffer != null) {
+            buffer.putShort(blockCountPosition, (short) blocks);
+            finishMessage(target);
+        }
+    }
+
+    private void handleSync(final ByteBuffer buffer) {
+        final int blocks = buffer.getShort() & 0xffff;
+        for (int i = 0; i < blocks; i ++) {
+            final long node = buffer.getLong();
+            final long incarnation = buffer.getLong();
+            final byte status = buffer.get();
+            final InetSocketAddress address = readAddress(buffer);
+            final int flags = buffer.get();
+            final long covered = buffer.getLong();
+            final int count = buffer.getShort() & 0xffff;
+            applyMember(node, incarnation, status, address);
+            final Member member = node == id ? null : members.get(Long.valueOf(node));
+            final boolean apply = member != null && member.status != DEAD;
+            if (apply && (flags & BLOCK_RESET) != 0) {
+                for (Record record : member.records.values()) {
+                    if (record.slot >= 0) {
+                        index.remove(record.slot, record);
+                    }
+                }
+                member.records.clear();
+                member.watermark = 0;
+            }
+            for (int j = 0; j < count; j ++) {
+                final long registrationId = buffer.getLong();
+                final long version = buffer.getLong();
+                final int recordFlags = buffer.get();
+                final ServiceURL serviceURL = (recordFlags & RECORD_REMOVED) != 0 ? null : decoder.readServiceURL(buffer);
+                if (apply) {
+                    applyRecord(member, registrationId, version, recordFlags, serviceURL);
+                }
+            }
+            if (apply) {
+                member.watermark = Math.max(member.watermark, covered);
+            }
+        }
+    }
+
+    // encoding
+
+    private ByteBuffer startMessage(final int type) {
+        final ByteBuffer buffer = outBuffer;
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type);
+        buffer.putLong(id);
+        buffer.putLong(self.incarnation);
+        encoder.reset();
+        return buffer;
+    }
+
+    private void finishMessage(final InetSocketAddress target) {
+        final ByteBuffer buffer = outBuffer;
+        if (buffer.remaining() >= 4) {
+            writePiggyback(buffer);
+        }
+        buffer.flip();
+        try {
+            channel.send(buffer, target);
+        } catch (IOException e) {
+            log.debugf(e, "Failed to send gossip message to %s", target);
+        }
+    }
+
+    private void writeMember(final ByteBuffer buffer, final Member member) {
+        buffer.putLong(member.id);
+        buffer.putLong(member.incarnation);
+        buffer.put(member.status);
+        writeAddress(buffer, member.address);
+    }
+
+    private void writeRecord(final ByteBuffer buffer, final Record record) {
+        buffer.putLong(record.id);
+        buffer.putLong(record.version);
+        buffer.put((byte) ((record.serviceURL == null ? RECORD_REMOVED : 0) | (record.active ? 0 : RECORD_INACTIVE)));
+        if (record.serviceURL != null) {
+            encoder.writeServiceURL(buffer, record.serviceURL);
+        }
+    }
+
+    static void writeAddress(final ByteBuffer buffer, final InetSocketAddress address) {
+        if (address == null) {
+            WireFormat.writeString(buffer, null);
+        } else {
+            WireFormat.writeString(buffer, address.getAddress().getHostAddress());
+            buffer.putShort((short) address.getPort());
+        }
+    }
+
+    static InetSocketAddress readAddress(final ByteBuffer buffer) {
+        final String host = WireFormat.readString(buffer);
+        if (host == null) {
+            return null;
+        }
+        final int port = buffer.getShort() & 0xffff;
+        try {
+            // a literal address, so there is no lookup
+            return new InetSocketAddress(InetAddress.getByName(host), port);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void closeQuietly(final AutoCloseable closeable) {
+        if (closeable != null) try {
+            closeable.close();
+        } catch (Exception e) {
+            log.tracef(e, "Failed to close %s", closeable);
+        }
+    }
+
+    /**
+     * A peer, and the registrations which it owns.
+     */
+    static final class Member {
+        final long id;
+        final Map<Long, Record> records = new HashMap<>();
+        InetSocketAddress address;
+        long incarnation;
+        byte status = ALIVE;
+        final long createdAt = System.nanoTime();
+        long suspectedAt;
+        long diedAt;
+        // all changes of the peer up to this version are known
+        long watermark;
+        // the highest version of a tombstone which was collected
+        long gcVersion;
+
+        Member(final long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A version of a registration.  Removed registrations have no service URL.
+     */
+    static final class Record {
+        final long node;
+        final long id;
+        final long version;
+        final ServiceURL serviceURL;
+        final boolean active;
+        final long appliedAt;
+        int slot = -1;
+
+        Record(final long node, final long id, final long version, final ServiceURL serviceURL, final boolean active, final long appliedAt) {
+            this.node = node;
+            this.id = id;
+            this.version = version;
+            this.serviceURL = serviceURL;
+            this.active = active;
+            this.appliedAt = appliedAt;
+        }
+    }
+
+    static final class Key {
+        private final long node;
+        private final long id;
+
+        Key(final long node, final long id) {
+            this.node = node;
+            this.id = id;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && ((Key) obj).node == node && ((Key) obj).id == id;
+        }
+
+        public int hashCode() {
+            return Long.hashCode(node) * 31 + Long.hashCode(id);
+        }
+    }
+
+    static final class Update {
+        final Object item;
+        int remaining;
+
+        Update(final Object item, final int remaining) {
+            this.item = item;
+            this.remaining = remaining;
+        }
+    }
+
+    static final class Relay {
+        final InetSocketAddress requester;
+        final int seq;
+        final long target;
+
+        Relay(final InetSocketAddress requester, final int seq, final long target) {
+            this.requester = requester;
+            this.seq = seq;
+            this.target = target;
+        }
+    }
+
+    final class Handle implements ServiceRegistration {
+        final long id;
+        private final ServiceURL serviceURL;
+        // protected by GossipDiscoveryProvider.this
+        private boolean closed;
+
+        Handle(final long id, final ServiceURL serviceURL) {
+            this.id = id;
+            this.serviceURL = serviceURL;
+        }
+
+        public void close() {
+            synchronized (GossipDiscoveryProvider.this) {
+                if (! closed) {
+                    closed = true;
+                    publish(id, null, false);
+                }
+            }
+        }
+
+        public void deactivate() {
+            synchronized (GossipDiscoveryProvider.this) {
+                if (! closed) {
+                    publish(id, serviceURL, false);
+                }
+            }
+        }
+
+        public void activate() {
+            synchronized (GossipDiscoveryProvider.this) {
+                if (! closed) {
+                    publish(id, serviceURL, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * A builder for gossip discovery providers.
+     */
+    public static final class Builder {
+        private InetSocketAddress bindAddress = new InetSocketAddress(DEFAULT_PORT);
+        private final List<InetSocketAddress> seeds = new ArrayList<>();
+        private long periodNanos = TimeUnit.SECONDS.toNanos(1);
+        private long suspicionNanos = TimeUnit.SECONDS.toNanos(5);
+        private long syncNanos = TimeUnit.SECONDS.toNanos(5);
+        private long tombstoneNanos = TimeUnit.MINUTES.toNanos(10);
+        private int maxDatagramSize = 1400;
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the address to receive messages on.  The default is the wildcard address with port
+         * {@value #DEFAULT_PORT}.
+         *
+         * @param bindAddress the bind address (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setBindAddress(InetSocketAddress bindAddress) {
+            this.bindAddress = Assert.checkNotNullParam("bindAddress", bindAddress);
+            return this;
+        }
+
+        /**
+         * Add the address of a peer to contact when joining the group.  Seeds are contacted until any peer is known.
+         *
+         * @param seed the seed address (must not be {@code null})
+         * @return this builder
+         */
+        public Builder addSeed(InetSocketAddress seed) {
+            seeds.add(Assert.checkNotNullParam("seed", seed));
+            return this;
+        }
+
+        /**
+         * Set the protocol period, which is the interval at which peers are probed.  The default is one second.
+         *
+         * @param period the protocol period (must be positive)
+         * @param unit the unit of the period (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setProtocolPeriod(long period, TimeUnit unit) {
+            Assert.checkMinimumParameter("period", 1, period);
+            Assert.checkNotNullParam("unit", unit);
+            this.periodNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * Set the time a suspected peer has to refute the suspicion before it is declared dead.  The default is five
+         * seconds.
+         *
+         * @param timeout the suspicion timeout (must be positive)
+         * @param unit the unit of the timeout (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setSuspicionTimeout(long timeout, TimeUnit unit) {
+            Assert.checkMinimumParameter("timeout", 1, timeout);
+            Assert.checkNotNullParam("unit", unit);
+            this.suspicionNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Set the interval of anti-entropy exchanges.  It is rounded down to a multiple of the protocol period.  The
+         * default is five seconds.
+         *
+         * @param interval the anti-entropy interval (must be positive)
+         * @param unit the unit of the interval (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setSyncInterval(long interval, TimeUnit unit) {
+            Assert.checkMinimumParameter("interval", 1, interval);
+            Assert.checkNotNullParam("unit", unit);
+            this.syncNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Set the time for which removed registrations are remembered, so that their removal replicates.  Peers which
+         * fall further behind are sent the full state.  The default is ten minutes.
+         *
+         * @param lifetime the tombstone lifetime (must be positive)
+         * @param unit the unit of the lifetime (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setTombstoneLifetime(long lifetime, TimeUnit unit) {
+            Assert.checkMinimumParameter("lifetime", 1, lifetime);
+            Assert.checkNotNullParam("unit", unit);
+            this.tombstoneNanos = unit.toNanos(lifetime);
+            return this;
+        }
+
+        /**
+         * Set the maximum size of a datagram.  The default is 1400, which avoids fragmentation on most networks.
+         *
+         * @param maxDatagramSize the maximum datagram size
+         * @return this builder
+         */
+        public Builder setMaxDatagramSize(int maxDatagramSize) {
+            Assert.checkMinimumParameter("maxDatagramSize", 512, maxDatagramSize);
+            Assert.checkMaximumParameter("maxDatagramSize", 65507, maxDatagramSize);
+            this.maxDatagramSize = maxDatagramSize;
+            return this;
+        }
+
+        /**
+         * Create the provider, binding its channel and starting its thread.
+         *
+         * @return the provider (not {@code null})
+         * @throws IOException if the channel could not be opened
+         */
+        public GossipDiscoveryProvider create() throws IOException {
+            return new GossipDiscoveryProvider(this);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryRequestOptions;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterOperation;
+
+/**
+ * A discovery provider which suppresses locations that were recently reported as missing.  Each time a location is
+ * reported to {@link #processMissingTarget(URI, Exception)}, it is withheld from discovery results for a retry window
+ * which doubles with every consecutive failure, up to a maximum.  Once the window has elapsed, the location is returned
+ * again; if it fails again, the next window is longer.  Failures are forgotten once a location has not failed for the
+ * maximum window.
+ * <p>
+ * If a {@link Probe} is given, the provider checks each suppressed location in the background when its window elapses,
+ * and forgets the failures of the location as soon as a probe succeeds.  Failures are also forgotten when a location
+ * is reported to {@link #processSuccessfulTarget(URI, long, TimeUnit)}.
+ */
+public final class HealthFilteringDiscoveryProvider implements DiscoveryProvider {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private final DiscoveryProvider delegate;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Probe probe;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<URI, Failure> failures = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * Construct a new instance with an initial retry window of one second and a maximum window of five minutes.
+     *
+     * @param delegate the delegate provider (must not be {@code null})
+     */
+    public HealthFilteringDiscoveryProvider(final DiscoveryProvider delegate) {
+        this(delegate, 1, TimeUnit.MINUTES.toSeconds(5), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the delegate provider (must not be {@code null})
+     * @param initialBackoff the retry window after the first failure of a location (must be positive)
+     * @param maxBackoff the maximum retry window (must not be less than {@code initialBackoff})
+     * @param unit the unit of the retry windows (must not be {@code null})
+     */
+    public HealthFilteringDiscoveryProvider(final DiscoveryProvider delegate, final long initialBackoff, final long maxBackoff, final TimeUnit unit) {
+        this(delegate, initialBackoff, maxBackoff, unit, null, null);
+    }
+
+    /**
+     * Construct a new instance which probes suppressed locations.
+     *
+     * @param delegate the delegate provider (must not be {@code null})
+     * @param initialBackoff the retry window after the first failure of a location (must be positive)
+     * @param maxBackoff the maximum retry window (must not be less than {@code initialBackoff})
+     * @param unit the unit of the retry windows (must not be {@code null})
+     * @param probe the probe to run when the retry window of a location elapses (must not be {@code null})
+     * @param scheduler the scheduler to run probes on (must not be {@code null})
+     */
+    public HealthFilteringDiscoveryProvider(final DiscoveryProvider delegate, final long initialBackoff, final long maxBackoff, final TimeUnit unit, final Probe probe, final ScheduledExecutorService scheduler) {
+        Assert.checkNotNullParam("delegate", delegate);
+        Assert.checkMinimumParameter("initialBackoff", 1, initialBackoff);
+        Assert.checkMinimumParameter("maxBackoff", initialBackoff, maxBackoff);
+        Assert.checkNotNullParam("unit", unit);
+        if (probe != null || scheduler != null) {
+            Assert.checkNotNullParam("probe", probe);
+            Assert.checkNotNullParam("scheduler", scheduler);
+        }
+        this.delegate = delegate;
+        this.initialBackoffNanos = unit.toNanos(initialBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.probe = probe;
+        this.scheduler = scheduler;
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+        sweep(System.nanoTime());
+        if (failures.isEmpty()) {
+            return delegate.discover(serviceType, filterSpec, result, options);
+        }
+        // the delegate cannot know how many of its matches will be kept, so the limit is applied here instead
+        final DiscoveryRequestOptions unlimited = options.getLimit() == Integer.MAX_VALUE ? options : new DiscoveryRequestOptions.Builder(options).setLimit(Integer.MAX_VALUE).create();
+        return delegate.discover(serviceType, filterSpec, new FilteringDiscoveryResult(result), unlimited);
+    }
+
+    public Set<FilterOperation> getSupportedFilterOperations() {
+        return delegate.getSupportedFilterOperations();
+    }
+
+    public void processMissingTarget(final URI location, final Exception cause) {
+        if (location != null) {
+            final long now = System.nanoTime();
+            final Failure failure = failures.compute(location, (uri, old) -> old == null ? new Failure(1, now + initialBackoffNanos) : old.next(now));
+            log.debugf("Suppressing location %s for %d ms after %d failure(s)", location, Long.valueOf(TimeUnit.NANOSECONDS.toMillis(failure.retryAt - now)), Integer.valueOf(failure.count));
+            if (probe != null && failure.count == 1) {
+                scheduleProbe(location, failure.retryAt - now);
+            }
+        }
+        delegate.processMissingTarget(location, cause);
+    }
+
+    public void processSuccessfulTarget(final URI location, final long latency, final TimeUnit unit) {
+        if (location != null && failures.remove(location) != null) {
+            log.debugf("Location %s is reachable again", location);
+        }
+        delegate.processSuccessfulTarget(location, latency, unit);
+    }
+
+    /**
+     * Determine whether the given location is currently suppressed.
+     *
+     * @param location the location (must not be {@code null})
+     * @return {@code true} if the location is withheld from results, {@code false} otherwise
+     */
+    public boolean isSuppressed(URI location) {
+        Assert.checkNotNullParam("location", location);
+        final Failure failure = failures.get(location);
+        return failure != null && failure.retryAt - System.nanoTime() > 0;
+    }
+
+    boolean suppressed(final URI location, final long now) {
+        final Failure failure = failures.get(location);
+        return failure != null && failure.retryAt - now > 0;
+    }
+
+    private void sweep(final long now) {
+        final long nextSweep = this.nextSweep.get();
+        if (now - nextSweep >= 0 && this.nextSweep.compareAndSet(nextSweep, now + initialBackoffNanos)) {
+            // forget locations which have not failed for the maximum window
+            failures.values().removeIf(failure -> now - failure.retryAt - maxBackoffNanos > 0);
+        }
+    }
+
+    private void scheduleProbe(final URI location, final long delayNanos) {
+        try {
+            scheduler.schedule(() -> runProbe(location), Math.max(0L, delayNanos), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            log.tracef(e, "Failed to schedule probe of %s", location);
+        }
+    }
+
+    private void runProbe(final URI location) {
+        final Failure failure = failures.get(location);
+        if (failure == null) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (failure.retryAt - now > 0) {
+            // failed again in the meantime
+            scheduleProbe(location, failure.retryAt - now);
+            return;
+        }
+        boolean ok;
+        try {
+            ok = probe.probe(location);
+        } catch (Exception e) {
+            log.tracef(e, "Probe of %s failed", location);
+            ok = false;
+        }
+        if (ok) {
+            log.debugf("Location %s is reachable again", location);
+            failures.remove(location);
+        } else {
+            final long later = System.nanoTime();
+            final Failure next = failures.computeIfPresent(location, (uri, old) -> old.next(later));
+            if (next != null) {
+                scheduleProbe(location, next.retryAt - later);
+            }
+        }
+    }
+
+    /**
+     * A probe which checks whether a suppressed location is reachable again.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * Check whether the given location is reachable.
+         *
+         * @param location the location (not {@code null})
+         * @return {@code true} if the location is reachable, {@code false} otherwise
+         * @throws Exception if the check failed, which is treated like a result of {@code false}
+         */
+        boolean probe(URI location) throws Exception;
+    }
+
+    final class Failure {
+        final int count;
+        final long retryAt;
+
+        Failure(final int count, final long retryAt) {
+            this.count = count;
+            this.retryAt = retryAt;
+        }
+
+        Failure next(final long now) {
+            if (retryAt - now > 0) {
+                // still suppressed; the location was reported again by a client which saw it before the failure
+                return this;
+            }
+            long backoff = initialBackoffNanos;
+            for (int i = 0; i < count && backoff < maxBackoffNanos; i ++) {
+                backoff = backoff > maxBackoffNanos >> 1 ? maxBackoffNanos : backoff << 1;
+            }
+            return new Failure(count + 1, now + backoff);
+        }
+    }
+
+    final class FilteringDiscoveryResult implements DiscoveryResult {
+        private final DiscoveryResult delegate;
+
+        FilteringDiscoveryResult(final DiscoveryResult delegate) {
+            this.delegate = delegate;
+        }
+
+        public void complete() {
+            delegate.complete();
+        }
+
+        public void reportProblem(final Throwable description) {
+            delegate.reportProblem(description);
+        }
+
+        public void addMatch(final URI uri) {
+            if (uri != null && delegate.getRemainingLimit() > 0 && ! suppressed(uri, System.nanoTime())) {
+                delegate.addMatch(uri);
+            }
+        }
+
+        public void addMatch(final ServiceURL serviceURL) {
+            if (serviceURL != null && delegate.getRemainingLimit() > 0 && ! suppressed(serviceURL.getLocationURI(), System.nanoTime())) {
+                delegate.addMatch(serviceURL);
+            }
+        }
+
+        public int getRemainingLimit() {
+            // the provider cannot know how many of its matches will be kept
+            return delegate.getRemainingLimit() == 0 ? 0 : Integer.MAX_VALUE;
+        }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            final long now = System.nanoTime();
+            final int limit = delegate.getRemainingLimit();
+            final ArrayList<ServiceURL> kept = new ArrayList<>(Math.min(limit, serviceURLs.size()));
+            for (ServiceURL serviceURL : serviceURLs) {
+                if (kept.size() >= limit) {
+                    break;
+                }
+                if (serviceURL != null && ! suppressed(serviceURL.getLocationURI(), now)) {
+                    kept.add(serviceURL);
+                }
+            }
+            if (! kept.isEmpty()) {
+                delegate.addMatches(kept);
+            }
+        }
+    }
+}
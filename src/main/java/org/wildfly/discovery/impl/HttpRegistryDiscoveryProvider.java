@@ -0,0 +1,601 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.AttributeValue;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * A discovery provider which mirrors the services of an HTTP registry.
+ * <p>
+ * The services of an abstract type are fetched with {@code GET <registry>/services/<abstract type>}, which answers
+ * with a JSON array of objects such as:
+ * <pre>
+ * { "uri": "remote+http://node1:8080", "abstract-type-authority": "jboss",
+ *   "attributes": { "cluster": "ejb", "tags": [ "a", "b" ], "weight": 5, "ssl": null } }
+ * </pre>
+ * and gives the version of the set of services in the {@code X-Registry-Index} header.  The members other than
+ * {@code uri} are optional; {@code abstract-type} and {@code uri-scheme-authority} are also recognized.  Attribute
+ * values are strings, integers or booleans, an array gives several values, and {@code null} gives an attribute without
+ * a value.  A {@code 404} response means that there are no services of the type.
+ * <p>
+ * The first discovery of an abstract type waits for its services to be fetched.  From then on, the provider watches
+ * them with a long poll, passing the last index in the {@code index} query parameter and the longest time to wait in
+ * {@code wait}; the registry answers once the services change, or when that time is up.  Discoveries are answered
+ * from the mirror and do not make requests.  If the registry cannot be reached, the mirror is kept and the watch
+ * retries after a delay.  A type which is not discovered for a while is no longer watched.
+ */
+public final class HttpRegistryDiscoveryProvider implements DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final String INDEX_HEADER = "X-Registry-Index";
+
+    private final HttpClient client;
+    private final URI registryUri;
+    private final long waitSeconds;
+    private final Duration requestTimeout;
+    private final long retryNanos;
+    private final long idleNanos;
+    private final RegistryIndex<Entry> index = new RegistryIndex<>();
+    private final ConcurrentHashMap<String, Watch> watches = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    HttpRegistryDiscoveryProvider(final Builder builder) {
+        client = builder.client == null ? SharedClient.INSTANCE : builder.client;
+        final String uri = builder.registryUri.toString();
+        registryUri = uri.endsWith("/") ? builder.registryUri : URI.create(uri + "/");
+        waitSeconds = builder.waitSeconds;
+        requestTimeout = Duration.ofNanos(builder.requestTimeoutNanos);
+        retryNanos = builder.retryNanos;
+        idleNanos = builder.idleNanos;
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        for (;;) {
+            if (closed) {
+                result.complete();
+                return DiscoveryRequest.NULL;
+            }
+            final Watch watch = watches.computeIfAbsent(serviceType.getAbstractType(), Watch::new);
+            final Pending request;
+            synchronized (watch) {
+                if (watch.stopped) {
+                    // raced with an idle watch being stopped
+                    continue;
+                }
+                watch.lastUsed = System.nanoTime();
+                if (watch.ready) {
+                    answer(serviceType, filterSpec, result);
+                    result.complete();
+                    return DiscoveryRequest.NULL;
+                }
+                request = new Pending(watch, serviceType, filterSpec, result);
+                watch.waiters.add(request);
+                if (watch.waiters.size() > 1 || watch.polling) {
+                    return request;
+                }
+                watch.polling = true;
+            }
+            watch.poll();
+            return request;
+        }
+    }
+
+    /**
+     * Describe how a discovery request for the given service type and filter would be answered from the mirror.
+     *
+     * @param serviceType the service type (must not be {@code null})
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan (not {@code null})
+     * @see LocalRegistryAndDiscoveryProvider#explain(ServiceType, FilterSpec)
+     */
+    public String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        return index.explain(serviceType, filterSpec);
+    }
+
+    /**
+     * Stop watching the registry.  Discoveries which are waiting for the first fetch of their type complete
+     * immediately.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Watch watch : watches.values()) {
+            final List<Pending> waiters;
+            synchronized (watch) {
+                watch.stopped = true;
+                waiters = new ArrayList<>(watch.waiters);
+                watch.waiters.clear();
+                if (watch.inFlight != null) {
+                    watch.inFlight.cancel(true);
+                }
+            }
+            for (Pending request : waiters) {
+                request.result.complete();
+            }
+        }
+        watches.clear();
+    }
+
+    private void answer(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        final ArrayList<Entry> found = new ArrayList<>();
+        index.find(serviceType, filterSpec, entry -> true, found, result.getRemainingLimit());
+        if (! found.isEmpty()) {
+            final ArrayList<ServiceURL> matches = new ArrayList<>(found.size());
+            for (Entry entry : found) {
+                matches.add(entry.serviceURL);
+            }
+            result.addMatches(matches);
+        }
+    }
+
+    static Set<ServiceURL> parseServices(final String abstractType, final String body) {
+        final Object document = Json.parse(body);
+        if (! (document instanceof List)) {
+            throw new IllegalArgumentException("Expected an array of services");
+        }
+        final Set<ServiceURL> set = new LinkedHashSet<>();
+        for (Object item : (List<?>) document) {
+            if (! (item instanceof Map)) {
+                throw new IllegalArgumentException("Expected a service object");
+            }
+            final ServiceURL serviceURL = parseService(abstractType, (Map<?, ?>) item);
+            // the registry is trusted with the type of what it returns only so far
+            if (abstractType.equals(serviceURL.getAbstractType())) {
+                set.add(serviceURL);
+            }
+        }
+        return set;
+    }
+
+    private static ServiceURL parseService(final String abstractType, final Map<?, ?> object) {
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        builder.setAbstractType(abstractType);
+        boolean hasUri = false;
+        for (Map.Entry<?, ?> member : object.entrySet()) {
+            final String key = (String) member.getKey();
+            final Object value = member.getValue();
+            switch (key) {
+                case "uri": {
+                    try {
+                        builder.setUri(new URI(string(key, value)));
+                    } catch (URISyntaxException e) {
+                        throw new IllegalArgumentException(e.getMessage());
+                    }
+                    hasUri = true;
+                    break;
+                }
+                case "uri-scheme-authority": {
+                    if (value != null) builder.setUriSchemeAuthority(string(key, value));
+                    break;
+                }
+                case "abstract-type": {
+                    if (value != null) builder.setAbstractType(string(key, value));
+                    break;
+                }
+                case "abstract-type-authority": {
+                    if (value != null) builder.setAbstractTypeAuthority(string(key, value));
+                    break;
+                }
+                case "attributes": {
+                    if (! (value instanceof Map)) {
+                        throw new IllegalArgumentException("Expected an object of attributes");
+                    }
+                    for (Map.Entry<?, ?> attribute : ((Map<?, ?>) value).entrySet()) {
+                        final String name = (String) attribute.getKey();
+                        if (attribute.getValue() instanceof List) {
+                            for (Object item : (List<?>) attribute.getValue()) {
+                                builder.addAttribute(name, attributeValue(name, item));
+                            }
+                        } else if (attribute.getValue() == null) {
+                            builder.addAttribute(name);
+                        } else {
+                            builder.addAttribute(name, attributeValue(name, attribute.getValue()));
+                        }
+                    }
+                    break;
+                }
+                default: {
+                    // allow registries to carry other information
+                    break;
+                }
+            }
+        }
+        if (! hasUri) {
+            throw new IllegalArgumentException("No uri was given");
+        }
+        return builder.create();
+    }
+
+    private static String string(final String key, final Object value) {
+        if (! (value instanceof String)) {
+            throw new IllegalArgumentException("Expected a string for " + key);
+        }
+        return (String) value;
+    }
+
+    private static AttributeValue attributeValue(final String name, final Object value) {
+        if (value instanceof String) {
+            return AttributeValue.fromString((String) value);
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? AttributeValue.TRUE : AttributeValue.FALSE;
+        } else if (value instanceof BigDecimal) {
+            try {
+                return AttributeValue.fromInt(((BigDecimal) value).intValueExact());
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Attribute " + name + " is not an integer");
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid value of attribute " + name);
+        }
+    }
+
+    static final class Entry {
+        final ServiceURL serviceURL;
+        int slot;
+
+        Entry(final ServiceURL serviceURL) {
+            this.serviceURL = serviceURL;
+        }
+    }
+
+    final class Watch {
+        final String abstractType;
+        final URI uri;
+        // all of these are guarded by this watch
+        final Map<ServiceURL, Entry> entries = new HashMap<>();
+        final List<Pending> waiters = new ArrayList<>();
+        String registryIndex;
+        boolean ready;
+        boolean polling;
+        boolean stopped;
+        long lastUsed;
+        long pollStarted;
+        CompletableFuture<HttpResponse<String>> inFlight;
+
+        Watch(final String abstractType) {
+            this.abstractType = abstractType;
+            try {
+                uri = registryUri.resolve("services/" + URLEncoder.encode(abstractType, "UTF-8").replace("+", "%20"));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void poll() {
+            final HttpRequest.Builder builder = HttpRequest.newBuilder().GET().header("Accept", "application/json");
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                if (ready && System.nanoTime() - lastUsed - idleNanos > 0) {
+                    stop();
+                    return;
+                }
+                if (registryIndex == null) {
+                    builder.uri(uri).timeout(requestTimeout);
+                } else {
+                    final String query;
+                    try {
+                        query = "?index=" + URLEncoder.encode(registryIndex, "UTF-8") + "&wait=" + waitSeconds + "s";
+                    } catch (UnsupportedEncodingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    // the registry may take the whole wait time to answer
+                    builder.uri(URI.create(uri + query)).timeout(requestTimeout.plusSeconds(waitSeconds));
+                }
+                pollStarted = System.nanoTime();
+                // cancelling the request itself, rather than a dependent stage, aborts it
+                inFlight = client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                inFlight.whenComplete(this::handle);
+            }
+        }
+
+        private void handle(final HttpResponse<String> response, final Throwable failure) {
+            final Set<ServiceURL> services;
+            try {
+                if (failure != null) {
+                    throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                }
+                if (response.statusCode() == 404) {
+                    services = new LinkedHashSet<>();
+                } else if (response.statusCode() == 200) {
+                    try {
+                        services = parseServices(abstractType, response.body());
+                    } catch (Throwable t) {
+                        // whatever goes wrong with the body, the watch must carry on, or its discoveries would wait forever
+                        throw new IOException("Invalid response from " + response.uri(), t);
+                    }
+                } else {
+                    throw new IOException("Registry " + response.uri() + " answered with status " + response.statusCode());
+                }
+            } catch (IOException e) {
+                failed(e);
+                return;
+            } catch (Throwable t) {
+                failed(new IOException("Failed to handle the response of the registry", t));
+                return;
+            }
+            final List<Pending> waiters;
+            final boolean held;
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                update(services);
+                final String previous = registryIndex;
+                registryIndex = response.headers().firstValue(INDEX_HEADER).orElse(null);
+                // an unchanged index which comes back early means that the registry does not hold watches
+                held = registryIndex != null && (! registryIndex.equals(previous) || System.nanoTime() - pollStarted >= TimeUnit.SECONDS.toNanos(waitSeconds) / 2);
+                ready = true;
+                waiters = new ArrayList<>(this.waiters);
+                this.waiters.clear();
+            }
+            for (Pending request : waiters) {
+                answer(request.serviceType, request.filterSpec, request.result);
+                request.result.complete();
+            }
+            if (! held) {
+                // the registry cannot be watched, so poll it now and then
+                schedulePoll(retryNanos);
+            } else {
+                poll();
+            }
+        }
+
+        private void failed(final IOException problem) {
+            final List<Pending> waiters;
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                if (ready) {
+                    // keep the mirror, and try again later
+                    log.debugf(problem, "Failed to watch services of type %s", abstractType);
+                    schedulePoll(retryNanos);
+                    return;
+                }
+                // nothing is known, so let the next discovery try again from scratch
+                stop();
+                waiters = new ArrayList<>(this.waiters);
+                this.waiters.clear();
+            }
+            for (Pending request : waiters) {
+                request.result.reportProblem(problem);
+                request.result.complete();
+            }
+        }
+
+        private void schedulePoll(final long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(this::poll);
+        }
+
+        private void update(final Set<ServiceURL> services) {
+            // add first, so that services which are being replaced are never missing
+            final List<Entry> added = new ArrayList<>();
+            for (ServiceURL serviceURL : services) {
+                if (! entries.containsKey(serviceURL)) {
+                    final Entry entry = new Entry(serviceURL);
+                    entries.put(serviceURL, entry);
+                    added.add(entry);
+                }
+            }
+            if (! added.isEmpty()) {
+                final ServiceURL[] serviceURLs = new ServiceURL[added.size()];
+                final Entry[] array = added.toArray(new Entry[added.size()]);
+                for (int i = 0; i < array.length; i ++) {
+                    serviceURLs[i] = array[i].serviceURL;
+                }
+                final int[] slots = new int[array.length];
+                index.addAll(serviceURLs, array, slots);
+                for (int i = 0; i < array.length; i ++) {
+                    array[i].slot = slots[i];
+                }
+            }
+            entries.values().removeIf(entry -> {
+                if (services.contains(entry.serviceURL)) {
+                    return false;
+                }
+                index.remove(entry.slot, entry);
+                return true;
+            });
+        }
+
+        // called with this watch locked
+        private void stop() {
+            stopped = true;
+            watches.remove(abstractType, this);
+            for (Entry entry : entries.values()) {
+                index.remove(entry.slot, entry);
+            }
+            entries.clear();
+        }
+    }
+
+    final class Pending implements DiscoveryRequest {
+        final Watch watch;
+        final ServiceType serviceType;
+        final FilterSpec filterSpec;
+        final DiscoveryResult result;
+
+        Pending(final Watch watch, final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+            this.watch = watch;
+            this.serviceType = serviceType;
+            this.filterSpec = filterSpec;
+            this.result = result;
+        }
+
+        public void cancel() {
+            final boolean removed;
+            synchronized (watch) {
+                removed = watch.waiters.remove(this);
+            }
+            if (removed) {
+                result.complete();
+            }
+        }
+    }
+
+    static final class SharedClient {
+        static final HttpClient INSTANCE = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    /**
+     * A builder for HTTP registry discovery providers.
+     */
+    public static final class Builder {
+        private URI registryUri;
+        private HttpClient client;
+        private long waitSeconds = 60;
+        private long requestTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+        private long retryNanos = TimeUnit.SECONDS.toNanos(5);
+        private long idleNanos = TimeUnit.MINUTES.toNanos(10);
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the base URI of the registry, such as {@code http://registry:8500/v1/}.
+         *
+         * @param registryUri the URI of the registry (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setRegistryUri(URI registryUri) {
+            this.registryUri = Assert.checkNotNullParam("registryUri", registryUri);
+            return this;
+        }
+
+        /**
+         * Set the HTTP client to make requests with.  By default, a client is shared by all of the providers which
+         * are not given one, so that they reuse its connections.
+         *
+         * @param client the HTTP client (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setHttpClient(HttpClient client) {
+            this.client = Assert.checkNotNullParam("client", client);
+            return this;
+        }
+
+        /**
+         * Set the longest time the registry should hold a watch before it answers.  The default is one minute.
+         *
+         * @param time the time (must be at least one second)
+         * @param unit the unit of the time (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setWaitTime(long time, TimeUnit unit) {
+            Assert.checkNotNullParam("unit", unit);
+            Assert.checkMinimumParameter("time", 1L, unit.toSeconds(time));
+            this.waitSeconds = unit.toSeconds(time);
+            return this;
+        }
+
+        /**
+         * Set the time to wait for the registry to answer, beyond the wait time of a watch.  The default is ten
+         * seconds.
+         *
+         * @param timeout the timeout (must be positive)
+         * @param unit the unit of the timeout (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setRequestTimeout(long timeout, TimeUnit unit) {
+            Assert.checkMinimumParameter("timeout", 1, timeout);
+            Assert.checkNotNullParam("unit", unit);
+            this.requestTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Set the time to wait before a failed watch is retried, which is also how often a registry which does not
+         * give an index is polled.  The default is five seconds.
+         *
+         * @param delay the delay (must be positive)
+         * @param unit the unit of the delay (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setRetryDelay(long delay, TimeUnit unit) {
+            Assert.checkMinimumParameter("delay", 1, delay);
+            Assert.checkNotNullParam("unit", unit);
+            this.retryNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Set how long a service type is watched after it was last discovered.  The default is ten minutes.
+         *
+         * @param time the time (must be positive)
+         * @param unit the unit of the time (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setIdleTimeout(long time, TimeUnit unit) {
+            Assert.checkMinimumParameter("time", 1, time);
+            Assert.checkNotNullParam("unit", unit);
+            this.idleNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Create the provider.
+         *
+         * @return the provider (not {@code null})
+         */
+        public HttpRegistryDiscoveryProvider create() {
+            if (registryUri == null) {
+                throw new IllegalStateException("No registry URI was given");
+            }
+            return new HttpRegistryDiscoveryProvider(this);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON reader.  Objects are read as {@link Map}s which keep the order of their members, arrays as
+ * {@link List}s, numbers as {@link BigDecimal}s, and {@code true}, {@code false} and {@code null} as
+ * {@link Boolean#TRUE}, {@link Boolean#FALSE} and {@code null}.
+ */
+final class Json {
+    private static final int MAX_DEPTH = 64;
+
+    private final String string;
+    private int pos;
+
+    private Json(final String string) {
+        this.string = string;
+    }
+
+    /**
+     * Read a JSON document.
+     *
+     * @param string the document (must not be {@code null})
+     * @return the value of the document
+     * @throws IllegalArgumentException if the document is not valid JSON
+     */
+    static Object parse(final String string) {
+        final Json json = new Json(string);
+        final Object value = json.readValue(0);
+        json.skipWhitespace();
+        if (json.pos != string.length()) {
+            throw json.invalid("Unexpected content after the document");
+        }
+        return value;
+    }
+
+    private Object readValue(final int depth) {
+        if (depth > MAX_DEPTH) {
+            throw invalid("Nested too deeply");
+        }
+        skipWhitespace();
+        if (pos == string.length()) {
+            throw invalid("Unexpected end of document");
+        }
+        final char c = string.charAt(pos);
+        switch (c) {
+            case '{': return readObject(depth);
+            case '[': return readArray(depth);
+            case '"': return readString();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: {
+                if (c == '-' || c >= '0' && c <= '9') {
+                    return readNumber();
+                }
+                throw invalid("Unexpected character '" + c + "'");
+            }
+        }
+    }
+
+    private Map<String, Object> readObject(final int depth) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        pos ++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos ++;
+            return map;
+        }
+        for (;;) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw invalid("Expected a member name");
+            }
+            final String name = readString();
+            skipWhitespace();
+            expect(":");
+            map.put(name, readValue(depth + 1));
+            skipWhitespace();
+            final char c = next();
+            if (c == '}') {
+                return map;
+            } else if (c != ',') {
+                throw invalid("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray(final int depth) {
+        final List<Object> list = new ArrayList<>();
+        pos ++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos ++;
+            return list;
+        }
+        for (;;) {
+            list.add(readValue(depth + 1));
+            skipWhitespace();
+            final char c = next();
+            if (c == ']') {
+                return list;
+            } else if (c != ',') {
+                throw invalid("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String readString() {
+        pos ++;
+        final StringBuilder b = new StringBuilder();
+        for (;;) {
+            final char c = next();
+            if (c == '"') {
+                return b.toString();
+            } else if (c == '\\') {
+                final char e = next();
+                switch (e) {
+                    case '"': case '\\': case '/': b.append(e); break;
+                    case 'b': b.append('\b'); break;
+                    case 'f': b.append('\f'); break;
+                    case 'n': b.append('\n'); break;
+                    case 'r': b.append('\r'); break;
+                    case 't': b.append('\t'); break;
+                    case 'u': {
+                        if (pos + 4 > string.length()) {
+                            throw invalid("Truncated escape");
+                        }
+                        try {
+                            b.append((char) Integer.parseInt(string.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw invalid("Invalid escape");
+                        }
+                        pos += 4;
+                        break;
+                    }
+                    default: throw invalid("Invalid escape");
+                }
+            } else if (c < 0x20) {
+                throw invalid("Control character in string");
+            } else {
+                b.append(c);
+            }
+        }
+    }
+
+    private BigDecimal readNumber() {
+        final int start = pos;
+        while (pos < string.length() && "+-0123456789.eE".indexOf(string.charAt(pos)) != -1) {
+            pos ++;
+        }
+        try {
+            return new BigDecimal(string.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw invalid("Invalid number");
+        }
+    }
+
+    private void expect(final String token) {
+        if (! string.startsWith(token, pos)) {
+            throw invalid("Expected '" + token + "'");
+        }
+        pos += token.length();
+    }
+
+    private char peek() {
+        if (pos == string.length()) {
+            throw invalid("Unexpected end of document");
+        }
+        return string.charAt(pos);
+    }
+
+    private char next() {
+        final char c = peek();
+        pos ++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (pos < string.length()) {
+            final char c = string.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos ++;
+        }
+    }
+
+    private IllegalArgumentException invalid(final String message) {
+        return new IllegalArgumentException(message + " at offset " + pos);
+    }
+}
@@ -20,9 +20,11 @@ package org.wildfly.discovery.impl;
 
 import static java.lang.Math.max;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.wildfly.common.Assert;
@@ -39,16 +41,20 @@ import org.wildfly.discovery.spi.RegistryProvider;
 /**
  * A local in-memory service registry and discovery provider.  Services registered with this provider can be subsequently
  * discovered.  Since all operations happen in-memory, the discovery provider always completes immediately.
+ * <p>
+ * The registry is partitioned into shards by abstract service type, each with its own index and lock, so that
+ * registrations and discoveries of different types do not contend with each other, and a discovery only ever looks
+ * at the services of its own type.
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class LocalRegistryAndDiscoveryProvider implements RegistryProvider, DiscoveryProvider {
-    private final CopyOnWriteArrayList<Handle> handles = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<ServiceType, RegistryIndex<Handle>> shards = new ConcurrentHashMap<>();
 
     public ServiceRegistration registerService(final ServiceURL serviceURL) {
         Assert.checkNotNullParam("serviceURL", serviceURL);
-        final Handle handle = new Handle(serviceURL, true);
-        handles.add(handle);
+        final Handle handle = new Handle(serviceURL, shardOf(serviceURL), true);
+        handle.slot = handle.shard.add(serviceURL, handle);
         return handle;
     }
 
@@ -56,66 +62,134 @@ public final class LocalRegistryAndDiscoveryProvider implements RegistryProvider
         Assert.checkNotNullParam("serviceURLs", serviceURLs);
         Handle[] array = new Handle[serviceURLs.length];
         for (int i = 0; i < serviceURLs.length; i++) {
-            final ServiceURL serviceURL = serviceURLs[i];
-            array[i] = new Handle(serviceURL, false);
+            final ServiceURL serviceURL = Assert.checkNotNullArrayParam("serviceURLs", i, serviceURLs[i]);
+            array[i] = new Handle(serviceURL, shardOf(serviceURL), false);
         }
-        final List<Handle> list = Arrays.asList(array);
-        handles.addAll(list);
-        return new AggregateHandle(list, array);
+        for (Map.Entry<RegistryIndex<Handle>, List<Handle>> entry : byShard(array).entrySet()) {
+            final Handle[] handles = entry.getValue().toArray(new Handle[entry.getValue().size()]);
+            final ServiceURL[] shardURLs = new ServiceURL[handles.length];
+            for (int i = 0; i < handles.length; i++) {
+                shardURLs[i] = handles[i].getServiceURL();
+            }
+            final int[] slots = new int[handles.length];
+            entry.getKey().addAll(shardURLs, handles, slots);
+            for (int i = 0; i < handles.length; i++) {
+                handles[i].slot = slots[i];
+            }
+        }
+        return new AggregateHandle(array);
     }
 
     public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
-        ServiceURL serviceURL;
+        final RegistryIndex<Handle> shard = shards.get(shardKey(serviceType));
+        if (shard == null) {
+            result.complete();
+            return DiscoveryRequest.NULL;
+        }
+        final ArrayList<Handle> handles = new ArrayList<>();
+        shard.find(serviceType, filterSpec, Handle::isOpenAndActive, handles, result.getRemainingLimit());
+        final ArrayList<ServiceURL> matches = new ArrayList<>(handles.size());
         for (Handle handle : handles) {
-            if (! handle.isOpenAndActive()) {
-                continue;
-            }
-            serviceURL = handle.getServiceURL();
-            if (serviceType.implies(serviceURL) && serviceURL.satisfies(filterSpec)) {
-                result.addMatch(serviceURL);
-            }
+            matches.add(handle.getServiceURL());
+        }
+        if (! matches.isEmpty()) {
+            result.addMatches(matches);
         }
         result.complete();
         return DiscoveryRequest.NULL;
     }
 
+    /**
+     * Describe how a discovery request for the given service type and filter would be answered from the registry: how
+     * many candidates there are, the order in which the parts of the filter are evaluated, which parts are looked up in
+     * the index and which are checked against each candidate, and the estimated number of matches at each step.  This
+     * is intended for troubleshooting slow queries; the format of the description is not specified.
+     *
+     * @param serviceType the service type (must not be {@code null})
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan (not {@code null})
+     */
+    public String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        int total = 0;
+        for (RegistryIndex<Handle> shard : shards.values()) {
+            total += shard.size();
+        }
+        final RegistryIndex<Handle> shard = shards.get(shardKey(serviceType));
+        return (shard == null ? new RegistryIndex<Handle>() : shard).explain(serviceType, filterSpec, total);
+    }
+
+    private RegistryIndex<Handle> shardOf(final ServiceURL serviceURL) {
+        // shards are never removed, since there are only ever a few types and a registration may be racing; the key
+        // keeps the canonical type, and with it the identifiers used by the index, alive
+        return shards.computeIfAbsent(shardKey(serviceURL.getServiceType()), k -> new RegistryIndex<>());
+    }
+
+    /**
+     * Get the key of the shard which holds the services implied by the given type, which is its abstract service type.
+     */
+    private static ServiceType shardKey(final ServiceType serviceType) {
+        if (serviceType.getUriScheme() == null || serviceType.getAbstractType() == null) {
+            return serviceType;
+        }
+        return ServiceType.of(serviceType.getAbstractType(), serviceType.getAbstractTypeAuthority());
+    }
+
+    static Map<RegistryIndex<Handle>, List<Handle>> byShard(final Handle[] handles) {
+        final Map<RegistryIndex<Handle>, List<Handle>> map = new LinkedHashMap<>();
+        for (Handle handle : handles) {
+            map.computeIfAbsent(handle.shard, k -> new ArrayList<>()).add(handle);
+        }
+        return map;
+    }
+
     private static final long stamp = System.nanoTime();
 
     static long nowMicros() {
         return max(0L, (System.nanoTime() - stamp >>> 1) / 500L);
     }
 
-    final class AggregateHandle extends AggregateServiceRegistration {
-        private final List<Handle> registrations;
+    static final class AggregateHandle extends AggregateServiceRegistration {
+        private final Handle[] registrations;
 
-        AggregateHandle(final List<Handle> asList, final Handle... registrations) {
+        AggregateHandle(final Handle... registrations) {
             super((ServiceRegistration[]) registrations);
-            this.registrations = asList;
+            this.registrations = registrations;
         }
 
         public void close() {
-            // remove far more efficiently
-            handles.removeAll(this.registrations);
+            // remove far more efficiently, one shard at a time
+            for (Map.Entry<RegistryIndex<Handle>, List<Handle>> entry : byShard(registrations).entrySet()) {
+                final Handle[] handles = entry.getValue().toArray(new Handle[entry.getValue().size()]);
+                final int[] slots = new int[handles.length];
+                for (int i = 0; i < handles.length; i++) {
+                    slots[i] = handles[i].slot;
+                }
+                entry.getKey().removeAll(slots, handles);
+            }
             super.close();
         }
     }
 
-    final class Handle implements ServiceRegistration {
+    static final class Handle implements ServiceRegistration {
         @SuppressWarnings("NumericOverflow")
         private static final int FLAG_CLOSED       = 1 << 0;
         private static final int FLAG_DEACTIVATED  = 1 << 1;
 
         private final AtomicInteger state = new AtomicInteger(0);
         private final ServiceURL serviceURL;
+        final RegistryIndex<Handle> shard;
         private final boolean remove;
+        int slot;
 
-        Handle(final ServiceURL serviceURL, final boolean remove) {
+        Handle(final ServiceURL serviceURL, final RegistryIndex<Handle> shard, final boolean remove) {
             this.serviceURL = serviceURL;
+            this.shard = shard;
             this.remove = remove;
         }
 
         public void close() {
-            if (remove) handles.remove(this);
+            if (remove) shard.remove(slot, this);
             state.set(FLAG_CLOSED);
         }
 
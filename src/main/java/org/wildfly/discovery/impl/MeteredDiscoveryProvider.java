@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryRequestOptions;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryMetrics;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterOperation;
+
+/**
+ * A discovery provider which records the metrics of each discovery of a delegate provider.  To break metrics down by
+ * provider, wrap each provider separately before aggregating them.
+ */
+public final class MeteredDiscoveryProvider implements DiscoveryProvider {
+    private final DiscoveryProvider delegate;
+    private final DiscoveryMetrics.Recorder recorder;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the provider to meter (must not be {@code null})
+     * @param metrics the metrics sink (must not be {@code null})
+     */
+    public MeteredDiscoveryProvider(final DiscoveryProvider delegate, final DiscoveryMetrics metrics) {
+        Assert.checkNotNullParam("delegate", delegate);
+        Assert.checkNotNullParam("metrics", metrics);
+        this.delegate = delegate;
+        this.recorder = Assert.checkNotNullParam("recorder", metrics.recorderFor(delegate));
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+        final MeteredDiscoveryResult meteredResult = new MeteredDiscoveryResult(result);
+        recorder.discoveryStarted();
+        final DiscoveryRequest request = delegate.discover(serviceType, filterSpec, meteredResult, options);
+        return () -> {
+            meteredResult.cancelled();
+            request.cancel();
+        };
+    }
+
+    public Set<FilterOperation> getSupportedFilterOperations() {
+        return delegate.getSupportedFilterOperations();
+    }
+
+    public void processMissingTarget(final URI location, final Exception cause) {
+        delegate.processMissingTarget(location, cause);
+    }
+
+    public void processSuccessfulTarget(final URI location, final long latency, final TimeUnit unit) {
+        delegate.processSuccessfulTarget(location, latency, unit);
+    }
+
+    @SuppressWarnings("serial")
+    final class MeteredDiscoveryResult extends AtomicInteger implements DiscoveryResult {
+        // the state is the number of matches, or -1 once complete
+        private final DiscoveryResult delegate;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        MeteredDiscoveryResult(final DiscoveryResult delegate) {
+            this.delegate = delegate;
+        }
+
+        public void complete() {
+            final int matches = getAndSet(-1);
+            if (matches >= 0) {
+                recorder.discoveryCompleted(max1(System.nanoTime() - start), matches);
+            }
+            delegate.complete();
+        }
+
+        void cancelled() {
+            // a discovery which is complete, or is called off because the limit was reached, was not cut short
+            if (get() >= 0 && delegate.getRemainingLimit() > 0 && cancelled.compareAndSet(false, true)) {
+                recorder.discoveryCancelled();
+            }
+        }
+
+        public void reportProblem(final Throwable description) {
+            if (get() >= 0) {
+                recorder.problemReported();
+            }
+            delegate.reportProblem(description);
+        }
+
+        public void addMatch(final URI uri) {
+            if (matched(1)) {
+                delegate.addMatch(uri);
+            }
+        }
+
+        public void addMatch(final ServiceURL serviceURL) {
+            if (serviceURL != null && matched(1)) {
+                delegate.addMatch(serviceURL);
+            }
+        }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            if (! serviceURLs.isEmpty() && matched(serviceURLs.size())) {
+                delegate.addMatches(serviceURLs);
+            }
+        }
+
+        public int getRemainingLimit() {
+            return get() < 0 ? 0 : delegate.getRemainingLimit();
+        }
+
+        private boolean matched(final int count) {
+            int oldVal;
+            do {
+                oldVal = get();
+                if (oldVal < 0) {
+                    // already complete
+                    return false;
+                }
+            } while (! compareAndSet(oldVal, oldVal + count));
+            if (oldVal == 0) {
+                recorder.firstMatch(max1(System.nanoTime() - start));
+            }
+            return true;
+        }
+    }
+
+    static long max1(long nanos) {
+        return Math.max(1L, nanos);
+    }
+}
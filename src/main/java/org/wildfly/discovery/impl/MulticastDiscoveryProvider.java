@@ -0,0 +1,647 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.DiscoveryRequestOptions;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceRegistration;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.RegistryProvider;
+
+/**
+ * A registry and discovery provider which finds the services of its peers by multicast, in the manner of the service
+ * request of SLP (RFC 2608).  A discovery sends a request for the service type and filter to the multicast group, and
+ * every peer with matching registrations replies to the requester directly, so filters are evaluated by the
+ * responders.  The request is retransmitted at doubling intervals, each time with the list of peers which have
+ * already replied, so that they do not reply again.  Replies are collected until the deadline of the request (or the
+ * configured wait time if the request has no deadline), when the discovery completes.
+ * <p>
+ * Only requests which are sent to the group are answered, and the reply to a request is limited to a few datagrams,
+ * so that a forged request cannot make a peer send large amounts of data to a third party.
+ * <p>
+ * Services registered with this provider are offered to the peers, and are also matched by discoveries on this
+ * provider itself.  All network I/O is done by a single selector thread per provider.
+ */
+public final class MulticastDiscoveryProvider implements RegistryProvider, DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    /**
+     * The default multicast group, which is the one of SLP.
+     */
+    public static final String DEFAULT_GROUP = "239.255.255.253";
+
+    /**
+     * The default port.  The SLP port is privileged, so another one is used.
+     */
+    public static final int DEFAULT_PORT = 4270;
+
+    static final int MAGIC = 0x57464453;
+    static final int VERSION = 1;
+    static final int FN_SRV_RQST = 1;
+    static final int FN_SRV_RPLY = 2;
+
+    // header layout: magic (int), version (byte), function (byte), sender (long), transaction ID (int)
+    static final int HEADER_SIZE = 18;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final long id = ThreadLocalRandom.current().nextLong();
+    private final InetSocketAddress group;
+    private final int maxDatagramSize;
+    private final int maxReplyDatagrams;
+    private final long waitNanos;
+    private final long retransmitNanos;
+    private final LocalRegistryAndDiscoveryProvider local = new LocalRegistryAndDiscoveryProvider();
+    private final AtomicInteger nextXid = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    private final ConcurrentLinkedQueue<Pending> submitted = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+    private final DatagramChannel multicastChannel;
+    private final DatagramChannel unicastChannel;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // all of these are only accessed by the selector thread
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    private final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+    private final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+    private final ByteBuffer inBuffer;
+    private final ByteBuffer outBuffer;
+
+    MulticastDiscoveryProvider(final Builder builder) throws IOException {
+        group = new InetSocketAddress(builder.group, builder.port);
+        maxDatagramSize = builder.maxDatagramSize;
+        maxReplyDatagrams = builder.maxReplyDatagrams;
+        waitNanos = builder.waitNanos;
+        retransmitNanos = builder.retransmitNanos;
+        inBuffer = ByteBuffer.allocate(maxDatagramSize);
+        outBuffer = ByteBuffer.allocate(maxDatagramSize);
+        final StandardProtocolFamily family = builder.group.getAddress().length == 4 ? StandardProtocolFamily.INET : StandardProtocolFamily.INET6;
+        final NetworkInterface networkInterface = builder.networkInterface;
+        selector = Selector.open();
+        DatagramChannel multicastChannel = null;
+        DatagramChannel unicastChannel = null;
+        try {
+            multicastChannel = DatagramChannel.open(family);
+            multicastChannel.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+            // bound to the group, so that only requests sent to the group are answered, and never a unicast request
+            // with a forged source address
+            multicastChannel.bind(group);
+            multicastChannel.join(builder.group, networkInterface != null ? networkInterface : defaultInterface());
+            multicastChannel.configureBlocking(false);
+            // requests are sent from a separate channel so that replies reach this provider alone
+            unicastChannel = DatagramChannel.open(family);
+            unicastChannel.bind(new InetSocketAddress(0));
+            if (networkInterface != null) {
+                unicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            }
+            unicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, Integer.valueOf(builder.timeToLive));
+            unicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, Boolean.TRUE);
+            unicastChannel.configureBlocking(false);
+            multicastChannel.register(selector, SelectionKey.OP_READ);
+            unicastChannel.register(selector, SelectionKey.OP_READ);
+        } catch (Throwable t) {
+            closeQuietly(multicastChannel);
+            closeQuietly(unicastChannel);
+            closeQuietly(selector);
+            throw t;
+        }
+        this.multicastChannel = multicastChannel;
+        this.unicastChannel = unicastChannel;
+        thread = new Thread(this::run, "discovery-multicast-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static NetworkInterface defaultInterface() throws IOException {
+        // the interface of the local host address, which is what the system would choose for sending
+        final NetworkInterface networkInterface = NetworkInterface.getByInetAddress(InetAddress.getLocalHost());
+        if (networkInterface == null) {
+            throw new IOException("No network interface found for the local host; specify one");
+        }
+        return networkInterface;
+    }
+
+    public ServiceRegistration registerService(final ServiceURL serviceURL) {
+        return local.registerService(serviceURL);
+    }
+
+    public ServiceRegistration registerServices(final ServiceURL... serviceURLs) {
+        return local.registerServices(serviceURLs);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        if (closed || options.isExpired() || result.getRemainingLimit() == 0) {
+            result.complete();
+            return DiscoveryRequest.NULL;
+        }
+        final long deadline = options.hasDeadline() ? options.getDeadline() : System.nanoTime() + waitNanos;
+        final Pending request = new Pending(nextXid.getAndIncrement(), serviceType, filterSpec, result, deadline);
+        submitted.add(request);
+        selector.wakeup();
+        return request;
+    }
+
+    /**
+     * Get the address of the channel which requests are sent from and replies are received on.
+     *
+     * @return the local address (not {@code null})
+     * @throws IOException if the address could not be determined
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) unicastChannel.getLocalAddress();
+    }
+
+    /**
+     * Close this provider.  Discoveries which are in progress complete immediately, and registrations are no longer
+     * offered to peers.
+     */
+    public void close() {
+        if (! closed) {
+            closed = true;
+            selector.wakeup();
+        }
+    }
+
+    // selector thread
+
+    void run() {
+        try {
+            while (! closed) {
+                Pending request;
+                while ((request = submitted.poll()) != null) {
+                    start(request);
+                }
+                final long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                final Iterator<Pending> iterator = pending.values().iterator();
+                while (iterator.hasNext()) {
+                    request = iterator.next();
+                    if (request.cancelled || request.deadline - now <= 0 || request.result.getRemainingLimit() == 0) {
+                        iterator.remove();
+                        request.result.complete();
+                        continue;
+                    }
+                    if (request.nextSend - now <= 0) {
+                        sendRequest(request);
+                        request.nextSend = now + (retransmitNanos << Math.min(request.sends ++, 16));
+                    }
+                    wait = Math.min(wait, Math.min(request.nextSend, request.deadline) - now);
+                }
+                if (wait == Long.MAX_VALUE) {
+                    selector.select();
+                } else {
+                    // round up, since zero means forever
+                    selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(wait + 999_999L)));
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    receive((DatagramChannel) key.channel(), key.channel() == multicastChannel);
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (Throwable t) {
+            log.errorf(t, "Multicast discovery on %s failed", group);
+        } finally {
+            closed = true;
+            Pending request;
+            while ((request = submitted.poll()) != null) {
+                request.result.complete();
+            }
+            for (Pending remaining : pending.values()) {
+                remaining.result.complete();
+            }
+            pending.clear();
+            closeQuietly(multicastChannel);
+            closeQuietly(unicastChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void start(final Pending request) {
+        // answer from the registrations of this provider, and exclude it from answering over the network
+        final Collector collector = new Collector();
+        local.discover(request.serviceType, request.filterSpec, collector);
+        if (! collector.matches.isEmpty()) {
+            request.seen.addAll(collector.matches);
+            request.result.addMatches(collector.matches);
+        }
+        request.responders.add(Long.valueOf(id));
+        request.nextSend = System.nanoTime();
+        pending.put(Integer.valueOf(request.xid), request);
+    }
+
+    private void sendRequest(final Pending request) {
+        final ByteBuffer buffer = outBuffer;
+        buffer.clear();
+        writeHeader(buffer, FN_SRV_RQST, request.xid);
+        try {
+            WireFormat.writeServiceType(buffer, request.serviceType);
+            encoder.reset();
+            if (request.filterSpec == null) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1);
+                encoder.writeFilterSpec(buffer, request.filterSpec);
+            }
+        } catch (BufferOverflowException e) {
+            pending.remove(Integer.valueOf(request.xid));
+            request.result.reportProblem(new IOException("Discovery request for " + request.serviceType + " does not fit in a datagram"));
+            request.result.complete();
+            return;
+        }
+        // the previous responders, as many as fit
+        final int countPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int count = 0;
+        for (Long responder : request.responders) {
+            if (buffer.remaining() < 8 || count == 0xffff) {
+                break;
+            }
+            buffer.putLong(responder.longValue());
+            count ++;
+        }
+        buffer.putShort(countPosition, (short) count);
+        buffer.flip();
+        send(buffer, group);
+    }
+
+    private void receive(final DatagramChannel channel, final boolean fromGroup) throws IOException {
+        final ByteBuffer buffer = inBuffer;
+        for (;;) {
+            buffer.clear();
+            final SocketAddress source = channel.receive(buffer);
+            if (source == null) {
+                return;
+            }
+            buffer.flip();
+            try {
+                if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                    continue;
+                }
+                final int function = buffer.get();
+                final long sender = buffer.getLong();
+                final int xid = buffer.getInt();
+                if (sender == id) {
+                    continue;
+                }
+                // requests come from the group, and replies to this provider's requests alone
+                if (function == FN_SRV_RQST && fromGroup) {
+                    handleRequest(buffer, source, xid);
+                } else if (function == FN_SRV_RPLY && ! fromGroup) {
+                    handleReply(buffer, sender, xid);
+                }
+            } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                // whatever a malformed message does to the decoder, anyone on the network could send it, so it must
+                // never stop this thread
+                log.tracef(e, "Dropping invalid discovery message from %s", source);
+            }
+        }
+    }
+
+    private void handleRequest(final ByteBuffer buffer, final SocketAddress source, final int xid) {
+        final ServiceType serviceType = WireFormat.readServiceType(buffer);
+        decoder.reset();
+        final FilterSpec filterSpec = buffer.get() == 0 ? null : decoder.readFilterSpec(buffer);
+        final int count = buffer.getShort() & 0xffff;
+        for (int i = 0; i < count; i ++) {
+            if (buffer.getLong() == id) {
+                // already replied
+                return;
+            }
+        }
+        final Collector collector = new Collector();
+        local.discover(serviceType, filterSpec, collector);
+        final List<ServiceURL> matches = collector.matches;
+        if (matches.isEmpty()) {
+            // multicast requests without matches are not answered
+            return;
+        }
+        // as many service URLs as fit in each reply, in a limited number of replies
+        int i = 0;
+        int datagrams = 0;
+        while (i < matches.size()) {
+            if (datagrams == maxReplyDatagrams) {
+                log.debugf("Reply to %s truncated after %d datagrams", source, Integer.valueOf(datagrams));
+                break;
+            }
+            final ByteBuffer out = outBuffer;
+            out.clear();
+            writeHeader(out, FN_SRV_RPLY, xid);
+            final int countPosition = out.position();
+            out.putShort((short) 0);
+            encoder.reset();
+            int written = 0;
+            while (i < matches.size() && written < 0xffff) {
+                try {
+                    encoder.writeServiceURL(out, matches.get(i));
+                } catch (BufferOverflowException e) {
+                    if (written == 0) {
+                        log.warnf("Service URL %s does not fit in a datagram", matches.get(i));
+                        i ++;
+                        continue;
+                    }
+                    break;
+                }
+                written ++;
+                i ++;
+            }
+            if (written > 0) {
+                out.putShort(countPosition, (short) written);
+                out.flip();
+                send(out, source);
+                datagrams ++;
+            }
+        }
+    }
+
+    private void handleReply(final ByteBuffer buffer, final long sender, final int xid) {
+        final Pending request = pending.get(Integer.valueOf(xid));
+        if (request == null) {
+            // late reply
+            return;
+        }
+        request.responders.add(Long.valueOf(sender));
+        final int count = buffer.getShort() & 0xffff;
+        decoder.reset();
+        final ArrayList<ServiceURL> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i ++) {
+            final ServiceURL serviceURL = decoder.readServiceURL(buffer);
+            if (request.seen.add(serviceURL)) {
+                matches.add(serviceURL);
+            }
+        }
+        if (! matches.isEmpty()) {
+            request.result.addMatches(matches);
+        }
+    }
+
+    private void writeHeader(final ByteBuffer buffer, final int function, final int xid) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) function);
+        buffer.putLong(id);
+        buffer.putInt(xid);
+    }
+
+    private void send(final ByteBuffer buffer, final SocketAddress target) {
+        try {
+            unicastChannel.send(buffer, target);
+        } catch (IOException e) {
+            log.debugf(e, "Failed to send discovery message to %s", target);
+        }
+    }
+
+    private static void closeQuietly(final AutoCloseable closeable) {
+        if (closeable != null) try {
+            closeable.close();
+        } catch (Exception e) {
+            log.tracef(e, "Failed to close %s", closeable);
+        }
+    }
+
+    /**
+     * A discovery in progress.
+     */
+    final class Pending implements DiscoveryRequest {
+        final int xid;
+        final ServiceType serviceType;
+        final FilterSpec filterSpec;
+        final DiscoveryResult result;
+        final long deadline;
+        // these are only accessed by the selector thread
+        final Set<Long> responders = new LinkedHashSet<>();
+        final Set<ServiceURL> seen = new HashSet<>();
+        long nextSend;
+        int sends;
+        volatile boolean cancelled;
+
+        Pending(final int xid, final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final long deadline) {
+            this.xid = xid;
+            this.serviceType = serviceType;
+            this.filterSpec = filterSpec;
+            this.result = result;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            selector.wakeup();
+        }
+    }
+
+    static final class Collector implements DiscoveryResult {
+        final ArrayList<ServiceURL> matches = new ArrayList<>();
+
+        public void complete() {
+        }
+
+        public void reportProblem(final Throwable description) {
+        }
+
+        public void addMatch(final ServiceURL serviceURL) {
+            matches.add(serviceURL);
+        }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            matches.addAll(serviceURLs);
+        }
+    }
+
+    /**
+     * A builder for multicast discovery providers.
+     */
+    public static final class Builder {
+        private InetAddress group;
+        private int port = DEFAULT_PORT;
+        private NetworkInterface networkInterface;
+        private int timeToLive = 1;
+        private int maxDatagramSize = 1400;
+        private int maxReplyDatagrams = 8;
+        private long waitNanos = TimeUnit.SECONDS.toNanos(2);
+        private long retransmitNanos = TimeUnit.MILLISECONDS.toNanos(250);
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the multicast group.  The default is {@value #DEFAULT_GROUP}.
+         *
+         * @param group the multicast group address (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setGroup(InetAddress group) {
+            Assert.checkNotNullParam("group", group);
+            if (! group.isMulticastAddress()) {
+                throw new IllegalArgumentException("Not a multicast address: " + group);
+            }
+            this.group = group;
+            return this;
+        }
+
+        /**
+         * Set the port of the multicast group.  The default is {@value #DEFAULT_PORT}.
+         *
+         * @param port the port
+         * @return this builder
+         */
+        public Builder setPort(int port) {
+            Assert.checkMinimumParameter("port", 1, port);
+            Assert.checkMaximumParameter("port", 65535, port);
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Set the network interface to send and receive multicast messages on.  By default, the interface of the local
+         * host address is used.
+         *
+         * @param networkInterface the network interface (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setNetworkInterface(NetworkInterface networkInterface) {
+            this.networkInterface = Assert.checkNotNullParam("networkInterface", networkInterface);
+            return this;
+        }
+
+        /**
+         * Set the time-to-live of multicast requests.  The default is 1, which keeps requests on the local network.
+         *
+         * @param timeToLive the time-to-live
+         * @return this builder
+         */
+        public Builder setTimeToLive(int timeToLive) {
+            Assert.checkMinimumParameter("timeToLive", 0, timeToLive);
+            Assert.checkMaximumParameter("timeToLive", 255, timeToLive);
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Set the maximum size of a datagram.  Replies with more service URLs than fit are split over several
+         * datagrams.  The default is 1400, which avoids fragmentation on most networks.
+         *
+         * @param maxDatagramSize the maximum datagram size
+         * @return this builder
+         */
+        public Builder setMaxDatagramSize(int maxDatagramSize) {
+            Assert.checkMinimumParameter("maxDatagramSize", 512, maxDatagramSize);
+            Assert.checkMaximumParameter("maxDatagramSize", 65507, maxDatagramSize);
+            this.maxDatagramSize = maxDatagramSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of datagrams of the reply to a single request.  Matches which do not fit are not
+         * sent, which bounds the traffic a request can cause.  The default is 8.
+         *
+         * @param maxReplyDatagrams the maximum number of reply datagrams (must be positive)
+         * @return this builder
+         */
+        public Builder setMaxReplyDatagrams(int maxReplyDatagrams) {
+            Assert.checkMinimumParameter("maxReplyDatagrams", 1, maxReplyDatagrams);
+            this.maxReplyDatagrams = maxReplyDatagrams;
+            return this;
+        }
+
+        /**
+         * Set the time to collect replies for, for discoveries which have no deadline.  The default is two seconds.
+         *
+         * @param wait the wait time (must be positive)
+         * @param unit the unit of the wait time (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setWaitTime(long wait, TimeUnit unit) {
+            Assert.checkMinimumParameter("wait", 1, wait);
+            Assert.checkNotNullParam("unit", unit);
+            this.waitNanos = unit.toNanos(wait);
+            return this;
+        }
+
+        /**
+         * Set the interval after which an unanswered request is first retransmitted.  The interval doubles with each
+         * retransmission.  The default is 250 milliseconds.
+         *
+         * @param interval the retransmission interval (must be positive)
+         * @param unit the unit of the interval (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setRetransmitInterval(long interval, TimeUnit unit) {
+            Assert.checkMinimumParameter("interval", 1, interval);
+            Assert.checkNotNullParam("unit", unit);
+            this.retransmitNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Create the provider, joining the multicast group and starting its selector thread.
+         *
+         * @return the provider (not {@code null})
+         * @throws IOException if the channels could not be opened
+         */
+        public MulticastDiscoveryProvider create() throws IOException {
+            if (group == null) try {
+                group = InetAddress.getByName(DEFAULT_GROUP);
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+            return new MulticastDiscoveryProvider(this);
+        }
+    }
+}
@@ -18,14 +18,20 @@
 
 package org.wildfly.discovery.impl;
 
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryRequestOptions;
 import org.wildfly.discovery.FilterSpec;
 import org.wildfly.discovery.ServiceType;
 import org.wildfly.discovery.spi.DiscoveryProvider;
 import org.wildfly.discovery.spi.DiscoveryRequest;
 import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterOperation;
+import org.wildfly.discovery.spi.FilterSplit;
 
 /**
  * A discovery provider which can be mutated at run time to delegate to a new provider.
@@ -63,6 +69,24 @@ public final class MutableDiscoveryProvider implements DiscoveryProvider {
     }
 
     public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
-        return delegateRef.get().discover(serviceType, filterSpec, result);
+        return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+        // split the filter here, since the delegate may change between calls
+        final DiscoveryProvider delegate = delegateRef.get();
+        return FilterSplit.of(filterSpec, delegate.getSupportedFilterOperations()).discover(delegate, serviceType, result, options);
+    }
+
+    public Set<FilterOperation> getSupportedFilterOperations() {
+        return delegateRef.get().getSupportedFilterOperations();
+    }
+
+    public void processMissingTarget(final URI location, final Exception cause) {
+        delegateRef.get().processMissingTarget(location, cause);
+    }
+
+    public void processSuccessfulTarget(final URI location, final long latency, final TimeUnit unit) {
+        delegateRef.get().processSuccessfulTarget(location, latency, unit);
     }
 }
@@ -0,0 +1,609 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import static java.lang.Math.max;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceRegistration;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.RegistryProvider;
+
+/**
+ * A persistent local service registry and discovery provider.  Registrations are recorded in an append-only log file
+ * which is memory-mapped for access, and the in-memory index is rebuilt from the log when the provider is opened, so
+ * registrations survive a restart of the process.  The log is compacted once the space taken up by closed
+ * registrations exceeds the space taken up by live ones.
+ * <p>
+ * Registrations which were restored from the log are <em>unclaimed</em> until an equal service URL is registered
+ * again, at which point the existing record is reused rather than duplicated.  Restored registrations which are not
+ * going to be claimed again can be dropped using {@link #removeUnclaimed()}.
+ * <p>
+ * A registry file may be shared with other processes by way of {@link #openReadOnly(Path)}.  A read-only provider
+ * maps the file without copying it, and picks up new records (or a compacted replacement of the file) before each
+ * discovery.
+ */
+public final class PersistentRegistryAndDiscoveryProvider implements RegistryProvider, DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    static final int MAGIC = 0x57464452;
+    static final int VERSION = 2;
+
+    // header layout
+    static final int OFF_MAGIC = 0;
+    static final int OFF_VERSION = 4;
+    static final int OFF_FLAGS = 8;
+    static final int OFF_GENERATION = 16;
+    static final int OFF_END = 24;
+    static final int HEADER_SIZE = 32;
+
+    static final int FLAG_SUPERSEDED = 1 << 0;
+
+    // record layout: body length (int), operation (byte), registration ID (long), body
+    static final int RECORD_HEADER_SIZE = 13;
+
+    static final byte OP_REGISTER = 1;
+    static final byte OP_UNREGISTER = 2;
+    static final byte OP_DEACTIVATE = 3;
+    static final byte OP_ACTIVATE = 4;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final long MIN_COMPACTION_GARBAGE = 64 * 1024;
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final Path path;
+    private final boolean readOnly;
+    private volatile ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // all of these are protected by this
+    private final Map<ServiceURL, ArrayDeque<Entry>> unclaimed = new HashMap<>();
+    private final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+    private final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private int end;
+    private long nextId = 1;
+    private long liveBytes;
+    private boolean closed;
+
+    private PersistentRegistryAndDiscoveryProvider(final Path path, final boolean readOnly) {
+        this.path = path;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Open a registry file for reading and writing, creating it if it does not exist.  Registrations found in the
+     * file are restored as unclaimed registrations.
+     *
+     * @param path the path of the registry file (must not be {@code null})
+     * @return the provider (not {@code null})
+     * @throws IOException if the file could not be opened or is not a valid registry file
+     */
+    public static PersistentRegistryAndDiscoveryProvider open(Path path) throws IOException {
+        Assert.checkNotNullParam("path", path);
+        final PersistentRegistryAndDiscoveryProvider provider = new PersistentRegistryAndDiscoveryProvider(path, false);
+        provider.load();
+        return provider;
+    }
+
+    /**
+     * Open an existing registry file for reading only.  The returned provider does not accept registrations; it only
+     * answers discovery requests from the content of the file, which may be concurrently updated by another process.
+     *
+     * @param path the path of the registry file (must not be {@code null})
+     * @return the provider (not {@code null})
+     * @throws IOException if the file could not be opened or is not a valid registry file
+     */
+    public static PersistentRegistryAndDiscoveryProvider openReadOnly(Path path) throws IOException {
+        Assert.checkNotNullParam("path", path);
+        final PersistentRegistryAndDiscoveryProvider provider = new PersistentRegistryAndDiscoveryProvider(path, true);
+        provider.load();
+        return provider;
+    }
+
+    public ServiceRegistration registerService(final ServiceURL serviceURL) {
+        Assert.checkNotNullParam("serviceURL", serviceURL);
+        if (readOnly) {
+            return ServiceRegistration.EMPTY;
+        }
+        return register(serviceURL);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        try {
+            if (readOnly) try {
+                refresh();
+            } catch (IOException e) {
+                result.reportProblem(e);
+            }
+            final int limit = result.getRemainingLimit();
+            final ArrayList<ServiceURL> matches = new ArrayList<>();
+            ServiceURL serviceURL;
+            for (Entry entry : entries.values()) {
+                if (matches.size() == limit) {
+                    break;
+                }
+                if (! entry.active) {
+                    continue;
+                }
+                serviceURL = entry.serviceURL;
+                if (serviceType.implies(serviceURL) && serviceURL.satisfies(filterSpec)) {
+                    matches.add(serviceURL);
+                }
+            }
+            if (! matches.isEmpty()) {
+                result.addMatches(matches);
+            }
+            return DiscoveryRequest.NULL;
+        } finally {
+            result.complete();
+        }
+    }
+
+    /**
+     * Remove all restored registrations which have not been claimed by registering an equal service URL.
+     */
+    public synchronized void removeUnclaimed() {
+        if (closed || readOnly) {
+            return;
+        }
+        for (ArrayDeque<Entry> restored : unclaimed.values()) {
+            for (Entry entry : restored) {
+                unregister(entry);
+            }
+        }
+        unclaimed.clear();
+        maybeCompact();
+    }
+
+    /**
+     * Compact the registry file, so that it only contains the records of live registrations.  The compacted log is
+     * written to a new file which atomically replaces the original file.  Compaction is also done automatically as
+     * registrations are closed.
+     *
+     * @throws IOException if writing the compacted file failed, in which case the original file remains in use
+     */
+    public synchronized void compact() throws IOException {
+        if (readOnly) {
+            throw new IllegalStateException("Registry is read-only");
+        }
+        checkOpen();
+        final Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        final int required = HEADER_SIZE + (int) liveBytes;
+        final FileChannel newChannel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(required, INITIAL_CAPACITY));
+            final Map<Entry, Integer> offsets = new HashMap<>(entries.size());
+            int pos = HEADER_SIZE;
+            final ByteBuffer src = buffer.duplicate();
+            final ByteBuffer dst = newBuffer.duplicate();
+            for (Entry entry : entries.values()) {
+                offsets.put(entry, Integer.valueOf(pos));
+                src.limit(entry.offset + entry.recordSize).position(entry.offset);
+                dst.position(pos);
+                dst.put(src);
+                pos += entry.recordSize;
+                if (! entry.active) {
+                    writeRecord(newBuffer, pos, OP_DEACTIVATE, entry.id, NO_BYTES);
+                    pos += RECORD_HEADER_SIZE;
+                }
+            }
+            writeHeader(newBuffer, generation + 1, pos);
+            newBuffer.force();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // readers of the old file will now re-open the path
+            buffer.putInt(OFF_FLAGS, buffer.getInt(OFF_FLAGS) | FLAG_SUPERSEDED);
+            buffer.force();
+            channel.close();
+            channel = newChannel;
+            buffer = newBuffer;
+            generation++;
+            end = pos;
+            for (Map.Entry<Entry, Integer> mapEntry : offsets.entrySet()) {
+                mapEntry.getKey().offset = mapEntry.getValue().intValue();
+            }
+        } catch (Throwable t) {
+            try {
+                newChannel.close();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            Files.deleteIfExists(tmp);
+            throw t;
+        }
+    }
+
+    /**
+     * Close this provider, releasing the registry file.  Live registrations remain recorded in the file.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (! readOnly) {
+                buffer.force();
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.debugf(e, "Failed to close registry file %s", path);
+        }
+        buffer = null;
+        channel = null;
+    }
+
+    // internal
+
+    private synchronized void load() throws IOException {
+        final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+        unclaimed.clear();
+        liveBytes = 0;
+        if (readOnly) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        }
+        try {
+            final long size = channel.size();
+            if (size == 0 && ! readOnly) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+                generation = 1;
+                end = HEADER_SIZE;
+                writeHeader(buffer, generation, end);
+                this.entries = entries;
+                return;
+            }
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid registry file " + path);
+            }
+            buffer = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(OFF_MAGIC) != MAGIC) {
+                throw new IOException("Invalid registry file " + path);
+            }
+            if (buffer.getInt(OFF_VERSION) != VERSION) {
+                throw new IOException("Unsupported registry file version " + buffer.getInt(OFF_VERSION) + " in " + path);
+            }
+            generation = buffer.getLong(OFF_GENERATION);
+            final int committed = (int) Math.min(buffer.getLong(OFF_END), size);
+            end = scan(entries, HEADER_SIZE, committed);
+            this.entries = entries;
+            if (end < committed && ! readOnly) {
+                log.warnf("Discarding %d bytes of unreadable records at the end of registry file %s", Integer.valueOf(committed - end), path);
+                buffer.putLong(OFF_END, end);
+            }
+        } catch (Throwable t) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    private synchronized void refresh() throws IOException {
+        checkOpen();
+        if ((buffer.getInt(OFF_FLAGS) & FLAG_SUPERSEDED) != 0) {
+            // the file was compacted and replaced
+            channel.close();
+            load();
+            return;
+        }
+        final int committed = (int) buffer.getLong(OFF_END);
+        if (committed > end) {
+            if (committed > buffer.capacity()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            end = scan(entries, end, Math.min(committed, buffer.capacity()));
+        }
+    }
+
+    private int scan(final ConcurrentHashMap<Long, Entry> entries, final int start, final int limit) {
+        int pos = start;
+        while (pos + RECORD_HEADER_SIZE <= limit) {
+            final int length = buffer.getInt(pos);
+            if (length < 0 || length > limit - pos - RECORD_HEADER_SIZE) {
+                break;
+            }
+            if (! apply(entries, buffer.get(pos + 4), buffer.getLong(pos + 5), pos, length)) {
+                break;
+            }
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        return pos;
+    }
+
+    private boolean apply(final ConcurrentHashMap<Long, Entry> entries, final byte op, final long id, final int offset, final int length) {
+        final Long key = Long.valueOf(id);
+        switch (op) {
+            case OP_REGISTER: {
+                final ServiceURL serviceURL;
+                try {
+                    serviceURL = decode(offset + RECORD_HEADER_SIZE, length);
+                } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                    // whatever the corruption looks like, the valid log ends here
+                    log.warnf(e, "Failed to read registration %d from registry file %s", Long.valueOf(id), path);
+                    return false;
+                }
+                final Entry entry = new Entry(id, serviceURL, offset, RECORD_HEADER_SIZE + length);
+                entries.put(key, entry);
+                liveBytes += entry.recordSize;
+                nextId = max(nextId, id + 1);
+                if (! readOnly) {
+                    unclaimed.computeIfAbsent(serviceURL, u -> new ArrayDeque<>()).add(entry);
+                }
+                return true;
+            }
+            case OP_UNREGISTER: {
+                final Entry entry = entries.remove(key);
+                if (entry != null) {
+                    liveBytes -= entry.liveSize();
+                    if (! readOnly) {
+                        final ArrayDeque<Entry> restored = unclaimed.get(entry.serviceURL);
+                        if (restored != null && restored.remove(entry) && restored.isEmpty()) {
+                            unclaimed.remove(entry.serviceURL);
+                        }
+                    }
+                }
+                return true;
+            }
+            case OP_DEACTIVATE: {
+                final Entry entry = entries.get(key);
+                if (entry != null && entry.active) {
+                    entry.active = false;
+                    liveBytes += RECORD_HEADER_SIZE;
+                }
+                return true;
+            }
+            case OP_ACTIVATE: {
+                final Entry entry = entries.get(key);
+                if (entry != null && ! entry.active) {
+                    entry.active = true;
+                    liveBytes -= RECORD_HEADER_SIZE;
+                }
+                return true;
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    private synchronized Handle register(final ServiceURL serviceURL) {
+        checkOpen();
+        final ArrayDeque<Entry> restored = unclaimed.get(serviceURL);
+        if (restored != null) {
+            final Entry entry = restored.poll();
+            if (restored.isEmpty()) {
+                unclaimed.remove(serviceURL);
+            }
+            setActive(entry, true);
+            return new Handle(entry);
+        }
+        final long id = nextId++;
+        final int offset = end;
+        final int size = appendRegister(id, serviceURL);
+        final Entry entry = new Entry(id, serviceURL, offset, size);
+        entries.put(Long.valueOf(id), entry);
+        liveBytes += size;
+        return new Handle(entry);
+    }
+
+    synchronized void close(final Handle handle) {
+        if (closed || handle.closed) {
+            return;
+        }
+        handle.closed = true;
+        unregister(handle.entry);
+        maybeCompact();
+    }
+
+    synchronized void setActive(final Handle handle, final boolean active) {
+        if (closed || handle.closed) {
+            return;
+        }
+        setActive(handle.entry, active);
+    }
+
+    private void setActive(final Entry entry, final boolean active) {
+        if (entry.active != active) {
+            append(active ? OP_ACTIVATE : OP_DEACTIVATE, entry.id, NO_BYTES);
+            entry.active = active;
+            liveBytes += active ? - RECORD_HEADER_SIZE : RECORD_HEADER_SIZE;
+        }
+    }
+
+    private void unregister(final Entry entry) {
+        if (entries.remove(Long.valueOf(entry.id), entry)) {
+            append(OP_UNREGISTER, entry.id, NO_BYTES);
+            liveBytes -= entry.liveSize();
+        }
+    }
+
+    private void maybeCompact() {
+        final long garbage = end - HEADER_SIZE - liveBytes;
+        if (garbage >= MIN_COMPACTION_GARBAGE && garbage > liveBytes) try {
+            compact();
+        } catch (IOException e) {
+            log.warnf(e, "Failed to compact registry file %s", path);
+        }
+    }
+
+    private int append(final byte op, final long id, final byte[] body) {
+        final int size = RECORD_HEADER_SIZE + body.length;
+        if (size > Integer.MAX_VALUE - end) {
+            throw new IllegalStateException("Registry file " + path + " is full");
+        }
+        if (end + size > buffer.capacity()) {
+            grow(end + size);
+        }
+        writeRecord(buffer, end, op, id, body);
+        end += size;
+        // commit
+        buffer.putLong(OFF_END, end);
+        return size;
+    }
+
+    private int appendRegister(final long id, final ServiceURL serviceURL) {
+        // every record is encoded on its own so that compaction can copy it as-is
+        encoder.reset();
+        for (;;) {
+            final ByteBuffer b = buffer.duplicate();
+            if (b.capacity() - end >= RECORD_HEADER_SIZE) {
+                b.position(end + RECORD_HEADER_SIZE);
+                try {
+                    encoder.writeServiceURL(b, serviceURL);
+                    final int length = b.position() - end - RECORD_HEADER_SIZE;
+                    b.position(end);
+                    b.putInt(length);
+                    b.put(OP_REGISTER);
+                    b.putLong(id);
+                    final int size = RECORD_HEADER_SIZE + length;
+                    end += size;
+                    // commit
+                    buffer.putLong(OFF_END, end);
+                    return size;
+                } catch (BufferOverflowException ignored) {
+                }
+            }
+            if (b.capacity() == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Registry file " + path + " is full");
+            }
+            grow(b.capacity() + 1);
+        }
+    }
+
+    private void grow(final int required) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(required, buffer.capacity()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Registry is closed");
+        }
+    }
+
+    private static int capacityFor(final int required, final int current) {
+        long capacity = max(current, INITIAL_CAPACITY);
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    private static void writeHeader(final ByteBuffer buffer, final long generation, final int end) {
+        buffer.putInt(OFF_MAGIC, MAGIC);
+        buffer.putInt(OFF_VERSION, VERSION);
+        buffer.putInt(OFF_FLAGS, 0);
+        buffer.putLong(OFF_GENERATION, generation);
+        buffer.putLong(OFF_END, end);
+    }
+
+    private static void writeRecord(final ByteBuffer buffer, final int offset, final byte op, final long id, final byte[] body) {
+        final ByteBuffer b = buffer.duplicate();
+        b.position(offset);
+        b.putInt(body.length);
+        b.put(op);
+        b.putLong(id);
+        b.put(body);
+    }
+
+    private ServiceURL decode(final int offset, final int length) {
+        final ByteBuffer b = buffer.duplicate();
+        b.limit(offset + length);
+        b.position(offset);
+        decoder.reset();
+        final ServiceURL serviceURL = decoder.readServiceURL(b);
+        if (b.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing data in record");
+        }
+        return serviceURL;
+    }
+
+    static final class Entry {
+        final long id;
+        final ServiceURL serviceURL;
+        final int recordSize;
+        // protected by the provider
+        int offset;
+        volatile boolean active = true;
+
+        Entry(final long id, final ServiceURL serviceURL, final int offset, final int recordSize) {
+            this.id = id;
+            this.serviceURL = serviceURL;
+            this.offset = offset;
+            this.recordSize = recordSize;
+        }
+
+        int liveSize() {
+            return active ? recordSize : recordSize + RECORD_HEADER_SIZE;
+        }
+    }
+
+    final class Handle implements ServiceRegistration {
+        final Entry entry;
+        // protected by the provider
+        boolean closed;
+
+        Handle(final Entry entry) {
+            this.entry = entry;
+        }
+
+        public void close() {
+            PersistentRegistryAndDiscoveryProvider.this.close(this);
+        }
+
+        public void deactivate() {
+            setActive(this, false);
+        }
+
+        public void activate() {
+            setActive(this, true);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * One end of an in-process synchronization channel.  Frames sent on one end are delivered on the thread of the other
+ * end, so neither side ever calls into the other with its own locks held.
+ */
+final class PipeSyncChannel implements SyncChannel {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final LinkedBlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>(SyncTable.MAX_QUEUED_FRAMES);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private PipeSyncChannel peer;
+    private volatile Listener listener;
+
+    private PipeSyncChannel() {
+    }
+
+    /**
+     * Create a pair of connected ends.
+     *
+     * @return the two ends
+     */
+    static PipeSyncChannel[] pair() {
+        final PipeSyncChannel a = new PipeSyncChannel();
+        final PipeSyncChannel b = new PipeSyncChannel();
+        a.peer = b;
+        b.peer = a;
+        return new PipeSyncChannel[] { a, b };
+    }
+
+    public void start(final Listener listener) {
+        this.listener = listener;
+        final Thread thread = new Thread(this::deliver, "discovery-sync-pipe-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void send(final ByteBuffer frame) {
+        if (! closed.get() && ! peer.queue.offer(frame.duplicate())) {
+            log.debugf("Too many frames queued for %s; closing", peer);
+            close();
+        }
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // if the queue is full, the delivering thread sees that the channel is closed on taking the next frame
+            queue.offer(CLOSE);
+            peer.close();
+        }
+    }
+
+    void deliver() {
+        try {
+            for (;;) {
+                final ByteBuffer frame = queue.take();
+                if (frame == CLOSE || closed.get()) {
+                    return;
+                }
+                listener.received(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.debugf(e, "Invalid frame received on %s", this);
+        } finally {
+            close();
+            listener.closed();
+        }
+    }
+}
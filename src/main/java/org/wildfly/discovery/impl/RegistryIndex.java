@@ -0,0 +1,678 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.wildfly.discovery.AllFilterSpec;
+import org.wildfly.discovery.AnyFilterSpec;
+import org.wildfly.discovery.AttributeValue;
+import org.wildfly.discovery.BooleanFilterSpec;
+import org.wildfly.discovery.EqualsFilterSpec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.GreaterEqualFilterSpec;
+import org.wildfly.discovery.HasFilterSpec;
+import org.wildfly.discovery.LessEqualFilterSpec;
+import org.wildfly.discovery.NotFilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.SubstringFilterSpec;
+
+/**
+ * An index of registered service URLs.  Each entry is assigned a dense slot number, and the index maintains one posting
+ * list (a bit set of slots, along with its size) per service type, per abstract service type, per attribute name and
+ * per attribute value.  Queries are evaluated by combining these posting lists, so that only the entries which actually
+ * match (or, for filters which cannot be answered from the index, which may match) are examined.
+ * <p>
+ * The sizes of the posting lists are kept up to date as entries are added and removed, and serve as the statistics of
+ * a simple cost-based planner: the children of a conjunction are evaluated from the most to the least selective, the
+ * intersection is driven by the smallest posting list, and children which would hardly narrow the candidates down
+ * any further are checked against the remaining candidates instead of being looked up.
+ *
+ * @param <E> the entry type
+ */
+final class RegistryIndex<E> {
+    /**
+     * A conjunction child is looked up only if its posting list is at most this many times larger than the one which
+     * drives the intersection; otherwise the few remaining candidates are checked directly.
+     */
+    static final int SCAN_RATIO = 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // all of these are protected by lock
+    private final Map<Integer, Posting> byServiceType = new HashMap<>();
+    private final Map<Integer, Posting> byAbstractServiceType = new HashMap<>();
+    private final Map<String, Posting> byAttribute = new HashMap<>();
+    private final Map<String, Map<AttributeValue, Posting>> byAttributeValue = new HashMap<>();
+    private ServiceURL[] serviceURLs = new ServiceURL[16];
+    private Object[] entries = new Object[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    private int size;
+
+    RegistryIndex() {
+    }
+
+    /**
+     * Add an entry to the index.
+     *
+     * @param serviceURL the service URL of the entry
+     * @param entry the entry
+     * @return the slot of the entry
+     */
+    int add(ServiceURL serviceURL, E entry) {
+        final Lock lock = this.lock.writeLock();
+        lock.lock();
+        try {
+            return addLocked(serviceURL, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add several entries to the index at once.
+     *
+     * @param serviceURLs the service URLs of the entries
+     * @param entries the entries
+     * @param slots the array to receive the slots of the entries
+     */
+    void addAll(ServiceURL[] serviceURLs, E[] entries, int[] slots) {
+        final Lock lock = this.lock.writeLock();
+        lock.lock();
+        try {
+            for (int i = 0; i < serviceURLs.length; i ++) {
+                slots[i] = addLocked(serviceURLs[i], entries[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove an entry from the index.
+     *
+     * @param slot the slot of the entry
+     * @param entry the entry
+     * @return {@code true} if the entry was removed, {@code false} if it was not present
+     */
+    boolean remove(int slot, E entry) {
+        final Lock lock = this.lock.writeLock();
+        lock.lock();
+        try {
+            return removeLocked(slot, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove several entries from the index at once.
+     *
+     * @param slots the slots of the entries
+     * @param entries the entries
+     */
+    void removeAll(int[] slots, E[] entries) {
+        final Lock lock = this.lock.writeLock();
+        lock.lock();
+        try {
+            for (int i = 0; i < slots.length; i ++) {
+                removeLocked(slots[i], entries[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find the entries whose service URLs are implied by the given service type and satisfy the given filter.
+     *
+     * @param serviceType the service type
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @param matches the list to add matching entries to
+     */
+    void find(ServiceType serviceType, FilterSpec filterSpec, List<? super E> matches) {
+        find(serviceType, filterSpec, entry -> true, matches, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find up to the given number of accepted entries whose service URLs are implied by the given service type and
+     * satisfy the given filter.
+     *
+     * @param serviceType the service type
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @param accept the predicate which entries must also pass
+     * @param matches the list to add matching entries to
+     * @param limit the maximum number of entries to add
+     */
+    @SuppressWarnings("unchecked")
+    void find(ServiceType serviceType, FilterSpec filterSpec, Predicate<? super E> accept, List<? super E> matches, int limit) {
+        final Lock lock = this.lock.readLock();
+        lock.lock();
+        try {
+            final Posting universe = candidatesOf(serviceType);
+            if (universe == null) {
+                return;
+            }
+            final BitSet candidates = universe.bits;
+            final BitSet bits;
+            final boolean exact;
+            if (filterSpec == null) {
+                bits = candidates;
+                exact = true;
+            } else {
+                final Match match = filterSpec.accept(new Planner(universe.count)).execute(candidates);
+                if (match == null) {
+                    bits = candidates;
+                    exact = false;
+                } else {
+                    bits = match.restricted ? match.bits : and(match.bits, candidates);
+                    exact = match.exact;
+                }
+            }
+            int cnt = 0;
+            for (int i = bits.nextSetBit(0); i >= 0 && cnt < limit; i = bits.nextSetBit(i + 1)) {
+                // a filter which was not fully answered by the index only narrowed down the candidates
+                if ((exact || serviceURLs[i].satisfies(filterSpec)) && accept.test((E) entries[i])) {
+                    matches.add((E) entries[i]);
+                    cnt ++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        final Lock lock = this.lock.readLock();
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Describe how the entries for the given service type and filter would be found.
+     *
+     * @param serviceType the service type
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan
+     */
+    String explain(ServiceType serviceType, FilterSpec filterSpec) {
+        return explain(serviceType, filterSpec, -1);
+    }
+
+    /**
+     * Describe how the entries for the given service type and filter would be found, out of the given number of
+     * entries, for an index which is one of several.
+     *
+     * @param serviceType the service type
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @param total the number of entries to report, or -1 for the number of entries in this index
+     * @return the description of the plan
+     */
+    String explain(ServiceType serviceType, FilterSpec filterSpec, int total) {
+        final Lock lock = this.lock.readLock();
+        lock.lock();
+        try {
+            final Posting universe = candidatesOf(serviceType);
+            final int count = universe == null ? 0 : universe.count;
+            final StringBuilder b = new StringBuilder();
+            b.append(serviceType).append(": ").append(count).append(" candidate(s) of ").append(total == -1 ? size : total).append(" entries");
+            if (count > 0) {
+                if (filterSpec == null) {
+                    b.append("\n  all candidates");
+                } else {
+                    final Plan plan = filterSpec.accept(new Planner(count));
+                    plan.explain(b, 1);
+                    if (! plan.exact) {
+                        b.append("\n  candidates are checked against ").append(filterSpec);
+                    }
+                }
+            }
+            return b.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Posting candidatesOf(final ServiceType serviceType) {
+        return (serviceType.getUriScheme() == null ? byAbstractServiceType : byServiceType).get(Integer.valueOf(serviceType.getId()));
+    }
+
+    private int addLocked(final ServiceURL serviceURL, final E entry) {
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[-- freeCount];
+        } else {
+            slot = slotCount++;
+            if (slot == serviceURLs.length) {
+                serviceURLs = Arrays.copyOf(serviceURLs, slot << 1);
+                entries = Arrays.copyOf(entries, slot << 1);
+            }
+        }
+        serviceURLs[slot] = serviceURL;
+        entries[slot] = entry;
+        size ++;
+        posting(byServiceType, Integer.valueOf(serviceURL.getServiceTypeId())).add(slot);
+        posting(byAbstractServiceType, Integer.valueOf(serviceURL.getAbstractServiceTypeId())).add(slot);
+        for (String name : serviceURL.getAttributeNames()) {
+            posting(byAttribute, name).add(slot);
+            final List<AttributeValue> values = serviceURL.getAttributeValues(name);
+            if (! values.isEmpty()) {
+                final Map<AttributeValue, Posting> valueMap = byAttributeValue.computeIfAbsent(name, n -> new HashMap<>());
+                for (AttributeValue value : values) {
+                    posting(valueMap, value).add(slot);
+                }
+            }
+        }
+        return slot;
+    }
+
+    private boolean removeLocked(final int slot, final E entry) {
+        if (slot < 0 || slot >= slotCount || entries[slot] != entry) {
+            return false;
+        }
+        final ServiceURL serviceURL = serviceURLs[slot];
+        serviceURLs[slot] = null;
+        entries[slot] = null;
+        size --;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+        clear(byServiceType, Integer.valueOf(serviceURL.getServiceTypeId()), slot);
+        clear(byAbstractServiceType, Integer.valueOf(serviceURL.getAbstractServiceTypeId()), slot);
+        for (String name : serviceURL.getAttributeNames()) {
+            clear(byAttribute, name, slot);
+            final Map<AttributeValue, Posting> valueMap = byAttributeValue.get(name);
+            if (valueMap != null) {
+                for (AttributeValue value : serviceURL.getAttributeValues(name)) {
+                    clear(valueMap, value, slot);
+                }
+                if (valueMap.isEmpty()) {
+                    byAttributeValue.remove(name);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static <K> Posting posting(final Map<K, Posting> map, final K key) {
+        Posting posting = map.get(key);
+        if (posting == null) {
+            map.put(key, posting = new Posting());
+        }
+        return posting;
+    }
+
+    private static <K> void clear(final Map<K, Posting> map, final K key, final int slot) {
+        final Posting posting = map.get(key);
+        if (posting != null && posting.remove(slot)) {
+            map.remove(key);
+        }
+    }
+
+    static BitSet and(final BitSet a, final BitSet b) {
+        final BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result;
+    }
+
+    /**
+     * The slots of the entries which have some property, and how many there are.
+     */
+    static final class Posting {
+        final BitSet bits = new BitSet();
+        int count;
+
+        void add(final int slot) {
+            if (! bits.get(slot)) {
+                bits.set(slot);
+                count ++;
+            }
+        }
+
+        /**
+         * Remove a slot.
+         *
+         * @param slot the slot
+         * @return {@code true} if the posting list is now empty
+         */
+        boolean remove(final int slot) {
+            if (bits.get(slot)) {
+                bits.clear(slot);
+                count --;
+            }
+            return count == 0;
+        }
+    }
+
+    static final class Match {
+        static final Match NONE = new Match(new BitSet(), true, true);
+
+        // never modified, as they may be owned by the index
+        final BitSet bits;
+        // true if the bits are exactly the matching entries, false if they are a superset
+        final boolean exact;
+        // true if the bits are already restricted to the universe of candidates
+        final boolean restricted;
+
+        Match(final BitSet bits, final boolean exact, final boolean restricted) {
+            this.bits = bits;
+            this.exact = exact;
+            this.restricted = restricted;
+        }
+    }
+
+    /**
+     * A step of a query plan.  Executing a plan computes the candidate slots of its filter within the given universe
+     * of candidates; a {@code null} result means that the index cannot narrow down the candidates at all.
+     */
+    abstract static class Plan {
+        final FilterSpec filterSpec;
+        // the estimated number of candidates, which is an upper bound
+        final int estimate;
+        // true if the candidates are exactly the matching entries
+        final boolean exact;
+
+        Plan(final FilterSpec filterSpec, final int estimate, final boolean exact) {
+            this.filterSpec = filterSpec;
+            this.estimate = estimate;
+            this.exact = exact;
+        }
+
+        abstract Match execute(BitSet universe);
+
+        void explain(StringBuilder b, int depth) {
+            b.append('\n');
+            for (int i = 0; i < depth; i ++) {
+                b.append("  ");
+            }
+        }
+    }
+
+    static final class Lookup extends Plan {
+        private final BitSet bits;
+
+        Lookup(final FilterSpec filterSpec, final Posting posting, final boolean exact, final int universe) {
+            // the posting list may include entries of other service types
+            super(filterSpec, posting == null ? 0 : Math.min(posting.count, universe), exact);
+            this.bits = posting == null ? null : posting.bits;
+        }
+
+        Match execute(final BitSet universe) {
+            return bits == null ? Match.NONE : new Match(bits, exact, false);
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append("lookup ").append(filterSpec).append(": ").append(estimate);
+            b.append(exact ? " entries" : " entries with the attribute");
+        }
+    }
+
+    static final class Scan extends Plan {
+        Scan(final FilterSpec filterSpec, final int estimate) {
+            super(filterSpec, estimate, false);
+        }
+
+        Match execute(final BitSet universe) {
+            return null;
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append("scan ").append(filterSpec).append(": up to ").append(estimate).append(" entries");
+        }
+    }
+
+    static final class Constant extends Plan {
+        Constant(final FilterSpec filterSpec, final int estimate) {
+            super(filterSpec, estimate, true);
+        }
+
+        Match execute(final BitSet universe) {
+            return estimate > 0 ? new Match(universe, true, true) : Match.NONE;
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append(filterSpec).append(": ").append(estimate).append(" entries");
+        }
+    }
+
+    static final class Conjunction extends Plan {
+        private final Plan[] children;
+
+        Conjunction(final FilterSpec filterSpec, final Plan[] children, final boolean exact) {
+            super(filterSpec, children[0].estimate, exact);
+            this.children = children;
+        }
+
+        Match execute(final BitSet universe) {
+            BitSet result = null;
+            boolean exact = true;
+            for (Plan child : children) {
+                final Match match = child.execute(universe);
+                if (match == null) {
+                    exact = false;
+                    continue;
+                }
+                exact &= match.exact;
+                if (result == null) {
+                    result = and(match.bits, universe);
+                } else {
+                    result.and(match.bits);
+                }
+                if (result.isEmpty()) {
+                    return new Match(result, true, true);
+                }
+            }
+            return result == null ? null : new Match(result, exact, true);
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append("and: up to ").append(estimate).append(" entries");
+            for (Plan child : children) {
+                child.explain(b, depth + 1);
+            }
+        }
+    }
+
+    static final class Disjunction extends Plan {
+        private final Plan[] children;
+
+        Disjunction(final FilterSpec filterSpec, final Plan[] children, final int estimate, final boolean exact) {
+            super(filterSpec, estimate, exact);
+            this.children = children;
+        }
+
+        Match execute(final BitSet universe) {
+            BitSet result = null;
+            boolean exact = true;
+            for (Plan child : children) {
+                // never null, as disjunctions with children which cannot be looked up are scanned
+                final Match match = child.execute(universe);
+                exact &= match.exact;
+                if (result == null) {
+                    result = and(match.bits, universe);
+                } else {
+                    result.or(match.bits);
+                }
+            }
+            if (result == null) {
+                return Match.NONE;
+            }
+            result.and(universe);
+            return new Match(result, exact, true);
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append("or: up to ").append(estimate).append(" entries");
+            for (Plan child : children) {
+                child.explain(b, depth + 1);
+            }
+        }
+    }
+
+    static final class Complement extends Plan {
+        private final Plan child;
+
+        Complement(final FilterSpec filterSpec, final Plan child, final int estimate) {
+            super(filterSpec, estimate, true);
+            this.child = child;
+        }
+
+        Match execute(final BitSet universe) {
+            // never null, as complements of children which are not exact are scanned
+            final Match match = child.execute(universe);
+            final BitSet result = (BitSet) universe.clone();
+            result.andNot(match.bits);
+            return new Match(result, true, true);
+        }
+
+        void explain(final StringBuilder b, final int depth) {
+            super.explain(b, depth);
+            b.append("not: up to ").append(estimate).append(" entries");
+            child.explain(b, depth + 1);
+        }
+    }
+
+    // plans which can be looked up first, smallest first
+    static final Comparator<Plan> SELECTIVITY = (a, b) -> a instanceof Scan != b instanceof Scan ? (a instanceof Scan ? 1 : -1) : Integer.compare(a.estimate, b.estimate);
+
+    /**
+     * Plans the evaluation of a filter, using the sizes of the posting lists as estimates.
+     */
+    final class Planner implements FilterSpec.Visitor<Void, Plan, RuntimeException> {
+        private final int universe;
+
+        Planner(final int universe) {
+            this.universe = universe;
+        }
+
+        public Plan handle(final FilterSpec filterSpec, final Void ignored) {
+            // unknown filter types can only be checked directly
+            return new Scan(filterSpec, universe);
+        }
+
+        public Plan handle(final EqualsFilterSpec filterSpec, final Void ignored) {
+            final Map<AttributeValue, Posting> valueMap = byAttributeValue.get(filterSpec.getAttribute());
+            return new Lookup(filterSpec, valueMap == null ? null : valueMap.get(filterSpec.getValue()), true, universe);
+        }
+
+        public Plan handle(final HasFilterSpec filterSpec, final Void ignored) {
+            return new Lookup(filterSpec, byAttribute.get(filterSpec.getAttribute()), true, universe);
+        }
+
+        public Plan handle(final GreaterEqualFilterSpec filterSpec, final Void ignored) {
+            return withAttribute(filterSpec, filterSpec.getAttribute());
+        }
+
+        public Plan handle(final LessEqualFilterSpec filterSpec, final Void ignored) {
+            return withAttribute(filterSpec, filterSpec.getAttribute());
+        }
+
+        public Plan handle(final SubstringFilterSpec filterSpec, final Void ignored) {
+            return withAttribute(filterSpec, filterSpec.getAttribute());
+        }
+
+        private Plan withAttribute(final FilterSpec filterSpec, final String attribute) {
+            // comparisons and substrings can only be narrowed down to the entries which have the attribute
+            return new Lookup(filterSpec, byAttribute.get(attribute), false, universe);
+        }
+
+        public Plan handle(final AllFilterSpec filterSpec, final Void ignored) {
+            final List<Plan> list = new ArrayList<>();
+            for (FilterSpec child : filterSpec) {
+                list.add(child.accept(this));
+            }
+            if (list.isEmpty()) {
+                return new Constant(filterSpec, universe);
+            }
+            // the most selective child which can be looked up drives the intersection
+            list.sort(SELECTIVITY);
+            final Plan[] children = list.toArray(new Plan[list.size()]);
+            if (children[0] instanceof Scan) {
+                return new Scan(filterSpec, universe);
+            }
+            final long bound = (long) children[0].estimate * SCAN_RATIO;
+            boolean exact = true;
+            for (int i = 0; i < children.length; i ++) {
+                final Plan child = children[i];
+                if (i > 0 && child.estimate > bound && ! (child instanceof Scan)) {
+                    children[i] = new Scan(child.filterSpec, child.estimate);
+                }
+                exact &= children[i].exact;
+            }
+            return new Conjunction(filterSpec, children, exact);
+        }
+
+        public Plan handle(final AnyFilterSpec filterSpec, final Void ignored) {
+            final List<Plan> list = new ArrayList<>();
+            long estimate = 0;
+            boolean exact = true;
+            for (FilterSpec child : filterSpec) {
+                final Plan plan = child.accept(this);
+                if (plan instanceof Scan) {
+                    return new Scan(filterSpec, universe);
+                }
+                list.add(plan);
+                estimate += plan.estimate;
+                exact &= plan.exact;
+            }
+            return new Disjunction(filterSpec, list.toArray(new Plan[list.size()]), (int) Math.min(universe, estimate), exact);
+        }
+
+        public Plan handle(final NotFilterSpec filterSpec, final Void ignored) {
+            final Plan child = filterSpec.getChild().accept(this);
+            if (! child.exact) {
+                // the complement of an approximation is not an approximation
+                return new Scan(filterSpec, universe);
+            }
+            return new Complement(filterSpec, child, Math.max(0, universe - child.estimate));
+        }
+
+        public Plan handle(final BooleanFilterSpec filterSpec, final Void ignored) {
+            return new Constant(filterSpec, filterSpec.getValue() ? universe : 0);
+        }
+    }
+}
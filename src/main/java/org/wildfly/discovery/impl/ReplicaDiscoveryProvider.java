@@ -0,0 +1,363 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * A discovery provider which answers from a replica of the registrations of a {@link ReplicatedRegistryProvider}.
+ * <p>
+ * The replica connects to its leader in the background, and reconnects whenever the connection is lost.  While it is
+ * disconnected it keeps answering from the registrations it last knew of.  On reconnecting, only the registrations
+ * which changed in the meantime are transferred.
+ */
+public final class ReplicaDiscoveryProvider implements DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Connector connector;
+    private final long reconnectMillis;
+    private final SyncTable table = new SyncTable();
+    private final Thread thread;
+
+    // all of these are protected by this
+    private final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+    private Connection connection;
+    private boolean synchronizedWithLeader;
+    private boolean dropped;
+    private boolean suspended;
+    private boolean closed;
+    private int lastSyncEntryCount;
+
+    ReplicaDiscoveryProvider(final Builder builder) {
+        if (builder.leader != null) {
+            final ReplicatedRegistryProvider leader = builder.leader;
+            connector = leader::connectLocal;
+        } else {
+            final InetSocketAddress address = builder.leaderAddress;
+            connector = () -> SocketSyncChannel.connect(address);
+        }
+        reconnectMillis = builder.reconnectMillis;
+        thread = new Thread(this::run, "discovery-replica-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        table.find(serviceType, filterSpec, result);
+        return DiscoveryRequest.NULL;
+    }
+
+    /**
+     * Describe how a discovery request for the given service type and filter would be answered.
+     *
+     * @param serviceType the service type (must not be {@code null})
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan (not {@code null})
+     * @see LocalRegistryAndDiscoveryProvider#explain(ServiceType, FilterSpec)
+     */
+    public String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        return table.explain(serviceType, filterSpec);
+    }
+
+    /**
+     * Determine whether this replica is connected to its leader and has caught up with it.
+     *
+     * @return {@code true} if the replica is synchronized, {@code false} otherwise
+     */
+    public synchronized boolean isSynchronized() {
+        return synchronizedWithLeader;
+    }
+
+    /**
+     * Wait until this replica is connected to its leader and has caught up with it.
+     *
+     * @param timeout the amount of time to wait
+     * @param unit the unit of the timeout (must not be {@code null})
+     * @return {@code true} if the replica is synchronized, {@code false} if the time elapsed first
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public synchronized boolean awaitSynchronized(long timeout, TimeUnit unit) throws InterruptedException {
+        Assert.checkNotNullParam("unit", unit);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining;
+        while (! synchronizedWithLeader && ! closed && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return synchronizedWithLeader;
+    }
+
+    /**
+     * Get the number of registrations which were transferred by the last catch-up with the leader.
+     *
+     * @return the number of registrations
+     */
+    public synchronized int getLastSyncEntryCount() {
+        return lastSyncEntryCount;
+    }
+
+    /**
+     * Disconnect from the leader, and stay disconnected until {@link #reconnect()} is called.  The registrations which
+     * are known are kept.
+     */
+    public void disconnect() {
+        final Connection connection;
+        synchronized (this) {
+            suspended = true;
+            connection = detach();
+        }
+        if (connection != null) {
+            connection.channel.close();
+        }
+    }
+
+    /**
+     * Connect to the leader again, after a call to {@link #disconnect()}.
+     */
+    public synchronized void reconnect() {
+        suspended = false;
+        notifyAll();
+    }
+
+    /**
+     * Close this replica.
+     */
+    public void close() {
+        final Connection connection;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connection = detach();
+            notifyAll();
+        }
+        if (connection != null) {
+            connection.channel.close();
+        }
+    }
+
+    private Connection detach() {
+        // frames which are still in flight on the old connection are ignored from now on
+        final Connection connection = this.connection;
+        this.connection = null;
+        synchronizedWithLeader = false;
+        return connection;
+    }
+
+    void run() {
+        boolean delay = false;
+        for (;;) {
+            try {
+                synchronized (this) {
+                    while (! closed && (connection != null || suspended)) {
+                        wait();
+                    }
+                    if (! closed && (delay || dropped)) {
+                        dropped = false;
+                        wait(reconnectMillis);
+                        // check again
+                        delay = false;
+                        continue;
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                final SyncChannel channel;
+                try {
+                    channel = connector.connect();
+                } catch (IOException e) {
+                    log.debugf(e, "Failed to connect replica to its leader");
+                    delay = true;
+                    continue;
+                }
+                final Connection connection = new Connection(channel);
+                synchronized (this) {
+                    if (closed || suspended) {
+                        channel.close();
+                        continue;
+                    }
+                    this.connection = connection;
+                    channel.start(connection);
+                    // the hashes are sent under the lock, so that no change is applied in between
+                    final ByteBuffer hello = ByteBuffer.allocate(5 + 8 * SyncTable.BUCKETS);
+                    hello.put((byte) SyncTable.MSG_HELLO).putInt(SyncTable.BUCKETS);
+                    for (int i = 0; i < SyncTable.BUCKETS; i ++) {
+                        hello.putLong(table.hash(i));
+                    }
+                    hello.flip();
+                    channel.send(hello);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    interface Connector {
+        SyncChannel connect() throws IOException;
+    }
+
+    /**
+     * The replica side of one connection to the leader.
+     */
+    final class Connection implements SyncChannel.Listener {
+        final SyncChannel channel;
+
+        Connection(final SyncChannel channel) {
+            this.channel = channel;
+        }
+
+        public void received(final ByteBuffer frame) {
+            synchronized (ReplicaDiscoveryProvider.this) {
+                if (connection != this) {
+                    return;
+                }
+                decoder.reset();
+                final int type = frame.get();
+                switch (type) {
+                    case SyncTable.MSG_BUCKET: {
+                        final int bucket = frame.getInt();
+                        final int count = frame.getInt();
+                        if (bucket < 0 || bucket >= SyncTable.BUCKETS) {
+                            throw new IllegalArgumentException("Invalid bucket " + bucket);
+                        }
+                        final ArrayList<SyncTable.Entry> entries = new ArrayList<>(count);
+                        for (int i = 0; i < count; i ++) {
+                            entries.add(SyncTable.readEntry(frame, decoder));
+                        }
+                        table.replaceBucket(bucket, entries);
+                        break;
+                    }
+                    case SyncTable.MSG_DONE: {
+                        frame.getInt();
+                        lastSyncEntryCount = frame.getInt();
+                        synchronizedWithLeader = true;
+                        ReplicaDiscoveryProvider.this.notifyAll();
+                        break;
+                    }
+                    case SyncTable.MSG_PUT: {
+                        table.put(SyncTable.readEntry(frame, decoder));
+                        break;
+                    }
+                    case SyncTable.MSG_REMOVE: {
+                        table.remove(frame.getLong());
+                        break;
+                    }
+                    default: {
+                        throw new IllegalArgumentException("Invalid frame type " + type);
+                    }
+                }
+            }
+        }
+
+        public void closed() {
+            synchronized (ReplicaDiscoveryProvider.this) {
+                if (connection == this) {
+                    detach();
+                    dropped = ! suspended && ! closed;
+                    ReplicaDiscoveryProvider.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * A builder for replica discovery providers.  Either a leader or the address of a leader must be given.
+     */
+    public static final class Builder {
+        private ReplicatedRegistryProvider leader;
+        private InetSocketAddress leaderAddress;
+        private long reconnectMillis = 1000;
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the leader to replicate in-process.
+         *
+         * @param leader the leader (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setLeader(ReplicatedRegistryProvider leader) {
+            this.leader = Assert.checkNotNullParam("leader", leader);
+            this.leaderAddress = null;
+            return this;
+        }
+
+        /**
+         * Set the address of the leader to replicate over TCP.
+         *
+         * @param leaderAddress the address of the leader (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setLeaderAddress(InetSocketAddress leaderAddress) {
+            this.leaderAddress = Assert.checkNotNullParam("leaderAddress", leaderAddress);
+            this.leader = null;
+            return this;
+        }
+
+        /**
+         * Set the time to wait before connecting again after a connection to the leader is lost or fails.  The default
+         * is one second.
+         *
+         * @param interval the reconnect interval (must be positive)
+         * @param unit the unit of the interval (must not be {@code null})
+         * @return this builder
+         */
+        public Builder setReconnectInterval(long interval, TimeUnit unit) {
+            Assert.checkMinimumParameter("interval", 1, interval);
+            Assert.checkNotNullParam("unit", unit);
+            this.reconnectMillis = Math.max(1L, unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * Create the replica, which starts connecting to the leader.
+         *
+         * @return the replica (not {@code null})
+         */
+        public ReplicaDiscoveryProvider create() {
+            if (leader == null && leaderAddress == null) {
+                throw new IllegalStateException("No leader was given");
+            }
+            return new ReplicaDiscoveryProvider(this);
+        }
+    }
+}
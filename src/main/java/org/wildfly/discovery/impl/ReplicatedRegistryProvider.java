@@ -0,0 +1,365 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceRegistration;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.RegistryProvider;
+
+/**
+ * A registry and discovery provider whose registrations are replicated to any number of
+ * {@linkplain ReplicaDiscoveryProvider replicas}.  Replicas connect over TCP, if the provider was given an address to
+ * listen on, or in-process.  A replica which reconnects is sent only the registrations which changed while it was
+ * away; see {@link SyncTable} for the protocol.
+ */
+public final class ReplicatedRegistryProvider implements RegistryProvider, DiscoveryProvider, AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // distinguishes the registrations of this provider from those of an earlier one in the same place
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final ServerSocketChannel server;
+    private final Thread acceptor;
+
+    // all of these are protected by this
+    private final SyncTable table = new SyncTable();
+    private final Set<Session> sessions = new HashSet<>();
+    private final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+    private long nextId = 1;
+    private long version;
+    private boolean closed;
+
+    ReplicatedRegistryProvider(final Builder builder) throws IOException {
+        if (builder.bindAddress == null) {
+            server = null;
+            acceptor = null;
+        } else {
+            server = ServerSocketChannel.open();
+            try {
+                server.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+                server.bind(builder.bindAddress);
+            } catch (Throwable t) {
+                server.close();
+                throw t;
+            }
+            acceptor = new Thread(this::accept, "discovery-sync-accept-" + threadCount.incrementAndGet());
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+    }
+
+    public ServiceRegistration registerService(final ServiceURL serviceURL) {
+        Assert.checkNotNullParam("serviceURL", serviceURL);
+        final Handle handle;
+        synchronized (this) {
+            handle = new Handle(nextId ++, serviceURL);
+            put(handle.id, serviceURL);
+        }
+        return handle;
+    }
+
+    public ServiceRegistration registerServices(final ServiceURL... serviceURLs) {
+        Assert.checkNotNullParam("serviceURLs", serviceURLs);
+        final ServiceRegistration[] registrations = new ServiceRegistration[serviceURLs.length];
+        for (int i = 0; i < serviceURLs.length; i ++) {
+            registrations[i] = registerService(Assert.checkNotNullArrayParam("serviceURLs", i, serviceURLs[i]));
+        }
+        return ServiceRegistration.aggregate(registrations);
+    }
+
+    public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        table.find(serviceType, filterSpec, result);
+        return DiscoveryRequest.NULL;
+    }
+
+    /**
+     * Describe how a discovery request for the given service type and filter would be answered.
+     *
+     * @param serviceType the service type (must not be {@code null})
+     * @param filterSpec the filter specification, or {@code null} to match all attributes
+     * @return the description of the plan (not {@code null})
+     * @see LocalRegistryAndDiscoveryProvider#explain(ServiceType, FilterSpec)
+     */
+    public String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        Assert.checkNotNullParam("serviceType", serviceType);
+        return table.explain(serviceType, filterSpec);
+    }
+
+    /**
+     * Get the address which replicas connect to.
+     *
+     * @return the local address, or {@code null} if this provider only replicates in-process
+     * @throws IOException if the address could not be determined
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return server == null ? null : (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Close this provider, disconnecting all replicas.  Once this method returns, the address is free to be bound
+     * again.
+     */
+    public void close() {
+        final ArrayList<Session> sessions;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sessions = new ArrayList<>(this.sessions);
+            this.sessions.clear();
+        }
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                log.tracef(e, "Failed to close %s", server);
+            }
+            // the socket is only released once the acceptor has left accept()
+            boolean intr = false;
+            for (;;) try {
+                acceptor.join();
+                break;
+            } catch (InterruptedException e) {
+                intr = true;
+            }
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Session session : sessions) {
+            session.channel.close();
+        }
+    }
+
+    /**
+     * Open an in-process channel to this provider.
+     *
+     * @return the replica end of the channel, which is not yet started
+     */
+    SyncChannel connectLocal() {
+        final PipeSyncChannel[] ends = PipeSyncChannel.pair();
+        new Session(ends[1]).start();
+        return ends[0];
+    }
+
+    void accept() {
+        try {
+            for (;;) {
+                final SocketChannel channel = server.accept();
+                channel.socket().setTcpNoDelay(true);
+                new Session(new SocketSyncChannel(channel)).start();
+            }
+        } catch (ClosedChannelException e) {
+            // done
+        } catch (IOException e) {
+            log.errorf(e, "Failed to accept replica connections on %s", server);
+        }
+    }
+
+    synchronized void put(final long id, final ServiceURL serviceURL) {
+        final SyncTable.Entry entry = new SyncTable.Entry(id, SyncTable.stamp(epoch, id, ++ version), serviceURL);
+        table.put(entry);
+        if (! sessions.isEmpty()) {
+            broadcast(SyncTable.frame(encoder, buffer -> {
+                buffer.put((byte) SyncTable.MSG_PUT);
+                SyncTable.writeEntry(buffer, encoder, entry);
+            }));
+        }
+    }
+
+    synchronized void remove(final long id) {
+        if (table.remove(id) != null && ! sessions.isEmpty()) {
+            broadcast(SyncTable.frame(encoder, buffer -> {
+                buffer.put((byte) SyncTable.MSG_REMOVE);
+                buffer.putLong(id);
+            }));
+        }
+    }
+
+    private void broadcast(final ByteBuffer frame) {
+        // a session which falls too far behind is closed, and so removed, while sending
+        for (Session session : sessions.toArray(new Session[sessions.size()])) {
+            session.channel.send(frame);
+        }
+    }
+
+    /**
+     * The leader side of the connection of one replica.
+     */
+    final class Session implements SyncChannel.Listener {
+        final SyncChannel channel;
+        // protected by ReplicatedRegistryProvider.this
+        private boolean gone;
+
+        Session(final SyncChannel channel) {
+            this.channel = channel;
+        }
+
+        void start() {
+            synchronized (ReplicatedRegistryProvider.this) {
+                if (closed) {
+                    channel.close();
+                    return;
+                }
+            }
+            channel.start(this);
+        }
+
+        public void received(final ByteBuffer frame) {
+            if (frame.get() != SyncTable.MSG_HELLO || frame.getInt() != SyncTable.BUCKETS) {
+                log.debugf("Unexpected frame from replica on %s", channel);
+                channel.close();
+                return;
+            }
+            synchronized (ReplicatedRegistryProvider.this) {
+                if (closed || gone || sessions.contains(this)) {
+                    return;
+                }
+                int buckets = 0;
+                int entries = 0;
+                for (int i = 0; i < SyncTable.BUCKETS; i ++) {
+                    if (frame.getLong() != table.hash(i)) {
+                        final int bucket = i;
+                        channel.send(SyncTable.frame(encoder, buffer -> {
+                            buffer.put((byte) SyncTable.MSG_BUCKET);
+                            buffer.putInt(bucket);
+                            buffer.putInt(table.bucket(bucket).size());
+                            for (SyncTable.Entry entry : table.bucket(bucket)) {
+                                SyncTable.writeEntry(buffer, encoder, entry);
+                            }
+                        }));
+                        buckets ++;
+                        entries += table.bucket(bucket).size();
+                    }
+                }
+                final ByteBuffer done = ByteBuffer.allocate(9);
+                done.put((byte) SyncTable.MSG_DONE).putInt(buckets).putInt(entries).flip();
+                channel.send(done);
+                // from now on, the replica is sent every change, unless it already fell behind
+                if (! gone) {
+                    sessions.add(this);
+                }
+            }
+        }
+
+        public void closed() {
+            synchronized (ReplicatedRegistryProvider.this) {
+                gone = true;
+                sessions.remove(this);
+            }
+        }
+    }
+
+    final class Handle implements ServiceRegistration {
+        final long id;
+        private final ServiceURL serviceURL;
+        // protected by ReplicatedRegistryProvider.this
+        private boolean closed;
+        private boolean active = true;
+
+        Handle(final long id, final ServiceURL serviceURL) {
+            this.id = id;
+            this.serviceURL = serviceURL;
+        }
+
+        public void close() {
+            synchronized (ReplicatedRegistryProvider.this) {
+                if (! closed) {
+                    closed = true;
+                    remove(id);
+                }
+            }
+        }
+
+        public void deactivate() {
+            synchronized (ReplicatedRegistryProvider.this) {
+                if (! closed && active) {
+                    active = false;
+                    remove(id);
+                }
+            }
+        }
+
+        public void activate() {
+            synchronized (ReplicatedRegistryProvider.this) {
+                if (! closed && ! active) {
+                    active = true;
+                    put(id, serviceURL);
+                }
+            }
+        }
+    }
+
+    /**
+     * A builder for replicated registry providers.
+     */
+    public static final class Builder {
+        private InetSocketAddress bindAddress;
+
+        /**
+         * Construct a new instance.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Set the address to accept replica connections on.  By default, replicas can only connect in-process.
+         *
+         * @param bindAddress the bind address, or {@code null} to accept no connections
+         * @return this builder
+         */
+        public Builder setBindAddress(InetSocketAddress bindAddress) {
+            this.bindAddress = bindAddress;
+            return this;
+        }
+
+        /**
+         * Create the provider.
+         *
+         * @return the provider (not {@code null})
+         * @throws IOException if the address could not be bound
+         */
+        public ReplicatedRegistryProvider create() throws IOException {
+            return new ReplicatedRegistryProvider(this);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A synchronization channel over a TCP connection.  Frames are prefixed with their length.  Each connection has a
+ * thread which reads and delivers frames, and one which writes the queued frames, so that senders never block on a
+ * slow peer.
+ */
+final class SocketSyncChannel implements SyncChannel {
+    private static final Logger log = Logger.getLogger("org.wildfly.discovery");
+
+    static final int MAX_FRAME_SIZE = 1 << 24;
+
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final SocketChannel channel;
+    private final LinkedBlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>(SyncTable.MAX_QUEUED_FRAMES);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Listener listener;
+
+    SocketSyncChannel(final SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    static SocketSyncChannel connect(final InetSocketAddress address) throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        try {
+            channel.connect(address);
+            channel.socket().setTcpNoDelay(true);
+        } catch (Throwable t) {
+            channel.close();
+            throw t;
+        }
+        return new SocketSyncChannel(channel);
+    }
+
+    public void start(final Listener listener) {
+        this.listener = listener;
+        final int id = threadCount.incrementAndGet();
+        final Thread reader = new Thread(this::read, "discovery-sync-reader-" + id);
+        final Thread writer = new Thread(this::write, "discovery-sync-writer-" + id);
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+    }
+
+    public void send(final ByteBuffer frame) {
+        if (! closed.get() && ! queue.offer(frame)) {
+            log.debugf("Too many frames queued for %s; closing", channel);
+            close();
+        }
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // if the queue is full, the writer sees that the channel is closed on taking the next frame
+            queue.offer(CLOSE);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.tracef(e, "Failed to close %s", channel);
+            }
+            final Listener listener = this.listener;
+            if (listener != null) {
+                listener.closed();
+            }
+        }
+    }
+
+    void read() {
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            for (;;) {
+                header.clear();
+                readFully(header);
+                final int size = header.getInt(0);
+                if (size < 0 || size > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame size " + size);
+                }
+                final ByteBuffer frame = ByteBuffer.allocate(size);
+                readFully(frame);
+                frame.flip();
+                listener.received(frame);
+            }
+        } catch (IOException e) {
+            if (! closed.get()) {
+                log.debugf(e, "Synchronization connection %s failed", channel);
+            }
+        } catch (RuntimeException e) {
+            log.debugf(e, "Invalid frame received on %s", channel);
+        } finally {
+            close();
+        }
+    }
+
+    void write() {
+        final ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            for (;;) {
+                final ByteBuffer frame = queue.take();
+                if (frame == CLOSE || closed.get()) {
+                    return;
+                }
+                header.clear();
+                header.putInt(frame.remaining()).flip();
+                final ByteBuffer[] buffers = { header, frame.duplicate() };
+                while (buffers[1].hasRemaining() || header.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+        } catch (IOException e) {
+            if (! closed.get()) {
+                log.debugf(e, "Synchronization connection %s failed", channel);
+            }
+            close();
+        } catch (InterruptedException e) {
+            close();
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException();
+            }
+        }
+    }
+}
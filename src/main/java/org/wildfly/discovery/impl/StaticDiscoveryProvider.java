@@ -18,6 +18,7 @@
 
 package org.wildfly.discovery.impl;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.wildfly.discovery.FilterSpec;
@@ -47,11 +48,19 @@ public final class StaticDiscoveryProvider implements DiscoveryProvider {
     @Override
     public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
         try {
+            final int limit = result.getRemainingLimit();
+            final ArrayList<ServiceURL> matches = new ArrayList<>();
             for (ServiceURL service : services) {
+                if (matches.size() == limit) {
+                    break;
+                }
                 if (serviceType.implies(service) && (filterSpec == null || service.satisfies(filterSpec))) {
-                    result.addMatch(service);
+                    matches.add(service);
                 }
             }
+            if (! matches.isEmpty()) {
+                result.addMatches(matches);
+            }
             return DiscoveryRequest.NULL;
         } finally {
             result.complete();
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A connection which carries the frames of the registry synchronization protocol.  Frames are delivered in order, on a
+ * thread of the channel.
+ */
+interface SyncChannel {
+
+    /**
+     * Start delivering the frames which are received to the given listener.
+     *
+     * @param listener the listener
+     */
+    void start(Listener listener);
+
+    /**
+     * Queue a frame to be sent.  The frame is sent from the position to the limit of the buffer, and the buffer must
+     * not be modified afterwards.  If the peer has fallen so far behind that {@link SyncTable#MAX_QUEUED_FRAMES} frames
+     * are already queued for it, the channel is closed instead; a replica catches up again when it reconnects.
+     *
+     * @param frame the frame
+     */
+    void send(ByteBuffer frame);
+
+    /**
+     * Close the channel.  The listener is told, unless the channel was closed already or was never started.
+     */
+    void close();
+
+    /**
+     * The receiving side of a channel.
+     */
+    interface Listener {
+
+        /**
+         * Handle a frame.
+         *
+         * @param frame the frame
+         */
+        void received(ByteBuffer frame);
+
+        /**
+         * Handle the closing of the channel, for whatever reason.
+         */
+        void closed();
+    }
+}
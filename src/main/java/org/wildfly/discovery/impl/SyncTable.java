@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wildfly.discovery.DiscoveryCodec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * The replicated state of the registry synchronization protocol, which is shared by the leader and its replicas.
+ * <p>
+ * Every registration has an id and a stamp, which is a hash of the id and the version of the registration, and
+ * changes whenever the registration does.  The registrations are spread over a fixed number of buckets by id, and each
+ * bucket has a hash which is the exclusive or of the stamps in it.  This is a Merkle tree of a single level: a replica
+ * which reconnects sends the hashes of its buckets, and the leader sends back the contents of just the buckets which
+ * differ, so catching up costs in proportion to the changes which were missed rather than to the size of the registry.
+ * Changes made while a replica is connected are sent to it one by one.
+ * <p>
+ * Frames of the protocol:
+ * <ul>
+ *     <li>{@code HELLO} (replica to leader): the bucket count and the hash of each bucket</li>
+ *     <li>{@code BUCKET}: a bucket index and all the registrations in the bucket, which replace the ones the replica
+ *     has</li>
+ *     <li>{@code DONE}: the number of buckets and registrations sent; the replica is now synchronized</li>
+ *     <li>{@code PUT}: a registration which was added or changed</li>
+ *     <li>{@code REMOVE}: the id of a registration which was removed</li>
+ * </ul>
+ * This class is not thread safe, except for {@link #find} and {@link #explain}.
+ */
+final class SyncTable {
+    static final int BUCKETS = 1024;
+    // the most frames a channel queues for a peer before giving up on it; enough for a full resynchronization
+    static final int MAX_QUEUED_FRAMES = BUCKETS * 4;
+
+    static final int MSG_HELLO = 1;
+    static final int MSG_BUCKET = 2;
+    static final int MSG_DONE = 3;
+    static final int MSG_PUT = 4;
+    static final int MSG_REMOVE = 5;
+
+    private final RegistryIndex<Entry> index = new RegistryIndex<>();
+    @SuppressWarnings("unchecked")
+    private final Map<Long, Entry>[] buckets = new Map[BUCKETS];
+    private final long[] hashes = new long[BUCKETS];
+
+    SyncTable() {
+        for (int i = 0; i < BUCKETS; i ++) {
+            buckets[i] = new HashMap<>();
+        }
+    }
+
+    static int bucketOf(final long id) {
+        return (int) mix(id) & BUCKETS - 1;
+    }
+
+    static long stamp(final long epoch, final long id, final long version) {
+        return mix(mix(epoch ^ id) + version);
+    }
+
+    private static long mix(long z) {
+        // the finalizer of SplitMix64
+        z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+
+    void put(final Entry entry) {
+        remove(entry.id);
+        final int bucket = bucketOf(entry.id);
+        buckets[bucket].put(Long.valueOf(entry.id), entry);
+        hashes[bucket] ^= entry.stamp;
+        entry.slot = index.add(entry.serviceURL, entry);
+    }
+
+    Entry remove(final long id) {
+        final int bucket = bucketOf(id);
+        final Entry entry = buckets[bucket].remove(Long.valueOf(id));
+        if (entry != null) {
+            hashes[bucket] ^= entry.stamp;
+            index.remove(entry.slot, entry);
+        }
+        return entry;
+    }
+
+    void replaceBucket(final int bucket, final List<Entry> entries) {
+        for (Entry entry : buckets[bucket].values()) {
+            index.remove(entry.slot, entry);
+        }
+        buckets[bucket].clear();
+        hashes[bucket] = 0;
+        for (Entry entry : entries) {
+            put(entry);
+        }
+    }
+
+    Collection<Entry> bucket(final int bucket) {
+        return buckets[bucket].values();
+    }
+
+    long hash(final int bucket) {
+        return hashes[bucket];
+    }
+
+    void find(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        index.find(serviceType, filterSpec, entry -> true, entries, result.getRemainingLimit());
+        if (! entries.isEmpty()) {
+            final ArrayList<ServiceURL> matches = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                matches.add(entry.serviceURL);
+            }
+            result.addMatches(matches);
+        }
+        result.complete();
+    }
+
+    String explain(final ServiceType serviceType, final FilterSpec filterSpec) {
+        return index.explain(serviceType, filterSpec);
+    }
+
+    // frames
+
+    static ByteBuffer frame(final DiscoveryCodec.Encoder encoder, final FrameWriter writer) {
+        for (int size = 4096;; size <<= 1) {
+            final ByteBuffer buffer = ByteBuffer.allocate(size);
+            encoder.reset();
+            try {
+                writer.write(buffer);
+            } catch (BufferOverflowException e) {
+                if (size >= SocketSyncChannel.MAX_FRAME_SIZE) {
+                    throw e;
+                }
+                continue;
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    static void writeEntry(final ByteBuffer buffer, final DiscoveryCodec.Encoder encoder, final Entry entry) {
+        buffer.putLong(entry.id);
+        buffer.putLong(entry.stamp);
+        encoder.writeServiceURL(buffer, entry.serviceURL);
+    }
+
+    static Entry readEntry(final ByteBuffer buffer, final DiscoveryCodec.Decoder decoder) {
+        final long id = buffer.getLong();
+        final long stamp = buffer.getLong();
+        return new Entry(id, stamp, decoder.readServiceURL(buffer));
+    }
+
+    interface FrameWriter {
+        void write(ByteBuffer buffer);
+    }
+
+    static final class Entry {
+        final long id;
+        final long stamp;
+        final ServiceURL serviceURL;
+        int slot;
+
+        Entry(final long id, final long stamp, final ServiceURL serviceURL) {
+            this.id = id;
+            this.stamp = stamp;
+            this.serviceURL = serviceURL;
+        }
+    }
+}
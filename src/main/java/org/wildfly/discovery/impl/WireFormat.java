@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.impl;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.wildfly.discovery.ServiceType;
+
+/**
+ * Encoding of the parts of network messages which {@link org.wildfly.discovery.DiscoveryCodec} does not cover.  Strings
+ * are written as a signed 16-bit length followed by UTF-8 bytes, with a length of -1 for {@code null}.
+ */
+final class WireFormat {
+
+    private WireFormat() {
+    }
+
+    static void writeString(final ByteBuffer buffer, final String string) {
+        if (string == null) {
+            buffer.putShort((short) -1);
+        } else {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new BufferOverflowException();
+            }
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getShort();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeServiceType(final ByteBuffer buffer, final ServiceType serviceType) {
+        writeString(buffer, serviceType.getAbstractType());
+        writeString(buffer, serviceType.getAbstractTypeAuthority());
+        writeString(buffer, serviceType.getUriScheme());
+        writeString(buffer, serviceType.getUriSchemeAuthority());
+    }
+
+    static ServiceType readServiceType(final ByteBuffer buffer) {
+        final String abstractType = readString(buffer);
+        final String abstractTypeAuthority = readString(buffer);
+        final String uriScheme = readString(buffer);
+        final String uriSchemeAuthority = readString(buffer);
+        if (abstractType == null) {
+            throw new IllegalArgumentException("Missing abstract type");
+        }
+        return uriScheme == null ? ServiceType.of(abstractType, abstractTypeAuthority) : ServiceType.of(abstractType, abstractTypeAuthority, uriScheme, uriSchemeAuthority);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.wildfly.common.Assert;
 import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.DiscoveryRequestOptions;
 import org.wildfly.discovery.FilterSpec;
 import org.wildfly.discovery.ServiceType;
 import org.wildfly.discovery.ServiceURL;
@@ -50,42 +51,82 @@ public interface BlockingDiscoveryProvider {
      */
     void discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryResult result) throws InterruptedException;
 
+    /**
+     * Attempt to discover implementations of a service synchronously, within the bounds of the given request options.
+     * The default implementation ignores the options and calls {@link #discover(ServiceType, FilterSpec, DiscoveryResult)}.
+     *
+     * @param serviceType the service type to match
+     * @param filterSpec the service attribute filter expression, or {@code null} to return all matches
+     * @param result the discovery result
+     * @param options the request options (not {@code null})
+     * @throws InterruptedException if discovery was interrupted for some reason
+     */
+    default void discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryResult result, DiscoveryRequestOptions options) throws InterruptedException {
+        discover(serviceType, filterSpec, result);
+    }
+
     /**
      * Convert this provider to a non-blocking provider which uses the given thread pool to dispatch discovery
      * requests.  If the task is rejected by the executor, then discovery is immediately terminated.  The task thread
-     * is interrupted if discovery is to be cancelled.
+     * is interrupted if discovery is to be cancelled.  If the deadline of the request has passed by the time the task
+     * runs, discovery is terminated without calling this provider.
      *
      * @param executor the executor to use for task dispatch (must not be {@code null})
      * @return the provider (not {@code null})
      */
     default DiscoveryProvider toDiscoveryProvider(Executor executor) {
         Assert.checkNotNullParam("executor", executor);
-        return (serviceType, filterSpec, result) -> {
-            AtomicReference<Object> threadRef = new AtomicReference<>();
-            try {
-                executor.execute(() -> {
-                    try {
-                        final Thread currentThread = Thread.currentThread();
-                        if (threadRef.compareAndSet(null, currentThread)) try {
-                            BlockingDiscoveryProvider.this.discover(serviceType, filterSpec, result);
-                        } catch (InterruptedException e) {
-                            currentThread.interrupt();
+        return new DiscoveryProvider() {
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+                return discover(serviceType, filterSpec, result, DiscoveryRequestOptions.DEFAULT);
+            }
+
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+                AtomicReference<Object> threadRef = new AtomicReference<>();
+                final BlockingDiscoveryQueuedEvent event = JfrSupport.AVAILABLE && BlockingDiscoveryQueuedEvent.isTypeEnabled() ? new BlockingDiscoveryQueuedEvent() : null;
+                if (event != null) event.begin();
+                // the task must not capture the event itself, or linking it would need jdk.jfr even when it is absent
+                final Runnable dequeued = event == null ? null : () -> event.end(serviceType, BlockingDiscoveryProvider.this, false);
+                try {
+                    executor.execute(() -> {
+                        if (dequeued != null) dequeued.run();
+                        try {
+                            final Thread currentThread = Thread.currentThread();
+                            if (! options.isExpired() && threadRef.compareAndSet(null, currentThread)) {
+                                boolean interrupted = false;
+                                try {
+                                    BlockingDiscoveryProvider.this.discover(serviceType, filterSpec, result, options);
+                                } catch (InterruptedException e) {
+                                    interrupted = true;
+                                } finally {
+                                    synchronized (threadRef) {
+                                        if (threadRef.compareAndSet(currentThread, null)) {
+                                            if (interrupted) currentThread.interrupt();
+                                        } else {
+                                            // cancelled; the interrupt was ours, so it must not leak into the next task of the pool
+                                            Thread.interrupted();
+                                        }
+                                    }
+                                }
+                            }
                         } finally {
-                            threadRef.set(null);
+                            result.complete();
+                        }
+                    });
+                } catch (Throwable t) {
+                    if (event != null) event.end(serviceType, BlockingDiscoveryProvider.this, true);
+                    result.complete();
+                }
+                return () -> {
+                    // interrupt under the lock, so that the task cannot finish and move on in between
+                    synchronized (threadRef) {
+                        final Object val = threadRef.getAndSet("sentinel");
+                        if (val instanceof Thread) {
+                            ((Thread)val).interrupt();
                         }
-                    } finally {
-                        result.complete();
                     }
-                });
-            } catch (Throwable t) {
-                result.complete();
+                };
             }
-            return () -> {
-                final Object val = threadRef.getAndSet("sentinel");
-                if (val instanceof Thread) {
-                    ((Thread)val).interrupt();
-                }
-            };
         };
     }
 }
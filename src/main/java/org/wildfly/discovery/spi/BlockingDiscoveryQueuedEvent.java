@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.spi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event covering the time a blocking discovery task waited for its executor.
+ */
+@Name("org.wildfly.discovery.BlockingDiscoveryQueued")
+@Label("Blocking Discovery Queued")
+@Category({ "WildFly", "Discovery" })
+@Description("The delay between submitting a blocking discovery task and the task starting to run")
+@Enabled(false)
+@StackTrace(false)
+final class BlockingDiscoveryQueuedEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(BlockingDiscoveryQueuedEvent.class);
+
+    @Label("Service Type")
+    String serviceType;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Rejected")
+    boolean rejected;
+
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    void end(final Object serviceType, final Object provider, final boolean rejected) {
+        end();
+        if (shouldCommit()) {
+            this.serviceType = String.valueOf(serviceType);
+            this.provider = provider.getClass().getName();
+            this.rejected = rejected;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.spi;
+
+/**
+ * A sink for discovery metrics.  Metrics are recorded separately for each discovery provider by way of the
+ * {@link Recorder} returned for that provider.  Implementations can forward the metrics to any metrics library;
+ * recorder methods are called on the discovery path, so they should not block or allocate.
+ */
+public interface DiscoveryMetrics {
+
+    /**
+     * Get the recorder for the given discovery provider.  This method is called once per provider, when the provider
+     * is first metered.
+     *
+     * @param provider the discovery provider (not {@code null})
+     * @return the recorder for the provider (must not be {@code null})
+     */
+    Recorder recorderFor(DiscoveryProvider provider);
+
+    /**
+     * A recorder of the metrics of one discovery provider.  All methods have empty default implementations.
+     */
+    interface Recorder {
+
+        /**
+         * Record that a discovery was started.
+         */
+        default void discoveryStarted() {
+        }
+
+        /**
+         * Record the first match of a discovery.
+         *
+         * @param nanos the time from the start of the discovery until the first match, in nanoseconds
+         */
+        default void firstMatch(long nanos) {
+        }
+
+        /**
+         * Record that a problem was reported during a discovery.
+         */
+        default void problemReported() {
+        }
+
+        /**
+         * Record that a discovery was cancelled before it completed.
+         */
+        default void discoveryCancelled() {
+        }
+
+        /**
+         * Record that a discovery was completed.
+         *
+         * @param nanos the time from the start of the discovery until its completion, in nanoseconds
+         * @param matches the number of matches of the discovery
+         */
+        default void discoveryCompleted(long nanos, int matches) {
+        }
+
+        /**
+         * A recorder which discards all metrics.
+         */
+        Recorder NONE = new Recorder() {};
+    }
+
+    /**
+     * A metrics sink which discards all metrics.
+     */
+    DiscoveryMetrics NONE = provider -> Recorder.NONE;
+}
@@ -18,11 +18,14 @@
 
 package org.wildfly.discovery.spi;
 
+import org.wildfly.discovery.DiscoveryRequestOptions;
 import org.wildfly.discovery.FilterSpec;
 import org.wildfly.discovery.ServiceType;
 import org.wildfly.discovery.ServiceURL;
 
 import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A discovery provider.  This interface is implemented by all discovery provider implementations.
@@ -48,6 +51,36 @@ public interface DiscoveryProvider {
      */
     DiscoveryRequest discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryResult result);
 
+    /**
+     * Attempt to discover implementations of a service, within the bounds of the given request options.  Providers
+     * may use the options to bound their own work, for example by not starting work after the deadline has passed.
+     * Providers which delegate to other providers should pass the options on.  The default implementation ignores
+     * the options and calls {@link #discover(ServiceType, FilterSpec, DiscoveryResult)}.
+     *
+     * @param serviceType the service type to match
+     * @param filterSpec the service attribute filter expression, or {@code null} to return all matches
+     * @param result the discovery result
+     * @param options the request options (not {@code null})
+     * @return the discovery request
+     */
+    default DiscoveryRequest discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryResult result, DiscoveryRequestOptions options) {
+        return discover(serviceType, filterSpec, result);
+    }
+
+    /**
+     * Get the filter operations which this provider evaluates itself.  When a filter uses other operations, the
+     * provider is only given the part of the filter which it supports (or {@code null} if there is none), and its
+     * matches are checked against the rest of the filter locally; see {@link FilterSplit}.  Providers which fetch
+     * service URLs from a backend with a limited query language should declare what the backend can evaluate, so that
+     * as little as possible is transferred.  The default implementation returns
+     * {@link FilterOperation#ALL_OPERATIONS}.
+     *
+     * @return the supported operations (not {@code null})
+     */
+    default Set<FilterOperation> getSupportedFilterOperations() {
+        return FilterOperation.ALL_OPERATIONS;
+    }
+
     /**
      * This method is invoked on provider if the invocation using discovered URI was not successful. This method is
      * supposed to be used by lazy discovery algorithms. By default, it is set to empty method so it could be skipped
@@ -58,6 +91,17 @@ public interface DiscoveryProvider {
     default void processMissingTarget(URI location, Exception cause) {
     }
 
+    /**
+     * This method is invoked on provider if an invocation using discovered URI was successful.  It is the counterpart
+     * of {@link #processMissingTarget(URI, Exception)}, and by default it does nothing.
+     *
+     * @param location location on which the invocation succeeded
+     * @param latency the time taken to connect to the location
+     * @param unit the unit of the latency
+     */
+    default void processSuccessfulTarget(URI location, long latency, TimeUnit unit) {
+    }
+
     /**
      * The empty discovery provider.
      */
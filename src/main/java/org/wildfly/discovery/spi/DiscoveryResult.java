@@ -19,6 +19,7 @@
 package org.wildfly.discovery.spi;
 
 import java.net.URI;
+import java.util.Collection;
 
 import org.wildfly.discovery.ServiceURL;
 
@@ -59,4 +60,28 @@ public interface DiscoveryResult {
      * @param serviceURL the discovered service URL
      */
     void addMatch(ServiceURL serviceURL);
+
+    /**
+     * Indicate that several matching service URLs were discovered.  Implementations may deliver the batch at once,
+     * which is considerably cheaper than delivering each match separately.  The default implementation calls
+     * {@link #addMatch(ServiceURL)} for each service URL.
+     *
+     * @param serviceURLs the discovered service URLs (must not be {@code null})
+     */
+    default void addMatches(Collection<ServiceURL> serviceURLs) {
+        for (ServiceURL serviceURL : serviceURLs) {
+            addMatch(serviceURL);
+        }
+    }
+
+    /**
+     * Get the number of further matches which are wanted.  Providers may stop searching once they have added this many
+     * matches, and should not search at all if it is zero.  Matches beyond the limit are ignored.  The default
+     * implementation returns {@link Integer#MAX_VALUE}, meaning that there is no limit.
+     *
+     * @return the number of further matches which are wanted
+     */
+    default int getRemainingLimit() {
+        return Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.spi;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.wildfly.discovery.FilterSpec;
+
+/**
+ * An operation of a {@link FilterSpec} which a discovery provider may or may not be able to evaluate itself.  The
+ * constant filters {@link FilterSpec#all()} and {@link FilterSpec#none()} are always supported.
+ *
+ * @see DiscoveryProvider#getSupportedFilterOperations()
+ */
+public enum FilterOperation {
+    /**
+     * Attribute equality, as in {@link FilterSpec#equal(String, String)}.
+     */
+    EQUAL,
+    /**
+     * Attribute comparison, as in {@link FilterSpec#greaterOrEqual(String, String)}.
+     */
+    GREATER_OR_EQUAL,
+    /**
+     * Attribute comparison, as in {@link FilterSpec#lessOrEqual(String, String)}.
+     */
+    LESS_OR_EQUAL,
+    /**
+     * Attribute prefix and suffix matching, as in {@link FilterSpec#substringMatch(String, String, String)}.
+     */
+    SUBSTRING_MATCH,
+    /**
+     * Attribute presence, as in {@link FilterSpec#hasAttribute(String)}.
+     */
+    HAS_ATTRIBUTE,
+    /**
+     * Negation, as in {@link FilterSpec#not(FilterSpec)}.
+     */
+    NOT,
+    /**
+     * Conjunction, as in {@link FilterSpec#all(FilterSpec...)}.
+     */
+    ALL,
+    /**
+     * Disjunction, as in {@link FilterSpec#any(FilterSpec...)}.
+     */
+    ANY,
+    ;
+
+    /**
+     * The set of all operations.
+     */
+    public static final Set<FilterOperation> ALL_OPERATIONS = Collections.unmodifiableSet(EnumSet.allOf(FilterOperation.class));
+}
@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery.spi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.wildfly.common.Assert;
+import org.wildfly.discovery.AllFilterSpec;
+import org.wildfly.discovery.AnyFilterSpec;
+import org.wildfly.discovery.BooleanFilterSpec;
+import org.wildfly.discovery.DiscoveryRequestOptions;
+import org.wildfly.discovery.EqualsFilterSpec;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.GreaterEqualFilterSpec;
+import org.wildfly.discovery.HasFilterSpec;
+import org.wildfly.discovery.LessEqualFilterSpec;
+import org.wildfly.discovery.NotFilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.SubstringFilterSpec;
+
+/**
+ * A filter split into the part which a provider evaluates itself and the residual part which is evaluated locally.
+ * The pushed-down part matches at least every service URL that the whole filter matches, and the residual part is
+ * checked against each match of the provider, so that together they are equivalent to the whole filter.
+ *
+ * @see DiscoveryProvider#getSupportedFilterOperations()
+ */
+public final class FilterSplit {
+    private static final Supported SUPPORTED = new Supported();
+
+    private final FilterSpec pushed;
+    private final FilterSpec residual;
+
+    private FilterSplit(final FilterSpec pushed, final FilterSpec residual) {
+        this.pushed = pushed;
+        this.residual = residual;
+    }
+
+    /**
+     * Split a filter for a provider which supports the given operations.
+     *
+     * @param filterSpec the filter, or {@code null} to match all attributes
+     * @param supported the operations which the provider supports (must not be {@code null})
+     * @return the split filter (not {@code null})
+     */
+    public static FilterSplit of(FilterSpec filterSpec, Set<FilterOperation> supported) {
+        Assert.checkNotNullParam("supported", supported);
+        if (filterSpec == null || supported.containsAll(FilterOperation.ALL_OPERATIONS) || filterSpec.accept(SUPPORTED, supported).booleanValue()) {
+            return new FilterSplit(filterSpec, null);
+        }
+        // pushing negations down and flattening junctions leaves more of the filter which can be pushed down
+        final FilterSpec simplified = filterSpec.simplify();
+        if (simplified.accept(SUPPORTED, supported).booleanValue()) {
+            return new FilterSplit(simplified, null);
+        }
+        if (simplified instanceof AllFilterSpec && supported.contains(FilterOperation.ALL)) {
+            final List<FilterSpec> pushed = new ArrayList<>();
+            final List<FilterSpec> residual = new ArrayList<>();
+            for (FilterSpec child : (AllFilterSpec) simplified) {
+                if (child.accept(SUPPORTED, supported).booleanValue()) {
+                    pushed.add(child);
+                } else {
+                    final FilterSpec weaker = weaken(child, supported);
+                    if (weaker != FilterSpec.all()) {
+                        pushed.add(weaker);
+                    }
+                    residual.add(child);
+                }
+            }
+            return new FilterSplit(conjunction(pushed), conjunction(residual));
+        }
+        return new FilterSplit(weaken(simplified, supported), simplified);
+    }
+
+    /**
+     * Get the part of the filter which the provider evaluates itself.
+     *
+     * @return the pushed-down filter, or {@code null} if the provider should return all matches of the service type
+     */
+    public FilterSpec getPushed() {
+        return pushed == FilterSpec.all() ? null : pushed;
+    }
+
+    /**
+     * Get the part of the filter which is evaluated locally.
+     *
+     * @return the residual filter, or {@code null} if the provider evaluates the whole filter
+     */
+    public FilterSpec getResidual() {
+        return residual;
+    }
+
+    /**
+     * Run a discovery on a provider, pushing down the supported part of the filter and checking the residual part
+     * against the matches.  When there is a residual part, the provider is not given a limit, since some of its
+     * matches may be dropped; the limit of the {@code result} still applies.
+     *
+     * @param provider the provider (must not be {@code null})
+     * @param serviceType the service type to match
+     * @param result the discovery result
+     * @param options the request options (must not be {@code null})
+     * @return the discovery request
+     */
+    public DiscoveryRequest discover(DiscoveryProvider provider, ServiceType serviceType, DiscoveryResult result, DiscoveryRequestOptions options) {
+        Assert.checkNotNullParam("provider", provider);
+        Assert.checkNotNullParam("options", options);
+        if (pushed == FilterSpec.none()) {
+            // the filter can never match
+            result.complete();
+            return DiscoveryRequest.NULL;
+        }
+        if (residual == null) {
+            return provider.discover(serviceType, pushed, result, options);
+        }
+        final DiscoveryRequestOptions unlimited = options.getLimit() == Integer.MAX_VALUE ? options : new DiscoveryRequestOptions.Builder(options).setLimit(Integer.MAX_VALUE).create();
+        return provider.discover(serviceType, getPushed(), new ResidualDiscoveryResult(result, residual), unlimited);
+    }
+
+    public String toString() {
+        return "pushed " + pushed + ", residual " + residual;
+    }
+
+    /**
+     * Get the weakest filter using only the supported operations which matches at least everything that the given
+     * filter matches.
+     */
+    private static FilterSpec weaken(final FilterSpec filterSpec, final Set<FilterOperation> supported) {
+        if (filterSpec.accept(SUPPORTED, supported).booleanValue()) {
+            return filterSpec;
+        }
+        if (filterSpec instanceof AllFilterSpec) {
+            final List<FilterSpec> list = new ArrayList<>();
+            for (FilterSpec child : (AllFilterSpec) filterSpec) {
+                final FilterSpec weaker = weaken(child, supported);
+                if (weaker != FilterSpec.all()) {
+                    list.add(weaker);
+                }
+            }
+            if (supported.contains(FilterOperation.ALL)) {
+                return conjunction(list);
+            }
+            // any one of the children will do
+            return list.isEmpty() ? FilterSpec.all() : list.get(0);
+        }
+        if (filterSpec instanceof AnyFilterSpec && supported.contains(FilterOperation.ANY)) {
+            final List<FilterSpec> list = new ArrayList<>();
+            for (FilterSpec child : (AnyFilterSpec) filterSpec) {
+                final FilterSpec weaker = weaken(child, supported);
+                if (weaker == FilterSpec.all()) {
+                    return weaker;
+                }
+                list.add(weaker);
+            }
+            return FilterSpec.any(list);
+        }
+        // the complement of a weaker filter would be stronger, so negations cannot be weakened
+        return FilterSpec.all();
+    }
+
+    private static FilterSpec conjunction(final Collection<FilterSpec> list) {
+        return list.size() == 1 ? list.iterator().next() : FilterSpec.all(list);
+    }
+
+    static final class Supported implements FilterSpec.Visitor<Set<FilterOperation>, Boolean, RuntimeException> {
+        public Boolean handle(final FilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.FALSE;
+        }
+
+        public Boolean handle(final EqualsFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.EQUAL));
+        }
+
+        public Boolean handle(final GreaterEqualFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.GREATER_OR_EQUAL));
+        }
+
+        public Boolean handle(final LessEqualFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.LESS_OR_EQUAL));
+        }
+
+        public Boolean handle(final SubstringFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.SUBSTRING_MATCH));
+        }
+
+        public Boolean handle(final HasFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.HAS_ATTRIBUTE));
+        }
+
+        public Boolean handle(final BooleanFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.TRUE;
+        }
+
+        public Boolean handle(final NotFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return Boolean.valueOf(supported.contains(FilterOperation.NOT) && filterSpec.getChild().accept(this, supported).booleanValue());
+        }
+
+        public Boolean handle(final AllFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return junction(filterSpec, FilterOperation.ALL, supported);
+        }
+
+        public Boolean handle(final AnyFilterSpec filterSpec, final Set<FilterOperation> supported) {
+            return junction(filterSpec, FilterOperation.ANY, supported);
+        }
+
+        private Boolean junction(final Iterable<FilterSpec> children, final FilterOperation operation, final Set<FilterOperation> supported) {
+            if (! supported.contains(operation)) {
+                return Boolean.FALSE;
+            }
+            for (FilterSpec child : children) {
+                if (! child.accept(this, supported).booleanValue()) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    }
+
+    static final class ResidualDiscoveryResult implements DiscoveryResult {
+        private final DiscoveryResult delegate;
+        private final FilterSpec residual;
+
+        ResidualDiscoveryResult(final DiscoveryResult delegate, final FilterSpec residual) {
+            this.delegate = delegate;
+            this.residual = residual;
+        }
+
+        public void complete() {
+            delegate.complete();
+        }
+
+        public void reportProblem(final Throwable description) {
+            delegate.reportProblem(description);
+        }
+
+        public void addMatch(final ServiceURL serviceURL) {
+            if (serviceURL != null && serviceURL.satisfies(residual)) {
+                delegate.addMatch(serviceURL);
+            }
+        }
+
+        public void addMatches(final Collection<ServiceURL> serviceURLs) {
+            final ArrayList<ServiceURL> kept = new ArrayList<>(serviceURLs.size());
+            for (ServiceURL serviceURL : serviceURLs) {
+                if (serviceURL != null && serviceURL.satisfies(residual)) {
+                    kept.add(serviceURL);
+                }
+            }
+            if (! kept.isEmpty()) {
+                delegate.addMatches(kept);
+            }
+        }
+
+        public int getRemainingLimit() {
+            // the provider cannot know how many of its matches will be kept
+            return delegate.getRemainingLimit() == 0 ? 0 : Integer.MAX_VALUE;
+        }
+    }
+}
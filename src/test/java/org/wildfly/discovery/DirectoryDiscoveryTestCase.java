@@ -0,0 +1,157 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.discovery.impl.DirectoryDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the directory discovery provider.
+ */
+public final class DirectoryDiscoveryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        // enough files to be loaded in parallel
+        for (int i = 0; i < 100; i ++) {
+            if (i % 2 == 0) {
+                write(directory, "node" + i + ".properties", properties(i));
+            } else {
+                write(directory, "node" + i + ".url", "# written by the orchestrator\n" + slp(i) + "\n");
+            }
+        }
+        write(directory, "broken.properties", "abstract-type=ejb\n");
+        write(directory, "broken.url", "not a service URL\n");
+        write(directory, ".hidden", slp(100));
+        try (DirectoryDiscoveryProvider provider = new DirectoryDiscoveryProvider.Builder().setDirectory(directory).setLoadParallelism(4).create()) {
+            final Set<ServiceURL> expected = new HashSet<>();
+            for (int i = 0; i < 100; i ++) {
+                expected.add(serviceURL(i));
+            }
+            assertEquals(expected, discover(provider, null));
+            assertEquals(10, discover(provider, FilterSpec.equal("group", "3")).size());
+            assertEquals(100, discover(provider, FilterSpec.hasAttribute("ssl")).size());
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        write(directory, "node0.url", slp(0));
+        try (DirectoryDiscoveryProvider provider = new DirectoryDiscoveryProvider.Builder()
+            .setDirectory(directory)
+            .setDebounceDelay(20, TimeUnit.MILLISECONDS)
+            .create()) {
+            assertEquals(1, discover(provider, null).size());
+
+            // written in place, and moved into place
+            write(directory, "node1.properties", properties(1));
+            write(directory, "node2.url.tmp", slp(2));
+            Files.move(directory.resolve("node2.url.tmp"), directory.resolve("node2.url"), StandardCopyOption.ATOMIC_MOVE);
+            awaitServices(provider, serviceURL(0), serviceURL(1), serviceURL(2));
+
+            // a burst of changes to the same file
+            for (int i = 3; i < 10; i ++) {
+                write(directory, "node1.properties", properties(i));
+            }
+            Files.delete(directory.resolve("node0.url"));
+            awaitServices(provider, serviceURL(9), serviceURL(2));
+
+            // a file which becomes invalid is dropped
+            write(directory, "node2.url", "garbage");
+            awaitServices(provider, serviceURL(9));
+        }
+    }
+
+    private static void awaitServices(DiscoveryProvider provider, ServiceURL... serviceURLs) throws InterruptedException {
+        final Set<ServiceURL> expected = new HashSet<>();
+        for (ServiceURL serviceURL : serviceURLs) {
+            expected.add(serviceURL);
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Set<ServiceURL> actual;
+        while (! expected.equals(actual = discover(provider, null))) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Expected " + expected + " but got " + actual);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static void write(Path directory, String name, String content) throws Exception {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String properties(int instance) {
+        return "uri=remote+http://node" + instance + ":8080\n"
+            + "abstract-type=ejb\n"
+            + "abstract-type-authority=jboss\n"
+            + "attribute.group=" + instance % 10 + "\n"
+            + "attribute.tags=a,b\n"
+            + "attribute.ssl=\n";
+    }
+
+    private static String slp(int instance) {
+        return "service:ejb.jboss:remote+http://node" + instance + ":8080;group=" + instance % 10 + ";tags=a,b;ssl";
+    }
+
+    private static ServiceURL serviceURL(int instance) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + instance + ":8080"))
+            .addAttribute("group", AttributeValue.fromString(String.valueOf(instance % 10)))
+            .addAttribute("tags", AttributeValue.fromString("a"))
+            .addAttribute("tags", AttributeValue.fromString("b"))
+            .addAttribute("ssl")
+            .create();
+    }
+}
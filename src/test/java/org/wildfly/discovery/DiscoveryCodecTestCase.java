@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the binary discovery codec.
+ */
+public final class DiscoveryCodecTestCase {
+
+    @Test
+    public void testServiceURLRoundTrip() {
+        final ServiceURL serviceURL = new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node1.example.com:8080"))
+            .setUriSchemeAuthority("wildfly")
+            .addAttribute("cluster", AttributeValue.fromString("c1"))
+            .addAttribute("weight", AttributeValue.fromInt(-12345))
+            .addAttribute("weight", AttributeValue.fromInt(Integer.MAX_VALUE))
+            .addAttribute("secure", AttributeValue.TRUE)
+            .addAttribute("legacy", AttributeValue.FALSE)
+            .addAttribute("token", AttributeValue.fromBytes(new byte[] { 0, 1, 2, (byte) 0xff }))
+            .addAttribute("name", AttributeValue.fromString("näme-€-😀"))
+            .addAttribute("valueless")
+            .create();
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        DiscoveryCodec.createEncoder().writeServiceURL(buffer, serviceURL);
+        buffer.flip();
+        final ServiceURL decoded = DiscoveryCodec.createDecoder().readServiceURL(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(serviceURL, decoded);
+        assertEquals(serviceURL.getAttributeValues("weight"), decoded.getAttributeValues("weight"));
+        assertTrue(decoded.getAttributeNames().contains("valueless"));
+    }
+
+    @Test
+    public void testMinimalServiceURLRoundTrip() {
+        final ServiceURL serviceURL = new ServiceURL.Builder().setUri(URI.create("local:node")).create();
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        DiscoveryCodec.createEncoder().writeServiceURL(buffer, serviceURL);
+        buffer.flip();
+        assertEquals(serviceURL, DiscoveryCodec.createDecoder().readServiceURL(buffer));
+    }
+
+    @Test
+    public void testFilterSpecRoundTrip() {
+        final FilterSpec[] filterSpecs = {
+            FilterSpec.all(),
+            FilterSpec.none(),
+            FilterSpec.equal("cluster", "c1"),
+            new GreaterEqualFilterSpec("weight", AttributeValue.fromInt(-5)),
+            new LessEqualFilterSpec("weight", AttributeValue.fromInt(500)),
+            FilterSpec.hasAttribute("secure"),
+            FilterSpec.substringMatch("node", "node", "example.com"),
+            FilterSpec.not(new EqualsFilterSpec("secure", AttributeValue.FALSE)),
+            FilterSpec.all(FilterSpec.hasAttribute("cluster"), FilterSpec.any(FilterSpec.equal("cluster", "c1"), FilterSpec.equal("cluster", "c2"))),
+            FilterSpec.equal("token", new byte[] { 4, 5 }),
+        };
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+        for (FilterSpec filterSpec : filterSpecs) {
+            encoder.writeFilterSpec(buffer, filterSpec);
+        }
+        buffer.flip();
+        final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+        for (FilterSpec filterSpec : filterSpecs) {
+            assertEquals(filterSpec, decoder.readFilterSpec(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testSymbolDictionary() {
+        final List<ServiceURL> serviceURLs = serviceURLs(50);
+        final ByteBuffer buffer = ByteBuffer.allocate(16384);
+        final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+        encoder.writeServiceURL(buffer, serviceURLs.get(0));
+        final int first = buffer.position();
+        encoder.writeServiceURL(buffer, serviceURLs.get(1));
+        // the second URL only refers back to the type and attribute names
+        assertTrue(buffer.position() - first < first);
+        for (int i = 2; i < serviceURLs.size(); i ++) {
+            encoder.writeServiceURL(buffer, serviceURLs.get(i));
+        }
+        buffer.flip();
+        final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+        for (ServiceURL serviceURL : serviceURLs) {
+            assertEquals(serviceURL, decoder.readServiceURL(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testOverflowRollback() {
+        final List<ServiceURL> serviceURLs = serviceURLs(2);
+        final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+        final ByteBuffer small = ByteBuffer.allocate(8);
+        try {
+            encoder.writeServiceURL(small, serviceURLs.get(0));
+            fail("Expected overflow");
+        } catch (BufferOverflowException expected) {
+            assertEquals(0, small.position());
+        }
+        // symbols from the failed attempt must not be referenced
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        encoder.writeServiceURL(buffer, serviceURLs.get(0));
+        encoder.writeServiceURL(buffer, serviceURLs.get(1));
+        buffer.flip();
+        final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+        assertEquals(serviceURLs.get(0), decoder.readServiceURL(buffer));
+        assertEquals(serviceURLs.get(1), decoder.readServiceURL(buffer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 42 });
+        DiscoveryCodec.createDecoder().readFilterSpec(buffer);
+    }
+
+    @Test
+    public void testTruncated() {
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        DiscoveryCodec.createEncoder().writeServiceURL(buffer, serviceURLs(1).get(0));
+        buffer.flip();
+        for (int length = 0; length < buffer.limit(); length ++) {
+            final ByteBuffer truncated = buffer.duplicate();
+            truncated.limit(length);
+            try {
+                DiscoveryCodec.createDecoder().readServiceURL(truncated);
+                fail("Expected failure at length " + length);
+            } catch (BufferUnderflowException | IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testHugeCounts() {
+        // a count of Integer.MAX_VALUE as a variable-length integer
+        final byte[] count = { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 };
+        final DiscoveryCodec.Decoder decoder = DiscoveryCodec.createDecoder();
+        // children of a filter
+        assertMalformed(() -> decoder.readFilterSpec(ByteBuffer.wrap(concat(new byte[] { 2 }, count))));
+        // an opaque attribute value
+        assertMalformed(() -> decoder.readFilterSpec(ByteBuffer.wrap(concat(new byte[] { 5, 0, 1, 'a', AttributeValue.K_OPAQUE }, count))));
+        // attributes of a service URL
+        assertMalformed(() -> decoder.readServiceURL(ByteBuffer.wrap(concat(new byte[] { 0, 3, 'a', ':', 'b' }, count))));
+        // values of an attribute
+        assertMalformed(() -> decoder.readServiceURL(ByteBuffer.wrap(concat(new byte[] { 0, 3, 'a', ':', 'b', 1, 0, 1, 'n' }, count))));
+        // a string
+        assertMalformed(() -> decoder.readServiceURL(ByteBuffer.wrap(concat(new byte[] { 0 }, count))));
+    }
+
+    @Test
+    public void testDeepNesting() {
+        final byte[] nested = new byte[100_000];
+        // NOT, NOT, ...
+        Arrays.fill(nested, (byte) 4);
+        assertMalformed(() -> DiscoveryCodec.createDecoder().readFilterSpec(ByteBuffer.wrap(nested)));
+        // ALL of one child, ALL of one child, ...
+        for (int i = 0; i < nested.length; i += 2) {
+            nested[i] = 2;
+            nested[i + 1] = 1;
+        }
+        assertMalformed(() -> DiscoveryCodec.createDecoder().readFilterSpec(ByteBuffer.wrap(nested)));
+        // the limit itself can be read
+        FilterSpec filterSpec = FilterSpec.hasAttribute("a");
+        for (int i = 1; i < DiscoveryCodec.MAX_FILTER_DEPTH; i ++) {
+            filterSpec = FilterSpec.not(filterSpec);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        DiscoveryCodec.createEncoder().writeFilterSpec(buffer, filterSpec);
+        buffer.flip();
+        assertEquals(filterSpec, DiscoveryCodec.createDecoder().readFilterSpec(buffer));
+    }
+
+    private static void assertMalformed(Runnable task) {
+        try {
+            task.run();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        final byte[] bytes = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, bytes, a.length, b.length);
+        return bytes;
+    }
+
+    @Test
+    public void testSizeComparedToSerialization() throws Exception {
+        final List<ServiceURL> serviceURLs = serviceURLs(100);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            for (ServiceURL serviceURL : serviceURLs) {
+                oos.writeObject(serviceURL);
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(os.size());
+        final DiscoveryCodec.Encoder encoder = DiscoveryCodec.createEncoder();
+        for (ServiceURL serviceURL : serviceURLs) {
+            encoder.writeServiceURL(buffer, serviceURL);
+        }
+        assertTrue(buffer.position() * 2 < os.size());
+        // each URL on its own is smaller too
+        final ByteArrayOutputStream single = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(single)) {
+            oos.writeObject(serviceURLs.get(0));
+        }
+        buffer.clear();
+        DiscoveryCodec.createEncoder().writeServiceURL(buffer, serviceURLs.get(0));
+        assertTrue(buffer.position() * 4 < single.size());
+    }
+
+    private static List<ServiceURL> serviceURLs(int count) {
+        final List<ServiceURL> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i ++) {
+            list.add(new ServiceURL.Builder()
+                .setAbstractType("ejb")
+                .setAbstractTypeAuthority("jboss")
+                .setUri(URI.create("remote+http://node" + i + ":8080"))
+                .addAttribute("node", AttributeValue.fromString("node" + i))
+                .addAttribute("cluster", AttributeValue.fromString("c" + i % 3))
+                .addAttribute("weight", AttributeValue.fromInt(i))
+                .create());
+        }
+        return list;
+    }
+}
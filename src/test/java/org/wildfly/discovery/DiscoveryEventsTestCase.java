@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+import org.wildfly.discovery.spi.BlockingDiscoveryProvider;
+
+/**
+ * Tests for the flight recorder events of discovery operations.
+ */
+public final class DiscoveryEventsTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEvents() throws Exception {
+        final ServiceURL serviceURL = new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node1:8080"))
+            .create();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Path path = folder.getRoot().toPath().resolve("discovery.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.wildfly.discovery.Discover").withoutThreshold();
+            recording.enable("org.wildfly.discovery.DelegateDiscover").withoutThreshold();
+            recording.enable("org.wildfly.discovery.BlockingDiscoveryQueued").withoutThreshold();
+            recording.enable("org.wildfly.discovery.MissingTarget").withoutThreshold();
+            recording.start();
+            final BlockingDiscoveryProvider blocking = (serviceType, filterSpec, result) -> result.addMatch(serviceURL);
+            final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(Collections.singletonList(serviceURL)), blocking.toDiscoveryProvider(executor));
+            final List<ServiceURL> results = new ArrayList<>();
+            try (ServicesQueue queue = discovery.discover(ServiceType.of("ejb", "jboss"), FilterSpec.all())) {
+                ServiceURL next;
+                while ((next = queue.takeService()) != null) {
+                    results.add(next);
+                }
+            }
+            assertEquals(2, results.size());
+            discovery.processMissingTarget(serviceURL.getLocationURI(), new Exception("gone"));
+            recording.stop();
+            recording.dump(path);
+        } finally {
+            executor.shutdown();
+        }
+        final Map<String, List<RecordedEvent>> events = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+            events.computeIfAbsent(event.getEventType().getName(), n -> new ArrayList<>()).add(event);
+        }
+        final RecordedEvent discover = events.get("org.wildfly.discovery.Discover").get(0);
+        assertEquals("service:ejb.jboss", discover.getString("serviceType"));
+        assertEquals(2, discover.getInt("matchCount"));
+        assertEquals(0, discover.getInt("problemCount"));
+        final List<RecordedEvent> delegates = events.get("org.wildfly.discovery.DelegateDiscover");
+        assertEquals(2, delegates.size());
+        for (RecordedEvent delegate : delegates) {
+            assertEquals(1, delegate.getInt("matchCount"));
+        }
+        assertEquals(1, events.get("org.wildfly.discovery.BlockingDiscoveryQueued").size());
+        final RecordedEvent missing = events.get("org.wildfly.discovery.MissingTarget").get(0);
+        assertTrue(missing.getString("cause").contains("gone"));
+        assertEquals("remote+http://node1:8080", missing.getString("location"));
+    }
+
+    @Test
+    public void testWithoutFlightRecorder() throws Exception {
+        final String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        final URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i ++) {
+            urls[i] = toURL(entries[i]);
+        }
+        final ClassLoader withoutJfr = new ClassLoader(ClassLoader.getPlatformClassLoader()) {
+            protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+                if (name.startsWith("jdk.jfr.")) {
+                    throw new ClassNotFoundException(name);
+                }
+                return super.loadClass(name, resolve);
+            }
+        };
+        try (URLClassLoader loader = new URLClassLoader(urls, withoutJfr)) {
+            final Class<?> clazz = Class.forName(DiscoverWithoutFlightRecorder.class.getName(), true, loader);
+            assertEquals(2, ((Callable<?>) clazz.getConstructor().newInstance()).call());
+        }
+    }
+
+    private static URL toURL(final String entry) {
+        try {
+            return new File(entry).toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs a discovery through every event-emitting path; loaded in a class loader which cannot see {@code jdk.jfr}.
+     */
+    public static final class DiscoverWithoutFlightRecorder implements Callable<Integer> {
+        public Integer call() throws Exception {
+            final ServiceURL serviceURL = new ServiceURL.Builder()
+                .setAbstractType("ejb")
+                .setAbstractTypeAuthority("jboss")
+                .setUri(URI.create("remote+http://node1:8080"))
+                .create();
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final BlockingDiscoveryProvider blocking = (serviceType, filterSpec, result) -> result.addMatch(serviceURL);
+                final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(Collections.singletonList(serviceURL)), blocking.toDiscoveryProvider(executor));
+                int count = 0;
+                try (ServicesQueue queue = discovery.discover(ServiceType.of("ejb", "jboss"), FilterSpec.all())) {
+                    while (queue.takeService() != null) {
+                        count ++;
+                    }
+                }
+                discovery.processMissingTarget(serviceURL.getLocationURI(), new Exception("gone"));
+                return count;
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.DiscoveryStatistics;
+import org.wildfly.discovery.impl.MeteredDiscoveryProvider;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * Tests for discovery metrics.
+ */
+public final class DiscoveryStatisticsTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Test
+    public void testProviderStatistics() throws Exception {
+        final DiscoveryStatistics statistics = new DiscoveryStatistics();
+        final StaticDiscoveryProvider staticProvider = new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2)));
+        final AtomicReference<DiscoveryResult> pending = new AtomicReference<>();
+        final DiscoveryProvider slowProvider = (serviceType, filterSpec, result) -> {
+            pending.set(result);
+            result.reportProblem(new Exception("slow"));
+            return result::complete;
+        };
+        final Discovery discovery = Discovery.create(new MeteredDiscoveryProvider(staticProvider, statistics), new MeteredDiscoveryProvider(slowProvider, statistics));
+        for (int i = 0; i < 3; i ++) {
+            try (ServicesQueue queue = discovery.discover(EJB, null)) {
+                queue.takeService();
+                queue.takeService();
+                pending.get().complete();
+                assertEquals(null, queue.takeService());
+            }
+        }
+        final DiscoveryStatistics.ProviderStatistics fast = statistics.getStatistics(staticProvider);
+        assertEquals(3, fast.getDiscoveriesStarted());
+        assertEquals(3, fast.getDiscoveriesCompleted());
+        assertEquals(6, fast.getMatches());
+        assertEquals(0, fast.getProblemsReported());
+        assertEquals(3, fast.getTimeToFirstMatch().getCount());
+        assertEquals(2, fast.getMatchesPerDiscovery().getValueAtPercentile(50));
+        assertEquals(2.0, fast.getMatchesPerDiscovery().getMean(), 0.0);
+        final DiscoveryStatistics.ProviderStatistics slow = statistics.getStatistics(slowProvider);
+        assertEquals(3, slow.getDiscoveriesCompleted());
+        assertEquals(3, slow.getProblemsReported());
+        assertEquals(0, slow.getMatches());
+        assertEquals(0, slow.getTimeToFirstMatch().getCount());
+        assertEquals(3, slow.getTimeToComplete().getCount());
+        assertEquals(2, statistics.getAllStatistics().size());
+    }
+
+    @Test
+    public void testCancellation() throws Exception {
+        final DiscoveryStatistics statistics = new DiscoveryStatistics();
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> result::complete;
+        final MeteredDiscoveryProvider metered = new MeteredDiscoveryProvider(provider, statistics);
+        metered.discover(EJB, null, new DiscoveryResult() {
+            public void complete() {
+            }
+
+            public void reportProblem(final Throwable description) {
+            }
+
+            public void addMatch(final ServiceURL serviceURL) {
+            }
+        }).cancel();
+        assertEquals(1, statistics.getStatistics(provider).getDiscoveriesCancelled());
+        assertEquals(1, statistics.getStatistics(provider).getDiscoveriesCompleted());
+    }
+
+    @Test
+    public void testCancellationCountedOnce() throws Exception {
+        final DiscoveryStatistics statistics = new DiscoveryStatistics();
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> DiscoveryRequest.NULL;
+        final MeteredDiscoveryProvider metered = new MeteredDiscoveryProvider(provider, statistics);
+        final DiscoveryRequest request = metered.discover(EJB, null, new DiscoveryResult() {
+            public void complete() {
+            }
+
+            public void reportProblem(final Throwable description) {
+            }
+
+            public void addMatch(final ServiceURL serviceURL) {
+            }
+        });
+        request.cancel();
+        request.cancel();
+        assertEquals(1, statistics.getStatistics(provider).getDiscoveriesCancelled());
+        // nor is a discovery which is called off once the limit is reached
+        metered.discover(EJB, null, new DiscoveryResult() {
+            public void complete() {
+            }
+
+            public void reportProblem(final Throwable description) {
+            }
+
+            public void addMatch(final ServiceURL serviceURL) {
+            }
+
+            public int getRemainingLimit() {
+                return 0;
+            }
+        }).cancel();
+        assertEquals(1, statistics.getStatistics(provider).getDiscoveriesCancelled());
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        final DiscoveryStatistics statistics = new DiscoveryStatistics();
+        final DiscoveryStatistics.ProviderStatistics recorder = statistics.recorderFor(DiscoveryProvider.EMPTY);
+        for (int i = 1; i <= 1000; i ++) {
+            recorder.discoveryCompleted(i * 1000L, i);
+        }
+        final DiscoveryStatistics.Histogram histogram = recorder.getTimeToComplete();
+        assertEquals(1000, histogram.getCount());
+        final long median = histogram.getValueAtPercentile(50);
+        assertTrue(String.valueOf(median), median >= 500_000 && median <= 500_000 * 17 / 16);
+        final long max = histogram.getMax();
+        assertTrue(String.valueOf(max), max >= 1_000_000 && max <= 1_000_000 * 17 / 16);
+        assertEquals(1, recorder.getMatchesPerDiscovery().getValueAtPercentile(0));
+        assertEquals(500500.0, histogram.getMean(), 0.0);
+    }
+
+    private static ServiceURL serviceURL(int i) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + i + ":8080"))
+            .create();
+    }
+}
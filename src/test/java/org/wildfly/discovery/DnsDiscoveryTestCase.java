@@ -0,0 +1,346 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.discovery.impl.DnsDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the DNS discovery provider, against a stub name server on the loopback interface.
+ */
+public final class DnsDiscoveryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+    private static final String NAME = "_ejb._tcp.example.test";
+
+    private StubNameServer server;
+
+    @Before
+    public void start() throws Exception {
+        server = new StubNameServer();
+        server.srv = Arrays.asList(new Srv(10, 1, 8080, "a.example.test"), new Srv(5, 1, 8081, "b.example.test"), new Srv(10, 9, 8082, "c.example.test"));
+        server.txt = Arrays.asList("cluster=ejb", "node=1", "node=2", "secure", "scheme=remote+https");
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        try (DnsDiscoveryProvider provider = builder().create()) {
+            final List<ServiceURL> results = discover(provider, null);
+            assertEquals(3, results.size());
+            assertEquals(serviceURL("b", 8081), results.get(0));
+            assertEquals(new HashSet<>(Arrays.asList(serviceURL("c", 8082), serviceURL("a", 8080))), new HashSet<>(results.subList(1, 3)));
+            assertEquals(1, server.srvQueries.get());
+            assertEquals(1, server.txtQueries.get());
+
+            // answered from the cache
+            assertEquals(3, discover(provider, FilterSpec.all(FilterSpec.equal("node", "2"), FilterSpec.hasAttribute("secure"))).size());
+            assertEquals(0, discover(provider, FilterSpec.equal("cluster", "web")).size());
+            assertEquals(1, server.srvQueries.get());
+            assertEquals(1, server.txtQueries.get());
+
+            // a concrete service type with another scheme does not match
+            assertEquals(0, discover(provider, ServiceType.of("ejb", "jboss", "remote+http", null), null).size());
+            assertEquals(3, discover(provider, ServiceType.of("ejb", "jboss", "remote+https", null), null).size());
+        }
+    }
+
+    @Test
+    public void testWeightedOrder() throws Exception {
+        try (DnsDiscoveryProvider provider = builder().create()) {
+            int heavyFirst = 0;
+            int lightFirst = 0;
+            for (int i = 0; i < 200; i ++) {
+                final ServiceURL second = discover(provider, null).get(1);
+                if (second.equals(serviceURL("c", 8082))) {
+                    heavyFirst ++;
+                } else {
+                    lightFirst ++;
+                }
+            }
+            // c has weight 9 and a has weight 1, so each comes first in its priority at times, c far more often
+            assertTrue(lightFirst > 0);
+            assertTrue(heavyFirst > lightFirst);
+        }
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        server.delayMillis = 200;
+        try (DnsDiscoveryProvider provider = builder().create()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(10);
+            try {
+                final CountDownLatch latch = new CountDownLatch(1);
+                final List<Future<List<ServiceURL>>> futures = new ArrayList<>();
+                for (int i = 0; i < 10; i ++) {
+                    futures.add(executor.submit(() -> {
+                        latch.await();
+                        return discover(provider, null);
+                    }));
+                }
+                latch.countDown();
+                for (Future<List<ServiceURL>> future : futures) {
+                    assertEquals(3, future.get(10, TimeUnit.SECONDS).size());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(1, server.srvQueries.get());
+            assertEquals(1, server.txtQueries.get());
+        }
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        server.ttl = 1;
+        try (DnsDiscoveryProvider provider = builder().setStaleWhileRevalidate(1, TimeUnit.MINUTES).create()) {
+            assertEquals(3, discover(provider, null).size());
+            server.srv = Collections.singletonList(new Srv(0, 0, 9090, "d.example.test"));
+            Thread.sleep(1100);
+            // the expired records are used while they are looked up again
+            assertEquals(3, discover(provider, null).size());
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            List<ServiceURL> results;
+            while (! (results = discover(provider, null)).equals(Collections.singletonList(serviceURL("d", 9090)))) {
+                if (System.nanoTime() - deadline > 0) {
+                    fail("Records were not refreshed: " + results);
+                }
+                Thread.sleep(10);
+            }
+            // and kept when the name server stops answering
+            server.close();
+            Thread.sleep(1100);
+            assertEquals(1, discover(provider, null).size());
+        }
+    }
+
+    @Test
+    public void testNoServices() throws Exception {
+        try (DnsDiscoveryProvider provider = builder().create()) {
+            assertEquals(0, discover(provider, ServiceType.of("jms", "jboss"), null).size());
+            assertTrue(server.nxQueries.get() > 0);
+        }
+        // nothing answers at this address any more
+        final DnsDiscoveryProvider.Builder builder = builder();
+        server.close();
+        try (DnsDiscoveryProvider provider = builder.setQueryTimeout(50, TimeUnit.MILLISECONDS).setAttempts(2).create()) {
+            final long start = System.nanoTime();
+            assertEquals(0, discover(provider, null).size());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+
+    private DnsDiscoveryProvider.Builder builder() {
+        return new DnsDiscoveryProvider.Builder()
+            .setDomain("example.test")
+            .addNameServer(server.getAddress())
+            .setQueryTimeout(500, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<ServiceURL> discover(DiscoveryProvider provider, FilterSpec filterSpec) throws InterruptedException {
+        return discover(provider, EJB, filterSpec);
+    }
+
+    private static List<ServiceURL> discover(DiscoveryProvider provider, ServiceType serviceType, FilterSpec filterSpec) throws InterruptedException {
+        final List<ServiceURL> results = new ArrayList<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(serviceType, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static ServiceURL serviceURL(String host, int port) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+https://" + host + ".example.test:" + port))
+            .addAttribute("cluster", AttributeValue.fromString("ejb"))
+            .addAttribute("node", AttributeValue.fromString("1"))
+            .addAttribute("node", AttributeValue.fromString("2"))
+            .addAttribute("secure")
+            .create();
+    }
+
+    static final class Srv {
+        final int priority;
+        final int weight;
+        final int port;
+        final String target;
+
+        Srv(final int priority, final int weight, final int port, final String target) {
+            this.priority = priority;
+            this.weight = weight;
+            this.port = port;
+            this.target = target;
+        }
+    }
+
+    /**
+     * A name server which knows the SRV and TXT records of a single name.
+     */
+    static final class StubNameServer {
+        final DatagramSocket socket;
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final AtomicInteger srvQueries = new AtomicInteger();
+        final AtomicInteger txtQueries = new AtomicInteger();
+        final AtomicInteger nxQueries = new AtomicInteger();
+        volatile List<Srv> srv = Collections.emptyList();
+        volatile List<String> txt = Collections.emptyList();
+        volatile int ttl = 300;
+        volatile long delayMillis;
+
+        StubNameServer() throws SocketException {
+            socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final Thread thread = new Thread(this::run, "stub-name-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        InetSocketAddress getAddress() {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        void close() {
+            socket.close();
+            executor.shutdownNow();
+        }
+
+        private void run() {
+            final byte[] bytes = new byte[512];
+            for (;;) {
+                final DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
+                try {
+                    socket.receive(packet);
+                } catch (IOException e) {
+                    return;
+                }
+                final byte[] response = respond(ByteBuffer.wrap(bytes, 0, packet.getLength()));
+                final DatagramPacket reply = new DatagramPacket(response, response.length, packet.getSocketAddress());
+                executor.schedule(() -> {
+                    try {
+                        socket.send(reply);
+                    } catch (IOException ignored) {
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private byte[] respond(ByteBuffer query) {
+            final int id = query.getShort() & 0xffff;
+            query.position(12);
+            final StringBuilder name = new StringBuilder();
+            int length;
+            while ((length = query.get() & 0xff) != 0) {
+                final byte[] label = new byte[length];
+                query.get(label);
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                name.append(new String(label, StandardCharsets.US_ASCII));
+            }
+            final int type = query.getShort() & 0xffff;
+            query.getShort();
+            final byte[] question = Arrays.copyOfRange(query.array(), 12, query.position());
+
+            final ByteBuffer answers = ByteBuffer.allocate(512);
+            int count = 0;
+            boolean known = name.toString().equalsIgnoreCase(NAME);
+            if (! known) {
+                nxQueries.incrementAndGet();
+            } else if (type == 33) {
+                srvQueries.incrementAndGet();
+                for (Srv record : srv) {
+                    final byte[] target = encodeName(record.target);
+                    answer(answers, 33, 6 + target.length);
+                    answers.putShort((short) record.priority).putShort((short) record.weight).putShort((short) record.port).put(target);
+                    count ++;
+                }
+            } else if (type == 16) {
+                txtQueries.incrementAndGet();
+                final ByteBuffer strings = ByteBuffer.allocate(256);
+                for (String string : txt) {
+                    final byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+                    strings.put((byte) encoded.length).put(encoded);
+                }
+                answer(answers, 16, strings.position());
+                answers.put(strings.array(), 0, strings.position());
+                count ++;
+            }
+            final ByteBuffer response = ByteBuffer.allocate(12 + question.length + answers.position());
+            response.putShort((short) id);
+            // a response, recursion desired and available, NXDOMAIN for unknown names
+            response.putShort((short) (0x8180 | (known ? 0 : 3)));
+            response.putShort((short) 1).putShort((short) count).putShort((short) 0).putShort((short) 0);
+            response.put(question);
+            response.put(answers.array(), 0, answers.position());
+            return response.array();
+        }
+
+        private void answer(ByteBuffer buffer, int type, int length) {
+            // a pointer to the name of the question
+            buffer.putShort((short) 0xc00c).putShort((short) type).putShort((short) 1).putInt(ttl).putShort((short) length);
+        }
+
+        private static byte[] encodeName(String name) {
+            final ByteBuffer buffer = ByteBuffer.allocate(256);
+            for (String label : name.split("\\.")) {
+                final byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+                buffer.put((byte) bytes.length).put(bytes);
+            }
+            buffer.put((byte) 0);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -15,8 +15,10 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests for FilterSpec functionality
@@ -143,6 +145,62 @@ public final class FilterSpecTestCase {
         assertEquals("(!(|))", emptyNotAny.toString());
     }
 
+    /**
+     * Checks on filter simplification
+     */
+    @Test
+    public void testSimplify() {
+        // flattening
+        assertEquals("(&(a=1)(b=2)(c=3))", simplify("(&(&(a=1)(b=2))(c=3))"));
+        assertEquals("(|(a=1)(b=2)(c=3))", simplify("(|(a=1)(|(b=2)(c=3)))"));
+        // constants
+        assertEquals("(a=1)", simplify("(&(a=1)*)"));
+        assertEquals("(|)", simplify("(&(a=1)(!*))"));
+        assertEquals("(&)", simplify("(|(a=1)*)"));
+        assertEquals("(a=1)", simplify("(|(a=1)(!*))"));
+        assertEquals("(&)", simplify("(!(|))"));
+        // duplicates and absorption
+        assertEquals("(&(a=1)(b=2))", simplify("(&(a=1)(b=2)(a=1))"));
+        assertEquals("(a=1)", simplify("(&(a=1)(|(a=1)(b=2)))"));
+        assertEquals("(a=1)", simplify("(|(a=1)(&(a=1)(b=2)))"));
+        // negation
+        assertEquals("(a=1)", simplify("(!(!(a=1)))"));
+        assertEquals("(|(!(a=1))(!(b=2)))", simplify("(!(&(a=1)(b=2)))"));
+        assertEquals("(&(!(a=1))(!(b=2)))", simplify("(!(|(a=1)(b=2)))"));
+        // complements
+        assertEquals("(|)", simplify("(&(a=1)(!(a=1)))"));
+        assertEquals("(&)", simplify("(|(a=1)(!(a=1)))"));
+        // presence tests implied by value tests
+        assertEquals("(a=1)", simplify("(&(a=*)(a=1))"));
+        assertEquals("(&(a=*)(!(a=1)))", simplify("(&(a=*)(!(a=1)))"));
+
+        // single-valued attributes
+        final FilterSpec twoValues = FilterSpec.fromString("(&(a=1)(a=2))");
+        assertEquals(twoValues, twoValues.simplify());
+        assertEquals(FilterSpec.none(), twoValues.simplify(Collections.singleton("a")));
+        assertEquals("(&(a=1)(b=2))", FilterSpec.fromString("(&(a=1)(b=2)(!(a=2))(a=1*))").simplify(Collections.singleton("a")).toString());
+        assertEquals(FilterSpec.none(), FilterSpec.fromString("(&(a=1)(!(a=1*)))").simplify(Collections.singleton("a")));
+
+        // simplified filters match the same attribute maps
+        final FilterSpec original = FilterSpec.fromString("(!(&(a=1)(|(b=2)(!(c=*)))))");
+        final FilterSpec simplified = original.simplify();
+        for (String a : Arrays.asList(null, "1", "2")) {
+            for (String b : Arrays.asList(null, "2", "3")) {
+                for (String c : Arrays.asList(null, "4")) {
+                    final Map<String, List<AttributeValue>> map = new HashMap<>();
+                    if (a != null) map.put("a", Collections.singletonList(AttributeValue.fromString(a)));
+                    if (b != null) map.put("b", Collections.singletonList(AttributeValue.fromString(b)));
+                    if (c != null) map.put("c", Collections.singletonList(AttributeValue.fromString(c)));
+                    assertEquals(map.toString(), original.matchesMulti(map), simplified.matchesMulti(map));
+                }
+            }
+        }
+    }
+
+    private static String simplify(String filter) {
+        return FilterSpec.fromString(filter).simplify().toString();
+    }
+
     /**
      * A basic check on single attribute matching
      */
@@ -0,0 +1,157 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.AggregateDiscoveryProvider;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.discovery.spi.FilterOperation;
+import org.wildfly.discovery.spi.FilterSplit;
+
+/**
+ * Tests for splitting filters between providers and local evaluation.
+ */
+public final class FilterSplitTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    private static final Set<FilterOperation> EQUALITY = EnumSet.of(FilterOperation.EQUAL, FilterOperation.ALL);
+
+    @Test
+    public void testSplit() {
+        FilterSplit split = FilterSplit.of(FilterSpec.fromString("(&(a=1)(b=2))"), EQUALITY);
+        assertEquals("(&(a=1)(b=2))", split.getPushed().toString());
+        assertNull(split.getResidual());
+
+        split = FilterSplit.of(FilterSpec.fromString("(&(a=1)(b>=2)(c=3))"), EQUALITY);
+        assertEquals("(&(a=1)(c=3))", split.getPushed().toString());
+        assertEquals("(b>=2)", split.getResidual().toString());
+
+        // a disjunction is pushed down only as a whole
+        split = FilterSplit.of(FilterSpec.fromString("(&(a=1)(|(b=2)(c=*)))"), EnumSet.of(FilterOperation.EQUAL, FilterOperation.ALL, FilterOperation.ANY));
+        assertEquals("(a=1)", split.getPushed().toString());
+        assertEquals("(|(b=2)(c=*))", split.getResidual().toString());
+
+        split = FilterSplit.of(FilterSpec.fromString("(|(a=1)(&(b=2)(c=*)))"), EnumSet.of(FilterOperation.EQUAL, FilterOperation.ALL, FilterOperation.ANY));
+        assertEquals("(|(a=1)(b=2))", split.getPushed().toString());
+        assertEquals("(|(a=1)(&(b=2)(c=*)))", split.getResidual().toString());
+
+        // negations are pushed down before splitting
+        split = FilterSplit.of(FilterSpec.fromString("(!(|(a=1)(b=*)))"), EnumSet.of(FilterOperation.EQUAL, FilterOperation.NOT, FilterOperation.ALL));
+        assertEquals("(!(a=1))", split.getPushed().toString());
+        assertEquals("(!(b=*))", split.getResidual().toString());
+
+        // nothing can be pushed down
+        split = FilterSplit.of(FilterSpec.fromString("(!(a=1))"), EQUALITY);
+        assertNull(split.getPushed());
+        assertEquals("(!(a=1))", split.getResidual().toString());
+
+        // without conjunctions, one clause is enough
+        split = FilterSplit.of(FilterSpec.fromString("(&(a>=1)(b=2))"), EnumSet.of(FilterOperation.EQUAL));
+        assertEquals("(b=2)", split.getPushed().toString());
+        assertEquals("(&(a>=1)(b=2))", split.getResidual().toString());
+
+        split = FilterSplit.of(null, EQUALITY);
+        assertNull(split.getPushed());
+        assertNull(split.getResidual());
+    }
+
+    @Test
+    public void testPushdown() throws Exception {
+        final List<ServiceURL> serviceURLs = new ArrayList<>();
+        for (int i = 0; i < 20; i ++) {
+            serviceURLs.add(new ServiceURL.Builder()
+                .setAbstractType("ejb")
+                .setAbstractTypeAuthority("jboss")
+                .setUri(URI.create("remote+http://node" + i + ":8080"))
+                .addAttribute("cluster", AttributeValue.fromString("c" + i % 2))
+                .addAttribute("weight", AttributeValue.fromString(String.valueOf(i)))
+                .create());
+        }
+        final RecordingProvider limited = new RecordingProvider(new StaticDiscoveryProvider(serviceURLs), EQUALITY);
+        final RecordingProvider full = new RecordingProvider(new StaticDiscoveryProvider(serviceURLs), FilterOperation.ALL_OPERATIONS);
+        final FilterSpec filterSpec = FilterSpec.fromString("(&(cluster=c1)(!(weight=5)))");
+
+        assertEquals(9, discover(Discovery.create(limited), filterSpec).size());
+        assertEquals("(cluster=c1)", limited.filters.get(0));
+        assertEquals(10, limited.returned);
+
+        assertEquals(9, discover(Discovery.create(new AggregateDiscoveryProvider(new DiscoveryProvider[] { limited, full })), filterSpec).size());
+        assertEquals("(cluster=c1)", limited.filters.get(1));
+        assertEquals(filterSpec.toString(), full.filters.get(0));
+    }
+
+    private static Set<ServiceURL> discover(Discovery discovery, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = discovery.discover(EJB, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    static final class RecordingProvider implements DiscoveryProvider {
+        private final DiscoveryProvider delegate;
+        private final Set<FilterOperation> supported;
+        final List<String> filters = new ArrayList<>();
+        int returned;
+
+        RecordingProvider(final DiscoveryProvider delegate, final Set<FilterOperation> supported) {
+            this.delegate = delegate;
+            this.supported = supported;
+        }
+
+        public Set<FilterOperation> getSupportedFilterOperations() {
+            return supported;
+        }
+
+        public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+            filters.add(String.valueOf(filterSpec));
+            return delegate.discover(serviceType, filterSpec, new DiscoveryResult() {
+                public void complete() {
+                    result.complete();
+                }
+
+                public void reportProblem(final Throwable description) {
+                    result.reportProblem(description);
+                }
+
+                public void addMatch(final ServiceURL serviceURL) {
+                    returned ++;
+                    result.addMatch(serviceURL);
+                }
+            });
+        }
+    }
+}
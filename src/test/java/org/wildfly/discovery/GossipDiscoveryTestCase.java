@@ -0,0 +1,224 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.discovery.impl.GossipDiscoveryProvider;
+
+/**
+ * Tests for the gossip discovery provider, with several peers on the loopback interface.
+ */
+public final class GossipDiscoveryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    private final List<GossipDiscoveryProvider> providers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < 4; i ++) {
+            providers.add(create());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (GossipDiscoveryProvider provider : providers) {
+            provider.close();
+        }
+    }
+
+    private GossipDiscoveryProvider create() throws Exception {
+        final GossipDiscoveryProvider.Builder builder = new GossipDiscoveryProvider.Builder()
+            .setBindAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            .setProtocolPeriod(50, TimeUnit.MILLISECONDS)
+            .setSyncInterval(200, TimeUnit.MILLISECONDS)
+            .setSuspicionTimeout(500, TimeUnit.MILLISECONDS)
+            .setTombstoneLifetime(300, TimeUnit.MILLISECONDS)
+            // small datagrams, so that the anti-entropy exchanges are split
+            .setMaxDatagramSize(512);
+        if (! providers.isEmpty()) {
+            builder.addSeed(providers.get(0).getLocalAddress());
+        }
+        return builder.create();
+    }
+
+    @Test
+    public void testReplication() throws Exception {
+        final List<List<ServiceRegistration>> registrations = new ArrayList<>();
+        for (int i = 0; i < 4; i ++) {
+            final List<ServiceRegistration> list = new ArrayList<>();
+            for (int j = 0; j < 30; j ++) {
+                list.add(providers.get(i).registerService(serviceURL(i, j)));
+            }
+            registrations.add(list);
+        }
+        for (GossipDiscoveryProvider provider : providers) {
+            final Discovery discovery = Discovery.create(provider);
+            awaitCount(120, () -> discover(discovery, null).size());
+            // answered locally from the replicated state
+            final Set<ServiceURL> expected = new HashSet<>();
+            for (int j = 0; j < 30; j += 2) {
+                expected.add(serviceURL(3, j));
+            }
+            assertEquals(expected, discover(discovery, FilterSpec.all(FilterSpec.equal("node", "node3"), FilterSpec.equal("odd", "false"))));
+            assertEquals(3, provider.getLivePeerCount());
+        }
+
+        for (int j = 0; j < 15; j ++) {
+            registrations.get(1).get(j).close();
+        }
+        registrations.get(2).get(0).deactivate();
+        for (GossipDiscoveryProvider provider : providers) {
+            final Discovery discovery = Discovery.create(provider);
+            awaitCount(104, () -> discover(discovery, null).size());
+        }
+        registrations.get(2).get(0).activate();
+        for (GossipDiscoveryProvider provider : providers) {
+            final Discovery discovery = Discovery.create(provider);
+            awaitCount(105, () -> discover(discovery, null).size());
+        }
+
+        // the removals are forgotten by now, so a late peer is sent the full state
+        Thread.sleep(500);
+        final GossipDiscoveryProvider late = create();
+        providers.add(late);
+        final Discovery discovery = Discovery.create(late);
+        awaitCount(105, () -> discover(discovery, null).size());
+        assertEquals(0, discover(discovery, FilterSpec.equal("instance", "1-0")).size());
+    }
+
+    @Test
+    public void testLeave() throws Exception {
+        for (int i = 0; i < 4; i ++) {
+            for (int j = 0; j < 5; j ++) {
+                providers.get(i).registerService(serviceURL(i, j));
+            }
+        }
+        for (GossipDiscoveryProvider provider : providers) {
+            final Discovery discovery = Discovery.create(provider);
+            awaitCount(20, () -> discover(discovery, null).size());
+        }
+        providers.get(3).close();
+        for (int i = 0; i < 3; i ++) {
+            final GossipDiscoveryProvider provider = providers.get(i);
+            final Discovery discovery = Discovery.create(provider);
+            awaitCount(15, () -> discover(discovery, null).size());
+            awaitCount(2, provider::getLivePeerCount);
+        }
+    }
+
+    @Test
+    public void testMalformedMessages() throws Exception {
+        for (int i = 0; i < 4; i ++) {
+            providers.get(i).registerService(serviceURL(i, 0));
+        }
+        final InetSocketAddress target = providers.get(1).getLocalAddress();
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            // a ping which carries a registration with an impossible number of attributes
+            final ByteBuffer ping = header(1, 42L);
+            ping.putInt(1).putLong(0L);
+            ping.putShort((short) 0).putShort((short) 1).putLong(42L).putLong(1L).putLong(1L).put((byte) 0);
+            ping.put(new byte[] { 0, 3, 'a', ':', 'b', (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 });
+            socket.send(new DatagramPacket(ping.array(), ping.position(), target));
+            // a digest from a stranger is not answered with the registrations
+            final ByteBuffer digest = header(4, 43L);
+            digest.putShort((short) 0);
+            socket.send(new DatagramPacket(digest.array(), digest.position(), target));
+            socket.setSoTimeout(500);
+            final DatagramPacket packet = new DatagramPacket(new byte[1024], 1024);
+            try {
+                for (;;) {
+                    socket.receive(packet);
+                    // only the type matters
+                    assertNotEquals(5, packet.getData()[5]);
+                }
+            } catch (SocketTimeoutException expected) {
+            }
+        }
+        // the peer is still part of the group
+        final Discovery discovery = Discovery.create(providers.get(1));
+        awaitCount(4, () -> discover(discovery, null).size());
+        providers.get(1).registerService(serviceURL(1, 1));
+        final Discovery other = Discovery.create(providers.get(2));
+        awaitCount(5, () -> discover(other, null).size());
+    }
+
+    private static ByteBuffer header(int type, long sender) {
+        final ByteBuffer buffer = ByteBuffer.allocate(512);
+        buffer.putInt(0x57464447).put((byte) 1).put((byte) type).putLong(sender).putLong(1L);
+        return buffer;
+    }
+
+    private static void awaitCount(int expected, IntSupplier count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int actual;
+        while ((actual = count.getAsInt()) != expected) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Expected " + expected + " but got " + actual);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static Set<ServiceURL> discover(Discovery discovery, FilterSpec filterSpec) {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = discovery.discover(EJB, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return results;
+    }
+
+    private static ServiceURL serviceURL(int node, int instance) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + node + ":" + (8080 + instance)))
+            .addAttribute("node", AttributeValue.fromString("node" + node))
+            .addAttribute("instance", AttributeValue.fromString(node + "-" + instance))
+            .addAttribute("odd", AttributeValue.fromString(String.valueOf(instance % 2 == 1)))
+            .create();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.HealthFilteringDiscoveryProvider;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+
+/**
+ * Tests for the suppression of failing locations.
+ */
+public final class HealthFilteringTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Test
+    public void testBackoff() throws Exception {
+        final HealthFilteringDiscoveryProvider provider = new HealthFilteringDiscoveryProvider(new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2))), 1000, 10_000, TimeUnit.MILLISECONDS);
+        final Discovery discovery = Discovery.create(provider);
+        assertEquals(set(1, 2), discover(discovery));
+        long failed = System.nanoTime();
+        discovery.processMissingTarget(location(1), new Exception("gone"));
+        assertTrue(provider.isSuppressed(location(1)));
+        assertFalse(provider.isSuppressed(location(2)));
+        assertEquals(set(2), discover(discovery));
+        // the retry window opens no sooner than it should, however slowly the test runs
+        assertTrue(awaitRetry(provider, location(1)) - failed >= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(set(1, 2), discover(discovery));
+        failed = System.nanoTime();
+        discovery.processMissingTarget(location(1), new Exception("gone again"));
+        // the second window is twice as long
+        assertTrue(awaitRetry(provider, location(1)) - failed >= TimeUnit.SECONDS.toNanos(2));
+        assertEquals(set(1, 2), discover(discovery));
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        final HealthFilteringDiscoveryProvider provider = new HealthFilteringDiscoveryProvider(new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2), serviceURL(3))));
+        final Discovery discovery = Discovery.create(provider);
+        discovery.processMissingTarget(location(1), new Exception("gone"));
+        // the suppressed first match does not use up the limit
+        try (ServicesQueue queue = discovery.discover(EJB, FilterSpec.all(), 1)) {
+            final ServiceURL serviceURL = queue.takeService();
+            assertEquals(location(2), serviceURL == null ? null : serviceURL.getLocationURI());
+            assertNull(queue.takeService());
+        }
+    }
+
+    @Test
+    public void testProbe() throws Exception {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            final CountDownLatch probed = new CountDownLatch(2);
+            final HealthFilteringDiscoveryProvider provider = new HealthFilteringDiscoveryProvider(new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2))), 20, 60_000, TimeUnit.MILLISECONDS, location -> {
+                probed.countDown();
+                // fail the first probe, succeed the second
+                return probed.getCount() == 0;
+            }, scheduler);
+            provider.processMissingTarget(location(1), new Exception("gone"));
+            assertTrue(probed.await(10, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (provider.isSuppressed(location(1)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(provider.isSuppressed(location(1)));
+            assertEquals(set(1, 2), discover(Discovery.create(provider)));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static long awaitRetry(HealthFilteringDiscoveryProvider provider, URI location) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (provider.isSuppressed(location)) {
+            assertTrue("Retry window did not open", System.nanoTime() - deadline < 0);
+            Thread.sleep(10);
+        }
+        return System.nanoTime();
+    }
+
+    private static Set<URI> discover(Discovery discovery) throws InterruptedException {
+        final List<ServiceURL> results = new ArrayList<>();
+        try (ServicesQueue queue = discovery.discover(EJB, null)) {
+            ServiceURL next;
+            while ((next = queue.takeService()) != null) {
+                results.add(next);
+            }
+        }
+        final Set<URI> set = new HashSet<>();
+        for (ServiceURL result : results) {
+            set.add(result.getLocationURI());
+        }
+        return set;
+    }
+
+    private static Set<URI> set(int... nodes) {
+        final Set<URI> set = new HashSet<>();
+        for (int node : nodes) {
+            set.add(location(node));
+        }
+        return set;
+    }
+
+    private static URI location(int i) {
+        return URI.create("remote+http://node" + i + ":8080");
+    }
+
+    private static ServiceURL serviceURL(int i) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(location(i))
+            .create();
+    }
+}
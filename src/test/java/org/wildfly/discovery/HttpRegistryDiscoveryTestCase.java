@@ -0,0 +1,236 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.discovery.impl.HttpRegistryDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the HTTP registry discovery provider, against an in-process registry.
+ */
+public final class HttpRegistryDiscoveryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    private StubRegistry registry;
+
+    @Before
+    public void start() throws IOException {
+        registry = new StubRegistry();
+    }
+
+    @After
+    public void stop() {
+        registry.close();
+    }
+
+    @Test
+    public void testMirror() throws Exception {
+        for (int i = 0; i < 3; i ++) {
+            registry.register(i);
+        }
+        try (HttpRegistryDiscoveryProvider provider = builder().create()) {
+            assertEquals(set(0, 1, 2), discover(provider, EJB, null));
+            for (int i = 0; i < 10; i ++) {
+                assertEquals(1, discover(provider, EJB, FilterSpec.equal("group", "1")).size());
+                assertEquals(3, discover(provider, EJB, FilterSpec.all(FilterSpec.hasAttribute("ssl"), FilterSpec.hasAttribute("weight"))).size());
+                assertEquals(0, discover(provider, ServiceType.of("ejb", "jboss", "remote+https", null), null).size());
+            }
+            // the first fetch and the watch which is being held, however many discoveries there were
+            assertTrue("requests: " + registry.requests.get(), registry.requests.get() <= 2);
+
+            // changes arrive long before the watch would time out
+            registry.register(3);
+            registry.unregister(0);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Set<ServiceURL> actual;
+            while (! set(1, 2, 3).equals(actual = discover(provider, EJB, null))) {
+                if (System.nanoTime() - deadline > 0) {
+                    fail("Expected nodes 1 to 3 but got " + actual);
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testUnavailable() throws Exception {
+        try (HttpRegistryDiscoveryProvider provider = builder().create()) {
+            // a type the registry does not know
+            assertEquals(0, discover(provider, ServiceType.of("jms", "jboss"), null).size());
+        }
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        try (HttpRegistryDiscoveryProvider provider = new HttpRegistryDiscoveryProvider.Builder()
+            .setRegistryUri(URI.create("http://127.0.0.1:" + port + "/v1"))
+            .setRequestTimeout(2, TimeUnit.SECONDS)
+            .create()) {
+            assertEquals(0, discover(provider, EJB, null).size());
+            // and tried again by the next discovery
+            assertEquals(0, discover(provider, EJB, null).size());
+        }
+    }
+
+    private HttpRegistryDiscoveryProvider.Builder builder() {
+        return new HttpRegistryDiscoveryProvider.Builder()
+            .setRegistryUri(URI.create("http://127.0.0.1:" + registry.server.getAddress().getPort() + "/v1/"))
+            .setWaitTime(30, TimeUnit.SECONDS);
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, ServiceType serviceType, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(serviceType, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static Set<ServiceURL> set(int... instances) {
+        final Set<ServiceURL> set = new HashSet<>();
+        for (int instance : instances) {
+            set.add(new ServiceURL.Builder()
+                .setAbstractType("ejb")
+                .setAbstractTypeAuthority("jboss")
+                .setUri(URI.create("remote+http://node" + instance + ":8080"))
+                .addAttribute("group", AttributeValue.fromString(String.valueOf(instance)))
+                .addAttribute("tags", AttributeValue.fromString("a"))
+                .addAttribute("tags", AttributeValue.fromString("b"))
+                .addAttribute("weight", AttributeValue.fromInt(5))
+                .addAttribute("ssl")
+                .create());
+        }
+        return set;
+    }
+
+    /**
+     * A registry of services of type {@code ejb}, which holds watches until the services change.
+     */
+    static final class StubRegistry {
+        final HttpServer server;
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final AtomicInteger requests = new AtomicInteger();
+        // guarded by this
+        final Map<Integer, String> services = new TreeMap<>();
+        long index = 1;
+        boolean closed;
+
+        StubRegistry() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.setExecutor(executor);
+            server.createContext("/v1/services/", this::handle);
+            server.start();
+        }
+
+        synchronized void register(int instance) {
+            services.put(Integer.valueOf(instance), "{\"uri\": \"remote+http://node" + instance + ":8080\", \"abstract-type-authority\": \"jboss\", "
+                + "\"attributes\": {\"group\": \"" + instance + "\", \"tags\": [\"a\", \"b\"], \"weight\": 5, \"ssl\": null}, \"node\": " + instance + "}");
+            index ++;
+            notifyAll();
+        }
+
+        synchronized void unregister(int instance) {
+            services.remove(Integer.valueOf(instance));
+            index ++;
+            notifyAll();
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            final String type = exchange.getRequestURI().getPath().substring("/v1/services/".length());
+            long seen = -1;
+            long waitMillis = 0;
+            final String query = exchange.getRequestURI().getQuery();
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    if (parameter.startsWith("index=")) {
+                        seen = Long.parseLong(parameter.substring(6));
+                    } else if (parameter.startsWith("wait=")) {
+                        waitMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(parameter.substring(5, parameter.length() - 1)));
+                    }
+                }
+            }
+            final String body;
+            final long current;
+            synchronized (this) {
+                final long deadline = System.currentTimeMillis() + waitMillis;
+                long remaining;
+                while (index == seen && ! closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                body = "[" + String.join(", ", services.values()) + "]";
+                current = index;
+            }
+            exchange.getResponseHeaders().add("X-Registry-Index", String.valueOf(current));
+            if (! type.equals("ejb")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.LocalRegistryAndDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the local registry provider.
+ */
+public final class LocalRegistryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    private static final FilterSpec[] FILTERS = {
+        null,
+        FilterSpec.all(),
+        FilterSpec.none(),
+        FilterSpec.equal("cluster", "c1"),
+        FilterSpec.hasAttribute("secure"),
+        FilterSpec.not(FilterSpec.hasAttribute("secure")),
+        FilterSpec.all(FilterSpec.equal("cluster", "c2"), FilterSpec.hasAttribute("secure")),
+        FilterSpec.any(FilterSpec.equal("cluster", "c0"), FilterSpec.equal("zone", "z1")),
+        FilterSpec.all(FilterSpec.any(FilterSpec.equal("cluster", "c0"), FilterSpec.equal("cluster", "c1")), FilterSpec.not(FilterSpec.equal("zone", "z0"))),
+        FilterSpec.greaterOrEqual("weight", "50"),
+        FilterSpec.all(FilterSpec.equal("zone", "z1"), FilterSpec.lessOrEqual("weight", "20")),
+        FilterSpec.not(FilterSpec.substringMatch("node", "node1", "")),
+        FilterSpec.any(FilterSpec.substringMatch("node", "node1", ""), FilterSpec.equal("cluster", "c2")),
+        FilterSpec.equal("cluster", "missing"),
+        FilterSpec.not(FilterSpec.equal("missing", "x")),
+        FilterSpec.all(FilterSpec.equal("zone", "z0"), FilterSpec.hasAttribute("weight"), FilterSpec.equal("node", "node12")),
+        FilterSpec.all(FilterSpec.hasAttribute("secure"), FilterSpec.not(FilterSpec.greaterOrEqual("weight", "5")), FilterSpec.equal("cluster", "c1")),
+        FilterSpec.any(FilterSpec.all(FilterSpec.equal("node", "node3"), FilterSpec.equal("zone", "z1")), FilterSpec.equal("node", "node4")),
+    };
+
+    @Test
+    public void testIndexedDiscovery() throws Exception {
+        final LocalRegistryAndDiscoveryProvider provider = new LocalRegistryAndDiscoveryProvider();
+        final List<ServiceURL> active = new ArrayList<>();
+        final List<ServiceRegistration> registrations = new ArrayList<>();
+        for (int i = 0; i < 300; i ++) {
+            final ServiceURL serviceURL = serviceURL(i);
+            final ServiceRegistration registration = provider.registerService(serviceURL);
+            registrations.add(registration);
+            if (i % 7 == 0) {
+                registration.close();
+            } else if (i % 11 == 0) {
+                registration.deactivate();
+            } else {
+                active.add(serviceURL);
+            }
+        }
+        // reuse some of the freed slots
+        for (int i = 300; i < 320; i ++) {
+            final ServiceURL serviceURL = serviceURL(i);
+            provider.registerService(serviceURL);
+            active.add(serviceURL);
+        }
+        provider.registerService(new ServiceURL.Builder().setUri(URI.create("http://other:80")).addAttribute("cluster", AttributeValue.fromString("c1")).create());
+        checkAll(provider, active);
+        registrations.get(11).activate();
+        active.add(serviceURL(11));
+        checkAll(provider, active);
+    }
+
+    @Test
+    public void testAggregateRegistration() throws Exception {
+        final LocalRegistryAndDiscoveryProvider provider = new LocalRegistryAndDiscoveryProvider();
+        final ServiceRegistration registration = provider.registerServices(serviceURL(1), serviceURL(2), serviceURL(3));
+        assertEquals(3, discover(provider, FilterSpec.all()).size());
+        registration.close();
+        assertEquals(0, discover(provider, FilterSpec.all()).size());
+    }
+
+    @Test
+    public void testServiceTypes() throws Exception {
+        final LocalRegistryAndDiscoveryProvider provider = new LocalRegistryAndDiscoveryProvider();
+        final ServiceURL https = new ServiceURL.Builder(serviceURL(1)).setUri(URI.create("remote+https://node1:8443")).create();
+        final ServiceURL jms = new ServiceURL.Builder(serviceURL(2)).setAbstractType("jms").create();
+        final ServiceURL other = new ServiceURL.Builder(serviceURL(3)).setAbstractTypeAuthority("other").create();
+        final ServiceRegistration registration = provider.registerServices(serviceURL(0), https, jms, other);
+        provider.registerService(serviceURL(4));
+        assertEquals(set(serviceURL(0), https, serviceURL(4)), discover(provider, EJB, null));
+        assertEquals(set(https), discover(provider, ServiceType.of("ejb", "jboss", "remote+https", null), null));
+        assertEquals(set(serviceURL(4)), discover(provider, ServiceType.of("ejb", "jboss", "remote+http", null), FilterSpec.equal("cluster", "c1")));
+        assertEquals(set(jms), discover(provider, ServiceType.of("jms", "jboss"), null));
+        assertEquals(set(other), discover(provider, ServiceType.of("ejb", "other"), null));
+        assertEquals(0, discover(provider, ServiceType.of("ejb", null), null).size());
+        registration.close();
+        assertEquals(set(serviceURL(4)), discover(provider, EJB, null));
+        assertEquals(0, discover(provider, ServiceType.of("jms", "jboss"), null).size());
+    }
+
+    @Test
+    public void testExplain() throws Exception {
+        final LocalRegistryAndDiscoveryProvider provider = new LocalRegistryAndDiscoveryProvider();
+        for (int i = 0; i < 100; i ++) {
+            provider.registerService(serviceURL(i));
+        }
+        final String plan = provider.explain(EJB, FilterSpec.all(FilterSpec.equal("zone", "z0"), FilterSpec.equal("cluster", "c1"), FilterSpec.equal("node", "node12")));
+        final String[] lines = plan.split("\n");
+        assertEquals(plan, 6, lines.length);
+        assertTrue(plan, lines[0].contains("100 candidate(s)"));
+        // the most selective lookup drives the intersection, and the others hardly narrow the candidates down
+        assertEquals(plan, "  and: up to 1 entries", lines[1]);
+        assertEquals(plan, "    lookup (node=node12): 1 entries", lines[2]);
+        assertEquals(plan, "    scan (cluster=c1): up to 33 entries", lines[3]);
+        assertEquals(plan, "    scan (zone=z0): up to 50 entries", lines[4]);
+        assertTrue(plan, lines[5].startsWith("  candidates are checked against"));
+
+        final String exact = provider.explain(EJB, FilterSpec.all(FilterSpec.equal("zone", "z0"), FilterSpec.equal("cluster", "c1")));
+        assertEquals(exact, "    lookup (cluster=c1): 33 entries", exact.split("\n")[2]);
+        assertEquals(exact, 4, exact.split("\n").length);
+
+        assertTrue(provider.explain(ServiceType.of("other", "jboss"), FilterSpec.all()).contains("0 candidate(s) of 100 entries"));
+    }
+
+    private static void checkAll(final DiscoveryProvider provider, final List<ServiceURL> active) throws InterruptedException {
+        for (FilterSpec filterSpec : FILTERS) {
+            final Set<ServiceURL> expected = new HashSet<>();
+            for (ServiceURL serviceURL : active) {
+                if (serviceURL.satisfies(filterSpec)) {
+                    expected.add(serviceURL);
+                }
+            }
+            assertEquals(String.valueOf(filterSpec), expected, discover(provider, filterSpec));
+        }
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, FilterSpec filterSpec) throws InterruptedException {
+        return discover(provider, EJB, filterSpec);
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, ServiceType serviceType, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(serviceType, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static Set<ServiceURL> set(ServiceURL... serviceURLs) {
+        return new HashSet<>(Arrays.asList(serviceURLs));
+    }
+
+    private static ServiceURL serviceURL(int i) {
+        final ServiceURL.Builder builder = new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + i + ":8080"))
+            .addAttribute("node", AttributeValue.fromString("node" + i))
+            .addAttribute("cluster", AttributeValue.fromString("c" + i % 3))
+            .addAttribute("zone", AttributeValue.fromString("z" + i % 2))
+            .addAttribute("weight", AttributeValue.fromInt(i % 100));
+        if (i % 5 == 0) {
+            builder.addAttribute("secure");
+        }
+        return builder.create();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.HealthFilteringDiscoveryProvider;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+
+/**
+ * Tests for the latency-aware ordering of discovery answers.
+ */
+public final class LocationRankingTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Test
+    public void testScores() {
+        final LocationRanking ranking = new LocationRanking(0.5f, 100, TimeUnit.MILLISECONDS);
+        assertEquals(0.0, ranking.getScore(location(1)), 0.0);
+        ranking.recordSuccess(location(1), 10, TimeUnit.MILLISECONDS);
+        assertEquals(10_000_000.0, ranking.getScore(location(1)), 1.0);
+        ranking.recordSuccess(location(1), 20, TimeUnit.MILLISECONDS);
+        assertEquals(15_000_000.0, ranking.getScore(location(1)), 1.0);
+        ranking.recordFailure(location(1));
+        // error rate 0.5, so one expected failure of 100 ms
+        assertEquals(115_000_000.0, ranking.getScore(location(1)), 10.0);
+        ranking.recordSuccess(location(1), 15, TimeUnit.MILLISECONDS);
+        assertEquals(15_000_000.0 + 100_000_000.0 / 3, ranking.getScore(location(1)), 10.0);
+        for (int i = 0; i < 100; i ++) {
+            ranking.recordFailure(location(2));
+        }
+        assertTrue(Double.isFinite(ranking.getScore(location(2))));
+        ranking.forget(location(1));
+        assertEquals(0.0, ranking.getScore(location(1)), 0.0);
+    }
+
+    @Test
+    public void testBoundedLocations() {
+        final LocationRanking ranking = new LocationRanking(0.5f, 100, TimeUnit.MILLISECONDS, 100);
+        for (int i = 1; i <= 1000; i ++) {
+            ranking.recordSuccess(location(i), 1, TimeUnit.MILLISECONDS);
+            // a location which keeps being reported is never the one pruned
+            ranking.recordSuccess(location(0), 1, TimeUnit.MILLISECONDS);
+        }
+        int tracked = 0;
+        for (int i = 0; i <= 1000; i ++) {
+            if (ranking.getScore(location(i)) > 0.0) {
+                tracked ++;
+            }
+        }
+        assertTrue(tracked <= 100);
+        assertTrue(ranking.getScore(location(0)) > 0.0);
+        assertTrue(ranking.getScore(location(1000)) > 0.0);
+        assertEquals(0.0, ranking.getScore(location(1)), 0.0);
+    }
+
+    @Test
+    public void testRankedDiscovery() throws Exception {
+        final HealthFilteringDiscoveryProvider provider = new HealthFilteringDiscoveryProvider(new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2), serviceURL(3), serviceURL(4))));
+        final Discovery discovery = Discovery.create(provider).withRanking(new LocationRanking());
+        discovery.processSuccessfulTarget(location(1), 30, TimeUnit.MILLISECONDS);
+        discovery.processSuccessfulTarget(location(2), 5, TimeUnit.MILLISECONDS);
+        discovery.processSuccessfulTarget(location(3), 10, TimeUnit.MILLISECONDS);
+        discovery.processSuccessfulTarget(location(4), 1, TimeUnit.MILLISECONDS);
+        discovery.processMissingTarget(location(4), new Exception("gone"));
+        assertTrue(provider.isSuppressed(location(4)));
+        // reports of success are passed on to the providers too
+        discovery.processSuccessfulTarget(location(4), 1, TimeUnit.MILLISECONDS);
+        discovery.processMissingTarget(location(4), new Exception("gone"));
+        discovery.processSuccessfulTarget(location(4), 1, TimeUnit.MILLISECONDS);
+        final List<URI> results = new ArrayList<>();
+        try (ServicesQueue queue = discovery.discover(EJB, null)) {
+            ServiceURL next;
+            while ((next = queue.takeService()) != null) {
+                results.add(next.getLocationURI());
+            }
+        }
+        assertEquals(Arrays.asList(location(2), location(3), location(1), location(4)), results);
+        // the unranked discovery returns answers in arrival order
+        results.clear();
+        try (ServicesQueue queue = discovery.withRanking(null).discover(EJB, null)) {
+            ServiceURL next;
+            while ((next = queue.takeService()) != null) {
+                results.add(next.getLocationURI());
+            }
+        }
+        assertEquals(Arrays.asList(location(1), location(2), location(3), location(4)), results);
+    }
+
+    @Test
+    public void testRankedOverflow() throws Exception {
+        final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(Arrays.asList(serviceURL(1), serviceURL(2), serviceURL(3), serviceURL(4), serviceURL(5), serviceURL(6)))).withRanking(new LocationRanking());
+        final long[] latencies = { 30, 5, 10, 1, 50, 2 };
+        for (int i = 0; i < latencies.length; i ++) {
+            discovery.processSuccessfulTarget(location(i + 1), latencies[i], TimeUnit.MILLISECONDS);
+        }
+        final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder().setBufferCapacity(3).setOverflowPolicy(OverflowPolicy.DROP_OLDEST).create();
+        final List<URI> results = new ArrayList<>();
+        try (ServicesQueue queue = discovery.discover(EJB, null, options)) {
+            for (ServiceURL serviceURL : queue.collectAll(1, TimeUnit.MINUTES)) {
+                results.add(serviceURL.getLocationURI());
+            }
+        }
+        // the worst ranked matches are the ones dropped
+        assertEquals(Arrays.asList(location(4), location(6), location(2)), results);
+    }
+
+    private static URI location(int i) {
+        return URI.create("remote+http://node" + i + ":8080");
+    }
+
+    private static ServiceURL serviceURL(int i) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(location(i))
+            .create();
+    }
+}
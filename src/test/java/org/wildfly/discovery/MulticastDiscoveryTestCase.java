@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.discovery.impl.MulticastDiscoveryProvider;
+
+/**
+ * Tests for the multicast discovery provider, on the loopback interface.
+ */
+public final class MulticastDiscoveryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    private final List<MulticastDiscoveryProvider> providers = new ArrayList<>();
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        final NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        for (int i = 0; i < 3; i ++) {
+            providers.add(new MulticastDiscoveryProvider.Builder()
+                .setPort(port)
+                .setNetworkInterface(loopback)
+                .setWaitTime(1, TimeUnit.SECONDS)
+                .setRetransmitInterval(100, TimeUnit.MILLISECONDS)
+                .create());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (MulticastDiscoveryProvider provider : providers) {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testDiscovery() throws Exception {
+        for (int i = 0; i < 3; i ++) {
+            for (int j = 0; j < 4; j ++) {
+                providers.get(i).registerService(serviceURL(i, j));
+            }
+        }
+        final Discovery discovery = Discovery.create(providers.get(0));
+        // the filter is evaluated by the responders
+        final Set<ServiceURL> expected = new HashSet<>();
+        for (int i = 0; i < 3; i ++) {
+            expected.add(serviceURL(i, 1));
+            expected.add(serviceURL(i, 3));
+        }
+        assertEquals(expected, discover(discovery, FilterSpec.equal("odd", "true"), DiscoveryRequestOptions.DEFAULT));
+        assertEquals(12, discover(discovery, null, DiscoveryRequestOptions.DEFAULT).size());
+        assertEquals(0, discover(discovery, FilterSpec.equal("odd", "maybe"), DiscoveryRequestOptions.DEFAULT).size());
+    }
+
+    @Test
+    public void testDeadlineAndLimit() throws Exception {
+        for (int i = 1; i < 3; i ++) {
+            for (int j = 0; j < 50; j ++) {
+                providers.get(i).registerService(serviceURL(i, j));
+            }
+        }
+        final Discovery discovery = Discovery.create(providers.get(0));
+        long start = System.nanoTime();
+        // the replies are split over several datagrams
+        assertEquals(100, discover(discovery, null, new DiscoveryRequestOptions.Builder().setTimeout(500, TimeUnit.MILLISECONDS).create()).size());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Took " + elapsed + " ms", elapsed >= 400 && elapsed < 5000);
+
+        start = System.nanoTime();
+        assertEquals(5, discover(discovery, null, new DiscoveryRequestOptions.Builder().setLimit(5).create()).size());
+        elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Took " + elapsed + " ms", elapsed < 900);
+    }
+
+    @Test
+    public void testMalformedRequests() throws Exception {
+        providers.get(1).registerService(serviceURL(1, 0));
+        final List<byte[]> messages = new ArrayList<>();
+        // a filter nested far too deeply
+        final ByteBuffer deep = request(1024);
+        while (deep.hasRemaining()) {
+            deep.put((byte) 4);
+        }
+        messages.add(deep.array());
+        // a filter with more children than could ever fit
+        final ByteBuffer huge = request(64);
+        huge.put(new byte[] { 2, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 });
+        messages.add(Arrays.copyOf(huge.array(), huge.position()));
+        // a request which ends halfway through
+        messages.add(Arrays.copyOf(huge.array(), 20));
+        final InetAddress group = InetAddress.getByName(MulticastDiscoveryProvider.DEFAULT_GROUP);
+        try (MulticastSocket socket = new MulticastSocket()) {
+            socket.setNetworkInterface(NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress()));
+            for (byte[] message : messages) {
+                socket.send(new DatagramPacket(message, message.length, group, port));
+            }
+        }
+        Thread.sleep(200);
+        // every provider is still answering
+        assertEquals(Collections.singleton(serviceURL(1, 0)), discover(Discovery.create(providers.get(0)), null, DiscoveryRequestOptions.DEFAULT));
+        assertEquals(Collections.singleton(serviceURL(1, 0)), discover(Discovery.create(providers.get(2)), null, DiscoveryRequestOptions.DEFAULT));
+    }
+
+    private static ByteBuffer request(int filterSize) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64 + filterSize);
+        buffer.putInt(0x57464453).put((byte) 1).put((byte) 1).putLong(42L).putInt(1);
+        for (String string : new String[] { "ejb", "jboss" }) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putShort((short) -1).putShort((short) -1);
+        // a filter follows
+        buffer.put((byte) 1);
+        return buffer;
+    }
+
+    private static Set<ServiceURL> discover(Discovery discovery, FilterSpec filterSpec, DiscoveryRequestOptions options) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = discovery.discover(EJB, filterSpec, options)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static ServiceURL serviceURL(int node, int instance) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + node + ":" + (8080 + instance)))
+            .addAttribute("node", AttributeValue.fromString("node" + node))
+            .addAttribute("odd", AttributeValue.fromString(String.valueOf(instance % 2 == 1)))
+            .create();
+    }
+}
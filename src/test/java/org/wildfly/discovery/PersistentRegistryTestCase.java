@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.discovery.impl.PersistentRegistryAndDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the persistent registry provider.
+ */
+public final class PersistentRegistryTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestart() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("registry");
+        final ServiceURL one = serviceURL("one", "c1");
+        final ServiceURL two = serviceURL("two", "c1");
+        final ServiceURL three = serviceURL("three", "c2");
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            provider.registerService(one);
+            provider.registerService(two).deactivate();
+            provider.registerService(three).close();
+            assertEquals(set(one), discover(provider, FilterSpec.equal("cluster", "c1")));
+        }
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            assertEquals(set(one), discover(provider, null));
+            // claim the restored registration again
+            provider.registerService(two).activate();
+            assertEquals(set(one, two), discover(provider, null));
+            provider.removeUnclaimed();
+            assertEquals(set(two), discover(provider, null));
+        }
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            assertEquals(set(two), discover(provider, null));
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("registry");
+        final ServiceURL keep = serviceURL("keep", "c1");
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            provider.registerService(keep).deactivate();
+            for (int i = 0; i < 2000; i ++) {
+                provider.registerService(serviceURL("node" + i, "c1")).close();
+            }
+            provider.compact();
+            assertTrue(Files.size(path) <= 64 * 1024);
+        }
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            assertEquals(set(), discover(provider, null));
+            provider.registerService(keep).activate();
+            assertEquals(set(keep), discover(provider, null));
+        }
+    }
+
+    @Test
+    public void testReadOnlyView() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("registry");
+        final ServiceURL one = serviceURL("one", "c1");
+        final ServiceURL two = serviceURL("two", "c1");
+        try (PersistentRegistryAndDiscoveryProvider writer = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            final ServiceRegistration registration = writer.registerService(one);
+            try (PersistentRegistryAndDiscoveryProvider reader = PersistentRegistryAndDiscoveryProvider.openReadOnly(path)) {
+                assertEquals(set(one), discover(reader, null));
+                writer.registerService(two);
+                registration.close();
+                assertEquals(set(two), discover(reader, null));
+                writer.compact();
+                assertEquals(set(two), discover(reader, null));
+                assertEquals(ServiceRegistration.EMPTY, reader.registerService(one));
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptLastRecord() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("registry");
+        final ServiceURL one = serviceURL("one", "c1");
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            provider.registerService(one);
+            provider.registerService(serviceURL("two", "c1"));
+        }
+        final byte[] pristine = Files.readAllBytes(path);
+        final ByteBuffer header = ByteBuffer.wrap(pristine);
+        // walk the records to the last one: the committed end is at 24, records start at 32 with a 13 byte header
+        final int committed = (int) header.getLong(24);
+        int last = 32;
+        while (last + 13 + header.getInt(last) < committed) {
+            last += 13 + header.getInt(last);
+        }
+        final int length = header.getInt(last);
+        for (int corrupt : new int[] { -1, 0, 1, length - 1, length + 1, Integer.MAX_VALUE }) {
+            final byte[] bytes = pristine.clone();
+            ByteBuffer.wrap(bytes).putInt(last, corrupt);
+            assertRecovers(path, bytes, one);
+        }
+        // every body byte, which covers the lengths and counts inside the encoded service URL
+        for (int i = last + 13; i < committed; i ++) {
+            for (byte corrupt : new byte[] { (byte) 0xff, (byte) 0x80, 0x7f, 0 }) {
+                final byte[] bytes = pristine.clone();
+                bytes[i] = corrupt;
+                assertRecovers(path, bytes, one);
+            }
+        }
+    }
+
+    private static void assertRecovers(Path path, byte[] bytes, ServiceURL intact) throws Exception {
+        Files.write(path, bytes);
+        final ServiceURL added = serviceURL("added", "c2");
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            assertTrue(discover(provider, null).contains(intact));
+            provider.registerService(added);
+        }
+        try (PersistentRegistryAndDiscoveryProvider provider = PersistentRegistryAndDiscoveryProvider.open(path)) {
+            final Set<ServiceURL> found = discover(provider, null);
+            assertTrue(found.contains(intact));
+            assertTrue(found.contains(added));
+        }
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static Set<ServiceURL> set(ServiceURL... serviceURLs) {
+        final Set<ServiceURL> set = new HashSet<>();
+        for (ServiceURL serviceURL : serviceURLs) {
+            set.add(serviceURL);
+        }
+        return set;
+    }
+
+    private static ServiceURL serviceURL(String node, String cluster) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://" + node + ":8080"))
+            .addAttribute("node", AttributeValue.fromString(node))
+            .addAttribute("cluster", AttributeValue.fromString(cluster))
+            .create();
+    }
+}
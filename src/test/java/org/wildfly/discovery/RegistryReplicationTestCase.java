@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.ReplicaDiscoveryProvider;
+import org.wildfly.discovery.impl.ReplicatedRegistryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests for the replication of a registry to replicas.
+ */
+public final class RegistryReplicationTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Test
+    public void testInProcess() throws Exception {
+        try (ReplicatedRegistryProvider leader = new ReplicatedRegistryProvider.Builder().create()) {
+            final List<ServiceRegistration> registrations = new ArrayList<>();
+            for (int i = 0; i < 200; i ++) {
+                registrations.add(leader.registerService(serviceURL(i)));
+            }
+            try (ReplicaDiscoveryProvider replica = new ReplicaDiscoveryProvider.Builder().setLeader(leader).create()) {
+                assertTrue(replica.awaitSynchronized(10, TimeUnit.SECONDS));
+                assertEquals(200, replica.getLastSyncEntryCount());
+                awaitSame(leader, replica);
+                assertEquals(100, discover(replica, FilterSpec.equal("odd", "true")).size());
+
+                // live changes
+                registrations.add(leader.registerService(serviceURL(200)));
+                registrations.get(0).close();
+                registrations.get(1).deactivate();
+                awaitSame(leader, replica);
+                registrations.get(1).activate();
+                awaitSame(leader, replica);
+
+                // changes missed while disconnected
+                replica.disconnect();
+                assertFalse(replica.isSynchronized());
+                for (int i = 2; i < 7; i ++) {
+                    registrations.get(i).close();
+                }
+                for (int i = 201; i < 206; i ++) {
+                    registrations.add(leader.registerService(serviceURL(i)));
+                }
+                assertEquals(200, discover(replica, null).size());
+                replica.reconnect();
+                assertTrue(replica.awaitSynchronized(10, TimeUnit.SECONDS));
+                awaitSame(leader, replica);
+                // only the buckets of the ten changed registrations are sent again
+                assertTrue("Sent " + replica.getLastSyncEntryCount(), replica.getLastSyncEntryCount() <= 20);
+
+                replica.disconnect();
+                replica.reconnect();
+                assertTrue(replica.awaitSynchronized(10, TimeUnit.SECONDS));
+                assertEquals(0, replica.getLastSyncEntryCount());
+            }
+        }
+    }
+
+    @Test
+    public void testSocket() throws Exception {
+        final InetSocketAddress address;
+        final ReplicatedRegistryProvider first = new ReplicatedRegistryProvider.Builder()
+            .setBindAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            .create();
+        address = first.getLocalAddress();
+        for (int i = 0; i < 50; i ++) {
+            first.registerService(serviceURL(i));
+        }
+        try (ReplicaDiscoveryProvider replica = new ReplicaDiscoveryProvider.Builder()
+            .setLeaderAddress(address)
+            .setReconnectInterval(50, TimeUnit.MILLISECONDS)
+            .create()) {
+            assertTrue(replica.awaitSynchronized(10, TimeUnit.SECONDS));
+            awaitSame(first, replica);
+            first.registerService(serviceURL(50));
+            awaitSame(first, replica);
+
+            // a new leader in the same place has other registrations, which replace all of the old ones
+            first.close();
+            try (ReplicatedRegistryProvider second = new ReplicatedRegistryProvider.Builder().setBindAddress(address).create()) {
+                for (int i = 0; i < 50; i += 2) {
+                    second.registerService(serviceURL(i));
+                }
+                awaitSame(second, replica);
+                assertTrue(replica.isSynchronized());
+            }
+        }
+    }
+
+    private static void awaitSame(DiscoveryProvider leader, DiscoveryProvider replica) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Set<ServiceURL> expected;
+        Set<ServiceURL> actual;
+        while (! (expected = discover(leader, null)).equals(actual = discover(replica, null))) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Expected " + expected.size() + " registrations but got " + actual.size());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static Set<ServiceURL> discover(DiscoveryProvider provider, FilterSpec filterSpec) throws InterruptedException {
+        final Set<ServiceURL> results = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+        }
+        return results;
+    }
+
+    private static ServiceURL serviceURL(int instance) {
+        return new ServiceURL.Builder()
+            .setAbstractType("ejb")
+            .setAbstractTypeAuthority("jboss")
+            .setUri(URI.create("remote+http://node" + instance + ":8080"))
+            .addAttribute("odd", AttributeValue.fromString(String.valueOf(instance % 2 == 1)))
+            .create();
+    }
+}
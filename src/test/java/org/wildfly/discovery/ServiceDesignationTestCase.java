@@ -20,6 +20,11 @@ package org.wildfly.discovery;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 
 import org.junit.Test;
@@ -62,6 +67,59 @@ public final class ServiceDesignationTestCase {
         assertTrue(ServiceType.of("abstract", "ata", "foo", null).implies(buildSimpleServiceURL("abstract", "ata", null, URI.create("foo://bar.com:8080"))));
     }
 
+    @Test
+    public void testServiceTypeHashCode() throws Exception {
+        assertEquals(ServiceType.of("abstract", null).hashCode(), new ServiceType("abstract", null, null, null).hashCode());
+        assertNotEquals(ServiceType.of("abstract", null, "foo", null).hashCode(), ServiceType.of("abstract", null, "bar", null).hashCode());
+        assertNotEquals(ServiceType.of("abstract", "ata", "foo", null), ServiceType.of("abstract", "ata", "foo", "bar"));
+        final ServiceDescription description = new ServiceDescription(ServiceType.of("abstract", null), FilterSpec.all());
+        assertEquals(description.hashCode(), new ServiceDescription(ServiceType.of("abstract", null), FilterSpec.all()).hashCode());
+    }
+
+    @Test
+    public void testServiceTypeCanonical() throws Exception {
+        assertSame(ServiceType.of("abstract", null), ServiceType.of("abstract", null));
+        assertSame(ServiceType.of("abstract", "ata", "foo", null), ServiceType.of("abstract", "ata", "foo", null));
+        assertNotSame(ServiceType.of("abstract", "ata"), ServiceType.of("abstract", "ata", "foo", null));
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(ServiceType.of("abstract", "ata"));
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+            assertSame(ServiceType.of("abstract", "ata"), ois.readObject());
+        }
+    }
+
+    @Test
+    public void testServiceURLTypeIds() throws Exception {
+        final ServiceURL withAbstract = buildSimpleServiceURL("abstract", "ata", "foobar", URI.create("foo://bar.com:8080"));
+        assertSame(ServiceType.of("abstract", "ata", "foo", "foobar"), withAbstract.getServiceType());
+        assertEquals(ServiceType.of("abstract", "ata", "foo", "foobar").getId(), withAbstract.getServiceTypeId());
+        assertEquals(ServiceType.of("abstract", "ata").getId(), withAbstract.getAbstractServiceTypeId());
+        final ServiceURL concrete = buildSimpleServiceURL(null, null, "foobar", URI.create("foo://bar.com:8080"));
+        assertSame(ServiceType.of("foo", "foobar"), concrete.getServiceType());
+        assertEquals(concrete.getServiceTypeId(), concrete.getAbstractServiceTypeId());
+        assertTrue(ServiceType.of("foo", "foobar").implies(concrete));
+        assertFalse(ServiceType.of("foo", null).implies(concrete));
+        assertFalse(ServiceType.of("foo", "foobar", "foo", null).implies(concrete));
+        assertEquals(new ServiceType("abstract", "ata", null, null).getId(), ServiceType.of("abstract", "ata").getId());
+    }
+
+    @Test
+    public void testUnusedServiceTypesCollected() throws Exception {
+        ServiceType held = new ServiceType("held", null, null, null);
+        final int heldId = held.getId();
+        final WeakReference<ServiceType> unused = new WeakReference<>(ServiceType.of("unused", null));
+        for (int i = 0; i < 100 && unused.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(unused.get());
+        // a type which is still in use keeps its identifier
+        assertEquals(heldId, ServiceType.of("held", null).getId());
+        assertSame(ServiceType.of("held", null), ServiceType.of("held", null));
+    }
+
     static ServiceURL buildSimpleServiceURL(String abstractType, String abstractTypeAuthority, String concreteAuthority, URI uri) {
         return new ServiceURL.Builder().setAbstractType(abstractType).setAbstractTypeAuthority(abstractTypeAuthority).setUriSchemeAuthority(concreteAuthority).setUri(uri).create();
     }
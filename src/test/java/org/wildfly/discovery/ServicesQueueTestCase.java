@@ -0,0 +1,386 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.wildfly.discovery.impl.AggregateDiscoveryProvider;
+import org.wildfly.discovery.impl.MutableDiscoveryProvider;
+import org.wildfly.discovery.impl.StaticDiscoveryProvider;
+import org.wildfly.discovery.spi.BlockingDiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+import org.wildfly.discovery.spi.DiscoveryRequest;
+import org.wildfly.discovery.spi.DiscoveryResult;
+
+/**
+ * Tests for the delivery of discovery results to services queues.
+ */
+public final class ServicesQueueTestCase {
+
+    private static final ServiceType EJB = ServiceType.of("ejb", "jboss");
+
+    @Test
+    public void testBatchDelivery() throws Exception {
+        final List<ServiceURL> first = serviceURLs(0, 500);
+        final List<ServiceURL> second = serviceURLs(500, 1000);
+        final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(first), new StaticDiscoveryProvider(second));
+        final List<ServiceURL> results = new ArrayList<>();
+        try (ServicesQueue queue = discovery.discover(EJB, null)) {
+            queue.await();
+            results.add(queue.takeService());
+            queue.drainTo(results);
+            assertNull(queue.takeService());
+            assertTrue(queue.isFinished());
+        }
+        final HashSet<ServiceURL> expected = new HashSet<>(first);
+        expected.addAll(second);
+        assertEquals(expected.size(), results.size());
+        assertEquals(expected, new HashSet<>(results));
+    }
+
+    @Test
+    public void testAsynchronousBatches() throws Exception {
+        final AtomicReference<DiscoveryResult> resultRef = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> {
+            resultRef.set(result);
+            started.countDown();
+            return DiscoveryRequest.NULL;
+        };
+        final Discovery discovery = Discovery.create(new AggregateDiscoveryProvider(new DiscoveryProvider[] { provider }));
+        try (ServicesQueue queue = discovery.discover(EJB, null)) {
+            started.await();
+            final DiscoveryResult result = resultRef.get();
+            final List<ServiceURL> drained = new ArrayList<>();
+            assertEquals(0, queue.drainTo(drained));
+            assertNull(queue.takeService(10, TimeUnit.MILLISECONDS));
+            final Thread thread = new Thread(() -> {
+                result.addMatches(serviceURLs(0, 10));
+                result.addMatches(Arrays.asList(serviceURLs(10, 11).get(0), null));
+                result.complete();
+            });
+            thread.start();
+            final List<ServiceURL> results = new ArrayList<>();
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+            thread.join();
+            assertEquals(serviceURLs(0, 11), results);
+            // ignored after completion
+            result.addMatches(serviceURLs(20, 30));
+            assertEquals(0, queue.drainTo(drained));
+            assertTrue(queue.isFinished());
+        }
+    }
+
+    @Test
+    public void testDrainWithLimit() throws Exception {
+        final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 25)));
+        try (ServicesQueue queue = discovery.discover(EJB, null)) {
+            final List<ServiceURL> results = new ArrayList<>();
+            queue.await();
+            assertEquals(10, queue.drainTo(results, 10));
+            assertEquals(10, queue.drainTo(results, 10));
+            assertEquals(5, queue.drainTo(results, 10));
+            assertEquals(0, queue.drainTo(results, 10));
+            assertTrue(queue.isFinished());
+            assertEquals(serviceURLs(0, 25), results);
+        }
+    }
+
+    @Test
+    public void testCollectAll() throws Exception {
+        final AtomicReference<DiscoveryResult> resultRef = new AtomicReference<>();
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> {
+            resultRef.set(result);
+            result.addMatches(serviceURLs(0, 5));
+            return DiscoveryRequest.NULL;
+        };
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, null)) {
+            // times out, but returns what is there
+            assertEquals(serviceURLs(0, 5), queue.collectAll(20, TimeUnit.MILLISECONDS));
+            final Thread thread = new Thread(() -> {
+                resultRef.get().addMatches(serviceURLs(5, 8));
+                resultRef.get().complete();
+            });
+            thread.start();
+            assertEquals(serviceURLs(5, 8), queue.collectAll(1, TimeUnit.MINUTES));
+            thread.join();
+            assertTrue(queue.isFinished());
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicBoolean asked = new AtomicBoolean();
+        final DiscoveryProvider slow = (serviceType, filterSpec, result) -> {
+            result.addMatch(serviceURLs(100, 101).get(0));
+            return () -> {
+                cancelled.set(true);
+                result.complete();
+            };
+        };
+        final DiscoveryProvider never = (serviceType, filterSpec, result) -> {
+            asked.set(true);
+            result.complete();
+            return DiscoveryRequest.NULL;
+        };
+        final Discovery discovery = Discovery.create(slow, new StaticDiscoveryProvider(serviceURLs(0, 10)), never);
+        try (ServicesQueue queue = discovery.discover(EJB, null, 3)) {
+            final List<ServiceURL> results = new ArrayList<>();
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+            assertEquals(Arrays.asList(serviceURLs(100, 101).get(0), serviceURLs(0, 1).get(0), serviceURLs(1, 2).get(0)), results);
+        }
+        assertTrue(cancelled.get());
+        assertFalse(asked.get());
+        // a single provider is cancelled too
+        cancelled.set(false);
+        try (ServicesQueue queue = Discovery.create(slow).discover(EJB, null, 1)) {
+            assertEquals(serviceURLs(100, 101).get(0), queue.takeService());
+            assertNull(queue.takeService());
+        }
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    public void testRequestOptions() throws Exception {
+        final AtomicReference<DiscoveryRequestOptions> seen = new AtomicReference<>();
+        final AtomicBoolean asked = new AtomicBoolean();
+        final DiscoveryProvider pending = new DiscoveryProvider() {
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+                throw new IllegalStateException();
+            }
+
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+                seen.set(options);
+                // never completes
+                return DiscoveryRequest.NULL;
+            }
+        };
+        final BlockingDiscoveryProvider blocking = (serviceType, filterSpec, result) -> asked.set(true);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // hold up the executor until the deadline has passed
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 2)), pending, blocking.toDiscoveryProvider(executor));
+            final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder().setTimeout(100, TimeUnit.MILLISECONDS).setLimit(5).setPriority(3).create();
+            final long start = System.nanoTime();
+            try (ServicesQueue queue = discovery.discover(EJB, null, options)) {
+                assertEquals(serviceURLs(0, 2), queue.collectAll(1, TimeUnit.MINUTES));
+                assertTrue(queue.isFinished());
+                assertNull(queue.takeService());
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+            assertTrue(options.isExpired());
+            // the delegate saw the remaining budget
+            assertEquals(3, seen.get().getLimit());
+            assertEquals(3, seen.get().getPriority());
+            assertEquals(options.getDeadline(), seen.get().getDeadline());
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        // the blocking provider was not called after the deadline
+        assertFalse(asked.get());
+    }
+
+    @Test
+    public void testMutableProviderOptions() throws Exception {
+        final AtomicReference<DiscoveryRequestOptions> seen = new AtomicReference<>();
+        final AtomicReference<URI> missing = new AtomicReference<>();
+        final DiscoveryProvider delegate = new DiscoveryProvider() {
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+                throw new IllegalStateException();
+            }
+
+            public DiscoveryRequest discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result, final DiscoveryRequestOptions options) {
+                seen.set(options);
+                result.complete();
+                return DiscoveryRequest.NULL;
+            }
+
+            public void processMissingTarget(final URI location, final Exception cause) {
+                missing.set(location);
+            }
+        };
+        final Discovery discovery = Discovery.create(new MutableDiscoveryProvider(delegate));
+        final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder().setTimeout(1, TimeUnit.MINUTES).setLimit(5).setPriority(3).create();
+        try (ServicesQueue queue = discovery.discover(EJB, null, options)) {
+            assertNull(queue.takeService());
+        }
+        assertEquals(5, seen.get().getLimit());
+        assertEquals(3, seen.get().getPriority());
+        assertEquals(options.getDeadline(), seen.get().getDeadline());
+        final URI location = URI.create("remote+http://node0:8080");
+        discovery.processMissingTarget(location, new Exception("gone"));
+        assertEquals(location, missing.get());
+    }
+
+    @Test
+    public void testCloseCancels() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final BlockingDiscoveryProvider blocking = (serviceType, filterSpec, result) -> {
+            result.addMatches(serviceURLs(0, 3));
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ServicesQueue queue = Discovery.create(blocking.toDiscoveryProvider(executor)).discover(EJB, null);
+            assertEquals(serviceURLs(0, 1).get(0), queue.takeService());
+            queue.close();
+            assertTrue(interrupted.await(30, TimeUnit.SECONDS));
+            // the unread answers were discarded
+            assertTrue(queue.isFinished());
+            assertNull(queue.takeService());
+            queue.close();
+            // the interrupt does not leak into the next task
+            assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(30, TimeUnit.SECONDS).booleanValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDeadlineCancels() throws Exception {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> () -> {
+            cancelled.set(true);
+            result.complete();
+        };
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, null, new DiscoveryRequestOptions.Builder().setTimeout(20, TimeUnit.MILLISECONDS).create())) {
+            assertNull(queue.takeService());
+            assertTrue(queue.isFinished());
+            assertTrue(cancelled.get());
+        }
+    }
+
+    @Test
+    public void testOverflowPolicies() throws Exception {
+        final Discovery discovery = Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 10)));
+        assertEquals(serviceURLs(0, 4), discoverWithOverflow(discovery, OverflowPolicy.DROP_NEWEST, 1));
+        assertEquals(serviceURLs(6, 10), discoverWithOverflow(discovery, OverflowPolicy.DROP_OLDEST, 1));
+        assertEquals(serviceURLs(0, 4), discoverWithOverflow(discovery, OverflowPolicy.CANCEL, 1));
+        // blocking without a timeout drops the newest matches
+        assertEquals(serviceURLs(0, 4), discoverWithOverflow(discovery, OverflowPolicy.BLOCK, 1));
+        // the problem is reported once per discovery
+        assertEquals(serviceURLs(0, 4), discoverWithOverflow(Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 4)), new StaticDiscoveryProvider(serviceURLs(4, 10))), OverflowPolicy.DROP_NEWEST, 1));
+        assertEquals(serviceURLs(0, 4), discoverWithOverflow(Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 4))), OverflowPolicy.DROP_NEWEST, 0));
+    }
+
+    @Test
+    public void testBlockingOverflow() throws Exception {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final DiscoveryProvider provider = (serviceType, filterSpec, result) -> {
+            final Thread thread = new Thread(() -> {
+                for (ServiceURL serviceURL : serviceURLs(0, 100)) {
+                    result.addMatch(serviceURL);
+                }
+                result.complete();
+            });
+            thread.start();
+            return () -> cancelled.set(true);
+        };
+        final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder()
+            .setBufferCapacity(3)
+            .setOverflowPolicy(OverflowPolicy.BLOCK)
+            .setOverflowTimeout(1, TimeUnit.MINUTES)
+            .create();
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJB, null, options)) {
+            final List<ServiceURL> results = new ArrayList<>();
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService()) != null) {
+                results.add(serviceURL);
+            }
+            assertEquals(serviceURLs(0, 100), results);
+            assertTrue(queue.getProblems().isEmpty());
+        }
+        assertFalse(cancelled.get());
+    }
+
+    @Test
+    public void testBlockingOverflowOnCallerThread() throws Exception {
+        final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder()
+            .setBufferCapacity(3)
+            .setOverflowPolicy(OverflowPolicy.BLOCK)
+            .setOverflowTimeout(1, TimeUnit.MINUTES)
+            .create();
+        final long start = System.nanoTime();
+        try (ServicesQueue queue = Discovery.create(new StaticDiscoveryProvider(serviceURLs(0, 10))).discover(EJB, null, options)) {
+            // the static provider answers on this thread, which must not wait for itself to read
+            assertEquals(serviceURLs(0, 3), queue.collectAll(1, TimeUnit.MINUTES));
+            assertEquals(1, queue.getProblems().size());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    private static List<ServiceURL> discoverWithOverflow(Discovery discovery, OverflowPolicy policy, int expectedProblems) throws InterruptedException {
+        final DiscoveryRequestOptions options = new DiscoveryRequestOptions.Builder().setBufferCapacity(4).setOverflowPolicy(policy).create();
+        try (ServicesQueue queue = discovery.discover(EJB, null, options)) {
+            final List<ServiceURL> results = queue.collectAll(1, TimeUnit.MINUTES);
+            assertTrue(queue.isFinished());
+            assertEquals(policy.toString(), expectedProblems, queue.getProblems().size());
+            return results;
+        }
+    }
+
+    private static List<ServiceURL> serviceURLs(int from, int to) {
+        final List<ServiceURL> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i ++) {
+            list.add(new ServiceURL.Builder()
+                .setAbstractType("ejb")
+                .setAbstractTypeAuthority("jboss")
+                .setUri(URI.create("remote+http://node" + i + ":8080"))
+                .create());
+        }
+        return list;
+    }
+}